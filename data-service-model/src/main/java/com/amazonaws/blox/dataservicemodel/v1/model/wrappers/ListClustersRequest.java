@@ -22,4 +22,18 @@ import lombok.Value;
 public class ListClustersRequest {
   String accountId;
   String clusterNamePrefix;
+
+  /**
+   * List only one of totalSegments disjoint segments of all clusters, a page at a time. Can't be
+   * combined with accountId.
+   */
+  Integer segment;
+
+  Integer totalSegments;
+
+  /** The nextToken of the previous page of the segment. */
+  String nextToken;
+
+  /** The maximum number of environments to read for a page of a segment. */
+  Integer maxResults;
 }
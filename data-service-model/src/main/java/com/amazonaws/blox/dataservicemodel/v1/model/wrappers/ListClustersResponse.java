@@ -30,4 +30,7 @@ import lombok.NonNull;
 @NoArgsConstructor
 public class ListClustersResponse {
   @NonNull private List<Cluster> clusters;
+
+  /** Only set when listing a segment, if it has more pages. */
+  private String nextToken;
 }
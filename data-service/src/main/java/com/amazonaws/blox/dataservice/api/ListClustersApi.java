@@ -16,8 +16,10 @@ package com.amazonaws.blox.dataservice.api;
 
 import com.amazonaws.blox.dataservice.mapper.ApiModelMapper;
 import com.amazonaws.blox.dataservice.model.Cluster;
+import com.amazonaws.blox.dataservice.repository.ClusterPage;
 import com.amazonaws.blox.dataservice.repository.EnvironmentRepository;
 import com.amazonaws.blox.dataservicemodel.v1.exception.InternalServiceException;
+import com.amazonaws.blox.dataservicemodel.v1.exception.InvalidParameterException;
 import com.amazonaws.blox.dataservicemodel.v1.model.wrappers.ListClustersRequest;
 import com.amazonaws.blox.dataservicemodel.v1.model.wrappers.ListClustersResponse;
 import java.util.List;
@@ -31,12 +33,20 @@ import org.springframework.stereotype.Component;
 @Component
 @AllArgsConstructor
 public class ListClustersApi {
+  /** The maximum number of environments to read for a page of a segment, if not given. */
+  static final int DEFAULT_MAX_RESULTS = 100;
 
   @NonNull private final ApiModelMapper apiModelMapper;
   @NonNull private final EnvironmentRepository environmentRepository;
 
   public ListClustersResponse listClusters(@NonNull final ListClustersRequest request)
-      throws InternalServiceException {
+      throws InvalidParameterException, InternalServiceException {
+    if (request.getTotalSegments() != null
+        || request.getSegment() != null
+        || request.getNextToken() != null) {
+      return listSegment(request);
+    }
+
     try {
       List<Cluster> clusters =
           environmentRepository.listClusters(
@@ -50,4 +60,43 @@ public class ListClustersApi {
       throw new InternalServiceException(e.getMessage(), e);
     }
   }
+
+  private ListClustersResponse listSegment(final ListClustersRequest request)
+      throws InvalidParameterException, InternalServiceException {
+    if (request.getAccountId() != null || request.getClusterNamePrefix() != null) {
+      throw new InvalidParameterException("accountId", "clusterNamePrefix");
+    }
+    if (request.getTotalSegments() == null || request.getTotalSegments() < 1) {
+      throw new InvalidParameterException("totalSegments");
+    }
+    if (request.getSegment() == null
+        || request.getSegment() < 0
+        || request.getSegment() >= request.getTotalSegments()) {
+      throw new InvalidParameterException("segment");
+    }
+    if (request.getMaxResults() != null && request.getMaxResults() < 1) {
+      throw new InvalidParameterException("maxResults");
+    }
+
+    final ClusterPage page;
+    try {
+      page =
+          environmentRepository.listClusters(
+              request.getSegment(),
+              request.getTotalSegments(),
+              request.getNextToken(),
+              request.getMaxResults() == null ? DEFAULT_MAX_RESULTS : request.getMaxResults());
+    } catch (final IllegalArgumentException e) {
+      throw new InvalidParameterException("nextToken");
+    } catch (final Exception e) {
+      log.error(e.getMessage(), e);
+      throw new InternalServiceException(e.getMessage(), e);
+    }
+
+    return ListClustersResponse.builder()
+        .clusters(
+            page.getClusters().stream().map(apiModelMapper::toCluster).collect(Collectors.toList()))
+        .nextToken(page.getNextToken())
+        .build();
+  }
 }
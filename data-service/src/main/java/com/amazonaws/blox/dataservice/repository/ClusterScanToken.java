@@ -0,0 +1,87 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.dataservice.repository;
+
+import static com.amazonaws.blox.dataservice.repository.model.EnvironmentDDBRecord.ACCOUNT_ID_CLUSTER_HASH_KEY;
+import static com.amazonaws.blox.dataservice.repository.model.EnvironmentDDBRecord.ENVIRONMENT_CLUSTER_INDEX_HASH_KEY;
+import static com.amazonaws.blox.dataservice.repository.model.EnvironmentDDBRecord.ENVIRONMENT_CLUSTER_INDEX_RANGE_KEY;
+import static com.amazonaws.blox.dataservice.repository.model.EnvironmentDDBRecord.ENVIRONMENT_NAME_RANGE_KEY;
+
+import com.amazonaws.blox.dataservice.model.Cluster;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import lombok.NonNull;
+import lombok.Value;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * The continuation token of a cluster scan: the key of the last environment that a page of the scan
+ * read from the cluster index.
+ *
+ * <p>The key of an index item includes the table's key, and the index key can be derived from it,
+ * so only the table key is encoded.
+ */
+@Value
+class ClusterScanToken {
+  private static final String SEPARATOR = ".";
+
+  @NonNull private final String accountIdCluster;
+  @NonNull private final String environmentName;
+
+  static ClusterScanToken fromKey(Map<String, AttributeValue> key) {
+    return new ClusterScanToken(
+        key.get(ACCOUNT_ID_CLUSTER_HASH_KEY).getS(), key.get(ENVIRONMENT_NAME_RANGE_KEY).getS());
+  }
+
+  static ClusterScanToken decode(@NonNull String token) {
+    String[] parts = token.split("\\" + SEPARATOR, -1);
+    Validate.isTrue(parts.length == 2, "Invalid nextToken: %s", token);
+
+    return new ClusterScanToken(decodePart(parts[0]), decodePart(parts[1]));
+  }
+
+  /** The cluster of the last environment read. */
+  Cluster getCluster() {
+    return Cluster.fromAccountIdCluster(accountIdCluster);
+  }
+
+  Map<String, AttributeValue> toKey() {
+    Cluster cluster = getCluster();
+
+    Map<String, AttributeValue> key = new HashMap<>();
+    key.put(ACCOUNT_ID_CLUSTER_HASH_KEY, new AttributeValue(accountIdCluster));
+    key.put(ENVIRONMENT_NAME_RANGE_KEY, new AttributeValue(environmentName));
+    key.put(ENVIRONMENT_CLUSTER_INDEX_HASH_KEY, new AttributeValue(cluster.getAccountId()));
+    key.put(ENVIRONMENT_CLUSTER_INDEX_RANGE_KEY, new AttributeValue(cluster.getClusterName()));
+    return key;
+  }
+
+  String encode() {
+    return encodePart(accountIdCluster) + SEPARATOR + encodePart(environmentName);
+  }
+
+  private static String encodePart(String part) {
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(part.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String decodePart(String part) {
+    return new String(Base64.getUrlDecoder().decode(part), StandardCharsets.UTF_8);
+  }
+}
@@ -53,6 +53,16 @@ public interface EnvironmentRepository {
 
   List<Cluster> listClusters(String accountId, String clusterNamePrefix);
 
+  /**
+   * List a page of the clusters in one of totalSegments disjoint segments of all clusters. All the
+   * clusters of an account are in the same segment.
+   *
+   * @param nextToken the token of the previous page of the segment, or null for the first page
+   * @param limit the maximum number of environments to read; a page lists fewer clusters, since
+   *     clusters can have several environments
+   */
+  ClusterPage listClusters(int segment, int totalSegments, String nextToken, int limit);
+
   void deleteEnvironment(EnvironmentId environmentId) throws InternalServiceException;
 
   EnvironmentRevision createEnvironmentRevision(EnvironmentRevision revision)
@@ -36,11 +36,13 @@ import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBQueryExpression;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBSaveExpression;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBScanExpression;
 import com.amazonaws.services.dynamodbv2.datamodeling.PaginatedList;
+import com.amazonaws.services.dynamodbv2.datamodeling.ScanResultPage;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.amazonaws.services.dynamodbv2.model.ComparisonOperator;
 import com.amazonaws.services.dynamodbv2.model.Condition;
 import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
 import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 import lombok.AllArgsConstructor;
@@ -427,6 +429,53 @@ public class EnvironmentRepositoryDDB implements EnvironmentRepository {
         .collect(Collectors.toList());
   }
 
+  @Override
+  public ClusterPage listClusters(
+      final int segment, final int totalSegments, final String nextToken, final int limit) {
+    Validate.isTrue(
+        0 <= segment && segment < totalSegments,
+        "segment must be between 0 and totalSegments - 1, was %d",
+        segment);
+    Validate.isTrue(limit > 0, "limit must be positive, was %d", limit);
+
+    DynamoDBScanExpression scan =
+        new DynamoDBScanExpression()
+            .withIndexName(EnvironmentDDBRecord.ENVIRONMENT_CLUSTER_GSI_NAME)
+            .withSegment(segment)
+            .withTotalSegments(totalSegments)
+            .withLimit(limit)
+            .withConsistentRead(false);
+
+    Cluster previous = null;
+    if (nextToken != null) {
+      ClusterScanToken token = ClusterScanToken.decode(nextToken);
+      scan.withExclusiveStartKey(token.toKey());
+      previous = token.getCluster();
+    }
+
+    ScanResultPage<EnvironmentDDBRecord> page =
+        dynamoDBMapper.scanPage(EnvironmentDDBRecord.class, scan);
+
+    // The index is sorted by cluster within each account, so the environments of a cluster are
+    // adjacent, even when they're split across pages:
+    List<Cluster> clusters = new ArrayList<>();
+    for (EnvironmentDDBRecord record : page.getResults()) {
+      Cluster cluster = environmentMapper.toCluster(record);
+      if (!cluster.equals(previous)) {
+        clusters.add(cluster);
+      }
+      previous = cluster;
+    }
+
+    return ClusterPage.builder()
+        .clusters(clusters)
+        .nextToken(
+            page.getLastEvaluatedKey() == null
+                ? null
+                : ClusterScanToken.fromKey(page.getLastEvaluatedKey()).encode())
+        .build();
+  }
+
   @Override
   public void deleteEnvironment(@NonNull final EnvironmentId environmentId)
       throws InternalServiceException {
@@ -16,13 +16,16 @@ package com.amazonaws.blox.dataservice.api;
 
 import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import com.amazonaws.blox.dataservice.mapper.ApiModelMapper;
 import com.amazonaws.blox.dataservice.model.Cluster;
+import com.amazonaws.blox.dataservice.repository.ClusterPage;
 import com.amazonaws.blox.dataservice.repository.EnvironmentRepository;
+import com.amazonaws.blox.dataservicemodel.v1.exception.InvalidParameterException;
 import com.amazonaws.blox.dataservicemodel.v1.model.wrappers.ListClustersRequest;
 import com.amazonaws.blox.dataservicemodel.v1.model.wrappers.ListClustersResponse;
 import org.junit.Test;
@@ -75,4 +78,60 @@ public class ListClustersApiTest {
         .extracting("accountId", "clusterName")
         .containsExactlyInAnyOrder(tuple("1", "alpha-one"), tuple("1", "alpha-two"));
   }
+
+  @Test
+  public void itListsAPageOfASegmentIfGiven() throws Exception {
+    when(repository.listClusters(1, 4, "token", ListClustersApi.DEFAULT_MAX_RESULTS))
+        .thenReturn(
+            ClusterPage.builder()
+                .clusters(asList(cluster("1", "alpha"), cluster("2", "beta")))
+                .nextToken("next")
+                .build());
+
+    ListClustersResponse response =
+        api.listClusters(
+            ListClustersRequest.builder().segment(1).totalSegments(4).nextToken("token").build());
+
+    assertThat(response.getClusters())
+        .extracting("accountId", "clusterName")
+        .containsExactly(tuple("1", "alpha"), tuple("2", "beta"));
+    assertThat(response.getNextToken()).isEqualTo("next");
+  }
+
+  @Test
+  public void itRejectsSegmentsOutOfRange() throws Exception {
+    assertThatThrownBy(
+            () ->
+                api.listClusters(ListClustersRequest.builder().segment(4).totalSegments(4).build()))
+        .isInstanceOf(InvalidParameterException.class);
+  }
+
+  @Test
+  public void itRejectsSegmentsFilteredByAccountId() throws Exception {
+    assertThatThrownBy(
+            () ->
+                api.listClusters(
+                    ListClustersRequest.builder()
+                        .accountId("1")
+                        .segment(0)
+                        .totalSegments(4)
+                        .build()))
+        .isInstanceOf(InvalidParameterException.class);
+  }
+
+  @Test
+  public void itRejectsInvalidNextTokens() throws Exception {
+    when(repository.listClusters(0, 4, "invalid", ListClustersApi.DEFAULT_MAX_RESULTS))
+        .thenThrow(new IllegalArgumentException("Invalid nextToken: invalid"));
+
+    assertThatThrownBy(
+            () ->
+                api.listClusters(
+                    ListClustersRequest.builder()
+                        .segment(0)
+                        .totalSegments(4)
+                        .nextToken("invalid")
+                        .build()))
+        .isInstanceOf(InvalidParameterException.class);
+  }
 }
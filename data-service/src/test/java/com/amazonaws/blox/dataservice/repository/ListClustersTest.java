@@ -18,9 +18,11 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.assertj.core.groups.Tuple.tuple;
 
+import com.amazonaws.blox.dataservice.model.Cluster;
 import com.amazonaws.blox.dataservice.model.EnvironmentId;
 import com.amazonaws.blox.dataservice.model.EnvironmentId.EnvironmentIdBuilder;
 import com.amazonaws.blox.dataservice.test.data.ModelBuilders;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import org.junit.Test;
@@ -101,6 +103,42 @@ public class ListClustersTest extends EnvironmentRepositoryTestBase {
         .hasMessageContaining("accountId must be specified");
   }
 
+  @Test
+  public void itListsEachClusterOnceAcrossSegmentsAndPages() throws Exception {
+    givenEnvironments(
+        models.environmentId(ACCOUNT_ID_ONE, "ClusterOne", "EnvironmentOne"),
+        models.environmentId(ACCOUNT_ID_ONE, "ClusterOne", "EnvironmentTwo"),
+        models.environmentId(ACCOUNT_ID_ONE, "ClusterOne", "EnvironmentThree"),
+        models.environmentId(ACCOUNT_ID_ONE, "ClusterTwo", "EnvironmentOne"),
+        models.environmentId(ACCOUNT_ID_TWO, "ClusterOne", "EnvironmentOne"),
+        models.environmentId(ACCOUNT_ID_TWO, "ClusterOne", "EnvironmentTwo"),
+        models.environmentId(ACCOUNT_ID_THREE, "ClusterThree", "EnvironmentOne"));
+
+    List<Cluster> clusters = new ArrayList<>();
+    for (int segment = 0; segment < 3; segment++) {
+      String nextToken = null;
+      do {
+        ClusterPage page = repo.listClusters(segment, 3, nextToken, 2);
+        clusters.addAll(page.getClusters());
+        nextToken = page.getNextToken();
+      } while (nextToken != null);
+    }
+
+    assertThat(clusters)
+        .extracting("accountId", "clusterName")
+        .containsExactlyInAnyOrder(
+            tuple(ACCOUNT_ID_ONE, "ClusterOne"),
+            tuple(ACCOUNT_ID_ONE, "ClusterTwo"),
+            tuple(ACCOUNT_ID_TWO, "ClusterOne"),
+            tuple(ACCOUNT_ID_THREE, "ClusterThree"));
+  }
+
+  @Test
+  public void itFailsIfNextTokenIsInvalid() throws Exception {
+    assertThatThrownBy(() -> repo.listClusters(0, 1, "invalid", 10))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
   private void givenEnvironments(List<EnvironmentId> ids) throws Exception {
     for (EnvironmentId id : ids) {
       repo.createEnvironmentAndEnvironmentRevision(
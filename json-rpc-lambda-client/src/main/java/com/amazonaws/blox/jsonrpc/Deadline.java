@@ -0,0 +1,155 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.jsonrpc;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The point in time by which a unit of work, such as a Lambda invocation, must be done.
+ *
+ * <p>A deadline is created once when the work starts, for example from the remaining time of the
+ * invocation, and then applies to every downstream call made on its behalf. Rather than passing it
+ * to every call explicitly, it can be {@link #enter() entered} on the current thread, where clients
+ * such as {@link JsonRpcLambdaClient} pick it up through {@link #current()}. {@link
+ * #bind(Executor)} carries it over to work that runs on other threads.
+ *
+ * <p>Calls that are still pending when the deadline expires fail with {@link
+ * DeadlineExceededException} and are cancelled, so that the caller can still return the results it
+ * has so far, rather than waiting for the calls until the invocation itself times out.
+ */
+public final class Deadline {
+  private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+  private static final ScheduledThreadPoolExecutor TIMER = newTimer();
+
+  /** The time in {@link System#nanoTime()} that the deadline expires at. */
+  private final long expiresAt;
+
+  private Deadline(long expiresAt) {
+    this.expiresAt = expiresAt;
+  }
+
+  /** A deadline that expires after the given time from now, or right away if it's negative. */
+  public static Deadline after(Duration duration) {
+    return new Deadline(System.nanoTime() + duration.toNanos());
+  }
+
+  /** The deadline entered on the current thread, or null if there is none. */
+  public static Deadline current() {
+    return CURRENT.get();
+  }
+
+  /** The time left until the deadline expires, or zero if it already has. */
+  public Duration remaining() {
+    long remaining = expiresAt - System.nanoTime();
+    return remaining > 0 ? Duration.ofNanos(remaining) : Duration.ZERO;
+  }
+
+  public boolean isExpired() {
+    return expiresAt - System.nanoTime() <= 0;
+  }
+
+  /**
+   * Make this the {@link #current()} deadline of this thread, until the returned scope is closed.
+   */
+  public Scope enter() {
+    Deadline previous = CURRENT.get();
+    CURRENT.set(this);
+    return () -> {
+      if (previous == null) {
+        CURRENT.remove();
+      } else {
+        CURRENT.set(previous);
+      }
+    };
+  }
+
+  /** An executor that runs tasks on the given executor with this deadline entered. */
+  public Executor bind(Executor executor) {
+    return task ->
+        executor.execute(
+            () -> {
+              try (Scope scope = enter()) {
+                task.run();
+              }
+            });
+  }
+
+  /**
+   * Bound a pending call by this deadline.
+   *
+   * @return a future with the result of the call, that fails with {@link DeadlineExceededException}
+   *     if the call hasn't completed when the deadline expires. The call is cancelled in that case.
+   */
+  public <T> CompletableFuture<T> bound(CompletableFuture<T> call) {
+    if (call.isDone()) {
+      return call;
+    }
+
+    CompletableFuture<T> bounded = new CompletableFuture<>();
+    call.whenComplete(
+        (result, error) -> {
+          if (error != null) {
+            bounded.completeExceptionally(error);
+          } else {
+            bounded.complete(result);
+          }
+        });
+
+    ScheduledFuture<?> timeout =
+        TIMER.schedule(
+            () -> {
+              if (bounded.completeExceptionally(new DeadlineExceededException())) {
+                call.cancel(false);
+              }
+            },
+            Math.max(expiresAt - System.nanoTime(), 0),
+            TimeUnit.NANOSECONDS);
+    bounded.whenComplete((result, error) -> timeout.cancel(false));
+
+    return bounded;
+  }
+
+  @Override
+  public String toString() {
+    return "Deadline(remaining=" + remaining() + ")";
+  }
+
+  private static ScheduledThreadPoolExecutor newTimer() {
+    ScheduledThreadPoolExecutor timer =
+        new ScheduledThreadPoolExecutor(
+            1,
+            r -> {
+              Thread thread = new Thread(r, "deadline-timer");
+              thread.setDaemon(true);
+              return thread;
+            });
+    // Most calls complete long before their deadline, so don't keep their timeouts around:
+    timer.setRemoveOnCancelPolicy(true);
+    return timer;
+  }
+
+  /** Restores the previous deadline of the thread when closed. */
+  @FunctionalInterface
+  public interface Scope extends AutoCloseable {
+    @Override
+    void close();
+  }
+}
@@ -42,6 +42,9 @@ import software.amazon.awssdk.services.lambda.model.InvokeResponse;
  *
  * <p>For asynchronous invocation, callers must use {@link #invokeAsync(String, Object, Class)} to
  * make a raw JSON-RPC service call.
+ *
+ * <p>Calls made while a {@link Deadline} is entered on the calling thread fail with {@link
+ * DeadlineExceededException} if the function doesn't respond before the deadline.
  */
 @Slf4j
 public class JsonRpcLambdaClient {
@@ -113,7 +116,18 @@ public class JsonRpcLambdaClient {
     InvokeRequest invokeRequest =
         InvokeRequest.builder().functionName(functionName).payload(requestPayload).build();
 
+    // Don't wait for the function beyond the deadline of the caller, if it has one:
+    Deadline deadline = Deadline.current();
+    if (deadline != null && deadline.isExpired()) {
+      CompletableFuture<Object> expired = new CompletableFuture<>();
+      expired.completeExceptionally(new DeadlineExceededException());
+      return expired;
+    }
+
     CompletableFuture<InvokeResponse> pendingRequest = lambda.invoke(invokeRequest);
+    if (deadline != null) {
+      pendingRequest = deadline.bound(pendingRequest);
+    }
     return pendingRequest.thenApply(r -> readResponse(returnType, r));
   }
 
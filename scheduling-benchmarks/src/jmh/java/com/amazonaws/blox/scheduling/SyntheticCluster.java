@@ -0,0 +1,115 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling;
+
+import com.amazonaws.blox.scheduling.scheduler.engine.EnvironmentDescription;
+import com.amazonaws.blox.scheduling.scheduler.engine.EnvironmentDescription.EnvironmentType;
+import com.amazonaws.blox.scheduling.scheduler.engine.daemon.ReplaceAfterTerminateScheduler;
+import com.amazonaws.blox.scheduling.state.ClusterSnapshot;
+import com.amazonaws.blox.scheduling.state.ClusterSnapshot.ContainerInstance;
+import com.amazonaws.blox.scheduling.state.ClusterSnapshot.Task;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * A generated cluster of daemon environments, for benchmarks.
+ *
+ * <p>Each instance runs a number of tasks, each in the next environment in turn, so that every
+ * environment has a task on (tasks per instance / environments) of the instances. A fraction of the
+ * tasks run an older revision of their environment's task definition. Tasks and instances are
+ * identified by random UUIDs and generated in random order, like ECS lists them, with a fixed seed
+ * so that every run benchmarks the same cluster.
+ */
+public class SyntheticCluster {
+  public static final String CLUSTER_NAME = "cluster";
+
+  private static final String ARN_PREFIX = "arn:aws:ecs:us-west-2:123456789012:";
+  private static final long SEED = 42;
+
+  private final ClusterSnapshot snapshot;
+  private final List<EnvironmentDescription> environments;
+
+  /**
+   * @param instances the number of container instances
+   * @param tasksPerInstance the number of tasks on every instance
+   * @param environments the number of daemon environments
+   * @param staleFraction the fraction of tasks that run an older revision than their environment
+   */
+  public SyntheticCluster(
+      int instances, int tasksPerInstance, int environments, double staleFraction) {
+    Random random = new Random(SEED);
+
+    String[] groups = new String[environments];
+    String[] currentRevisions = new String[environments];
+    String[] staleRevisions = new String[environments];
+    this.environments = new ArrayList<>(environments);
+    for (int e = 0; e < environments; e++) {
+      groups[e] = "environment-" + e;
+      currentRevisions[e] = ARN_PREFIX + "task-definition/" + groups[e] + ":2";
+      staleRevisions[e] = ARN_PREFIX + "task-definition/" + groups[e] + ":1";
+      this.environments.add(
+          EnvironmentDescription.builder()
+              .clusterName(CLUSTER_NAME)
+              .environmentName(groups[e])
+              .environmentType(EnvironmentType.Daemon)
+              .deploymentMethod(ReplaceAfterTerminateScheduler.ID)
+              .activeEnvironmentRevisionId("2")
+              .taskDefinitionArn(currentRevisions[e])
+              .build());
+    }
+
+    List<ContainerInstance> instanceList = new ArrayList<>(instances);
+    List<Task> taskList = new ArrayList<>(instances * tasksPerInstance);
+    for (int i = 0; i < instances; i++) {
+      String instanceArn = ARN_PREFIX + "container-instance/" + uuid(random);
+      instanceList.add(ContainerInstance.builder().arn(instanceArn).status("ACTIVE").build());
+
+      for (int t = 0; t < tasksPerInstance; t++) {
+        int e = (i * tasksPerInstance + t) % environments;
+        taskList.add(
+            Task.builder()
+                .arn(ARN_PREFIX + "task/" + uuid(random))
+                .containerInstanceArn(instanceArn)
+                .taskDefinitionArn(
+                    random.nextDouble() < staleFraction ? staleRevisions[e] : currentRevisions[e])
+                .group(groups[e])
+                .status("RUNNING")
+                .startedBy("blox")
+                .build());
+      }
+    }
+    Collections.shuffle(instanceList, random);
+    Collections.shuffle(taskList, random);
+
+    this.snapshot = new ClusterSnapshot(CLUSTER_NAME, taskList, instanceList);
+  }
+
+  private static UUID uuid(Random random) {
+    return new UUID(random.nextLong(), random.nextLong());
+  }
+
+  /** The cluster, as lists of tasks and instances like the Manager builds it. */
+  public ClusterSnapshot getSnapshot() {
+    return snapshot;
+  }
+
+  /** The daemon environments in the cluster. */
+  public List<EnvironmentDescription> getEnvironments() {
+    return environments;
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.scheduler;
+
+import com.amazonaws.blox.dataservicemodel.v1.model.EnvironmentId;
+import com.amazonaws.blox.lambda.PayloadCodec;
+import com.amazonaws.blox.lambda.PayloadCodecs;
+import com.amazonaws.blox.scheduling.SyntheticCluster;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to encode and decode the payload that the Manager sends to the Scheduler, in each of the
+ * supported payload formats. JSON payloads are written and read with {@link
+ * com.amazonaws.blox.scheduling.SchedulingApplication#mapper()}.
+ *
+ * <p>The size of the encoded payload (including the envelope for non-JSON formats) is reported as
+ * the {@code payloadBytes} secondary result of {@link #encode}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SchedulerInputCodecBenchmark {
+  private static final int TASKS_PER_INSTANCE = 10;
+  private static final int ENVIRONMENTS = 2;
+
+  @Param({"1000", "10000", "100000"})
+  public int tasks;
+
+  @Param({"application/json", "application/x-jackson-smile+gzip"})
+  public String contentType;
+
+  private final JavaType type = TypeFactory.defaultInstance().constructType(SchedulerInput.class);
+
+  private PayloadCodecs codecs;
+  private PayloadCodec codec;
+  private SchedulerInput input;
+  private byte[] payload;
+
+  @Setup
+  public void setup() throws IOException {
+    codecs = new SchedulerApplication().payloadCodecs();
+    codec = codecs.get(contentType);
+    SyntheticCluster cluster =
+        new SyntheticCluster(
+            Math.max(1, tasks / TASKS_PER_INSTANCE), TASKS_PER_INSTANCE, ENVIRONMENTS, 0.5);
+    input =
+        new SchedulerInput(
+            cluster.getSnapshot(),
+            cluster
+                .getEnvironments()
+                .stream()
+                .map(
+                    e ->
+                        new EnvironmentId(
+                            e.getEnvironmentName(), "123456789012", e.getClusterName()))
+                .collect(Collectors.toList()));
+
+    payload = codecs.write(codec, input, type);
+  }
+
+  @Benchmark
+  public byte[] encode(PayloadSize size) throws IOException {
+    byte[] encoded = codecs.write(codec, input, type);
+    size.payloadBytes = encoded.length;
+    return encoded;
+  }
+
+  @Benchmark
+  public SchedulerInput decode() throws IOException {
+    return codecs.read(payload, type);
+  }
+
+  /** Reports the size of the last encoded payload alongside the encoding time. */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class PayloadSize {
+    public long payloadBytes;
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.scheduler.engine;
+
+import com.amazonaws.blox.scheduling.SyntheticCluster;
+import com.amazonaws.blox.scheduling.scheduler.engine.daemon.ReplaceAfterTerminateScheduler;
+import com.amazonaws.blox.scheduling.scheduler.engine.placement.PlacementContext;
+import com.amazonaws.blox.scheduling.state.ClusterSnapshot;
+import com.amazonaws.blox.scheduling.state.CompactClusterSnapshot;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to compute the actions for one environment with each of the schedulers.
+ *
+ * <p>The snapshot is either list-backed, as the Scheduler receives it in JSON, or backed by the
+ * compact columns, as it receives it in Smile. Schedulers index a list-backed snapshot on every
+ * call, so the difference between the two is the cost of indexing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SchedulerBenchmark {
+  @Param({"1000", "10000"})
+  public int instances;
+
+  @Param({"5"})
+  public int tasksPerInstance;
+
+  @Param({"10"})
+  public int environments;
+
+  @Param({"0.0", "0.1"})
+  public double staleFraction;
+
+  @Param({"list", "compact"})
+  public String snapshotForm;
+
+  private final ReplaceAfterTerminateScheduler replaceAfterTerminate =
+      new ReplaceAfterTerminateScheduler();
+
+  private ClusterSnapshot snapshot;
+  private EnvironmentDescription environment;
+
+  @Setup
+  public void setup() {
+    SyntheticCluster cluster =
+        new SyntheticCluster(instances, tasksPerInstance, environments, staleFraction);
+
+    snapshot = cluster.getSnapshot();
+    if (snapshotForm.equals("compact")) {
+      snapshot = CompactClusterSnapshot.of(snapshot).asClusterSnapshot();
+    }
+    environment = cluster.getEnvironments().get(0);
+  }
+
+  @Benchmark
+  public List<SchedulingAction> replaceAfterTerminate() {
+    return replaceAfterTerminate.schedule(snapshot, environment);
+  }
+
+  @Benchmark
+  public List<SchedulingAction> singleTask() {
+    // Every batch places against its own capacity index:
+    return new SingleTaskScheduler(new PlacementContext(snapshot)).schedule(snapshot, environment);
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.scheduler.engine.daemon;
+
+import com.amazonaws.blox.scheduling.SyntheticCluster;
+import com.amazonaws.blox.scheduling.state.ClusterSnapshot;
+import com.amazonaws.blox.scheduling.state.CompactClusterSnapshot;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Time to index a list-backed snapshot in a {@link ClusterSummary}, and to look up the tasks of
+ * every instance in its compact form.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ClusterSummaryBenchmark {
+  @Param({"1000", "10000"})
+  public int instances;
+
+  @Param({"5", "20"})
+  public int tasksPerInstance;
+
+  @Param({"10"})
+  public int environments;
+
+  private ClusterSnapshot snapshot;
+  private ClusterSummary summary;
+
+  @Setup
+  public void setup() {
+    snapshot = new SyntheticCluster(instances, tasksPerInstance, environments, 0).getSnapshot();
+    summary = new ClusterSummary(snapshot);
+  }
+
+  @Benchmark
+  public ClusterSummary construct() {
+    return new ClusterSummary(snapshot);
+  }
+
+  @Benchmark
+  public void tasksForEveryInstance(Blackhole blackhole) {
+    CompactClusterSnapshot compact = summary.getSnapshot();
+    for (int instance = 0; instance < compact.getInstanceCount(); instance++) {
+      compact.tasksOnInstance(instance).forEach(blackhole::consume);
+    }
+  }
+}
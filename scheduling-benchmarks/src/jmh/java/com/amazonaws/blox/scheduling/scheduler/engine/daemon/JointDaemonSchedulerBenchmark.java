@@ -0,0 +1,133 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.scheduler.engine.daemon;
+
+import com.amazonaws.blox.scheduling.scheduler.engine.EnvironmentDescription;
+import com.amazonaws.blox.scheduling.scheduler.engine.EnvironmentDescription.EnvironmentType;
+import com.amazonaws.blox.scheduling.scheduler.engine.SchedulingAction;
+import com.amazonaws.blox.scheduling.state.ClusterSnapshot;
+import com.amazonaws.blox.scheduling.state.ClusterSnapshot.ContainerInstance;
+import com.amazonaws.blox.scheduling.state.ClusterSnapshot.Task;
+import com.amazonaws.blox.scheduling.state.CompactClusterSnapshot;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to compute the actions for every daemon environment in a cluster, either one environment at
+ * a time with {@link ReplaceAfterTerminateScheduler} or in a single pass with {@link
+ * JointDaemonScheduler}.
+ *
+ * <p>Each environment has a task on most instances, so that both paths have to visit every task in
+ * the snapshot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class JointDaemonSchedulerBenchmark {
+  private static final String ARN_PREFIX = "arn:aws:ecs:us-west-2:123456789012:";
+  private static final String CLUSTER_NAME = "cluster";
+
+  @Param({"10000"})
+  public int instances;
+
+  @Param({"200"})
+  public int environments;
+
+  private final ReplaceAfterTerminateScheduler perEnvironment =
+      new ReplaceAfterTerminateScheduler();
+  private final JointDaemonScheduler joint = new JointDaemonScheduler();
+
+  private ClusterSnapshot snapshot;
+  private List<EnvironmentDescription> descriptions;
+
+  @Setup
+  public void setup() {
+    String[] groups = new String[environments];
+    String[] currentRevisions = new String[environments];
+    String[] oldRevisions = new String[environments];
+    descriptions = new ArrayList<>(environments);
+    for (int e = 0; e < environments; e++) {
+      groups[e] = "environment-" + e;
+      currentRevisions[e] = ARN_PREFIX + "task-definition/" + groups[e] + ":1";
+      oldRevisions[e] = ARN_PREFIX + "task-definition/" + groups[e] + ":0";
+      descriptions.add(
+          EnvironmentDescription.builder()
+              .clusterName(CLUSTER_NAME)
+              .environmentName(groups[e])
+              .environmentType(EnvironmentType.Daemon)
+              .deploymentMethod(ReplaceAfterTerminateScheduler.ID)
+              .taskDefinitionArn(currentRevisions[e])
+              .build());
+    }
+
+    List<ContainerInstance> containerInstances = new ArrayList<>(instances);
+    List<Task> tasks = new ArrayList<>(instances * environments);
+    for (int i = 0; i < instances; i++) {
+      String instanceArn = ARN_PREFIX + "container-instance/" + i;
+      containerInstances.add(ContainerInstance.builder().arn(instanceArn).status("ACTIVE").build());
+
+      for (int e = 0; e < environments; e++) {
+        // Leave a few instances without a task for each environment, and a few running an older
+        // revision, so that both paths produce some starts and stops:
+        if ((i + e) % 97 == 0) {
+          continue;
+        }
+        tasks.add(
+            Task.builder()
+                .arn(ARN_PREFIX + "task/" + tasks.size())
+                .containerInstanceArn(instanceArn)
+                .group(groups[e])
+                .taskDefinitionArn((i + e) % 89 == 0 ? oldRevisions[e] : currentRevisions[e])
+                .status("RUNNING")
+                .startedBy("blox")
+                .build());
+      }
+    }
+    // The Scheduler receives snapshots backed by the compact columns, so share them between
+    // iterations the same way:
+    snapshot =
+        CompactClusterSnapshot.of(new ClusterSnapshot(CLUSTER_NAME, tasks, containerInstances))
+            .asClusterSnapshot();
+  }
+
+  @Benchmark
+  public List<List<SchedulingAction>> perEnvironment() {
+    List<List<SchedulingAction>> actions = new ArrayList<>(descriptions.size());
+    for (EnvironmentDescription description : descriptions) {
+      actions.add(perEnvironment.schedule(snapshot, description));
+    }
+    return actions;
+  }
+
+  @Benchmark
+  public List<List<SchedulingAction>> joint() {
+    return joint.schedule(snapshot, descriptions);
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.state;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Wall-clock time to snapshot a cluster against an ECS endpoint with a fixed round trip latency.
+ *
+ * <p>A prefetch depth of 0 lists and describes every page strictly one after another, which is the
+ * baseline that higher prefetch depths are compared against.
+ *
+ * <p>With a describe cache, every snapshot after the first one only lists the cluster, which is the
+ * steady state of a warm container on a cluster that isn't changing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ECSStateClientBenchmark {
+  private static final String CLUSTER = "benchmark";
+
+  @Param({"2000", "20000"})
+  public int tasks;
+
+  @Param({"200"})
+  public int instances;
+
+  @Param({"20"})
+  public long latencyMillis;
+
+  @Param({"0", "1", "4", "16"})
+  public int prefetchDepth;
+
+  @Param({"0", "300"})
+  public long describeCacheMaxAgeSeconds;
+
+  private LatencyInjectingECSClient ecs;
+  private ECSStateClient state;
+
+  @Setup
+  public void setup() {
+    ecs = new LatencyInjectingECSClient(tasks, instances, latencyMillis);
+    state =
+        new ECSStateClient(
+            ecs, prefetchDepth, Duration.ofSeconds(describeCacheMaxAgeSeconds), Clock.systemUTC());
+  }
+
+  @TearDown
+  public void tearDown() {
+    ecs.close();
+  }
+
+  @Benchmark
+  public ClusterSnapshot snapshotState() {
+    return state.snapshotState(CLUSTER);
+  }
+}
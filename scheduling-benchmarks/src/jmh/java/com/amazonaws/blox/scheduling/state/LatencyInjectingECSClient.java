@@ -0,0 +1,146 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.state;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import software.amazon.awssdk.services.ecs.ECSAsyncClient;
+import software.amazon.awssdk.services.ecs.model.ContainerInstance;
+import software.amazon.awssdk.services.ecs.model.DescribeContainerInstancesRequest;
+import software.amazon.awssdk.services.ecs.model.DescribeContainerInstancesResponse;
+import software.amazon.awssdk.services.ecs.model.DescribeTasksRequest;
+import software.amazon.awssdk.services.ecs.model.DescribeTasksResponse;
+import software.amazon.awssdk.services.ecs.model.ListContainerInstancesRequest;
+import software.amazon.awssdk.services.ecs.model.ListContainerInstancesResponse;
+import software.amazon.awssdk.services.ecs.model.ListTasksRequest;
+import software.amazon.awssdk.services.ecs.model.ListTasksResponse;
+import software.amazon.awssdk.services.ecs.model.Task;
+
+/**
+ * Fake ECS client that serves a synthetic cluster with a fixed number of tasks and instances, and
+ * completes every call only after a fixed delay to simulate the round trip to ECS.
+ */
+public class LatencyInjectingECSClient implements ECSAsyncClient {
+  /** The page size used by ECS for both list calls. */
+  public static final int PAGE_SIZE = 100;
+
+  private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+
+  private final int tasks;
+  private final int instances;
+  private final long latencyMillis;
+
+  public LatencyInjectingECSClient(int tasks, int instances, long latencyMillis) {
+    this.tasks = tasks;
+    this.instances = instances;
+    this.latencyMillis = latencyMillis;
+  }
+
+  @Override
+  public CompletableFuture<ListTasksResponse> listTasks(ListTasksRequest request) {
+    return delayed(
+        () -> {
+          int start = start(request.nextToken());
+          return ListTasksResponse.builder()
+              .taskArns(arns("task", start, tasks))
+              .nextToken(nextToken(start, tasks))
+              .build();
+        });
+  }
+
+  @Override
+  public CompletableFuture<DescribeTasksResponse> describeTasks(DescribeTasksRequest request) {
+    return delayed(
+        () ->
+            DescribeTasksResponse.builder()
+                .tasks(
+                    request
+                        .tasks()
+                        .stream()
+                        .map(
+                            arn ->
+                                Task.builder()
+                                    .taskArn(arn)
+                                    .desiredStatus("RUNNING")
+                                    .lastStatus("RUNNING")
+                                    .build())
+                        .collect(Collectors.toList()))
+                .build());
+  }
+
+  @Override
+  public CompletableFuture<ListContainerInstancesResponse> listContainerInstances(
+      ListContainerInstancesRequest request) {
+    return delayed(
+        () -> {
+          int start = start(request.nextToken());
+          return ListContainerInstancesResponse.builder()
+              .containerInstanceArns(arns("container-instance", start, instances))
+              .nextToken(nextToken(start, instances))
+              .build();
+        });
+  }
+
+  @Override
+  public CompletableFuture<DescribeContainerInstancesResponse> describeContainerInstances(
+      DescribeContainerInstancesRequest request) {
+    return delayed(
+        () ->
+            DescribeContainerInstancesResponse.builder()
+                .containerInstances(
+                    request
+                        .containerInstances()
+                        .stream()
+                        .map(
+                            arn ->
+                                ContainerInstance.builder()
+                                    .containerInstanceArn(arn)
+                                    .status("ACTIVE")
+                                    .build())
+                        .collect(Collectors.toList()))
+                .build());
+  }
+
+  @Override
+  public void close() {
+    timer.shutdownNow();
+  }
+
+  private <T> CompletableFuture<T> delayed(Supplier<T> response) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    timer.schedule(() -> future.complete(response.get()), latencyMillis, TimeUnit.MILLISECONDS);
+    return future;
+  }
+
+  private static int start(String nextToken) {
+    return nextToken == null ? 0 : Integer.parseInt(nextToken);
+  }
+
+  private static String nextToken(int start, int total) {
+    return start + PAGE_SIZE < total ? String.valueOf(start + PAGE_SIZE) : null;
+  }
+
+  private static List<String> arns(String type, int start, int total) {
+    return IntStream.range(start, Math.min(start + PAGE_SIZE, total))
+        .mapToObj(i -> "arn:aws:ecs:us-west-2:123456789012:" + type + "/" + i)
+        .collect(Collectors.toList());
+  }
+}
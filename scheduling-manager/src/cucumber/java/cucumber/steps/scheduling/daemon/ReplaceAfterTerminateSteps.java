@@ -16,6 +16,8 @@ package cucumber.steps.scheduling.daemon;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import com.amazonaws.blox.dataservicemodel.v1.model.Attribute;
+import com.amazonaws.blox.dataservicemodel.v1.model.InstanceGroup;
 import com.amazonaws.blox.scheduling.scheduler.engine.*;
 import com.amazonaws.blox.scheduling.scheduler.engine.EnvironmentDescription.EnvironmentDescriptionBuilder;
 import com.amazonaws.blox.scheduling.scheduler.engine.daemon.ReplaceAfterTerminateScheduler;
@@ -25,6 +27,7 @@ import com.amazonaws.blox.scheduling.state.ClusterSnapshot.Task;
 import cucumber.api.DataTable;
 import cucumber.api.java8.En;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -33,6 +36,7 @@ import java.util.stream.Collectors;
 
 public class ReplaceAfterTerminateSteps implements En {
 
+  private EnvironmentDescriptionBuilder environmentBuilder;
   private EnvironmentDescription environment;
   private ClusterSnapshot snapshot;
   private Scheduler scheduler = new ReplaceAfterTerminateScheduler();
@@ -43,9 +47,19 @@ public class ReplaceAfterTerminateSteps implements En {
     Given(
         "^a Daemon environment named \"([^\"]*)\":$",
         (String name, DataTable properties) -> {
-          EnvironmentDescriptionBuilder builder = environmentDescriptionFromTable(properties);
+          environmentBuilder = environmentDescriptionFromTable(properties).environmentName(name);
 
-          environment = builder.environmentName(name).build();
+          environment = environmentBuilder.build();
+        });
+
+    Given(
+        "^the environment targets instances with the following attributes:$",
+        (DataTable attributes) -> {
+          environment =
+              environmentBuilder
+                  .instanceGroup(
+                      new InstanceGroup(new HashSet<>(attributes.asList(Attribute.class))))
+                  .build();
         });
 
     Given(
@@ -92,6 +106,16 @@ public class ReplaceAfterTerminateSteps implements En {
 
           actions.removeAll(stopTasks);
         });
+
+    Then(
+        "^it should replace the following tasks:$",
+        (DataTable replaceTasksTable) -> {
+          List<ReplaceTask> replaceTasks = replaceTaskActionsFromTable(replaceTasksTable);
+
+          assertThat(actions).containsAll(replaceTasks);
+
+          actions.removeAll(replaceTasks);
+        });
   }
 
   private EnvironmentDescriptionBuilder environmentDescriptionFromTable(DataTable properties) {
@@ -114,12 +138,27 @@ public class ReplaceAfterTerminateSteps implements En {
         .collect(Collectors.toList());
   }
 
+  private List<ReplaceTask> replaceTaskActionsFromTable(DataTable replaceTasksTable) {
+    return replaceTasksTable
+        .asList(ReplaceTask.ReplaceTaskBuilder.class)
+        .stream()
+        .map(b -> b.clusterName(environment.getClusterName()).build())
+        .collect(Collectors.toList());
+  }
+
   private void updateSnapshotFromTable(DataTable table) {
     snapshot.getInstances().clear();
     snapshot.getTasks().clear();
     for (Map<String, String> row : table.asMaps(String.class, String.class)) {
       String instanceArn = row.get("instance");
-      snapshot.getInstances().add(ContainerInstance.builder().arn(instanceArn).build());
+      snapshot
+          .getInstances()
+          .add(
+              ContainerInstance.builder()
+                  .arn(instanceArn)
+                  .status(row.get("status"))
+                  .attributes(attributesFromDescription(row.get("attributes")))
+                  .build());
 
       for (String taskDescription : row.get("tasks").split(",")) {
         if (!taskDescription.isEmpty()) {
@@ -129,6 +168,19 @@ public class ReplaceAfterTerminateSteps implements En {
     }
   }
 
+  private Map<String, String> attributesFromDescription(String description) {
+    Map<String, String> attributes = new HashMap<>();
+    if (description != null) {
+      for (String attribute : description.split(",")) {
+        if (!attribute.isEmpty()) {
+          String[] parts = attribute.split("=");
+          attributes.put(parts[0], parts[1]);
+        }
+      }
+    }
+    return attributes;
+  }
+
   private Task taskFromDescription(String instanceArn, String description) {
     String[] parts = description.split(":");
     String group = parts.length > 3 ? parts[3] : environment.getEnvironmentName();
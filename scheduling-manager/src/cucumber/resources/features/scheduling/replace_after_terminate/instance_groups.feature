@@ -0,0 +1,46 @@
+Feature: Deploying a Daemon environment to an instance group with Replace After Terminate
+
+  Background:
+    Given a cluster named "TestCluster"
+    And a Daemon environment named "DaemonEnvironment":
+      | clusterName | deploymentMethod      | taskDefinitionArn |
+      | TestCluster | ReplaceAfterTerminate | v1                |
+    And the environment targets instances with the following attributes:
+      | name  | value      |
+      | stack | prod       |
+      | zone  | us-west-2a |
+
+  Scenario: Scheduling only on instances with every attribute of the instance group
+    Given the cluster has the following instances and tasks:
+      | instance | attributes                 | tasks |
+      | i-1      | stack=prod,zone=us-west-2a |       |
+      | i-2      | stack=prod,zone=us-west-2b |       |
+      | i-3      | zone=us-west-2a            |       |
+      | i-4      |                            |       |
+    When the scheduler runs
+    Then it should start the following tasks:
+      | containerInstanceArn | taskDefinitionArn | group             |
+      | i-1                  | v1                | DaemonEnvironment |
+    And it should not take any further actions
+
+  Scenario: Scheduling on instances that are no longer part of the instance group
+    Given the cluster has the following instances and tasks:
+      | instance | attributes                 | tasks          |
+      | i-1      | stack=prod,zone=us-west-2a | t-1:v1:RUNNING |
+      | i-2      | stack=test,zone=us-west-2a | t-2:v1:RUNNING |
+    When the scheduler runs
+    Then it should stop the following tasks:
+      | task | reason                                        |
+      | t-2  | Stopped by deployment to DaemonEnvironment@v1 |
+    And it should not take any further actions
+
+  Scenario: Scheduling on instances that are draining
+    Given the cluster has the following instances and tasks:
+      | instance | status   | attributes                 | tasks |
+      | i-1      | ACTIVE   | stack=prod,zone=us-west-2a |       |
+      | i-2      | DRAINING | stack=prod,zone=us-west-2a |       |
+    When the scheduler runs
+    Then it should start the following tasks:
+      | containerInstanceArn | taskDefinitionArn | group             |
+      | i-1                  | v1                | DaemonEnvironment |
+    And it should not take any further actions
@@ -12,9 +12,33 @@ Feature: Deploying a Daemon environment to a cluster with Replace After Terminat
       | i-1      | t-1:v1:RUNNING |
       | i-2      | t-2:v2:RUNNING |
     When the scheduler runs
+    Then it should replace the following tasks:
+      | task | containerInstanceArn | taskDefinitionArn | group             | reason                                        |
+      | t-1  | i-1                  | v2                | DaemonEnvironment | Stopped by deployment to DaemonEnvironment@v2 |
+    And it should not take any further actions
+
+  Scenario: Scheduling on an instance that already runs the environment version
+    Given the cluster has the following instances and tasks:
+      | instance | tasks                         |
+      | i-1      | t-1:v1:RUNNING,t-3:v2:RUNNING |
+      | i-2      | t-2:v2:RUNNING                |
+    When the scheduler runs
+    Then it should stop the following tasks:
+      | task | reason                                        |
+      | t-1  | Stopped by deployment to DaemonEnvironment@v2 |
+    And it should not take any further actions
+
+  Scenario: Scheduling on an instance with several tasks that don't match the environment version
+    Given the cluster has the following instances and tasks:
+      | instance | tasks                         |
+      | i-1      | t-1:v1:RUNNING,t-3:v1:PENDING |
+    When the scheduler runs
+    Then it should replace the following tasks:
+      | task | containerInstanceArn | taskDefinitionArn | group             | reason                                        |
+      | t-1  | i-1                  | v2                | DaemonEnvironment | Stopped by deployment to DaemonEnvironment@v2 |
     Then it should stop the following tasks:
-      | clusterName | task           | reason                |
-      | TestCluster | v1             | Stopped by deployment to DaemonEnvironment@v2 |
+      | task | reason                                        |
+      | t-3  | Stopped by deployment to DaemonEnvironment@v2 |
     And it should not take any further actions
 
   Scenario: Scheduling on a cluster with multiple actions
@@ -27,7 +51,7 @@ Feature: Deploying a Daemon environment to a cluster with Replace After Terminat
     Then it should start the following tasks:
       | containerInstanceArn | taskDefinitionArn | group             |
       | i-3                  | v2                | DaemonEnvironment |
-    Then it should stop the following tasks:
-      | clusterName | task           | reason                |
-      | TestCluster | v1             | Stopped by deployment to DaemonEnvironment@v2 |
+    Then it should replace the following tasks:
+      | task | containerInstanceArn | taskDefinitionArn | group             | reason                                        |
+      | t-1  | i-1                  | v2                | DaemonEnvironment | Stopped by deployment to DaemonEnvironment@v2 |
     And it should not take any further actions
\ No newline at end of file
@@ -14,10 +14,11 @@
  */
 package com.amazonaws.blox.lambda;
 
+import com.amazonaws.blox.jsonrpc.Deadline;
+import com.amazonaws.blox.jsonrpc.DeadlineExceededException;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectReader;
-import com.fasterxml.jackson.databind.ObjectWriter;
-import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.fasterxml.jackson.databind.type.TypeFactory;
 import java.nio.ByteBuffer;
 import java.util.concurrent.CompletableFuture;
 import lombok.SneakyThrows;
@@ -31,17 +32,33 @@ import software.amazon.awssdk.services.lambda.model.InvokeResponse;
 public class AwsSdkV2LambdaFunction<IN, OUT> implements LambdaFunction<IN, OUT> {
 
   private final LambdaAsyncClient lambda;
-  private final ObjectReader reader;
-  private final ObjectWriter writer;
+  private final PayloadCodecs codecs;
+  private final PayloadCodec requestCodec;
+  private final JavaType outputType;
   private final String functionName;
 
   public AwsSdkV2LambdaFunction(
       LambdaAsyncClient lambda, ObjectMapper mapper, Class<OUT> outputClass, String functionName) {
+    this(lambda, new PayloadCodecs(mapper), null, outputClass, functionName);
+  }
+
+  /**
+   * @param codecs the payload formats that responses from the function may be in
+   * @param requestCodec the format to send requests in, or null for JSON. The function must be able
+   *     to decode this format.
+   */
+  public AwsSdkV2LambdaFunction(
+      LambdaAsyncClient lambda,
+      PayloadCodecs codecs,
+      PayloadCodec requestCodec,
+      Class<OUT> outputClass,
+      String functionName) {
 
     this.lambda = lambda;
 
-    this.reader = mapper.readerFor(outputClass);
-    this.writer = mapper.writer();
+    this.codecs = codecs;
+    this.requestCodec = requestCodec == null ? codecs.getJson() : requestCodec;
+    this.outputType = TypeFactory.defaultInstance().constructType(outputClass);
 
     this.functionName = functionName;
   }
@@ -75,16 +92,31 @@ public class AwsSdkV2LambdaFunction<IN, OUT> implements LambdaFunction<IN, OUT>
             .payload(payload)
             .build();
 
-    return lambda.invoke(request);
+    // Don't wait for the function beyond the deadline of the caller, if it has one:
+    Deadline deadline = Deadline.current();
+    if (deadline == null) {
+      return lambda.invoke(request);
+    }
+    if (deadline.isExpired()) {
+      CompletableFuture<InvokeResponse> expired = new CompletableFuture<>();
+      expired.completeExceptionally(new DeadlineExceededException());
+      return expired;
+    }
+    return deadline.bound(lambda.invoke(request));
   }
 
   @SneakyThrows
   private ByteBuffer serialize(IN input) {
-    return ByteBuffer.wrap(writer.writeValueAsBytes(input));
+    JavaType inputType = TypeFactory.defaultInstance().constructType(input.getClass());
+    return ByteBuffer.wrap(codecs.write(requestCodec, input, inputType));
   }
 
   @SneakyThrows
   private OUT deserialize(InvokeResponse response) {
-    return reader.readValue(new ByteBufferBackedInputStream(response.payload()));
+    ByteBuffer payload = response.payload().asReadOnlyBuffer();
+    byte[] bytes = new byte[payload.remaining()];
+    payload.get(bytes);
+
+    return codecs.read(bytes, outputType);
   }
 }
@@ -0,0 +1,340 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.lambda;
+
+import com.amazonaws.blox.jsonrpc.Deadline;
+import com.amazonaws.blox.jsonrpc.DeadlineExceededException;
+import com.amazonaws.blox.retry.Retries;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * LambdaFunction decorator that bounds the number of invocations in flight at once, and retries
+ * invocations that Lambda throttles.
+ *
+ * <p>The limit adjusts with additive increase/multiplicative decrease (AIMD): it grows slowly while
+ * invocations succeed, and is halved whenever one is throttled, so that it settles just below the
+ * function's actual concurrency limit, which isn't known in advance. Invocations beyond the limit
+ * wait in a queue rather than being sent to Lambda, and throttled invocations go back to the front
+ * of the queue after a jittered exponential backoff, up to a maximum number of attempts.
+ *
+ * <p>Invocations made under a {@link Deadline} aren't started, or retried, once it has expired.
+ *
+ * <p>Every invocation completes on its own, so callers that fan out to many invocations get the
+ * result of each one, rather than failing all of them because some were throttled.
+ */
+@Slf4j
+public class ConcurrencyLimitedLambdaFunction<IN, OUT>
+    implements LambdaFunction<IN, OUT>, AutoCloseable {
+  public static final int DEFAULT_MAX_ATTEMPTS = 5;
+  public static final Duration DEFAULT_RETRY_BASE_DELAY = Duration.ofMillis(100);
+  public static final Duration DEFAULT_RETRY_MAX_DELAY = Duration.ofSeconds(5);
+
+  /** How much the limit grows by for every limit's worth of successful invocations. */
+  static final double ADDITIVE_INCREASE = 1.0;
+
+  /** How much the limit is reduced by when an invocation is throttled. */
+  static final double MULTIPLICATIVE_DECREASE = 0.5;
+
+  private final String functionName;
+  private final LambdaFunction<IN, OUT> function;
+  private final double minLimit;
+  private final double maxLimit;
+  private final int maxAttempts;
+  private final Duration baseDelay;
+  private final Duration maxDelay;
+  private final ScheduledExecutorService retries;
+  private final LongSupplier nanoClock;
+
+  private final Deque<Invocation<?>> queue = new ArrayDeque<>();
+  private double limit;
+  private int inFlight = 0;
+
+  /**
+   * Throttles of invocations that were started before the last decrease were caused by the old
+   * limit, and shouldn't reduce the limit again.
+   */
+  private long decreasedAt;
+
+  private long invocations = 0;
+  private long queuedInvocations = 0;
+  private long throttles = 0;
+  private long retried = 0;
+
+  public ConcurrencyLimitedLambdaFunction(
+      String functionName,
+      LambdaFunction<IN, OUT> function,
+      double initialLimit,
+      double minLimit,
+      double maxLimit) {
+    this(
+        functionName,
+        function,
+        initialLimit,
+        minLimit,
+        maxLimit,
+        DEFAULT_MAX_ATTEMPTS,
+        DEFAULT_RETRY_BASE_DELAY,
+        DEFAULT_RETRY_MAX_DELAY);
+  }
+
+  public ConcurrencyLimitedLambdaFunction(
+      String functionName,
+      LambdaFunction<IN, OUT> function,
+      double initialLimit,
+      double minLimit,
+      double maxLimit,
+      int maxAttempts,
+      Duration baseDelay,
+      Duration maxDelay) {
+    this(
+        functionName,
+        function,
+        initialLimit,
+        minLimit,
+        maxLimit,
+        maxAttempts,
+        baseDelay,
+        maxDelay,
+        Executors.newSingleThreadScheduledExecutor(
+            r -> {
+              Thread thread = new Thread(r, "lambda-concurrency-limiter");
+              thread.setDaemon(true);
+              return thread;
+            }),
+        System::nanoTime);
+  }
+
+  public ConcurrencyLimitedLambdaFunction(
+      String functionName,
+      LambdaFunction<IN, OUT> function,
+      double initialLimit,
+      double minLimit,
+      double maxLimit,
+      int maxAttempts,
+      Duration baseDelay,
+      Duration maxDelay,
+      ScheduledExecutorService retries,
+      LongSupplier nanoClock) {
+    if (minLimit < 1 || minLimit > initialLimit || initialLimit > maxLimit) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Invalid concurrency limits: initial %s, min %s, max %s",
+              initialLimit, minLimit, maxLimit));
+    }
+    if (maxAttempts < 1) {
+      throw new IllegalArgumentException("maxAttempts must be positive: " + maxAttempts);
+    }
+
+    this.functionName = functionName;
+    this.function = function;
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.maxAttempts = maxAttempts;
+    this.baseDelay = baseDelay;
+    this.maxDelay = maxDelay;
+    this.retries = retries;
+    this.nanoClock = nanoClock;
+
+    this.limit = initialLimit;
+    this.decreasedAt = nanoClock.getAsLong();
+  }
+
+  @Override
+  public CompletableFuture<OUT> callAsync(IN input) {
+    return submit(() -> function.callAsync(input));
+  }
+
+  @Override
+  public CompletableFuture<Void> triggerAsync(IN input) {
+    return submit(() -> function.triggerAsync(input));
+  }
+
+  @Override
+  public void close() {
+    retries.shutdownNow();
+  }
+
+  public synchronized Metrics metrics() {
+    return Metrics.builder()
+        .limit(limit)
+        .inFlight(inFlight)
+        .queued(queue.size())
+        .invocations(invocations)
+        .queuedInvocations(queuedInvocations)
+        .throttles(throttles)
+        .retries(retried)
+        .build();
+  }
+
+  private <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> call) {
+    Invocation<T> invocation = new Invocation<>(call, Deadline.current());
+    synchronized (this) {
+      invocations++;
+      if (inFlight >= (int) limit || !queue.isEmpty()) {
+        queuedInvocations++;
+      }
+      queue.addLast(invocation);
+    }
+    drain();
+    return invocation.result;
+  }
+
+  /**
+   * Start queued invocations until the limit is reached, skipping those whose deadline has expired.
+   */
+  private void drain() {
+    List<Invocation<?>> ready = new ArrayList<>();
+    List<Invocation<?>> expired = new ArrayList<>();
+    synchronized (this) {
+      while (!queue.isEmpty() && inFlight < (int) limit) {
+        Invocation<?> invocation = queue.removeFirst();
+        if (invocation.isExpired()) {
+          // The caller has stopped waiting for it, so don't use up the limit for it:
+          expired.add(invocation);
+        } else {
+          inFlight++;
+          ready.add(invocation);
+        }
+      }
+    }
+
+    // Complete them outside the lock, since the underlying function may complete them
+    // synchronously, and callers may submit more invocations when they complete:
+    expired.forEach(
+        invocation -> invocation.result.completeExceptionally(new DeadlineExceededException()));
+    ready.forEach(this::start);
+  }
+
+  private <T> void start(Invocation<T> invocation) {
+    invocation.attempts++;
+    long startedAt = nanoClock.getAsLong();
+
+    // The invocation may start on another thread than it was submitted on:
+    CompletableFuture<T> pending;
+    try (Deadline.Scope scope = LambdaDeadlines.enter(invocation.deadline)) {
+      pending = invocation.call.get();
+    } catch (RuntimeException e) {
+      pending = new CompletableFuture<>();
+      pending.completeExceptionally(e);
+    }
+
+    pending.whenComplete(
+        (result, error) -> {
+          boolean throttled = error != null && Retries.isThrottling(error);
+          onComplete(error == null, throttled, startedAt);
+
+          long delay = throttled ? Retries.backoff(invocation.attempts, baseDelay, maxDelay) : 0;
+          if (throttled && invocation.attempts < maxAttempts && invocation.hasTimeFor(delay)) {
+            log.info(
+                "Lambda throttled invocation of '{}' (attempt {}), retrying in {}ms: {}",
+                functionName,
+                invocation.attempts,
+                delay,
+                metrics());
+            retries.schedule(() -> retry(invocation), delay, TimeUnit.MILLISECONDS);
+          } else if (error != null) {
+            invocation.result.completeExceptionally(error);
+          } else {
+            invocation.result.complete(result);
+          }
+
+          drain();
+        });
+  }
+
+  private synchronized void onComplete(boolean successful, boolean throttled, long startedAt) {
+    inFlight--;
+    if (successful) {
+      // Grow by ADDITIVE_INCREASE for every limit's worth of successful invocations:
+      limit = Math.min(maxLimit, limit + ADDITIVE_INCREASE / limit);
+    } else if (throttled) {
+      throttles++;
+      if (startedAt - decreasedAt >= 0) {
+        limit = Math.max(minLimit, limit * MULTIPLICATIVE_DECREASE);
+        decreasedAt = nanoClock.getAsLong();
+      }
+    }
+  }
+
+  private void retry(Invocation<?> invocation) {
+    synchronized (this) {
+      retried++;
+      // Retries go ahead of invocations that haven't been attempted yet, so they don't starve:
+      queue.addFirst(invocation);
+    }
+    drain();
+  }
+
+  private static class Invocation<T> {
+    private final Supplier<CompletableFuture<T>> call;
+
+    /** The deadline of the caller, or null if it has none. */
+    private final Deadline deadline;
+
+    private final CompletableFuture<T> result = new CompletableFuture<>();
+    private int attempts = 0;
+
+    private Invocation(Supplier<CompletableFuture<T>> call, Deadline deadline) {
+      this.call = call;
+      this.deadline = deadline;
+    }
+
+    private boolean isExpired() {
+      return deadline != null && deadline.isExpired();
+    }
+
+    private boolean hasTimeFor(long delayMillis) {
+      return deadline == null || deadline.remaining().toMillis() > delayMillis;
+    }
+  }
+
+  @Value
+  @Builder
+  public static class Metrics {
+    /** The current limit on invocations in flight. */
+    private final double limit;
+
+    /** The number of invocations currently in flight. */
+    private final int inFlight;
+
+    /** The number of invocations currently waiting to start. */
+    private final int queued;
+
+    /** The number of invocations made through this function. */
+    private final long invocations;
+
+    /** The number of invocations that had to wait for others to complete before starting. */
+    private final long queuedInvocations;
+
+    /** The number of attempts that Lambda throttled. */
+    private final long throttles;
+
+    /** The number of throttled attempts that were retried. */
+    private final long retries;
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.lambda;
+
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * LambdaFunction that calls a handler in the same JVM, without serializing its input or output.
+ *
+ * <p>Both calls and triggers run the handler on the given executor, and only complete once it
+ * returns, so that callers that wait for a trigger wait for the work it started. Handlers get no
+ * {@link com.amazonaws.services.lambda.runtime.Context}, since an in-process call has no deadline.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class InProcessLambdaFunction<IN, OUT> implements LambdaFunction<IN, OUT> {
+  private final String functionName;
+  private final RequestHandler<IN, OUT> handler;
+  private final Executor executor;
+
+  @Override
+  public CompletableFuture<OUT> callAsync(IN input) {
+    log.debug("calling '{}' in process with input: {}", functionName, input);
+    return CompletableFuture.supplyAsync(() -> handler.handleRequest(input, null), executor);
+  }
+
+  @Override
+  public CompletableFuture<Void> triggerAsync(IN input) {
+    return callAsync(input)
+        .handle(
+            (output, e) -> {
+              if (e != null) {
+                log.error("'{}' failed for input: {}", functionName, input, e);
+              }
+              return null;
+            });
+  }
+}
@@ -17,9 +17,9 @@ package com.amazonaws.blox.lambda;
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
 import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectReader;
-import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.type.TypeFactory;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -36,6 +36,9 @@ import org.springframework.beans.factory.annotation.Autowired;
  * <p>The default Lambda sandbox does not allow customization of the way that the function's inputs
  * and outputs are serialized. This class provides a way to inject a Jackson {@link ObjectMapper}
  * instance that can be configured as needed.
+ *
+ * <p>Requests can be in any of the formats supported by the given {@link PayloadCodecs}, and are
+ * responded to in the same format.
  */
 @Slf4j
 public class JacksonRequestStreamHandler<IN, OUT> implements RequestStreamHandler {
@@ -43,12 +46,18 @@ public class JacksonRequestStreamHandler<IN, OUT> implements RequestStreamHandle
   private static final TypeVariable<Class<RequestHandler>>[] PARAMETERS =
       RequestHandler.class.getTypeParameters();
 
-  private final ObjectReader reader;
-  private final ObjectWriter writer;
+  private final PayloadCodecs codecs;
+  private final JavaType inputType;
+  private final JavaType outputType;
   private final RequestHandler<IN, OUT> innerHandler;
 
   @Autowired
   public JacksonRequestStreamHandler(ObjectMapper mapper, RequestHandler<IN, OUT> innerHandler) {
+    this(new PayloadCodecs(mapper), innerHandler);
+  }
+
+  public JacksonRequestStreamHandler(PayloadCodecs codecs, RequestHandler<IN, OUT> innerHandler) {
+    this.codecs = codecs;
     this.innerHandler = innerHandler;
 
     Map<TypeVariable<?>, Type> arguments =
@@ -56,19 +65,21 @@ public class JacksonRequestStreamHandler<IN, OUT> implements RequestStreamHandle
     Type inputType = arguments.get(PARAMETERS[0]);
     Type outputType = arguments.get(PARAMETERS[1]);
 
-    this.reader = mapper.readerFor(mapper.constructType(inputType));
-    this.writer = mapper.writerFor(mapper.constructType(outputType));
+    TypeFactory types = TypeFactory.defaultInstance();
+    this.inputType = types.constructType(inputType);
+    this.outputType = types.constructType(outputType);
   }
 
   @Override
   public void handleRequest(InputStream input, OutputStream output, Context context)
       throws IOException {
-    IN request = reader.readValue(input);
-    log.debug("Request: {}", request);
+    PayloadCodecs.Payload payload = codecs.open(input);
+    IN request = payload.decode(inputType);
+    log.debug("Request ({}): {}", payload.getCodec().getContentType(), request);
 
     OUT response = innerHandler.handleRequest(request, context);
     log.debug("Response: {}", response);
 
-    writer.writeValue(output, response);
+    output.write(codecs.write(payload.getCodec(), response, outputType));
   }
 }
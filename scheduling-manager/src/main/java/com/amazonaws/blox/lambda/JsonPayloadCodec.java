@@ -0,0 +1,43 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.lambda;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import lombok.RequiredArgsConstructor;
+
+/** Plain JSON payloads, as understood by every Lambda function and by the Lambda console. */
+@RequiredArgsConstructor
+public class JsonPayloadCodec implements PayloadCodec {
+  public static final String CONTENT_TYPE = "application/json";
+
+  private final ObjectMapper mapper;
+
+  @Override
+  public String getContentType() {
+    return CONTENT_TYPE;
+  }
+
+  @Override
+  public byte[] encode(Object value, JavaType type) throws IOException {
+    return mapper.writerFor(type).writeValueAsBytes(value);
+  }
+
+  @Override
+  public <T> T decode(byte[] payload, JavaType type) throws IOException {
+    return mapper.readerFor(type).readValue(payload);
+  }
+}
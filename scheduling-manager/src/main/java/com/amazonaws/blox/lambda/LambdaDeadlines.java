@@ -0,0 +1,44 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.lambda;
+
+import com.amazonaws.blox.jsonrpc.Deadline;
+import com.amazonaws.services.lambda.runtime.Context;
+import java.time.Duration;
+
+/** Creates the {@link Deadline} of a Lambda invocation from its {@link Context}. */
+public final class LambdaDeadlines {
+  /** The time to leave before the invocation times out, to return partial results in. */
+  public static final long DEFAULT_RESERVED_MILLIS = 2_000;
+
+  private LambdaDeadlines() {}
+
+  /**
+   * @return the deadline of the invocation, less {@link #DEFAULT_RESERVED_MILLIS}, or null if it
+   *     has no context, such as when it's called in process
+   */
+  public static Deadline of(Context context) {
+    if (context == null) {
+      return null;
+    }
+    return Deadline.after(
+        Duration.ofMillis(context.getRemainingTimeInMillis() - DEFAULT_RESERVED_MILLIS));
+  }
+
+  /** Enter the given deadline on the current thread, or do nothing if it's null. */
+  public static Deadline.Scope enter(Deadline deadline) {
+    return deadline == null ? () -> {} : deadline.enter();
+  }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.lambda;
+
+import com.fasterxml.jackson.databind.JavaType;
+import java.io.IOException;
+
+/**
+ * Serialization format for the payloads that Lambda functions in this project exchange.
+ *
+ * <p>Every codec is identified by a content type, which is recorded in the payload by {@link
+ * PayloadCodecs} so that the receiving function can pick the matching codec.
+ */
+public interface PayloadCodec {
+
+  /** The MIME type of payloads produced by this codec. */
+  String getContentType();
+
+  byte[] encode(Object value, JavaType type) throws IOException;
+
+  <T> T decode(byte[] payload, JavaType type) throws IOException;
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.lambda;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import lombok.Value;
+
+/**
+ * The set of payload formats that a Lambda function accepts, and the envelope that identifies the
+ * format of a payload.
+ *
+ * <p>Lambda only accepts JSON invocation payloads, so payloads in other formats are wrapped in an
+ * envelope that records their content type:
+ *
+ * <pre>{"$contentType": "application/x-jackson-smile+gzip", "$payload": "&lt;base64&gt;"}</pre>
+ *
+ * <p>JSON payloads are never wrapped, so that functions can still be invoked with plain JSON (e.g.
+ * by CloudWatch Events or from the Lambda console), and any payload without an envelope is decoded
+ * as JSON.
+ */
+public class PayloadCodecs {
+  static final String CONTENT_TYPE_FIELD = "$contentType";
+  static final String PAYLOAD_FIELD = "$payload";
+
+  private static final int BUFFER_SIZE = 8192;
+
+  private final JsonFactory envelopeFactory = new JsonFactory();
+  private final PayloadCodec json;
+  private final Map<String, PayloadCodec> codecs = new HashMap<>();
+
+  /**
+   * @param mapper the mapper to use for JSON payloads
+   * @param additionalCodecs codecs for other payload formats that should be accepted
+   */
+  public PayloadCodecs(ObjectMapper mapper, PayloadCodec... additionalCodecs) {
+    this.json = new JsonPayloadCodec(mapper);
+
+    codecs.put(json.getContentType(), json);
+    for (PayloadCodec codec : additionalCodecs) {
+      codecs.put(codec.getContentType(), codec);
+    }
+  }
+
+  public PayloadCodec getJson() {
+    return json;
+  }
+
+  /**
+   * @return the codec for the given content type
+   * @throws IllegalArgumentException if the content type isn't supported
+   */
+  public PayloadCodec get(String contentType) {
+    PayloadCodec codec = codecs.get(contentType);
+    if (codec == null) {
+      throw new IllegalArgumentException("Unsupported payload content type: " + contentType);
+    }
+    return codec;
+  }
+
+  /** Encode the given value with the given codec, wrapping it in an envelope if needed. */
+  public byte[] write(PayloadCodec codec, Object value, JavaType type) throws IOException {
+    byte[] payload = codec.encode(value, type);
+    if (codec == json) {
+      return payload;
+    }
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(payload.length * 4 / 3 + 100);
+    try (JsonGenerator generator = envelopeFactory.createGenerator(bytes)) {
+      generator.writeStartObject();
+      generator.writeStringField(CONTENT_TYPE_FIELD, codec.getContentType());
+      generator.writeFieldName(PAYLOAD_FIELD);
+      generator.writeBinary(payload);
+      generator.writeEndObject();
+    }
+    return bytes.toByteArray();
+  }
+
+  /** Unwrap the given payload, and find the codec that it was encoded with. */
+  public Payload open(byte[] payload) throws IOException {
+    try (JsonParser parser = envelopeFactory.createParser(payload)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT
+          || !CONTENT_TYPE_FIELD.equals(parser.nextFieldName())) {
+        return new Payload(json, payload);
+      }
+
+      PayloadCodec codec = get(parser.nextTextValue());
+      if (!PAYLOAD_FIELD.equals(parser.nextFieldName())) {
+        throw new IOException("Payload envelope is missing the " + PAYLOAD_FIELD + " field");
+      }
+      parser.nextToken();
+
+      return new Payload(codec, parser.getBinaryValue());
+    }
+  }
+
+  /** Read an entire payload from the given stream and unwrap it. */
+  public Payload open(InputStream input) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(BUFFER_SIZE);
+    byte[] buffer = new byte[BUFFER_SIZE];
+    for (int read = input.read(buffer); read != -1; read = input.read(buffer)) {
+      bytes.write(buffer, 0, read);
+    }
+    return open(bytes.toByteArray());
+  }
+
+  /** Unwrap and decode the given payload with the codec that it was encoded with. */
+  public <T> T read(byte[] payload, JavaType type) throws IOException {
+    return open(payload).decode(type);
+  }
+
+  /** A payload in a known format, without its envelope. */
+  @Value
+  public static class Payload {
+    PayloadCodec codec;
+    byte[] body;
+
+    public <T> T decode(JavaType type) throws IOException {
+      return codec.decode(body, type);
+    }
+  }
+}
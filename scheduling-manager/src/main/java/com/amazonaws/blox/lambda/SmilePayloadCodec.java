@@ -0,0 +1,84 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.lambda;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip-compressed <a href="https://github.com/FasterXML/smile-format-specification">Smile</a>
+ * payloads.
+ *
+ * <p>Smile is a binary encoding of the JSON data model, so the same Jackson annotations and modules
+ * apply. It is considerably more compact and faster to parse than JSON, in particular when combined
+ * with modules that write large objects as columns of numbers instead of as lists of objects.
+ */
+public class SmilePayloadCodec implements PayloadCodec {
+  public static final String CONTENT_TYPE = "application/x-jackson-smile+gzip";
+
+  private static final int BUFFER_SIZE = 8192;
+
+  private final ObjectMapper mapper;
+
+  /** @param mapper a mapper that was created with a {@link SmileFactory} */
+  public SmilePayloadCodec(ObjectMapper mapper) {
+    if (!(mapper.getFactory() instanceof SmileFactory)) {
+      throw new IllegalArgumentException("SmilePayloadCodec requires a Smile ObjectMapper");
+    }
+
+    this.mapper = mapper;
+  }
+
+  @Override
+  public String getContentType() {
+    return CONTENT_TYPE;
+  }
+
+  @Override
+  public byte[] encode(Object value, JavaType type) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(BUFFER_SIZE);
+    try (OutputStream gzip = new FastGZIPOutputStream(bytes)) {
+      mapper.writerFor(type).writeValue(gzip, value);
+    }
+    return bytes.toByteArray();
+  }
+
+  @Override
+  public <T> T decode(byte[] payload, JavaType type) throws IOException {
+    try (InputStream gzip = new GZIPInputStream(new ByteArrayInputStream(payload), BUFFER_SIZE)) {
+      return mapper.readerFor(type).readValue(gzip);
+    }
+  }
+
+  /**
+   * Compress at the fastest level: Smile output is already compact, so higher levels cost much more
+   * time than they save in size.
+   */
+  private static class FastGZIPOutputStream extends GZIPOutputStream {
+    FastGZIPOutputStream(OutputStream out) throws IOException {
+      super(out, BUFFER_SIZE);
+      def.setLevel(Deflater.BEST_SPEED);
+    }
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.retry;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import software.amazon.awssdk.AmazonServiceException;
+
+/** Helpers for retrying calls to AWS services. */
+public final class Retries {
+  private static final Set<String> THROTTLING_ERROR_CODES =
+      new HashSet<>(
+          Arrays.asList(
+              "Throttling",
+              "ThrottlingException",
+              "ThrottledException",
+              "RequestLimitExceeded",
+              "TooManyRequestsException"));
+
+  private static final int TOO_MANY_REQUESTS = 429;
+
+  private Retries() {}
+
+  /** The error that caused a future to complete exceptionally. */
+  public static Throwable unwrap(Throwable error) {
+    while ((error instanceof CompletionException || error instanceof ExecutionException)
+        && error.getCause() != null) {
+      error = error.getCause();
+    }
+    return error;
+  }
+
+  /** Whether a service rejected a call because of its rate limits. */
+  public static boolean isThrottling(Throwable error) {
+    error = unwrap(error);
+    if (!(error instanceof AmazonServiceException)) {
+      return false;
+    }
+
+    AmazonServiceException e = (AmazonServiceException) error;
+    return e.getStatusCode() == TOO_MANY_REQUESTS
+        || THROTTLING_ERROR_CODES.contains(e.getErrorCode());
+  }
+
+  /**
+   * Full jitter: a random delay of up to baseDelay * 2^(attempt - 1) milliseconds, capped at
+   * maxDelay, before retrying the given attempt.
+   */
+  public static long backoff(int attempt, Duration baseDelay, Duration maxDelay) {
+    long ceiling = baseDelay.toMillis() << Math.min(attempt - 1, 30);
+    return ThreadLocalRandom.current().nextLong(Math.min(ceiling, maxDelay.toMillis()) + 1);
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+/**
+ * Creates the stores that are kept in a DynamoDB table if one is configured, so that they're shared
+ * by all instances of the functions, and only in memory otherwise.
+ *
+ * <p>Items of these tables expire on their {@code expiresAt} attribute (in epoch seconds), so the
+ * tables should have TTL enabled on it.
+ */
+public final class DynamoDBStores {
+  private DynamoDBStores() {}
+
+  /** The DynamoDB client shared by all stores, created on first use. */
+  public static AmazonDynamoDB client() {
+    return SharedClient.INSTANCE;
+  }
+
+  /**
+   * The store created by {@code dynamoDB} for the given table, or by {@code inMemory} if no table
+   * is configured.
+   */
+  public static <T> T storeFor(
+      String tableName, Supplier<T> inMemory, BiFunction<AmazonDynamoDB, String, T> dynamoDB) {
+    return storeFor(tableName, inMemory, dynamoDB, DynamoDBStores::client);
+  }
+
+  static <T> T storeFor(
+      String tableName,
+      Supplier<T> inMemory,
+      BiFunction<AmazonDynamoDB, String, T> dynamoDB,
+      Supplier<AmazonDynamoDB> client) {
+    return tableName.isEmpty() ? inMemory.get() : dynamoDB.apply(client.get(), tableName);
+  }
+
+  private static class SharedClient {
+    private static final AmazonDynamoDB INSTANCE = AmazonDynamoDBClientBuilder.defaultClient();
+  }
+}
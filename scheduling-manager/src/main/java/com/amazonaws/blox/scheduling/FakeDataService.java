@@ -140,6 +140,11 @@ public class FakeDataService implements DataService {
 
   @Override
   public ListClustersResponse listClusters(ListClustersRequest request) {
+    // The only cluster is in the first segment:
+    if (request.getSegment() != null && request.getSegment() != 0) {
+      return ListClustersResponse.builder().clusters(Collections.emptyList()).build();
+    }
+
     return ListClustersResponse.builder()
         .clusters(
             Collections.singletonList(
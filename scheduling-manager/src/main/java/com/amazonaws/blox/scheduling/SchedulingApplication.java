@@ -17,10 +17,20 @@ package com.amazonaws.blox.scheduling;
 import com.amazonaws.blox.dataservicemodel.v1.client.DataService;
 import com.amazonaws.blox.dataservicemodel.v1.serialization.DataServiceMapperFactory;
 import com.amazonaws.blox.jsonrpc.JsonRpcLambdaClient;
+import com.amazonaws.blox.lambda.ConcurrencyLimitedLambdaFunction;
 import com.amazonaws.blox.lambda.JacksonRequestStreamHandler;
+import com.amazonaws.blox.lambda.LambdaFunction;
+import com.amazonaws.blox.lambda.PayloadCodecs;
+import com.amazonaws.blox.lambda.SmilePayloadCodec;
+import com.amazonaws.blox.scheduling.ecs.AdaptiveRateLimiter;
+import com.amazonaws.blox.scheduling.ecs.ECSRateLimiters;
+import com.amazonaws.blox.scheduling.ecs.RateLimitedECSAsyncClient;
+import com.amazonaws.blox.scheduling.state.ColumnarClusterSnapshotModule;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
 import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import java.time.Duration;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Profile;
@@ -38,8 +48,8 @@ public abstract class SchedulingApplication {
     System.setProperty("java.net.preferIPv4Stack", "true");
   }
 
-  /** The X-Ray Trace ID provided by the Lambda runtime environment. */
-  @Value("${_X_AMZN_TRACE_ID}")
+  /** The X-Ray Trace ID provided by the Lambda runtime environment, if running in Lambda. */
+  @Value("${_X_AMZN_TRACE_ID:}")
   public String traceId;
 
   @Value("${data_service_function_name}")
@@ -47,12 +57,16 @@ public abstract class SchedulingApplication {
 
   @Bean
   public <IN, OUT> RequestStreamHandler streamHandler(RequestHandler<IN, OUT> innerHandler) {
-    return new JacksonRequestStreamHandler<>(mapper(), innerHandler);
+    return new JacksonRequestStreamHandler<>(payloadCodecs(), innerHandler);
   }
 
   @Bean
   @Profile("!test")
   public LambdaAsyncClient lambdaClient() {
+    if (traceId.isEmpty()) {
+      return LambdaAsyncClient.builder().build();
+    }
+
     // add trace ID to downstream calls, for X-Ray integration
     ClientOverrideConfiguration configuration =
         ClientOverrideConfiguration.builder()
@@ -62,10 +76,71 @@ public abstract class SchedulingApplication {
     return LambdaAsyncClient.builder().overrideConfiguration(configuration).build();
   }
 
+  // Limits on the rate of ECS calls to each cluster, in calls per second. The rate adapts between
+  // the min and max limits, depending on whether ECS throttles calls.
+  @Value("${ecs_rate_limit_initial:20}")
+  public double ecsRateLimitInitial;
+
+  @Value("${ecs_rate_limit_min:1}")
+  public double ecsRateLimitMin;
+
+  @Value("${ecs_rate_limit_max:50}")
+  public double ecsRateLimitMax;
+
+  @Value("${ecs_rate_limit_burst:20}")
+  public double ecsRateLimitBurst;
+
+  @Bean
+  public ECSRateLimiters ecsRateLimiters() {
+    return new ECSRateLimiters(
+        cluster ->
+            new AdaptiveRateLimiter(
+                ecsRateLimitInitial, ecsRateLimitMin, ecsRateLimitMax, ecsRateLimitBurst));
+  }
+
   @Bean
   @Profile("!test")
-  public ECSAsyncClient ecs() {
-    return ECSAsyncClient.builder().build();
+  public ECSAsyncClient ecs(ECSRateLimiters rateLimiters) {
+    return new RateLimitedECSAsyncClient(ECSAsyncClient.builder().build(), rateLimiters);
+  }
+
+  // Limits on the number of concurrent invocations of each function that this one fans out to. The
+  // limit adapts between the min and max limits, depending on whether Lambda throttles invocations.
+  @Value("${lambda_concurrency_initial:50}")
+  public double lambdaConcurrencyInitial;
+
+  @Value("${lambda_concurrency_min:1}")
+  public double lambdaConcurrencyMin;
+
+  @Value("${lambda_concurrency_max:500}")
+  public double lambdaConcurrencyMax;
+
+  // How many times to attempt an invocation that Lambda throttles, and how long to back off between
+  // attempts.
+  @Value(
+      "${lambda_throttle_max_attempts:"
+          + ConcurrencyLimitedLambdaFunction.DEFAULT_MAX_ATTEMPTS
+          + "}")
+  public int lambdaThrottleMaxAttempts;
+
+  @Value("${lambda_throttle_retry_base_delay_ms:100}")
+  public long lambdaThrottleRetryBaseDelayMillis;
+
+  @Value("${lambda_throttle_retry_max_delay_ms:5000}")
+  public long lambdaThrottleRetryMaxDelayMillis;
+
+  /** Bound the concurrency of invocations of a function that this one fans out to. */
+  protected <IN, OUT> LambdaFunction<IN, OUT> limitConcurrency(
+      String functionName, LambdaFunction<IN, OUT> function) {
+    return new ConcurrencyLimitedLambdaFunction<>(
+        functionName,
+        function,
+        lambdaConcurrencyInitial,
+        lambdaConcurrencyMin,
+        lambdaConcurrencyMax,
+        lambdaThrottleMaxAttempts,
+        Duration.ofMillis(lambdaThrottleRetryBaseDelayMillis),
+        Duration.ofMillis(lambdaThrottleRetryMaxDelayMillis));
   }
 
   @Bean
@@ -73,6 +148,17 @@ public abstract class SchedulingApplication {
     return new ObjectMapper().findAndRegisterModules();
   }
 
+  /** The payload formats that scheduling functions accept from each other. */
+  @Bean
+  public PayloadCodecs payloadCodecs() {
+    ObjectMapper smileMapper =
+        new ObjectMapper(new SmileFactory())
+            .findAndRegisterModules()
+            .registerModule(new ColumnarClusterSnapshotModule());
+
+    return new PayloadCodecs(mapper(), new SmilePayloadCodec(smileMapper));
+  }
+
   @Bean
   @Profile("!test")
   public DataService dataService(LambdaAsyncClient lambda) {
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.services.ecs.ECSAsyncClient;
+import software.amazon.awssdk.services.ecs.model.DescribeTaskDefinitionRequest;
+import software.amazon.awssdk.services.ecs.model.TaskDefinition;
+
+/**
+ * Cache of described task definitions, kept across warm invocations so that scheduling doesn't
+ * describe the task definition of every environment on every tick.
+ *
+ * <p>Task definitions can't be changed once registered, so a task definition that's referred to by
+ * revision is cached until it's the least recently used one when the cache is full. References
+ * without a revision (e.g. just the family) resolve to the latest revision, so they're always
+ * described again. Concurrent requests for the same task definition share a single call to ECS, and
+ * failed calls aren't cached.
+ */
+@Slf4j
+public class TaskDefinitionCache {
+  public static final int DEFAULT_SIZE = 256;
+
+  private static final Pattern REVISIONED = Pattern.compile(".*:\\d+$");
+
+  private final ECSAsyncClient ecs;
+  private final Map<String, CompletableFuture<TaskDefinition>> entries;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder failures = new LongAdder();
+
+  public TaskDefinitionCache(ECSAsyncClient ecs) {
+    this(ecs, DEFAULT_SIZE);
+  }
+
+  /** @param size the maximum number of task definitions to keep in memory */
+  public TaskDefinitionCache(ECSAsyncClient ecs, int size) {
+    this.ecs = ecs;
+    this.entries =
+        new LinkedHashMap<String, CompletableFuture<TaskDefinition>>(size, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(
+              Map.Entry<String, CompletableFuture<TaskDefinition>> eldest) {
+            return size() > size;
+          }
+        };
+  }
+
+  /** Get the task definition with the given ARN, describing it if it isn't cached. */
+  public CompletableFuture<TaskDefinition> get(String taskDefinitionArn) {
+    if (!REVISIONED.matcher(taskDefinitionArn).matches()) {
+      misses.increment();
+      return describe(taskDefinitionArn);
+    }
+
+    CompletableFuture<TaskDefinition> entry;
+    synchronized (entries) {
+      CompletableFuture<TaskDefinition> cached = entries.get(taskDefinitionArn);
+      if (cached != null) {
+        hits.increment();
+        return cached;
+      }
+
+      misses.increment();
+      entry = new CompletableFuture<>();
+      entries.put(taskDefinitionArn, entry);
+    }
+
+    describe(taskDefinitionArn)
+        .whenComplete(
+            (taskDefinition, error) -> {
+              if (error != null) {
+                synchronized (entries) {
+                  entries.remove(taskDefinitionArn, entry);
+                }
+                entry.completeExceptionally(error);
+              } else {
+                entry.complete(taskDefinition);
+              }
+            });
+    return entry;
+  }
+
+  public Metrics metrics() {
+    int size;
+    synchronized (entries) {
+      size = entries.size();
+    }
+    return Metrics.builder()
+        .hits(hits.sum())
+        .misses(misses.sum())
+        .failures(failures.sum())
+        .size(size)
+        .build();
+  }
+
+  private CompletableFuture<TaskDefinition> describe(String taskDefinitionArn) {
+    CompletableFuture<TaskDefinition> described;
+    try {
+      described =
+          ecs.describeTaskDefinition(
+                  DescribeTaskDefinitionRequest.builder().taskDefinition(taskDefinitionArn).build())
+              .thenApply(r -> r.taskDefinition());
+    } catch (RuntimeException e) {
+      described = new CompletableFuture<>();
+      described.completeExceptionally(e);
+    }
+
+    return described.whenComplete(
+        (taskDefinition, error) -> {
+          if (error != null) {
+            failures.increment();
+            log.warn("Could not describe task definition {}", taskDefinitionArn, error);
+          }
+        });
+  }
+
+  @Value
+  @Builder
+  public static class Metrics {
+    /** The number of requests served from the cache, including ones that joined a pending call. */
+    private final long hits;
+
+    /** The number of requests that had to call ECS. */
+    private final long misses;
+
+    /** The number of calls to ECS that failed. */
+    private final long failures;
+
+    /** The number of task definitions in the cache. */
+    private final int size;
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.activity;
+
+import java.time.Instant;
+import lombok.Builder;
+import lombok.Value;
+
+/** What's known about the recent changes and reconciliation passes of a cluster. */
+@Value
+@Builder(toBuilder = true)
+public class ClusterActivity {
+  private final String clusterKey;
+
+  /** The fingerprint of everything the last pass over the cluster depended on. */
+  private final String fingerprint;
+
+  /** The number of consecutive passes that took no action and saw no change. */
+  private final int quietPasses;
+
+  /** When the last pass over the cluster started, or null if there was none. */
+  private final Instant reconciledAt;
+
+  /** When the cluster should be reconciled again, even if it isn't marked as dirty. */
+  private final Instant nextSweepAt;
+
+  /** When the cluster or one of its environments last changed, or null if it's not known to. */
+  private final Instant dirtyAt;
+
+  /** Whether the cluster changed since the last pass over it started. */
+  public boolean isDirty() {
+    return dirtyAt != null && (reconciledAt == null || !dirtyAt.isBefore(reconciledAt));
+  }
+
+  public boolean isDue(Instant now) {
+    return isDirty() || nextSweepAt == null || !now.isBefore(nextSweepAt);
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.activity;
+
+import com.amazonaws.blox.scheduling.DynamoDBStores;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Beans for tracking which clusters changed, and how often to sweep those that didn't.
+ *
+ * <p>Activity is recorded in DynamoDB if a table is configured (see {@link DynamoDBStores}), so
+ * that it's shared by the functions that reconcile clusters and those that receive their change
+ * events.
+ */
+@Configuration
+public class ClusterActivityConfiguration {
+  public static final long DEFAULT_BASE_SWEEP_INTERVAL_SECONDS = 120;
+  public static final long DEFAULT_MAX_SWEEP_INTERVAL_SECONDS = 900;
+
+  // Wired in through environment variable in CloudFormation template
+  @Value("${cluster_activity_table_name:}")
+  String tableName;
+
+  /** How long after a quiet pass a cluster is swept again; doubled after each one. */
+  @Value("${cluster_sweep_base_interval_seconds:" + DEFAULT_BASE_SWEEP_INTERVAL_SECONDS + "}")
+  long baseSweepIntervalSeconds;
+
+  @Value("${cluster_sweep_max_interval_seconds:" + DEFAULT_MAX_SWEEP_INTERVAL_SECONDS + "}")
+  long maxSweepIntervalSeconds;
+
+  @Bean
+  public ClusterActivityTracker clusterActivityTracker() {
+    ClusterActivityStore store =
+        DynamoDBStores.storeFor(
+            tableName, InMemoryClusterActivityStore::new, DynamoDBClusterActivityStore::new);
+
+    return new ClusterActivityTracker(
+        store,
+        Duration.ofSeconds(baseSweepIntervalSeconds),
+        Duration.ofSeconds(maxSweepIntervalSeconds));
+  }
+}
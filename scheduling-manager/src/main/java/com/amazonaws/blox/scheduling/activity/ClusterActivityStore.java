@@ -0,0 +1,35 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.activity;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Storage for the {@link ClusterActivity} of every cluster, keyed by cluster key.
+ *
+ * <p>Passes and dirty marks are recorded separately, so that marking a cluster as dirty while a
+ * pass over it is running isn't lost when the pass is recorded.
+ */
+public interface ClusterActivityStore {
+  /** @return the activity of those of the given clusters that have any, by cluster key */
+  Map<String, ClusterActivity> get(Collection<String> clusterKeys);
+
+  void markDirty(String clusterKey, Instant at);
+
+  /** Record everything but the {@link ClusterActivity#getDirtyAt()} of the given activity. */
+  void recordPass(ClusterActivity activity);
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.activity;
+
+import com.amazonaws.blox.dataservicemodel.v1.model.Cluster;
+import com.amazonaws.blox.scheduling.scheduler.SchedulerOutput;
+import com.amazonaws.blox.scheduling.state.ClusterSnapshot;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Decides which clusters need to be reconciled, so that clusters where nothing changes aren't
+ * snapshotted and scheduled on every tick.
+ *
+ * <p>A cluster is due if it was marked as dirty since its last pass started, because one of its
+ * tasks stopped, one of its instances changed, or one of its environments was updated. Otherwise,
+ * it's swept again after an interval that starts at the base interval and doubles with every pass
+ * that took no action and found the cluster unchanged, up to the max interval; this catches any
+ * change that was missed.
+ */
+@Slf4j
+public class ClusterActivityTracker {
+  private final ClusterActivityStore store;
+  private final Duration baseSweepInterval;
+  private final Duration maxSweepInterval;
+  private final Clock clock;
+
+  public ClusterActivityTracker(
+      ClusterActivityStore store, Duration baseSweepInterval, Duration maxSweepInterval) {
+    this(store, baseSweepInterval, maxSweepInterval, Clock.systemUTC());
+  }
+
+  public ClusterActivityTracker(
+      ClusterActivityStore store,
+      Duration baseSweepInterval,
+      Duration maxSweepInterval,
+      Clock clock) {
+    this.store = store;
+    this.baseSweepInterval = baseSweepInterval;
+    this.maxSweepInterval = maxSweepInterval;
+    this.clock = clock;
+  }
+
+  public static String keyOf(Cluster cluster) {
+    return keyOf(cluster.getAccountId(), cluster.getClusterName());
+  }
+
+  public static String keyOf(String accountId, String clusterName) {
+    return accountId + "/" + clusterName;
+  }
+
+  /** @return the given clusters that should be reconciled now, in the same order */
+  public List<Cluster> due(List<Cluster> clusters) {
+    Instant now = clock.instant();
+    Map<String, ClusterActivity> activity =
+        store.get(
+            clusters.stream().map(ClusterActivityTracker::keyOf).collect(Collectors.toList()));
+
+    return clusters
+        .stream()
+        .filter(
+            c -> {
+              ClusterActivity a = activity.get(keyOf(c));
+              return a == null || a.isDue(now);
+            })
+        .collect(Collectors.toList());
+  }
+
+  /** Make sure the cluster is reconciled by the next tick, because something in it changed. */
+  public void markDirty(String clusterKey) {
+    store.markDirty(clusterKey, clock.instant());
+  }
+
+  /**
+   * Start a pass over the cluster. This must be called before the cluster is snapshotted, so that
+   * any change made while the pass runs marks the cluster as dirty again.
+   */
+  public Pass beginPass(Cluster cluster) {
+    String clusterKey = keyOf(cluster);
+    ClusterActivity previous = store.get(Collections.singletonList(clusterKey)).get(clusterKey);
+    return new Pass(clusterKey, previous, clock.instant());
+  }
+
+  /** @return how long to wait before sweeping a cluster after this many quiet passes */
+  Duration delayAfter(int quietPasses) {
+    if (quietPasses <= 0) {
+      return Duration.ZERO;
+    }
+
+    Duration delay = baseSweepInterval;
+    for (int i = 1; i < quietPasses && delay.compareTo(maxSweepInterval) < 0; i++) {
+      delay = delay.multipliedBy(2);
+    }
+    return delay.compareTo(maxSweepInterval) < 0 ? delay : maxSweepInterval;
+  }
+
+  @RequiredArgsConstructor
+  public class Pass {
+    private final String clusterKey;
+    private final ClusterActivity previous;
+    private final Instant startedAt;
+
+    /**
+     * Record the result of the pass.
+     *
+     * @param snapshot the state of the cluster that the environments were scheduled from
+     * @param outputs the result of scheduling every environment of the cluster
+     */
+    public ClusterActivity end(ClusterSnapshot snapshot, List<SchedulerOutput> outputs) {
+      String fingerprint = fingerprint(snapshot, outputs);
+      boolean quiet =
+          outputs
+              .stream()
+              .allMatch(
+                  o ->
+                      o.getSuccessfulActions() == 0
+                          && o.getFailedActions() == 0
+                          && (o.getCoolingDownInstances() == null
+                              || o.getCoolingDownInstances().isEmpty()));
+      boolean unchanged = previous != null && fingerprint.equals(previous.getFingerprint());
+      int quietPasses = quiet && unchanged ? previous.getQuietPasses() + 1 : 0;
+
+      ClusterActivity activity =
+          ClusterActivity.builder()
+              .clusterKey(clusterKey)
+              .fingerprint(fingerprint)
+              .quietPasses(quietPasses)
+              .reconciledAt(startedAt)
+              .nextSweepAt(startedAt.plus(delayAfter(quietPasses)))
+              .build();
+      log.debug("Reconciled cluster {}: {}", clusterKey, activity);
+
+      store.recordPass(activity);
+      return activity;
+    }
+  }
+
+  /** @return a digest of everything that reconciling the cluster depended on */
+  static String fingerprint(ClusterSnapshot snapshot, List<SchedulerOutput> outputs) {
+    Fingerprint fingerprint = new Fingerprint();
+
+    List<ClusterSnapshot.Task> tasks = new ArrayList<>();
+    if (snapshot.getTasks() != null) {
+      tasks.addAll(snapshot.getTasks());
+    }
+    tasks.sort(Comparator.comparing(ClusterSnapshot.Task::getArn));
+    fingerprint.add(tasks.size());
+    for (ClusterSnapshot.Task t : tasks) {
+      fingerprint
+          .add(t.getArn())
+          .add(t.getVersion())
+          .add(t.getStatus())
+          .add(t.getContainerInstanceArn())
+          .add(t.getTaskDefinitionArn())
+          .add(t.getGroup());
+    }
+
+    List<ClusterSnapshot.ContainerInstance> instances = new ArrayList<>();
+    if (snapshot.getInstances() != null) {
+      instances.addAll(snapshot.getInstances());
+    }
+    instances.sort(Comparator.comparing(ClusterSnapshot.ContainerInstance::getArn));
+    fingerprint.add(instances.size());
+    for (ClusterSnapshot.ContainerInstance i : instances) {
+      fingerprint
+          .add(i.getArn())
+          .add(i.getVersion())
+          .add(i.getStatus())
+          .add(i.getRemainingCpu())
+          .add(i.getRemainingMemory());
+      Map<String, String> attributes = new TreeMap<>();
+      if (i.getAttributes() != null) {
+        attributes.putAll(i.getAttributes());
+      }
+      fingerprint.add(attributes.size());
+      attributes.forEach((name, value) -> fingerprint.add(name).add(value));
+    }
+
+    List<SchedulerOutput> environments = new ArrayList<>(outputs);
+    environments.sort(
+        Comparator.comparing((SchedulerOutput o) -> o.getEnvironmentId().getEnvironmentName()));
+    fingerprint.add(environments.size());
+    for (SchedulerOutput o : environments) {
+      fingerprint.add(o.getEnvironmentId().getEnvironmentName()).add(o.getEnvironmentVersion());
+    }
+
+    return fingerprint.build();
+  }
+}
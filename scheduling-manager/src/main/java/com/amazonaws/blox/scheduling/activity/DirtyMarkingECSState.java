@@ -0,0 +1,86 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.activity;
+
+import com.amazonaws.blox.scheduling.state.ClusterSnapshot;
+import com.amazonaws.blox.scheduling.state.ContainerInstanceStateChange;
+import com.amazonaws.blox.scheduling.state.ECSState;
+import com.amazonaws.blox.scheduling.state.SnapshotFilter;
+import com.amazonaws.blox.scheduling.state.TaskStateChange;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ECSState that marks a cluster as dirty when it sees a state change that its environments may need
+ * to react to: any change to a container instance, or a task stopping. Tasks starting don't mark
+ * the cluster, since they're almost always started by the scheduler itself.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class DirtyMarkingECSState implements ECSState {
+  static final String STOPPED = "STOPPED";
+
+  private final ECSState delegate;
+  private final ClusterActivityTracker activity;
+
+  @Override
+  public ClusterSnapshot snapshotState(String clusterName, SnapshotFilter filter) {
+    return delegate.snapshotState(clusterName, filter);
+  }
+
+  @Override
+  public void onTaskStateChange(TaskStateChange change) {
+    if (STOPPED.equals(change.getDesiredStatus()) || STOPPED.equals(change.getLastStatus())) {
+      markDirty(change.getClusterArn());
+    }
+    delegate.onTaskStateChange(change);
+  }
+
+  @Override
+  public void onContainerInstanceStateChange(ContainerInstanceStateChange change) {
+    markDirty(change.getClusterArn());
+    delegate.onContainerInstanceStateChange(change);
+  }
+
+  @Override
+  public void invalidate(String clusterName) {
+    delegate.invalidate(clusterName);
+  }
+
+  private void markDirty(String clusterArn) {
+    String clusterKey = keyOf(clusterArn);
+    if (clusterKey == null) {
+      log.warn("Not marking cluster as dirty, unrecognized cluster ARN: {}", clusterArn);
+      return;
+    }
+    activity.markDirty(clusterKey);
+  }
+
+  /**
+   * @return the key of the cluster with the given ARN, of the form
+   *     arn:aws:ecs:region:account:cluster/name, or null if it's not of that form
+   */
+  static String keyOf(String clusterArn) {
+    if (clusterArn == null) {
+      return null;
+    }
+
+    String[] parts = clusterArn.split(":", 6);
+    if (parts.length != 6 || !parts[5].startsWith("cluster/")) {
+      return null;
+    }
+    return ClusterActivityTracker.keyOf(parts[4], parts[5].substring("cluster/".length()));
+  }
+}
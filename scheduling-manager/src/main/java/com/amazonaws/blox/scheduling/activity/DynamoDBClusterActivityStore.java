@@ -0,0 +1,161 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.activity;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.KeysAndAttributes;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Store of cluster activity in a DynamoDB table, keyed by {@link #CLUSTER_KEY}. Passes and dirty
+ * marks are recorded with separate updates of the item, so that neither overwrites the other. If
+ * the table can't be read, every cluster is due.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class DynamoDBClusterActivityStore implements ClusterActivityStore {
+  public static final String CLUSTER_KEY = "clusterKey";
+  public static final String FINGERPRINT = "fingerprint";
+  public static final String QUIET_PASSES = "quietPasses";
+  public static final String RECONCILED_AT = "reconciledAt";
+  public static final String NEXT_SWEEP_AT = "nextSweepAt";
+  public static final String DIRTY_AT = "dirtyAt";
+  public static final String EXPIRES_AT = "expiresAt";
+
+  /** How long the activity of a cluster is kept after it was last updated. */
+  public static final Duration RETENTION = Duration.ofDays(1);
+
+  private static final int MAX_BATCH_GET_KEYS = 100;
+  private static final int MAX_BATCH_GET_ATTEMPTS = 3;
+
+  private final AmazonDynamoDB dynamoDB;
+  private final String tableName;
+
+  @Override
+  public Map<String, ClusterActivity> get(Collection<String> clusterKeys) {
+    Map<String, ClusterActivity> activity = new HashMap<>();
+    List<String> keys = new ArrayList<>(clusterKeys);
+
+    try {
+      for (int from = 0; from < keys.size(); from += MAX_BATCH_GET_KEYS) {
+        List<Map<String, AttributeValue>> batch = new ArrayList<>();
+        for (String clusterKey :
+            keys.subList(from, Math.min(keys.size(), from + MAX_BATCH_GET_KEYS))) {
+          batch.add(Collections.singletonMap(CLUSTER_KEY, new AttributeValue(clusterKey)));
+        }
+
+        Map<String, KeysAndAttributes> request =
+            Collections.singletonMap(tableName, new KeysAndAttributes().withKeys(batch));
+        for (int attempt = 0; attempt < MAX_BATCH_GET_ATTEMPTS && !request.isEmpty(); attempt++) {
+          BatchGetItemResult result =
+              dynamoDB.batchGetItem(new BatchGetItemRequest().withRequestItems(request));
+          if (result.getResponses() != null) {
+            for (Map<String, AttributeValue> item :
+                result.getResponses().getOrDefault(tableName, Collections.emptyList())) {
+              ClusterActivity a = fromItem(item);
+              activity.put(a.getClusterKey(), a);
+            }
+          }
+          request =
+              result.getUnprocessedKeys() == null
+                  ? Collections.emptyMap()
+                  : result.getUnprocessedKeys();
+        }
+      }
+    } catch (RuntimeException e) {
+      log.warn("Could not read the activity of all clusters, reconciling them anyway", e);
+    }
+    return activity;
+  }
+
+  @Override
+  public void markDirty(String clusterKey, Instant at) {
+    Map<String, AttributeValue> values = new HashMap<>();
+    values.put(":dirtyAt", number(at.toEpochMilli()));
+    values.put(":expiresAt", number(at.plus(RETENTION).getEpochSecond()));
+
+    update(clusterKey, "SET #dirtyAt = :dirtyAt, #expiresAt = :expiresAt", values);
+  }
+
+  @Override
+  public void recordPass(ClusterActivity activity) {
+    Map<String, AttributeValue> values = new HashMap<>();
+    values.put(":fingerprint", new AttributeValue(activity.getFingerprint()));
+    values.put(":quietPasses", number(activity.getQuietPasses()));
+    values.put(":reconciledAt", number(activity.getReconciledAt().toEpochMilli()));
+    values.put(":nextSweepAt", number(activity.getNextSweepAt().toEpochMilli()));
+    values.put(":expiresAt", number(activity.getReconciledAt().plus(RETENTION).getEpochSecond()));
+
+    update(
+        activity.getClusterKey(),
+        "SET #fingerprint = :fingerprint, #quietPasses = :quietPasses,"
+            + " #reconciledAt = :reconciledAt, #nextSweepAt = :nextSweepAt,"
+            + " #expiresAt = :expiresAt",
+        values);
+  }
+
+  private void update(
+      String clusterKey, String updateExpression, Map<String, AttributeValue> values) {
+    Map<String, String> names = new HashMap<>();
+    for (String value : values.keySet()) {
+      names.put("#" + value.substring(1), value.substring(1));
+    }
+
+    try {
+      dynamoDB.updateItem(
+          new UpdateItemRequest()
+              .withTableName(tableName)
+              .withKey(Collections.singletonMap(CLUSTER_KEY, new AttributeValue(clusterKey)))
+              .withUpdateExpression(updateExpression)
+              .withExpressionAttributeNames(names)
+              .withExpressionAttributeValues(values));
+    } catch (RuntimeException e) {
+      log.warn("Could not record the activity of cluster {}", clusterKey, e);
+    }
+  }
+
+  private static ClusterActivity fromItem(Map<String, AttributeValue> item) {
+    return ClusterActivity.builder()
+        .clusterKey(item.get(CLUSTER_KEY).getS())
+        .fingerprint(item.containsKey(FINGERPRINT) ? item.get(FINGERPRINT).getS() : null)
+        .quietPasses(
+            item.containsKey(QUIET_PASSES) ? Integer.parseInt(item.get(QUIET_PASSES).getN()) : 0)
+        .reconciledAt(instant(item.get(RECONCILED_AT)))
+        .nextSweepAt(instant(item.get(NEXT_SWEEP_AT)))
+        .dirtyAt(instant(item.get(DIRTY_AT)))
+        .build();
+  }
+
+  private static Instant instant(AttributeValue value) {
+    return value == null ? null : Instant.ofEpochMilli(Long.parseLong(value.getN()));
+  }
+
+  private static AttributeValue number(long value) {
+    return new AttributeValue().withN(Long.toString(value));
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.activity;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Entry point for functions that receive the DynamoDB stream of the Environments table as well as
+ * other requests.
+ *
+ * <p>Every cluster whose environments changed is marked as dirty, so that it's reconciled by the
+ * next tick, and all other requests are passed on to the given handler.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class EnvironmentChangeStreamHandler implements RequestStreamHandler {
+  static final String DYNAMODB_EVENT_SOURCE = "aws:dynamodb";
+  static final String CLUSTER_KEY_ATTRIBUTE = "accountIdCluster";
+
+  private final ObjectMapper mapper;
+  private final RequestStreamHandler handler;
+  private final ClusterActivityTracker activity;
+
+  @Override
+  public void handleRequest(InputStream input, OutputStream output, Context context)
+      throws IOException {
+    JsonNode request = mapper.readTree(input);
+    JsonNode records = request.path("Records");
+
+    if (!records.isArray()
+        || records.size() == 0
+        || !DYNAMODB_EVENT_SOURCE.equals(records.get(0).path("eventSource").asText())) {
+      handler.handleRequest(
+          new ByteArrayInputStream(mapper.writeValueAsBytes(request)), output, context);
+      return;
+    }
+
+    Set<String> clusterKeys = new LinkedHashSet<>();
+    for (JsonNode record : records) {
+      JsonNode clusterKey = record.path("dynamodb").path("Keys").path(CLUSTER_KEY_ATTRIBUTE);
+      if (clusterKey.path("S").isTextual()) {
+        clusterKeys.add(clusterKey.path("S").asText());
+      } else {
+        log.warn("Ignoring stream record without a cluster key: {}", record);
+      }
+    }
+
+    log.debug("Environments changed in clusters: {}", clusterKeys);
+    clusterKeys.forEach(activity::markDirty);
+    mapper.writeValue(output, null);
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.activity;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * A digest of a sequence of values, to cheaply tell whether any of them changed since the last time
+ * the same sequence was digested.
+ *
+ * <p>Every value is length-prefixed, so that different sequences don't digest the same by shifting
+ * characters between adjacent values, and null is distinct from the empty string.
+ */
+public class Fingerprint {
+  private final MessageDigest digest;
+
+  public Fingerprint() {
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not supported", e);
+    }
+  }
+
+  public Fingerprint add(String value) {
+    if (value == null) {
+      digest.update((byte) 0);
+      return this;
+    }
+
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    digest.update((byte) 1);
+    digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+    digest.update(bytes);
+    return this;
+  }
+
+  public Fingerprint add(Object value) {
+    return add(value == null ? null : value.toString());
+  }
+
+  /** @return the digest of all values added so far; the fingerprint can't be used afterwards */
+  public String build() {
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest());
+  }
+}
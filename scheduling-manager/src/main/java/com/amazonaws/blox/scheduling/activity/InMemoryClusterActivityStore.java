@@ -0,0 +1,62 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.activity;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Store of the cluster activity seen by this function instance, which is lost on a cold start.
+ *
+ * <p>Other functions don't see this activity, so every cluster is always due for a function that
+ * doesn't record passes itself.
+ */
+public class InMemoryClusterActivityStore implements ClusterActivityStore {
+  private final ConcurrentMap<String, ClusterActivity> clusters = new ConcurrentHashMap<>();
+
+  @Override
+  public Map<String, ClusterActivity> get(Collection<String> clusterKeys) {
+    Map<String, ClusterActivity> activity = new HashMap<>();
+    for (String clusterKey : clusterKeys) {
+      ClusterActivity a = clusters.get(clusterKey);
+      if (a != null) {
+        activity.put(clusterKey, a);
+      }
+    }
+    return activity;
+  }
+
+  @Override
+  public void markDirty(String clusterKey, Instant at) {
+    clusters.compute(
+        clusterKey,
+        (k, previous) ->
+            previous == null
+                ? ClusterActivity.builder().clusterKey(clusterKey).dirtyAt(at).build()
+                : previous.toBuilder().dirtyAt(at).build());
+  }
+
+  @Override
+  public void recordPass(ClusterActivity activity) {
+    clusters.compute(
+        activity.getClusterKey(),
+        (k, previous) ->
+            activity.toBuilder().dirtyAt(previous == null ? null : previous.getDirtyAt()).build());
+  }
+}
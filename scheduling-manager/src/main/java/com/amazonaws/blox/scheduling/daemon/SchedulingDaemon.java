@@ -0,0 +1,234 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.daemon;
+
+import com.amazonaws.blox.lambda.InProcessLambdaFunction;
+import com.amazonaws.blox.lambda.LambdaFunction;
+import com.amazonaws.blox.scheduling.manager.ManagerApplication;
+import com.amazonaws.blox.scheduling.manager.ManagerHandler;
+import com.amazonaws.blox.scheduling.manager.ManagerInput;
+import com.amazonaws.blox.scheduling.manager.ManagerOutput;
+import com.amazonaws.blox.scheduling.reconciler.CloudWatchEvent;
+import com.amazonaws.blox.scheduling.reconciler.ReconcilerApplication;
+import com.amazonaws.blox.scheduling.reconciler.ReconcilerHandler;
+import com.amazonaws.blox.scheduling.scheduler.SchedulerApplication;
+import com.amazonaws.blox.scheduling.scheduler.SchedulerBatchOutput;
+import com.amazonaws.blox.scheduling.scheduler.SchedulerHandler;
+import com.amazonaws.blox.scheduling.scheduler.SchedulerInput;
+import com.amazonaws.blox.scheduling.shard.ShardApplication;
+import com.amazonaws.blox.scheduling.shard.ShardHandler;
+import com.amazonaws.blox.scheduling.shard.ShardInput;
+import com.amazonaws.blox.scheduling.shard.ShardOutput;
+import com.amazonaws.blox.scheduling.state.SnapshotStoreConfiguration;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+/**
+ * Runs the Reconciler, Shard, Manager and Scheduler in a single long-running JVM, instead of as
+ * separate Lambda functions, so that clusters can be reconciled more often than the once a minute
+ * that a CloudWatch Events schedule allows.
+ *
+ * <p>Every function gets its own Spring context from its usual application class, except that the
+ * functions it calls are replaced by {@link InProcessLambdaFunction}s, which call their handlers
+ * directly without serializing anything. Each function runs on its own thread pool, and only ever
+ * waits for the functions it calls, so a full pool can't deadlock the others.
+ *
+ * <p>A tick runs the Reconciler and waits until every cluster it triggered was scheduled; the next
+ * tick starts a fixed delay after that, so ticks never overlap.
+ *
+ * <p>The daemon doesn't receive ECS events, so by default it doesn't cache cluster state, and each
+ * tick snapshots every cluster from ECS. Unless a cluster activity table is configured, it also
+ * can't tell which clusters changed, so every cluster is reconciled on every tick. Unless a
+ * snapshot bucket is configured, the Manager passes snapshots to the Scheduler through a local
+ * directory.
+ */
+@Slf4j
+public class SchedulingDaemon implements AutoCloseable {
+  public static final long DEFAULT_TICK_INTERVAL_SECONDS = 10;
+  public static final int DEFAULT_PARALLELISM = 16;
+
+  private final Duration tickInterval;
+
+  private final List<ExecutorService> executors = new ArrayList<>();
+  private final List<AnnotationConfigApplicationContext> contexts = new ArrayList<>();
+  private final ScheduledExecutorService ticker =
+      Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "daemon-ticker"));
+
+  final LambdaFunction<SchedulerInput, SchedulerBatchOutput> scheduler;
+  final LambdaFunction<ManagerInput, ManagerOutput> manager;
+  final LambdaFunction<ShardInput, ShardOutput> shard;
+
+  private final ReconcilerHandler reconciler;
+
+  public SchedulingDaemon(Duration tickInterval, int parallelism) {
+    this(tickInterval, parallelism, context -> {});
+  }
+
+  /** @param customizer applied to the context of every function before it's refreshed */
+  SchedulingDaemon(
+      Duration tickInterval,
+      int parallelism,
+      Consumer<AnnotationConfigApplicationContext> customizer) {
+    if (tickInterval.isNegative() || tickInterval.isZero()) {
+      throw new IllegalArgumentException("tickInterval must be positive: " + tickInterval);
+    }
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+    }
+    this.tickInterval = tickInterval;
+
+    SchedulerHandler schedulerHandler =
+        start(SchedulerStage.class, customizer).getBean(SchedulerHandler.class);
+    this.scheduler =
+        new InProcessLambdaFunction<>(
+            "scheduler", schedulerHandler, pool("scheduler", parallelism));
+
+    ManagerHandler managerHandler =
+        start(ManagerStage.class, customizer).getBean(ManagerHandler.class);
+    this.manager =
+        new InProcessLambdaFunction<>("manager", managerHandler, pool("manager", parallelism));
+
+    // The Shard calls itself, so it needs a function before its handler exists:
+    ShardHandler[] shardHandler = new ShardHandler[1];
+    this.shard =
+        new InProcessLambdaFunction<>(
+            "shard",
+            (input, context) -> shardHandler[0].handleRequest(input, context),
+            pool("shard", parallelism));
+    shardHandler[0] = start(ShardStage.class, customizer).getBean(ShardHandler.class);
+
+    this.reconciler = start(ReconcilerStage.class, customizer).getBean(ReconcilerHandler.class);
+  }
+
+  public static void main(String[] args) {
+    StandardEnvironment environment = new StandardEnvironment();
+    SchedulingDaemon daemon =
+        new SchedulingDaemon(
+            Duration.ofSeconds(
+                environment.getProperty(
+                    "daemon_tick_interval_seconds", Long.class, DEFAULT_TICK_INTERVAL_SECONDS)),
+            environment.getProperty("daemon_parallelism", Integer.class, DEFAULT_PARALLELISM));
+
+    Runtime.getRuntime().addShutdownHook(new Thread(daemon::close, "daemon-shutdown"));
+    daemon.start();
+  }
+
+  public void start() {
+    log.info("Reconciling every {}", tickInterval);
+    ticker.scheduleWithFixedDelay(this::tick, 0, tickInterval.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  void tick() {
+    long started = System.nanoTime();
+    try {
+      reconciler.handleRequest(new CloudWatchEvent<>(), null);
+      log.debug("Tick took {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    } catch (RuntimeException e) {
+      // A failed tick must not stop the ticker:
+      log.error("Tick failed", e);
+    }
+  }
+
+  @Override
+  public void close() {
+    ticker.shutdownNow();
+    executors.forEach(ExecutorService::shutdownNow);
+    contexts.forEach(AnnotationConfigApplicationContext::close);
+  }
+
+  private AnnotationConfigApplicationContext start(
+      Class<?> stage, Consumer<AnnotationConfigApplicationContext> customizer) {
+    AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+    context
+        .getEnvironment()
+        .getPropertySources()
+        .addLast(
+            new MapPropertySource(
+                "daemon-defaults",
+                Collections.singletonMap("ecs_state_max_staleness_seconds", "0")));
+    // All functions run in this JVM, so they can share snapshots through the local file system:
+    context.getEnvironment().addActiveProfile(SnapshotStoreConfiguration.LOCAL_SNAPSHOTS_PROFILE);
+    context.getBeanFactory().registerSingleton("schedulingDaemon", this);
+    context.register(stage);
+    customizer.accept(context);
+    context.refresh();
+
+    contexts.add(context);
+    return context;
+  }
+
+  private ExecutorService pool(String name, int size) {
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            size,
+            r -> {
+              Thread thread = new Thread(r, "daemon-" + name);
+              thread.setDaemon(true);
+              return thread;
+            });
+    executors.add(executor);
+    return executor;
+  }
+
+  @Configuration
+  @Import(SchedulerApplication.class)
+  static class SchedulerStage {}
+
+  @Configuration
+  @Import(ManagerApplication.class)
+  static class ManagerStage {
+    @Bean
+    public LambdaFunction<SchedulerInput, SchedulerBatchOutput> scheduler(SchedulingDaemon daemon) {
+      return daemon.scheduler;
+    }
+  }
+
+  @Configuration
+  @Import(ShardApplication.class)
+  static class ShardStage {
+    @Bean
+    public LambdaFunction<ManagerInput, ManagerOutput> manager(SchedulingDaemon daemon) {
+      return daemon.manager;
+    }
+
+    @Bean
+    public LambdaFunction<ShardInput, ShardOutput> shard(SchedulingDaemon daemon) {
+      return daemon.shard;
+    }
+  }
+
+  @Configuration
+  @Import(ReconcilerApplication.class)
+  static class ReconcilerStage {
+    @Bean
+    public LambdaFunction<ShardInput, ShardOutput> shard(SchedulingDaemon daemon) {
+      return daemon.shard;
+    }
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.ecs;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Token bucket that adjusts its rate with additive increase/multiplicative decrease (AIMD): the
+ * rate grows slowly while calls succeed, and is cut sharply whenever a call is throttled. This lets
+ * the rate settle just below the actual API limit, which isn't known in advance.
+ *
+ * <p>Permits are reserved rather than waited for, so that callers can delay their calls without
+ * blocking a thread: {@link #reserve()} always succeeds, and returns how long the caller must wait
+ * before using the permit.
+ */
+public class AdaptiveRateLimiter {
+  private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  /** How much the rate (in permits per second) grows for every second of successful calls. */
+  static final double ADDITIVE_INCREASE = 1.0;
+
+  /** How much the rate is reduced by when a call is throttled. */
+  static final double MULTIPLICATIVE_DECREASE = 0.5;
+
+  private final double minRate;
+  private final double maxRate;
+  private final double burst;
+  private final LongSupplier nanoClock;
+
+  private double rate;
+  private double tokens;
+  private long refilledAt;
+
+  /**
+   * Throttles of calls that were started before the last decrease were caused by the old rate, and
+   * shouldn't reduce the rate again.
+   */
+  private long decreasedAt;
+
+  private long permits = 0;
+  private long delayedPermits = 0;
+  private long totalDelayNanos = 0;
+  private long throttles = 0;
+
+  public AdaptiveRateLimiter(double initialRate, double minRate, double maxRate, double burst) {
+    this(initialRate, minRate, maxRate, burst, System::nanoTime);
+  }
+
+  public AdaptiveRateLimiter(
+      double initialRate, double minRate, double maxRate, double burst, LongSupplier nanoClock) {
+    if (minRate <= 0 || minRate > initialRate || initialRate > maxRate || burst < 1) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Invalid rate limits: initial %s, min %s, max %s, burst %s",
+              initialRate, minRate, maxRate, burst));
+    }
+
+    this.minRate = minRate;
+    this.maxRate = maxRate;
+    this.burst = burst;
+    this.nanoClock = nanoClock;
+
+    this.rate = initialRate;
+    this.tokens = burst;
+    this.refilledAt = nanoClock.getAsLong();
+    this.decreasedAt = refilledAt;
+  }
+
+  /**
+   * Reserve a permit for a single call.
+   *
+   * @return the time in nanoseconds to wait before making the call, or 0 to make it right away
+   */
+  public synchronized long reserve() {
+    refill();
+    permits++;
+    tokens -= 1;
+    if (tokens >= 0) {
+      return 0;
+    }
+
+    long delay = (long) Math.ceil(-tokens / rate * NANOS_PER_SECOND);
+    delayedPermits++;
+    totalDelayNanos += delay;
+    return delay;
+  }
+
+  /** Record a call that succeeded. */
+  public synchronized void onSuccess() {
+    // Grow by ADDITIVE_INCREASE per second, spread over the calls made in that second:
+    rate = Math.min(maxRate, rate + ADDITIVE_INCREASE / rate);
+  }
+
+  /** Record a call that was throttled, which was started at the given {@link #now() time}. */
+  public synchronized void onThrottle(long startedAt) {
+    throttles++;
+    if (startedAt - decreasedAt < 0) {
+      return;
+    }
+
+    refill();
+    rate = Math.max(minRate, rate * MULTIPLICATIVE_DECREASE);
+    decreasedAt = nanoClock.getAsLong();
+  }
+
+  /** The current time of the clock used by this limiter, to pass to {@link #onThrottle(long)}. */
+  public long now() {
+    return nanoClock.getAsLong();
+  }
+
+  public synchronized Metrics metrics() {
+    return Metrics.builder()
+        .rate(rate)
+        .permits(permits)
+        .delayedPermits(delayedPermits)
+        .totalDelayNanos(totalDelayNanos)
+        .throttles(throttles)
+        .build();
+  }
+
+  private void refill() {
+    long now = nanoClock.getAsLong();
+    tokens = Math.min(burst, tokens + rate * (now - refilledAt) / NANOS_PER_SECOND);
+    refilledAt = now;
+  }
+
+  @Value
+  @Builder
+  public static class Metrics {
+    /** The current rate, in permits per second. */
+    private final double rate;
+
+    /** The number of permits handed out. */
+    private final long permits;
+
+    /** The number of permits that callers had to wait for. */
+    private final long delayedPermits;
+
+    /** The total time that callers had to wait for permits. */
+    private final long totalDelayNanos;
+
+    /** The number of calls that were throttled despite the limiter. */
+    private final long throttles;
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.ecs;
+
+import com.amazonaws.blox.retry.Retries;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.UnknownHostException;
+import java.util.concurrent.TimeoutException;
+import software.amazon.awssdk.AmazonServiceException;
+
+/** Classifies the errors that ECS calls fail with. */
+public final class ECSErrors {
+  private static final int SERVER_ERROR = 500;
+
+  private ECSErrors() {}
+
+  /** The error that caused a future to complete exceptionally. */
+  public static Throwable unwrap(Throwable error) {
+    return Retries.unwrap(error);
+  }
+
+  /** Whether ECS rejected a call because of its rate limits. */
+  public static boolean isThrottling(Throwable error) {
+    return Retries.isThrottling(error);
+  }
+
+  /**
+   * Whether a call that failed with the given error may succeed if it's made again: it was
+   * throttled, failed with a server error, or never got a response because of an I/O error or
+   * timeout.
+   */
+  public static boolean isTransient(Throwable error) {
+    error = unwrap(error);
+    if (error instanceof AmazonServiceException) {
+      return isThrottling(error)
+          || ((AmazonServiceException) error).getStatusCode() >= SERVER_ERROR;
+    }
+
+    for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+      if (cause instanceof IOException || cause instanceof TimeoutException) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Whether ECS certainly didn't act on a call that failed with the given error, so that even a
+   * call that isn't idempotent can safely be made again: it was throttled, or the request was never
+   * sent because no connection could be made. Other transient errors, such as server errors or
+   * timeouts, may happen after ECS has already acted on the call.
+   */
+  public static boolean isUnapplied(Throwable error) {
+    if (isThrottling(error)) {
+      return true;
+    }
+
+    for (Throwable cause = unwrap(error); cause != null; cause = cause.getCause()) {
+      if (cause instanceof ConnectException || cause instanceof UnknownHostException) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** A short description of the error, such as the ECS error code. */
+  public static String reason(Throwable error) {
+    error = unwrap(error);
+    if (error instanceof AmazonServiceException) {
+      AmazonServiceException e = (AmazonServiceException) error;
+      if (e.getErrorCode() != null) {
+        return e.getErrorCode();
+      }
+      return "HTTP " + e.getStatusCode();
+    }
+    return error.getClass().getSimpleName();
+  }
+}
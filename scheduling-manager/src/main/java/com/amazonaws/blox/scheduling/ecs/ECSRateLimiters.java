@@ -0,0 +1,53 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.ecs;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * The {@link AdaptiveRateLimiter} of every cluster that a function calls ECS on, created on first
+ * use. Shared by the {@link RateLimitedECSAsyncClient} that applies the limits, and the handlers
+ * that report them.
+ */
+public class ECSRateLimiters {
+  private final Function<String, AdaptiveRateLimiter> limiterFactory;
+  private final ConcurrentMap<String, AdaptiveRateLimiter> limiters = new ConcurrentHashMap<>();
+
+  public ECSRateLimiters(Function<String, AdaptiveRateLimiter> limiterFactory) {
+    this.limiterFactory = limiterFactory;
+  }
+
+  /** The rate limiter of the given cluster. */
+  public AdaptiveRateLimiter forCluster(String clusterName) {
+    return limiters.computeIfAbsent(clusterName, limiterFactory);
+  }
+
+  /** Metrics of the rate limiter of every cluster that was called, by cluster name. */
+  public Map<String, AdaptiveRateLimiter.Metrics> metrics() {
+    Map<String, AdaptiveRateLimiter.Metrics> metrics = new HashMap<>();
+    limiters.forEach((cluster, limiter) -> metrics.put(cluster, limiter.metrics()));
+    return metrics;
+  }
+
+  /** Metrics of the rate limiter of the given cluster, or null if it was never called. */
+  public AdaptiveRateLimiter.Metrics metrics(String clusterName) {
+    AdaptiveRateLimiter limiter = limiters.get(clusterName);
+    return limiter == null ? null : limiter.metrics();
+  }
+}
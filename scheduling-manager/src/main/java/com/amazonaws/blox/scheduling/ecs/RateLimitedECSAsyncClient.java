@@ -0,0 +1,169 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.ecs;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.services.ecs.ECSAsyncClient;
+import software.amazon.awssdk.services.ecs.model.DescribeContainerInstancesRequest;
+import software.amazon.awssdk.services.ecs.model.DescribeContainerInstancesResponse;
+import software.amazon.awssdk.services.ecs.model.DescribeTaskDefinitionRequest;
+import software.amazon.awssdk.services.ecs.model.DescribeTaskDefinitionResponse;
+import software.amazon.awssdk.services.ecs.model.DescribeTasksRequest;
+import software.amazon.awssdk.services.ecs.model.DescribeTasksResponse;
+import software.amazon.awssdk.services.ecs.model.ListContainerInstancesRequest;
+import software.amazon.awssdk.services.ecs.model.ListContainerInstancesResponse;
+import software.amazon.awssdk.services.ecs.model.ListTasksRequest;
+import software.amazon.awssdk.services.ecs.model.ListTasksResponse;
+import software.amazon.awssdk.services.ecs.model.StartTaskRequest;
+import software.amazon.awssdk.services.ecs.model.StartTaskResponse;
+import software.amazon.awssdk.services.ecs.model.StopTaskRequest;
+import software.amazon.awssdk.services.ecs.model.StopTaskResponse;
+
+/**
+ * ECS client decorator that limits the rate of calls to every cluster with an {@link
+ * AdaptiveRateLimiter}, so that all of the concurrent list, describe, start and stop calls made by
+ * a function share the cluster's API limit instead of all being throttled together.
+ *
+ * <p>Calls are delayed on a scheduler thread rather than by blocking the caller. The client is
+ * created with the credentials of a single account, so limiting calls per cluster also limits them
+ * per account and cluster.
+ */
+@Slf4j
+public class RateLimitedECSAsyncClient implements ECSAsyncClient {
+  /** The name of the cluster that ECS uses when a request doesn't specify one. */
+  private static final String DEFAULT_CLUSTER = "default";
+
+  /** The limiter key for APIs that aren't called on a cluster. */
+  private static final String TASK_DEFINITIONS = "task-definitions";
+
+  private final ECSAsyncClient ecs;
+  private final ECSRateLimiters limiters;
+  private final ScheduledExecutorService scheduler;
+
+  public RateLimitedECSAsyncClient(ECSAsyncClient ecs, ECSRateLimiters limiters) {
+    this(
+        ecs,
+        limiters,
+        Executors.newSingleThreadScheduledExecutor(
+            r -> {
+              Thread thread = new Thread(r, "ecs-rate-limiter");
+              thread.setDaemon(true);
+              return thread;
+            }));
+  }
+
+  public RateLimitedECSAsyncClient(
+      ECSAsyncClient ecs,
+      Function<String, AdaptiveRateLimiter> limiterFactory,
+      ScheduledExecutorService scheduler) {
+    this(ecs, new ECSRateLimiters(limiterFactory), scheduler);
+  }
+
+  public RateLimitedECSAsyncClient(
+      ECSAsyncClient ecs, ECSRateLimiters limiters, ScheduledExecutorService scheduler) {
+    this.ecs = ecs;
+    this.limiters = limiters;
+    this.scheduler = scheduler;
+  }
+
+  @Override
+  public CompletableFuture<ListTasksResponse> listTasks(ListTasksRequest request) {
+    return call(request.cluster(), () -> ecs.listTasks(request));
+  }
+
+  @Override
+  public CompletableFuture<DescribeTasksResponse> describeTasks(DescribeTasksRequest request) {
+    return call(request.cluster(), () -> ecs.describeTasks(request));
+  }
+
+  @Override
+  public CompletableFuture<ListContainerInstancesResponse> listContainerInstances(
+      ListContainerInstancesRequest request) {
+    return call(request.cluster(), () -> ecs.listContainerInstances(request));
+  }
+
+  @Override
+  public CompletableFuture<DescribeContainerInstancesResponse> describeContainerInstances(
+      DescribeContainerInstancesRequest request) {
+    return call(request.cluster(), () -> ecs.describeContainerInstances(request));
+  }
+
+  @Override
+  public CompletableFuture<DescribeTaskDefinitionResponse> describeTaskDefinition(
+      DescribeTaskDefinitionRequest request) {
+    // Task definitions don't belong to a cluster, so they share a single limiter:
+    return call(TASK_DEFINITIONS, () -> ecs.describeTaskDefinition(request));
+  }
+
+  @Override
+  public CompletableFuture<StartTaskResponse> startTask(StartTaskRequest request) {
+    return call(request.cluster(), () -> ecs.startTask(request));
+  }
+
+  @Override
+  public CompletableFuture<StopTaskResponse> stopTask(StopTaskRequest request) {
+    return call(request.cluster(), () -> ecs.stopTask(request));
+  }
+
+  @Override
+  public void close() {
+    scheduler.shutdownNow();
+    ecs.close();
+  }
+
+  /** Metrics of the rate limiter of every cluster that was called, by cluster name. */
+  public Map<String, AdaptiveRateLimiter.Metrics> metrics() {
+    return limiters.metrics();
+  }
+
+  private <T> CompletableFuture<T> call(String cluster, Supplier<CompletableFuture<T>> call) {
+    String clusterName = cluster == null ? DEFAULT_CLUSTER : cluster;
+    AdaptiveRateLimiter limiter = limiters.forCluster(clusterName);
+
+    long delay = limiter.reserve();
+    CompletableFuture<T> pending;
+    long startedAt;
+    if (delay == 0) {
+      startedAt = limiter.now();
+      pending = call.get();
+    } else {
+      CompletableFuture<Void> permit = new CompletableFuture<>();
+      Runnable release = () -> permit.complete(null);
+      scheduler.schedule(release, delay, TimeUnit.NANOSECONDS);
+      startedAt = limiter.now() + delay;
+      pending = permit.thenCompose(v -> call.get());
+    }
+
+    return pending.whenComplete(
+        (result, error) -> {
+          if (error == null) {
+            limiter.onSuccess();
+          } else if (ECSErrors.isThrottling(error)) {
+            limiter.onThrottle(startedAt);
+            log.info(
+                "ECS throttled a call to cluster {}, rate limiter is now {}",
+                clusterName,
+                limiter.metrics());
+          }
+        });
+  }
+}
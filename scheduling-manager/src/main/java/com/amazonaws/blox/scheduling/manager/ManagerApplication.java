@@ -15,21 +15,32 @@
 package com.amazonaws.blox.scheduling.manager;
 
 import com.amazonaws.blox.lambda.AwsSdkV2LambdaFunction;
+import com.amazonaws.blox.lambda.JacksonRequestStreamHandler;
 import com.amazonaws.blox.lambda.LambdaFunction;
+import com.amazonaws.blox.lambda.PayloadCodecs;
+import com.amazonaws.blox.lambda.SmilePayloadCodec;
 import com.amazonaws.blox.scheduling.SchedulingApplication;
+import com.amazonaws.blox.scheduling.activity.ClusterActivityTracker;
+import com.amazonaws.blox.scheduling.activity.DirtyMarkingECSState;
+import com.amazonaws.blox.scheduling.activity.EnvironmentChangeStreamHandler;
+import com.amazonaws.blox.scheduling.scheduler.SchedulerBatchOutput;
 import com.amazonaws.blox.scheduling.scheduler.SchedulerInput;
-import com.amazonaws.blox.scheduling.scheduler.SchedulerOutput;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.amazonaws.blox.scheduling.state.ECSEventStreamHandler;
+import com.amazonaws.blox.scheduling.state.ECSState;
+import com.amazonaws.blox.scheduling.state.SnapshotFilter;
+import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import software.amazon.awssdk.services.lambda.LambdaAsyncClient;
 
 @Configuration
 @ComponentScan({
   "com.amazonaws.blox.scheduling.manager",
   "com.amazonaws.blox.scheduling.state",
+  "com.amazonaws.blox.scheduling.activity",
 })
 public class ManagerApplication extends SchedulingApplication {
 
@@ -37,10 +48,54 @@ public class ManagerApplication extends SchedulingApplication {
   @Value("${scheduler_function_name}")
   String schedulerFunctionName;
 
+  // The format to send cluster snapshots to the Scheduler function in
+  @Value("${scheduler_payload_content_type:" + SmilePayloadCodec.CONTENT_TYPE + "}")
+  String schedulerPayloadContentType;
+
+  // Only snapshot tasks with this startedBy tag, or all tasks if empty. Setting it to the tag of
+  // tasks started by Blox ("blox") leaves tasks started by others out of the snapshot.
+  @Value("${snapshot_tasks_started_by:}")
+  String snapshotTasksStartedBy;
+
+  // Only snapshot container instances that match this ECS cluster query language expression
+  @Value("${snapshot_container_instance_filter:}")
+  String snapshotContainerInstanceFilter;
+
+  @Bean
+  public SnapshotFilter snapshotFilter() {
+    return SnapshotFilter.builder()
+        .startedBy(emptyToNull(snapshotTasksStartedBy))
+        .containerInstanceFilter(emptyToNull(snapshotContainerInstanceFilter))
+        .build();
+  }
+
   @Bean
-  public LambdaFunction<SchedulerInput, SchedulerOutput> scheduler(
-      LambdaAsyncClient lambda, ObjectMapper mapper) {
-    return new AwsSdkV2LambdaFunction<>(
-        lambda, mapper, SchedulerOutput.class, schedulerFunctionName);
+  public LambdaFunction<SchedulerInput, SchedulerBatchOutput> scheduler(
+      LambdaAsyncClient lambda, PayloadCodecs codecs) {
+    return limitConcurrency(
+        schedulerFunctionName,
+        new AwsSdkV2LambdaFunction<>(
+            lambda,
+            codecs,
+            codecs.get(schedulerPayloadContentType),
+            SchedulerBatchOutput.class,
+            schedulerFunctionName));
+  }
+
+  @Bean
+  @Primary
+  public RequestStreamHandler managerStreamHandler(
+      ManagerHandler manager, ECSState state, ClusterActivityTracker activity) {
+    return new EnvironmentChangeStreamHandler(
+        mapper(),
+        new ECSEventStreamHandler(
+            mapper(),
+            new JacksonRequestStreamHandler<>(payloadCodecs(), manager),
+            new DirtyMarkingECSState(state, activity)),
+        activity);
+  }
+
+  private static String emptyToNull(String value) {
+    return value == null || value.isEmpty() ? null : value;
   }
 }
@@ -18,17 +18,27 @@ import com.amazonaws.blox.dataservicemodel.v1.client.DataService;
 import com.amazonaws.blox.dataservicemodel.v1.model.EnvironmentId;
 import com.amazonaws.blox.dataservicemodel.v1.model.wrappers.ListEnvironmentsRequest;
 import com.amazonaws.blox.dataservicemodel.v1.model.wrappers.ListEnvironmentsResponse;
+import com.amazonaws.blox.jsonrpc.Deadline;
+import com.amazonaws.blox.jsonrpc.DeadlineExceededException;
+import com.amazonaws.blox.lambda.LambdaDeadlines;
 import com.amazonaws.blox.lambda.LambdaFunction;
+import com.amazonaws.blox.scheduling.activity.ClusterActivityTracker;
+import com.amazonaws.blox.scheduling.ecs.ECSRateLimiters;
+import com.amazonaws.blox.scheduling.scheduler.SchedulerBatchOutput;
 import com.amazonaws.blox.scheduling.scheduler.SchedulerInput;
 import com.amazonaws.blox.scheduling.scheduler.SchedulerOutput;
 import com.amazonaws.blox.scheduling.state.ClusterSnapshot;
 import com.amazonaws.blox.scheduling.state.ECSState;
+import com.amazonaws.blox.scheduling.state.SnapshotFilter;
+import com.amazonaws.blox.scheduling.state.SnapshotStore;
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
-import com.spotify.futures.CompletableFutures;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.stream.Stream;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
@@ -40,27 +50,96 @@ import org.springframework.stereotype.Component;
 public class ManagerHandler implements RequestHandler<ManagerInput, ManagerOutput> {
   private final DataService data;
   private final ECSState ecs;
-  private final LambdaFunction<SchedulerInput, SchedulerOutput> scheduler;
+  private final LambdaFunction<SchedulerInput, SchedulerBatchOutput> scheduler;
+  private final SnapshotStore snapshots;
+  private final SchedulerBatchSizer batchSizer;
+  private final SnapshotFilter snapshotFilter;
+  private final ClusterActivityTracker activity;
+  private final ECSRateLimiters ecsRateLimiters;
 
   @Override
   @SneakyThrows // TODO add checked exception handling
   public ManagerOutput handleRequest(ManagerInput input, Context context) {
     log.debug("Manager request: {}", input);
 
+    // Bound every downstream call by the deadline of the invocation, so that it returns the results
+    // it has so far rather than timing out:
+    try (Deadline.Scope scope = LambdaDeadlines.enter(LambdaDeadlines.of(context))) {
+      return reconcile(input);
+    }
+  }
+
+  private ManagerOutput reconcile(ManagerInput input) throws Exception {
+    // Start the pass before reading anything, so that changes made while it runs aren't lost:
+    ClusterActivityTracker.Pass pass = activity.beginPass(input.getCluster());
+
     ListEnvironmentsResponse r =
         data.listEnvironments(
             ListEnvironmentsRequest.builder().cluster(input.getCluster()).build());
     List<EnvironmentId> environments = r.getEnvironmentIds();
 
-    ClusterSnapshot state = ecs.snapshotState(input.getCluster().getClusterName());
+    // Only snapshot the part of the cluster that the environments could need, since shared clusters
+    // may contain many tasks that Blox doesn't manage:
+    ClusterSnapshot state = ecs.snapshotState(input.getCluster().getClusterName(), snapshotFilter);
 
-    Stream<CompletableFuture<SchedulerOutput>> pendingRequests =
-        environments
+    // Publish the snapshot once, rather than sending a copy of it to every scheduler:
+    String snapshotId = environments.isEmpty() ? null : snapshots.publish(state);
+
+    List<List<EnvironmentId>> batches = batchSizer.batches(environments, state);
+    List<CompletableFuture<SchedulerBatchOutput>> pendingRequests =
+        batches
             .stream()
-            .map(environmentId -> scheduler.callAsync(new SchedulerInput(state, environmentId)));
+            .map(batch -> scheduler.callAsync(new SchedulerInput(snapshotId, batch)))
+            .collect(Collectors.toList());
+
+    // Collect the result of every batch on its own, so that one failed batch doesn't discard the
+    // results of the others:
+    List<SchedulerOutput> outputs = new ArrayList<>();
+    List<EnvironmentId> failedEnvironments = new ArrayList<>();
+    boolean truncated = false;
+    for (int i = 0; i < batches.size(); i++) {
+      List<EnvironmentId> batch = batches.get(i);
+      try {
+        SchedulerBatchOutput output = pendingRequests.get(i).join();
+        outputs.addAll(output.getOutputs());
+        if (output.isTruncated()) {
+          // The Scheduler ran out of time for the environments that are missing from its output:
+          Set<EnvironmentId> scheduled =
+              output
+                  .getOutputs()
+                  .stream()
+                  .map(SchedulerOutput::getEnvironmentId)
+                  .collect(Collectors.toSet());
+          batch.stream().filter(e -> !scheduled.contains(e)).forEach(failedEnvironments::add);
+          truncated = true;
+        }
+      } catch (CompletionException e) {
+        if (e.getCause() instanceof DeadlineExceededException) {
+          log.warn("Ran out of time waiting for Scheduler for environments {}", batch);
+          truncated = true;
+        } else {
+          log.error("Scheduler failed for environments {}", batch, e.getCause());
+        }
+        failedEnvironments.addAll(batch);
+      }
+    }
 
-    List<SchedulerOutput> outputs = pendingRequests.collect(CompletableFutures.joinList()).join();
+    // The scheduler changed the cluster, and the events for those changes may not be delivered to
+    // this instance, so make sure they're picked up by the next snapshot:
+    if (outputs.stream().anyMatch(o -> o.getSuccessfulActions() + o.getFailedActions() > 0)) {
+      ecs.invalidate(input.getCluster().getClusterName());
+    }
 
-    return new ManagerOutput(input.getCluster(), outputs);
+    if (failedEnvironments.isEmpty()) {
+      pass.end(state, outputs);
+    } else {
+      // Retry the failed environments on the next tick, rather than waiting for the next sweep:
+      activity.markDirty(ClusterActivityTracker.keyOf(input.getCluster()));
+    }
+    log.debug(
+        "ECS rate limiter of cluster {}: {}",
+        input.getCluster().getClusterName(),
+        ecsRateLimiters.metrics(input.getCluster().getClusterName()));
+    return new ManagerOutput(input.getCluster(), outputs, failedEnvironments, truncated);
   }
 }
@@ -15,12 +15,32 @@
 package com.amazonaws.blox.scheduling.manager;
 
 import com.amazonaws.blox.dataservicemodel.v1.model.Cluster;
+import com.amazonaws.blox.dataservicemodel.v1.model.EnvironmentId;
 import com.amazonaws.blox.scheduling.scheduler.SchedulerOutput;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.Collections;
 import java.util.List;
+import lombok.AllArgsConstructor;
 import lombok.Data;
 
 @Data
+@AllArgsConstructor
 public class ManagerOutput {
   private final Cluster cluster;
   private final List<SchedulerOutput> scheduleResults;
+
+  /** The environments that couldn't be scheduled, because the Scheduler failed for them. */
+  @JsonInclude(JsonInclude.Include.NON_EMPTY)
+  private final List<EnvironmentId> failedEnvironments;
+
+  /**
+   * Whether the invocation ran out of time before every environment was scheduled. The environments
+   * that weren't are among {@link #failedEnvironments}.
+   */
+  @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+  private final boolean truncated;
+
+  public ManagerOutput(Cluster cluster, List<SchedulerOutput> scheduleResults) {
+    this(cluster, scheduleResults, Collections.emptyList(), false);
+  }
 }
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.manager;
+
+import com.amazonaws.blox.dataservicemodel.v1.model.EnvironmentId;
+import com.amazonaws.blox.scheduling.state.ClusterSnapshot;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Splits the environments of a cluster into batches that are each scheduled by one invocation of
+ * the Scheduler function.
+ *
+ * <p>Fewer, larger batches save invocations and snapshot deserialization, but every environment in
+ * a batch is scheduled against the whole snapshot within a single invocation's time limit. Batches
+ * are therefore as large as possible, limited both by a maximum number of environments and by a
+ * maximum amount of work, measured as the number of environments times the number of tasks and
+ * instances in the snapshot. Environments are then spread evenly over the resulting number of
+ * batches.
+ */
+@Component
+public class SchedulerBatchSizer {
+  public static final int DEFAULT_MAX_ENVIRONMENTS = 50;
+  public static final long DEFAULT_MAX_WORK = 2_000_000;
+
+  /** The maximum number of environments in a batch. */
+  private final int maxEnvironments;
+
+  /** The maximum of (environments in the batch) * (tasks and instances in the snapshot). */
+  private final long maxWork;
+
+  @Autowired
+  public SchedulerBatchSizer(
+      @Value("${scheduler_batch_max_environments:" + DEFAULT_MAX_ENVIRONMENTS + "}")
+          int maxEnvironments,
+      @Value("${scheduler_batch_max_work:" + DEFAULT_MAX_WORK + "}") long maxWork) {
+    if (maxEnvironments < 1) {
+      throw new IllegalArgumentException("maxEnvironments must be positive: " + maxEnvironments);
+    }
+
+    this.maxEnvironments = maxEnvironments;
+    this.maxWork = maxWork;
+  }
+
+  /** @return the largest batch size allowed for the given snapshot */
+  public int maxBatchSize(ClusterSnapshot snapshot) {
+    long snapshotSize = Math.max(1, size(snapshot.getTasks()) + size(snapshot.getInstances()));
+    return (int) Math.max(1, Math.min(maxEnvironments, maxWork / snapshotSize));
+  }
+
+  /** Split the given environments into evenly sized batches, keeping their order. */
+  public List<List<EnvironmentId>> batches(
+      List<EnvironmentId> environments, ClusterSnapshot snapshot) {
+    List<List<EnvironmentId>> batches = new ArrayList<>();
+    if (environments.isEmpty()) {
+      return batches;
+    }
+
+    int maxBatchSize = maxBatchSize(snapshot);
+    int batchCount = (environments.size() + maxBatchSize - 1) / maxBatchSize;
+
+    for (int i = 0; i < batchCount; i++) {
+      int from = (int) ((long) environments.size() * i / batchCount);
+      int to = (int) ((long) environments.size() * (i + 1) / batchCount);
+      batches.add(new ArrayList<>(environments.subList(from, to)));
+    }
+    return batches;
+  }
+
+  private static long size(List<?> list) {
+    return list == null ? 0 : list.size();
+  }
+}
@@ -17,8 +17,8 @@ package com.amazonaws.blox.scheduling.reconciler;
 import com.amazonaws.blox.lambda.AwsSdkV2LambdaFunction;
 import com.amazonaws.blox.lambda.LambdaFunction;
 import com.amazonaws.blox.scheduling.SchedulingApplication;
-import com.amazonaws.blox.scheduling.manager.ManagerInput;
-import com.amazonaws.blox.scheduling.manager.ManagerOutput;
+import com.amazonaws.blox.scheduling.shard.ShardInput;
+import com.amazonaws.blox.scheduling.shard.ShardOutput;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -31,12 +31,14 @@ import software.amazon.awssdk.services.lambda.LambdaAsyncClient;
 public class ReconcilerApplication extends SchedulingApplication {
 
   // Wired in through environment variable in CloudFormation template
-  @Value("${manager_function_name}")
-  String managerFunctionName;
+  @Value("${shard_function_name}")
+  String shardFunctionName;
 
   @Bean
-  public LambdaFunction<ManagerInput, ManagerOutput> manager(
+  public LambdaFunction<ShardInput, ShardOutput> shard(
       LambdaAsyncClient lambda, ObjectMapper mapper) {
-    return new AwsSdkV2LambdaFunction<>(lambda, mapper, ManagerOutput.class, managerFunctionName);
+    return limitConcurrency(
+        shardFunctionName,
+        new AwsSdkV2LambdaFunction<>(lambda, mapper, ShardOutput.class, shardFunctionName));
   }
 }
@@ -14,43 +14,72 @@
  */
 package com.amazonaws.blox.scheduling.reconciler;
 
-import com.amazonaws.blox.dataservicemodel.v1.client.DataService;
-import com.amazonaws.blox.dataservicemodel.v1.model.Cluster;
-import com.amazonaws.blox.dataservicemodel.v1.model.wrappers.ListClustersRequest;
-import com.amazonaws.blox.dataservicemodel.v1.model.wrappers.ListClustersResponse;
+import com.amazonaws.blox.jsonrpc.Deadline;
+import com.amazonaws.blox.lambda.LambdaDeadlines;
 import com.amazonaws.blox.lambda.LambdaFunction;
-import com.amazonaws.blox.scheduling.manager.ManagerInput;
-import com.amazonaws.blox.scheduling.manager.ManagerOutput;
+import com.amazonaws.blox.scheduling.shard.ShardInput;
+import com.amazonaws.blox.scheduling.shard.ShardOutput;
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
-import com.spotify.futures.CompletableFutures;
 import java.util.List;
 import java.util.Map;
-import lombok.RequiredArgsConstructor;
-import lombok.SneakyThrows;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+/**
+ * Starts a reconciliation tick by triggering the Shard function for each segment of all clusters.
+ *
+ * <p>Each shard lists the clusters in its segment and triggers the Manager for them independently
+ * of the others, so the tick isn't limited by how many clusters a single invocation can list, and a
+ * failing shard doesn't hold up the rest.
+ */
 @Component
-@RequiredArgsConstructor
 @Slf4j
 public class ReconcilerHandler implements RequestHandler<CloudWatchEvent<Map>, Void> {
-  final DataService dataService;
-  final LambdaFunction<ManagerInput, ManagerOutput> stateFunction;
+  public static final int DEFAULT_SHARD_COUNT = 4;
+
+  final LambdaFunction<ShardInput, ShardOutput> shardFunction;
+  final int shardCount;
+
+  @Autowired
+  public ReconcilerHandler(
+      LambdaFunction<ShardInput, ShardOutput> shardFunction,
+      @Value("${reconciler_shard_count:" + DEFAULT_SHARD_COUNT + "}") int shardCount) {
+    if (shardCount < 1) {
+      throw new IllegalArgumentException("shardCount must be positive: " + shardCount);
+    }
+
+    this.shardFunction = shardFunction;
+    this.shardCount = shardCount;
+  }
 
   @Override
-  @SneakyThrows // TODO add checked exception handling
   public Void handleRequest(CloudWatchEvent<Map> input, Context context) {
     log.debug("Reconciler request: {}", input);
 
-    ListClustersResponse r = dataService.listClusters(ListClustersRequest.builder().build());
-    List<Cluster> clusters = r.getClusters();
+    List<CompletableFuture<Void>> triggers;
+    try (Deadline.Scope scope = LambdaDeadlines.enter(LambdaDeadlines.of(context))) {
+      triggers =
+          IntStream.range(0, shardCount)
+              .mapToObj(
+                  segment -> shardFunction.triggerAsync(new ShardInput(segment, shardCount, null)))
+              .collect(Collectors.toList());
+    }
 
-    clusters
-        .stream()
-        .map(c -> stateFunction.triggerAsync(new ManagerInput(c)))
-        .collect(CompletableFutures.joinList())
-        .join();
+    // A shard that couldn't be triggered is picked up again by the next tick:
+    for (int segment = 0; segment < shardCount; segment++) {
+      try {
+        triggers.get(segment).join();
+      } catch (CompletionException e) {
+        log.error("Failed to trigger shard {}/{}", segment, shardCount, e.getCause());
+      }
+    }
 
     return null;
   }
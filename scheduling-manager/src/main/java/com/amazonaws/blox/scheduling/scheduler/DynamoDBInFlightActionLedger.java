@@ -0,0 +1,102 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.scheduler;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.DeleteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Ledger of executed actions in a DynamoDB table, keyed by {@link #ACTION_KEY}. An action is
+ * claimed with a conditional put that only succeeds if its item doesn't exist or has expired;
+ * expired items are overwritten, never deleted. If the table can't be used, actions are executed
+ * anyway.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class DynamoDBInFlightActionLedger implements InFlightActionLedger {
+  public static final String ACTION_KEY = "actionKey";
+  public static final String EXPIRES_AT = "expiresAt";
+
+  private final AmazonDynamoDB dynamoDB;
+  private final String tableName;
+  private final Duration ttl;
+  private final Clock clock;
+
+  public DynamoDBInFlightActionLedger(AmazonDynamoDB dynamoDB, String tableName, Duration ttl) {
+    this(dynamoDB, tableName, ttl, Clock.systemUTC());
+  }
+
+  @Override
+  public boolean claim(String key) {
+    Instant now = clock.instant();
+
+    Map<String, AttributeValue> item = new HashMap<>();
+    item.put(ACTION_KEY, new AttributeValue(key));
+    item.put(EXPIRES_AT, epochSeconds(now.plus(ttl)));
+
+    Map<String, String> names = new HashMap<>();
+    names.put("#key", ACTION_KEY);
+    names.put("#expiresAt", EXPIRES_AT);
+
+    try {
+      dynamoDB.putItem(
+          new PutItemRequest()
+              .withTableName(tableName)
+              .withItem(item)
+              .withConditionExpression("attribute_not_exists(#key) OR #expiresAt <= :now")
+              .withExpressionAttributeNames(names)
+              .withExpressionAttributeValues(singletonMap(":now", epochSeconds(now))));
+      return true;
+    } catch (ConditionalCheckFailedException e) {
+      log.debug("Action {} is already in flight", key);
+      return false;
+    } catch (RuntimeException e) {
+      log.warn("Could not record action {}, executing it anyway", key, e);
+      return true;
+    }
+  }
+
+  @Override
+  public void release(String key) {
+    try {
+      dynamoDB.deleteItem(
+          new DeleteItemRequest()
+              .withTableName(tableName)
+              .withKey(singletonMap(ACTION_KEY, new AttributeValue(key))));
+    } catch (RuntimeException e) {
+      log.warn("Could not release action {}, it will be skipped until it expires", key, e);
+    }
+  }
+
+  private static AttributeValue epochSeconds(Instant instant) {
+    return new AttributeValue().withN(Long.toString(instant.getEpochSecond()));
+  }
+
+  private static Map<String, AttributeValue> singletonMap(String key, AttributeValue value) {
+    Map<String, AttributeValue> map = new HashMap<>();
+    map.put(key, value);
+    return map;
+  }
+}
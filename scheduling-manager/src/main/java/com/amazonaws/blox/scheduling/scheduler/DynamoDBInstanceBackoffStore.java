@@ -0,0 +1,122 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.scheduler;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.DeleteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Store of instance backoffs in a DynamoDB table, keyed by {@link #ENVIRONMENT_KEY} and {@link
+ * #INSTANCE_ARN}, so that all records of an environment are read with a single query. If the table
+ * can't be read, no instance is cooling down.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class DynamoDBInstanceBackoffStore implements InstanceBackoffStore {
+  public static final String ENVIRONMENT_KEY = "environmentKey";
+  public static final String INSTANCE_ARN = "instanceArn";
+  public static final String FAILURES = "failures";
+  public static final String REASON = "reason";
+  public static final String RETRY_AT = "retryAt";
+  public static final String EXPIRES_AT = "expiresAt";
+
+  private final AmazonDynamoDB dynamoDB;
+  private final String tableName;
+
+  @Override
+  public Map<String, InstanceBackoff> get(String environmentKey) {
+    Map<String, String> names = new HashMap<>();
+    names.put("#environment", ENVIRONMENT_KEY);
+    Map<String, AttributeValue> values = new HashMap<>();
+    values.put(":environment", new AttributeValue(environmentKey));
+
+    Map<String, InstanceBackoff> backoffs = new HashMap<>();
+    try {
+      Map<String, AttributeValue> startKey = null;
+      do {
+        QueryResult result =
+            dynamoDB.query(
+                new QueryRequest()
+                    .withTableName(tableName)
+                    .withKeyConditionExpression("#environment = :environment")
+                    .withExpressionAttributeNames(names)
+                    .withExpressionAttributeValues(values)
+                    .withExclusiveStartKey(startKey));
+        for (Map<String, AttributeValue> item : result.getItems()) {
+          InstanceBackoff backoff = fromItem(item);
+          backoffs.put(backoff.getInstanceArn(), backoff);
+        }
+        startKey = result.getLastEvaluatedKey();
+      } while (startKey != null && !startKey.isEmpty());
+    } catch (RuntimeException e) {
+      log.warn("Could not read instance backoffs of {}, retrying all instances", environmentKey, e);
+      return new HashMap<>();
+    }
+    return backoffs;
+  }
+
+  @Override
+  public void put(String environmentKey, InstanceBackoff backoff) {
+    Map<String, AttributeValue> item = new HashMap<>();
+    item.put(ENVIRONMENT_KEY, new AttributeValue(environmentKey));
+    item.put(INSTANCE_ARN, new AttributeValue(backoff.getInstanceArn()));
+    item.put(FAILURES, number(backoff.getFailures()));
+    item.put(REASON, new AttributeValue(backoff.getReason()));
+    item.put(RETRY_AT, number(backoff.getRetryAt().toEpochMilli()));
+    item.put(EXPIRES_AT, number(backoff.getExpiresAt().getEpochSecond()));
+
+    try {
+      dynamoDB.putItem(new PutItemRequest().withTableName(tableName).withItem(item));
+    } catch (RuntimeException e) {
+      log.warn("Could not record backoff of {} on {}", environmentKey, backoff.getInstanceArn(), e);
+    }
+  }
+
+  @Override
+  public void remove(String environmentKey, String instanceArn) {
+    Map<String, AttributeValue> key = new HashMap<>();
+    key.put(ENVIRONMENT_KEY, new AttributeValue(environmentKey));
+    key.put(INSTANCE_ARN, new AttributeValue(instanceArn));
+
+    try {
+      dynamoDB.deleteItem(new DeleteItemRequest().withTableName(tableName).withKey(key));
+    } catch (RuntimeException e) {
+      log.warn("Could not clear backoff of {} on {}", environmentKey, instanceArn, e);
+    }
+  }
+
+  private static InstanceBackoff fromItem(Map<String, AttributeValue> item) {
+    return InstanceBackoff.builder()
+        .instanceArn(item.get(INSTANCE_ARN).getS())
+        .failures(Integer.parseInt(item.get(FAILURES).getN()))
+        .reason(item.containsKey(REASON) ? item.get(REASON).getS() : null)
+        .retryAt(Instant.ofEpochMilli(Long.parseLong(item.get(RETRY_AT).getN())))
+        .expiresAt(Instant.ofEpochSecond(Long.parseLong(item.get(EXPIRES_AT).getN())))
+        .build();
+  }
+
+  private static AttributeValue number(long value) {
+    return new AttributeValue().withN(Long.toString(value));
+  }
+}
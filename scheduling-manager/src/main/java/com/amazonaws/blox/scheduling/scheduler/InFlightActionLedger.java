@@ -0,0 +1,106 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.scheduler;
+
+import com.amazonaws.blox.jsonrpc.Deadline;
+import com.amazonaws.blox.scheduling.scheduler.engine.ActionResult;
+import com.amazonaws.blox.scheduling.scheduler.engine.SchedulingAction;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records the actions that have been executed recently, so that the same action isn't executed
+ * again before ECS reports its effect.
+ *
+ * <p>Reconciliation ticks can overlap, and ECS reports new tasks with some lag, so the next tick
+ * can compute the same start or stop as the previous one. Every action {@link #claim claims} its
+ * {@link SchedulingAction#keyFor key} before it is executed; a key stays claimed until the action
+ * fails and is {@link #release released}, or until it expires, by which time ECS should report the
+ * result of a successful action.
+ */
+public interface InFlightActionLedger {
+  /**
+   * Record that the action with the given key is in flight, unless another one already is.
+   *
+   * @return true if the action was recorded, false if it's a duplicate
+   */
+  boolean claim(String key);
+
+  /** Forget the action with the given key, so that it may be executed again. */
+  void release(String key);
+
+  /**
+   * Claim all targets of the given actions, and drop the actions that duplicate an action in
+   * flight.
+   */
+  default List<SchedulingAction> claimAll(List<SchedulingAction> actions) {
+    return claimAll(actions, null);
+  }
+
+  /**
+   * Claim all targets of the given actions, and drop the actions that duplicate an action in
+   * flight, or that couldn't be claimed before the given deadline.
+   *
+   * @param deadline the deadline to claim actions by, or null to claim all of them
+   */
+  default List<SchedulingAction> claimAll(List<SchedulingAction> actions, Deadline deadline) {
+    List<SchedulingAction> claimed = new ArrayList<>(actions.size());
+    for (SchedulingAction action : actions) {
+      if (deadline != null && deadline.isExpired()) {
+        break;
+      }
+      if (claimTargets(action)) {
+        claimed.add(action);
+      }
+    }
+    return claimed;
+  }
+
+  /**
+   * Claim all targets of the given action. If any of them is already claimed, the others are
+   * released again.
+   *
+   * @return true if all targets were claimed
+   */
+  default boolean claimTargets(SchedulingAction action) {
+    List<String> keys = new ArrayList<>();
+    for (String target : action.targets()) {
+      String key = action.keyFor(target);
+      if (!claim(key)) {
+        break;
+      }
+      keys.add(key);
+    }
+
+    if (keys.size() == action.targets().size()) {
+      return true;
+    }
+    keys.forEach(this::release);
+    return false;
+  }
+
+  /**
+   * Release the targets that the actions failed for, so that they're retried on the next tick.
+   * {@link ActionResult#ABANDONED Abandoned} targets may still have succeeded, so they stay claimed
+   * until they expire.
+   */
+  default void releaseFailed(List<ActionResult> results) {
+    for (ActionResult result : results) {
+      if (!result.isSuccessful() && !ActionResult.ABANDONED.equals(result.getFailureReason())) {
+        release(result.getAction().keyFor(result.getTarget()));
+      }
+    }
+  }
+}
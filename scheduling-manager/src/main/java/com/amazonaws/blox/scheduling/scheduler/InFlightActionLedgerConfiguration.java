@@ -0,0 +1,59 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.scheduler;
+
+import com.amazonaws.blox.scheduling.DynamoDBStores;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Beans for the ledger of in-flight actions.
+ *
+ * <p>Actions are recorded in DynamoDB if a table is configured (see {@link DynamoDBStores}), behind
+ * an in-memory ledger of the actions of this instance.
+ */
+@Configuration
+public class InFlightActionLedgerConfiguration {
+  public static final long DEFAULT_TTL_SECONDS = 180;
+
+  // Wired in through environment variable in CloudFormation template
+  @Value("${in_flight_action_table_name:}")
+  String tableName;
+
+  /** How long a successful action is suppressed for, while waiting for ECS to report it. */
+  @Value("${in_flight_action_ttl_seconds:" + DEFAULT_TTL_SECONDS + "}")
+  long ttlSeconds;
+
+  /** How many actions are claimed in the DynamoDB table at the same time. */
+  @Value(
+      "${in_flight_action_claim_parallelism:"
+          + TieredInFlightActionLedger.DEFAULT_CLAIM_PARALLELISM
+          + "}")
+  int claimParallelism;
+
+  @Bean
+  public InFlightActionLedger inFlightActionLedger() {
+    Duration ttl = Duration.ofSeconds(ttlSeconds);
+    InFlightActionLedger local = new InMemoryInFlightActionLedger(ttl);
+    return DynamoDBStores.storeFor(
+        tableName,
+        () -> local,
+        (dynamoDB, table) ->
+            new TieredInFlightActionLedger(
+                local, new DynamoDBInFlightActionLedger(dynamoDB, table, ttl), claimParallelism));
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.scheduler;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Ledger of the actions executed by this function instance, which only stops duplicate actions from
+ * ticks that are handled by the same warm container.
+ */
+@RequiredArgsConstructor
+public class InMemoryInFlightActionLedger implements InFlightActionLedger {
+  private final Duration ttl;
+  private final Clock clock;
+
+  private final ConcurrentMap<String, Instant> expiryTimes = new ConcurrentHashMap<>();
+  private volatile Instant nextPurge = Instant.MIN;
+
+  public InMemoryInFlightActionLedger(Duration ttl) {
+    this(ttl, Clock.systemUTC());
+  }
+
+  @Override
+  public boolean claim(String key) {
+    Instant now = clock.instant();
+    purgeExpired(now);
+
+    // The new expiry time is only stored (and returned) if the key is absent or expired:
+    Instant expiresAt = now.plus(ttl);
+    return expiryTimes.merge(key, expiresAt, (old, claimed) -> old.isAfter(now) ? old : claimed)
+        == expiresAt;
+  }
+
+  @Override
+  public void release(String key) {
+    expiryTimes.remove(key);
+  }
+
+  /** Drop expired keys at most once per TTL, so that claiming a key doesn't scan all others. */
+  private void purgeExpired(Instant now) {
+    if (now.isBefore(nextPurge)) {
+      return;
+    }
+
+    nextPurge = now.plus(ttl);
+    expiryTimes.values().removeIf(expiresAt -> !expiresAt.isAfter(now));
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.scheduler;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/** Store of the backoff records of this function instance, which are lost on a cold start. */
+public class InMemoryInstanceBackoffStore implements InstanceBackoffStore {
+  private final ConcurrentMap<String, ConcurrentMap<String, InstanceBackoff>> environments =
+      new ConcurrentHashMap<>();
+
+  @Override
+  public Map<String, InstanceBackoff> get(String environmentKey) {
+    Map<String, InstanceBackoff> backoffs = environments.get(environmentKey);
+    return backoffs == null ? new HashMap<>() : new HashMap<>(backoffs);
+  }
+
+  @Override
+  public void put(String environmentKey, InstanceBackoff backoff) {
+    environments
+        .computeIfAbsent(environmentKey, k -> new ConcurrentHashMap<>())
+        .put(backoff.getInstanceArn(), backoff);
+  }
+
+  @Override
+  public void remove(String environmentKey, String instanceArn) {
+    Map<String, InstanceBackoff> backoffs = environments.get(environmentKey);
+    if (backoffs != null) {
+      backoffs.remove(instanceArn);
+    }
+  }
+}
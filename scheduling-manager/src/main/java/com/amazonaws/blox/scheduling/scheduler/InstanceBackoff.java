@@ -0,0 +1,46 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.scheduler;
+
+import java.time.Instant;
+import lombok.Builder;
+import lombok.Value;
+
+/** The consecutive failures to start a task of an environment on an instance. */
+@Value
+@Builder
+public class InstanceBackoff {
+  private final String instanceArn;
+
+  /** The number of consecutive failures, at least 1. */
+  private final int failures;
+
+  /** The ECS reason for the last failure, e.g. RESOURCE:MEMORY. */
+  private final String reason;
+
+  /** When a task may next be started on the instance. */
+  private final Instant retryAt;
+
+  /** When the failures are forgotten, if none follow; usually well after {@link #retryAt}. */
+  private final Instant expiresAt;
+
+  public boolean isCoolingDown(Instant now) {
+    return retryAt.isAfter(now);
+  }
+
+  public boolean isExpired(Instant now) {
+    return !expiresAt.isAfter(now);
+  }
+}
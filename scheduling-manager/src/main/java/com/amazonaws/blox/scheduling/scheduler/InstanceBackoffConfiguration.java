@@ -0,0 +1,54 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.scheduler;
+
+import com.amazonaws.blox.scheduling.DynamoDBStores;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Beans for tracking the instances that tasks failed to start on.
+ *
+ * <p>Backoffs are recorded in DynamoDB if a table is configured (see {@link DynamoDBStores}), so
+ * that they survive cold starts.
+ */
+@Configuration
+public class InstanceBackoffConfiguration {
+  public static final long DEFAULT_BASE_DELAY_SECONDS = 60;
+  public static final long DEFAULT_MAX_DELAY_SECONDS = 1800;
+
+  // Wired in through environment variable in CloudFormation template
+  @Value("${instance_backoff_table_name:}")
+  String tableName;
+
+  /** How long an instance cools down for after the first failure; doubled after each one. */
+  @Value("${instance_backoff_base_delay_seconds:" + DEFAULT_BASE_DELAY_SECONDS + "}")
+  long baseDelaySeconds;
+
+  @Value("${instance_backoff_max_delay_seconds:" + DEFAULT_MAX_DELAY_SECONDS + "}")
+  long maxDelaySeconds;
+
+  @Bean
+  public InstanceBackoffTracker instanceBackoffTracker() {
+    InstanceBackoffStore store =
+        DynamoDBStores.storeFor(
+            tableName, InMemoryInstanceBackoffStore::new, DynamoDBInstanceBackoffStore::new);
+
+    return new InstanceBackoffTracker(
+        store, Duration.ofSeconds(baseDelaySeconds), Duration.ofSeconds(maxDelaySeconds));
+  }
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.scheduler;
+
+import java.util.Map;
+
+/**
+ * Storage for the {@link InstanceBackoff} records of every environment, which are keyed by an
+ * environment key and the instance ARN.
+ */
+public interface InstanceBackoffStore {
+  /** @return the records of the environment, by instance ARN, including expired ones */
+  Map<String, InstanceBackoff> get(String environmentKey);
+
+  void put(String environmentKey, InstanceBackoff backoff);
+
+  void remove(String environmentKey, String instanceArn);
+}
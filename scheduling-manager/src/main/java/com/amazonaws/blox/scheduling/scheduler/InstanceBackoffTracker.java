@@ -0,0 +1,156 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.scheduler;
+
+import com.amazonaws.blox.dataservicemodel.v1.model.EnvironmentId;
+import com.amazonaws.blox.scheduling.scheduler.engine.ActionResult;
+import com.amazonaws.blox.scheduling.scheduler.engine.ReplaceTask;
+import com.amazonaws.blox.scheduling.scheduler.engine.StartTask;
+import com.amazonaws.blox.scheduling.scheduler.engine.StartTasks;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Tracks the instances that tasks of each environment failed to start on, so that they aren't
+ * retried on every tick while the cause of the failure persists.
+ *
+ * <p>Only failures that ECS attributes to the instance count, e.g. RESOURCE:MEMORY or AGENT;
+ * throttling and other errors of the call itself don't. After each consecutive failure, the
+ * instance cools down for twice as long as after the previous one, from the base delay up to the
+ * max delay. A successful start on the instance, or a max delay without failures after it has
+ * cooled down, resets its backoff.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class InstanceBackoffTracker {
+  /** The ECS failure reasons that are caused by the state of the instance. */
+  private static final List<String> INSTANCE_FAILURE_REASONS =
+      Arrays.asList("RESOURCE:", "AGENT", "ATTRIBUTE", "MISSING", "INACTIVE");
+
+  private static final int MAX_DOUBLINGS = 30;
+
+  private final InstanceBackoffStore store;
+  private final Duration baseDelay;
+  private final Duration maxDelay;
+  private final Clock clock;
+
+  public InstanceBackoffTracker(InstanceBackoffStore store, Duration baseDelay, Duration maxDelay) {
+    this(store, baseDelay, maxDelay, Clock.systemUTC());
+  }
+
+  /** @return the unexpired backoff records of the environment, by instance ARN */
+  public Map<String, InstanceBackoff> load(EnvironmentId environmentId) {
+    Instant now = clock.instant();
+    Map<String, InstanceBackoff> backoffs = store.get(keyOf(environmentId));
+    backoffs.values().removeIf(b -> b.isExpired(now));
+    return backoffs;
+  }
+
+  /** @return the ARNs of the instances that are still cooling down, in order */
+  public Set<String> coolingDown(Map<String, InstanceBackoff> backoffs) {
+    Instant now = clock.instant();
+    Set<String> instances = new TreeSet<>();
+    for (InstanceBackoff backoff : backoffs.values()) {
+      if (backoff.isCoolingDown(now)) {
+        instances.add(backoff.getInstanceArn());
+      }
+    }
+    return instances;
+  }
+
+  /**
+   * Back off the instances that the environment's tasks failed to start on, and reset the backoff
+   * of instances they were started on.
+   *
+   * @param backoffs the records of the environment, as {@link #load loaded} before scheduling
+   */
+  public void update(
+      EnvironmentId environmentId,
+      Map<String, InstanceBackoff> backoffs,
+      List<ActionResult> results) {
+    String environmentKey = keyOf(environmentId);
+    Instant now = clock.instant();
+
+    for (ActionResult result : results) {
+      if (!(result.getAction() instanceof StartTask
+          || result.getAction() instanceof StartTasks
+          || result.getAction() instanceof ReplaceTask)) {
+        continue;
+      }
+
+      String instance = result.getTarget();
+      InstanceBackoff previous = backoffs.get(instance);
+      if (result.isSuccessful()) {
+        if (previous != null) {
+          store.remove(environmentKey, instance);
+        }
+      } else if (isInstanceFailure(result.getFailureReason())) {
+        int failures = previous == null ? 1 : previous.getFailures() + 1;
+        Duration delay = delayAfter(failures);
+        log.info(
+            "Not starting tasks of {} on {} for {} after {} failures, last with {}",
+            environmentId,
+            instance,
+            delay,
+            failures,
+            result.getFailureReason());
+
+        store.put(
+            environmentKey,
+            InstanceBackoff.builder()
+                .instanceArn(instance)
+                .failures(failures)
+                .reason(result.getFailureReason())
+                .retryAt(now.plus(delay))
+                .expiresAt(now.plus(delay).plus(maxDelay))
+                .build());
+      }
+    }
+  }
+
+  /** Whether the ECS failure reason is caused by the instance rather than the call. */
+  public static boolean isInstanceFailure(String reason) {
+    if (reason == null) {
+      return false;
+    }
+    for (String instanceReason : INSTANCE_FAILURE_REASONS) {
+      if (reason.startsWith(instanceReason)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  Duration delayAfter(int failures) {
+    Duration delay = baseDelay.multipliedBy(1L << Math.min(failures - 1, MAX_DOUBLINGS));
+    return delay.compareTo(maxDelay) > 0 ? maxDelay : delay;
+  }
+
+  private static String keyOf(EnvironmentId environmentId) {
+    return String.join(
+        "/",
+        environmentId.getAccountId(),
+        environmentId.getCluster(),
+        environmentId.getEnvironmentName());
+  }
+}
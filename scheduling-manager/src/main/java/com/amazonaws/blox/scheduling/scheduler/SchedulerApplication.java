@@ -15,9 +15,26 @@
 package com.amazonaws.blox.scheduling.scheduler;
 
 import com.amazonaws.blox.scheduling.SchedulingApplication;
+import com.amazonaws.blox.scheduling.TaskDefinitionCache;
+import com.amazonaws.blox.scheduling.state.SnapshotStoreConfiguration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import software.amazon.awssdk.services.ecs.ECSAsyncClient;
 
 @Configuration
 @ComponentScan("com.amazonaws.blox.scheduling.scheduler")
-public class SchedulerApplication extends SchedulingApplication {}
+@Import(SnapshotStoreConfiguration.class)
+public class SchedulerApplication extends SchedulingApplication {
+
+  @Value("${task_definition_cache_size:" + TaskDefinitionCache.DEFAULT_SIZE + "}")
+  public int taskDefinitionCacheSize;
+
+  /** Shared by all environments scheduled by a warm function instance. */
+  @Bean
+  public TaskDefinitionCache taskDefinitionCache(ECSAsyncClient ecs) {
+    return new TaskDefinitionCache(ecs, taskDefinitionCacheSize);
+  }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.scheduler;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/** The outcome of scheduling every environment in a {@link SchedulerInput}, in input order. */
+@Data
+@AllArgsConstructor
+public class SchedulerBatchOutput {
+  private final List<SchedulerOutput> outputs;
+
+  /**
+   * Whether the Scheduler ran out of time before it scheduled every environment. The environments
+   * that it didn't get to are left out of {@link #outputs}.
+   */
+  @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+  private final boolean truncated;
+
+  public SchedulerBatchOutput(List<SchedulerOutput> outputs) {
+    this(outputs, false);
+  }
+}
@@ -15,43 +15,302 @@
 package com.amazonaws.blox.scheduling.scheduler;
 
 import com.amazonaws.blox.dataservicemodel.v1.client.DataService;
+import com.amazonaws.blox.dataservicemodel.v1.model.Attribute;
 import com.amazonaws.blox.dataservicemodel.v1.model.Environment;
 import com.amazonaws.blox.dataservicemodel.v1.model.EnvironmentId;
 import com.amazonaws.blox.dataservicemodel.v1.model.EnvironmentRevision;
+import com.amazonaws.blox.dataservicemodel.v1.model.InstanceGroup;
 import com.amazonaws.blox.dataservicemodel.v1.model.wrappers.DescribeEnvironmentRequest;
 import com.amazonaws.blox.dataservicemodel.v1.model.wrappers.DescribeEnvironmentRevisionRequest;
+import com.amazonaws.blox.jsonrpc.Deadline;
+import com.amazonaws.blox.jsonrpc.DeadlineExceededException;
+import com.amazonaws.blox.lambda.LambdaDeadlines;
+import com.amazonaws.blox.scheduling.TaskDefinitionCache;
+import com.amazonaws.blox.scheduling.activity.Fingerprint;
+import com.amazonaws.blox.scheduling.ecs.ECSRateLimiters;
+import com.amazonaws.blox.scheduling.scheduler.engine.ActionPlanner;
+import com.amazonaws.blox.scheduling.scheduler.engine.ActionResult;
 import com.amazonaws.blox.scheduling.scheduler.engine.EnvironmentDescription;
 import com.amazonaws.blox.scheduling.scheduler.engine.Scheduler;
 import com.amazonaws.blox.scheduling.scheduler.engine.SchedulerFactory;
 import com.amazonaws.blox.scheduling.scheduler.engine.SchedulingAction;
+import com.amazonaws.blox.scheduling.scheduler.engine.SchedulingActionExecutor;
+import com.amazonaws.blox.scheduling.scheduler.engine.TaskRequirements;
+import com.amazonaws.blox.scheduling.scheduler.engine.daemon.JointDaemonScheduler;
+import com.amazonaws.blox.scheduling.scheduler.engine.daemon.ReplaceAfterTerminateScheduler;
+import com.amazonaws.blox.scheduling.scheduler.engine.placement.PlacementContext;
+import com.amazonaws.blox.scheduling.state.ClusterSnapshot;
+import com.amazonaws.blox.scheduling.state.SnapshotStore;
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
-import com.spotify.futures.CompletableFutures;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.function.Function;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
-import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import software.amazon.awssdk.services.ecs.ECSAsyncClient;
 
 @Component
-@RequiredArgsConstructor
 @Slf4j
-public class SchedulerHandler implements RequestHandler<SchedulerInput, SchedulerOutput> {
+public class SchedulerHandler implements RequestHandler<SchedulerInput, SchedulerBatchOutput> {
+  public static final int DEFAULT_PARALLELISM = 8;
+
   private final DataService data;
-  private final ECSAsyncClient ecs;
+  private final TaskDefinitionCache taskDefinitions;
   private final SchedulerFactory schedulerFactory;
+  private final SnapshotStore snapshots;
+  private final SchedulingActionExecutor actionExecutor;
+  private final InFlightActionLedger inFlightActions;
+  private final InstanceBackoffTracker instanceBackoffs;
+  /** Rate limiters of the ECS calls made by this function, or null if they aren't rate limited. */
+  private final ECSRateLimiters ecsRateLimiters;
+
+  private final JointDaemonScheduler jointScheduler = new JointDaemonScheduler();
+  private final ActionPlanner actionPlanner = new ActionPlanner();
+
+  /** Runs the environments of a batch in parallel, since scheduling mostly waits on I/O. */
+  private final Executor executor;
+
+  public SchedulerHandler(
+      DataService data,
+      ECSAsyncClient ecs,
+      SchedulerFactory schedulerFactory,
+      SnapshotStore snapshots) {
+    this(data, ecs, schedulerFactory, snapshots, null);
+  }
+
+  public SchedulerHandler(
+      DataService data,
+      ECSAsyncClient ecs,
+      SchedulerFactory schedulerFactory,
+      SnapshotStore snapshots,
+      ECSRateLimiters ecsRateLimiters) {
+    this(
+        data,
+        new TaskDefinitionCache(ecs),
+        schedulerFactory,
+        snapshots,
+        new SchedulingActionExecutor(ecs),
+        new InMemoryInFlightActionLedger(
+            Duration.ofSeconds(InFlightActionLedgerConfiguration.DEFAULT_TTL_SECONDS)),
+        new InstanceBackoffTracker(
+            new InMemoryInstanceBackoffStore(),
+            Duration.ofSeconds(InstanceBackoffConfiguration.DEFAULT_BASE_DELAY_SECONDS),
+            Duration.ofSeconds(InstanceBackoffConfiguration.DEFAULT_MAX_DELAY_SECONDS)),
+        ecsRateLimiters,
+        DEFAULT_PARALLELISM);
+  }
 
+  @Autowired
+  public SchedulerHandler(
+      DataService data,
+      TaskDefinitionCache taskDefinitions,
+      SchedulerFactory schedulerFactory,
+      SnapshotStore snapshots,
+      SchedulingActionExecutor actionExecutor,
+      InFlightActionLedger inFlightActions,
+      InstanceBackoffTracker instanceBackoffs,
+      ECSRateLimiters ecsRateLimiters,
+      @Value("${scheduler_batch_parallelism:" + DEFAULT_PARALLELISM + "}") int parallelism) {
+    this.data = data;
+    this.taskDefinitions = taskDefinitions;
+    this.schedulerFactory = schedulerFactory;
+    this.snapshots = snapshots;
+    this.actionExecutor = actionExecutor;
+    this.inFlightActions = inFlightActions;
+    this.instanceBackoffs = instanceBackoffs;
+    this.ecsRateLimiters = ecsRateLimiters;
+    this.executor =
+        Executors.newFixedThreadPool(
+            parallelism,
+            r -> {
+              Thread thread = new Thread(r, "scheduler-batch");
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  /**
+   * Schedule every environment in the batch.
+   *
+   * <p>Daemon environments that use {@link ReplaceAfterTerminateScheduler} are scheduled together
+   * in a single pass over the snapshot by {@link JointDaemonScheduler}; all others are scheduled
+   * one at a time by the scheduler for their deployment method.
+   *
+   * <p>If scheduling any environment fails, the first failure is rethrown, but only after all other
+   * environments have been scheduled.
+   *
+   * <p>Environments that aren't scheduled by the {@link LambdaDeadlines deadline} of the invocation
+   * are given up on, and left out of the output, which is marked as truncated.
+   */
   @SneakyThrows
   @Override
-  public SchedulerOutput handleRequest(SchedulerInput input, Context context) {
+  public SchedulerBatchOutput handleRequest(SchedulerInput input, Context context) {
     log.debug("Request: {}", input);
 
-    EnvironmentId environmentId = input.getEnvironmentId();
+    // Downstream calls of every environment are bounded by the deadline of the invocation:
+    Deadline deadline = LambdaDeadlines.of(context);
+    Executor executor = deadline == null ? this.executor : deadline.bind(this.executor);
+
+    ClusterSnapshot snapshot =
+        input.getSnapshot() != null ? input.getSnapshot() : snapshots.fetch(input.getSnapshotId());
+    PlacementContext placement = new PlacementContext(snapshot);
+
+    List<EnvironmentId> environmentIds = input.getEnvironmentIds();
+    Map<EnvironmentId, Map<String, InstanceBackoff>> backoffs = new ConcurrentHashMap<>();
+    List<CompletableFuture<EnvironmentDescription>> descriptions =
+        environmentIds
+            .stream()
+            .map(
+                environmentId ->
+                    CompletableFuture.supplyAsync(
+                        () -> describe(environmentId, backoffs), executor))
+            .collect(Collectors.toList());
+
+    Map<EnvironmentDescription, CompletableFuture<List<SchedulingAction>>> jointActions =
+        scheduleJointly(snapshot, descriptions, deadline);
+
+    List<CompletableFuture<SchedulerOutput>> outputs = new ArrayList<>(environmentIds.size());
+    for (int i = 0; i < environmentIds.size(); i++) {
+      EnvironmentId environmentId = environmentIds.get(i);
+      outputs.add(
+          descriptions
+              .get(i)
+              .thenComposeAsync(
+                  description -> {
+                    if (description == null) {
+                      return CompletableFuture.completedFuture(
+                          new SchedulerOutput(snapshot.getClusterName(), environmentId, 0, 0));
+                    }
+
+                    CompletableFuture<List<SchedulingAction>> actions =
+                        jointActions.get(description);
+                    if (actions == null) {
+                      actions =
+                          CompletableFuture.completedFuture(
+                              schedule(snapshot, placement, description));
+                    }
+                    return actions.thenApply(
+                        a ->
+                            execute(
+                                snapshot,
+                                environmentId,
+                                description,
+                                a,
+                                backoffs.get(environmentId),
+                                deadline));
+                  },
+                  executor));
+    }
+
+    CompletableFuture<Void> all =
+        CompletableFuture.allOf(outputs.toArray(new CompletableFuture<?>[outputs.size()]));
+    try {
+      (deadline == null ? all : deadline.bound(all)).join();
+    } catch (CompletionException e) {
+      // Failures of each environment are handled below
+    }
+
+    List<SchedulerOutput> results = new ArrayList<>(outputs.size());
+    boolean truncated = false;
+    for (CompletableFuture<SchedulerOutput> output : outputs) {
+      // Only environments that are still being scheduled after the deadline can be cancelled:
+      if (output.cancel(false)) {
+        truncated = true;
+        continue;
+      }
+
+      try {
+        results.add(output.join());
+      } catch (CompletionException e) {
+        // Environments that were still being described at the deadline were cancelled:
+        if (!(e.getCause() instanceof DeadlineExceededException)
+            && !(e.getCause() instanceof CancellationException)) {
+          throw e.getCause();
+        }
+        truncated = true;
+      }
+    }
+
+    if (truncated) {
+      log.warn(
+          "Ran out of time after scheduling {} of {} environments", results.size(), outputs.size());
+    }
+    log.debug("Task definition cache: {}", taskDefinitions.metrics());
+    if (ecsRateLimiters != null) {
+      log.debug(
+          "ECS rate limiter of cluster {}: {}",
+          snapshot.getClusterName(),
+          ecsRateLimiters.metrics(snapshot.getClusterName()));
+    }
+    return new SchedulerBatchOutput(results, truncated);
+  }
+
+  /**
+   * Wait for every environment to be described, and schedule the daemon environments among them
+   * together.
+   *
+   * @return the actions of every jointly scheduled environment, which all fail if scheduling them
+   *     fails
+   */
+  private Map<EnvironmentDescription, CompletableFuture<List<SchedulingAction>>> scheduleJointly(
+      ClusterSnapshot snapshot,
+      List<CompletableFuture<EnvironmentDescription>> descriptions,
+      Deadline deadline) {
+    List<EnvironmentDescription> daemons = new ArrayList<>();
+    for (CompletableFuture<EnvironmentDescription> description : descriptions) {
+      // Environments that failed to be described, or weren't described by the deadline, fail on
+      // their own later:
+      EnvironmentDescription d =
+          (deadline == null ? description : deadline.bound(description))
+              .exceptionally(e -> null)
+              .join();
+      if (d != null && JointDaemonScheduler.canSchedule(d)) {
+        daemons.add(d);
+      }
+    }
+
+    Map<EnvironmentDescription, CompletableFuture<List<SchedulingAction>>> actions =
+        new HashMap<>();
+    if (daemons.isEmpty()) {
+      return actions;
+    }
+
+    try {
+      List<List<SchedulingAction>> scheduled = jointScheduler.schedule(snapshot, daemons);
+      for (int e = 0; e < daemons.size(); e++) {
+        actions.put(daemons.get(e), CompletableFuture.completedFuture(scheduled.get(e)));
+      }
+    } catch (RuntimeException e) {
+      CompletableFuture<List<SchedulingAction>> failed = new CompletableFuture<>();
+      failed.completeExceptionally(e);
+      daemons.forEach(d -> actions.put(d, failed));
+    }
+    return actions;
+  }
 
+  /**
+   * @param backoffs the instance backoffs of the environment are added to this
+   * @return the description of the environment, or null if it has no active revision
+   */
+  @SneakyThrows
+  private EnvironmentDescription describe(
+      EnvironmentId environmentId, Map<EnvironmentId, Map<String, InstanceBackoff>> backoffs) {
     Environment environment =
         data.describeEnvironment(
                 DescribeEnvironmentRequest.builder().environmentId(environmentId).build())
@@ -60,8 +319,7 @@ public class SchedulerHandler implements RequestHandler<SchedulerInput, Schedule
     String activeEnvironmentRevisionId = environment.getActiveEnvironmentRevisionId();
 
     if (activeEnvironmentRevisionId == null) {
-      return new SchedulerOutput(
-          input.getSnapshot().getClusterName(), input.getEnvironmentId(), 0, 0);
+      return null;
     }
 
     EnvironmentRevision activeEnvironmentRevision =
@@ -72,35 +330,119 @@ public class SchedulerHandler implements RequestHandler<SchedulerInput, Schedule
                     .build())
             .getEnvironmentRevision();
 
-    EnvironmentDescription environmentDescription =
-        EnvironmentDescription.builder()
-            .clusterName(environmentId.getCluster())
-            .environmentName(environmentId.getEnvironmentName())
-            .activeEnvironmentRevisionId(activeEnvironmentRevisionId)
-            .environmentType(
-                EnvironmentDescription.EnvironmentType.valueOf(
-                    environment.getEnvironmentType().toString()))
-            .taskDefinitionArn(activeEnvironmentRevision.getTaskDefinition())
-            .deploymentMethod(environment.getDeploymentMethod())
-            .build();
+    EnvironmentDescription.EnvironmentType environmentType =
+        EnvironmentDescription.EnvironmentType.valueOf(environment.getEnvironmentType().toString());
+    TaskRequirements taskRequirements =
+        environmentType == EnvironmentDescription.EnvironmentType.SingleTask
+            ? describeTaskRequirements(activeEnvironmentRevision.getTaskDefinition())
+            : null;
+
+    Map<String, InstanceBackoff> environmentBackoffs = instanceBackoffs.load(environmentId);
+    backoffs.put(environmentId, environmentBackoffs);
+    Set<String> coolingDown = instanceBackoffs.coolingDown(environmentBackoffs);
 
-    Scheduler s = schedulerFactory.schedulerFor(environmentDescription);
+    return EnvironmentDescription.builder()
+        .clusterName(environmentId.getCluster())
+        .environmentName(environmentId.getEnvironmentName())
+        .activeEnvironmentRevisionId(activeEnvironmentRevisionId)
+        .environmentType(environmentType)
+        .taskDefinitionArn(activeEnvironmentRevision.getTaskDefinition())
+        .deploymentMethod(environment.getDeploymentMethod())
+        .instanceGroup(activeEnvironmentRevision.getInstanceGroup())
+        .taskRequirements(taskRequirements)
+        .coolingDownInstances(coolingDown.isEmpty() ? null : coolingDown)
+        .build();
+  }
 
-    List<SchedulingAction> actions = s.schedule(input.getSnapshot(), environmentDescription);
+  /**
+   * @return the resources that tasks of the task definition reserve, or null if they can't be
+   *     described, in which case the task is placed as if it reserved none
+   */
+  private TaskRequirements describeTaskRequirements(String taskDefinitionArn) {
+    try {
+      return taskDefinitions.get(taskDefinitionArn).thenApply(TaskRequirements::of).join();
+    } catch (RuntimeException e) {
+      // The cache already logged why:
+      return null;
+    }
+  }
 
-    List<Boolean> outcomes =
-        actions.stream().map(a -> a.execute(ecs)).collect(CompletableFutures.joinList()).join();
+  @SneakyThrows
+  private List<SchedulingAction> schedule(
+      ClusterSnapshot snapshot,
+      PlacementContext placement,
+      EnvironmentDescription environmentDescription) {
+    Scheduler s = schedulerFactory.schedulerFor(environmentDescription, placement);
+
+    return s.schedule(snapshot, environmentDescription);
+  }
+
+  private SchedulerOutput execute(
+      ClusterSnapshot snapshot,
+      EnvironmentId environmentId,
+      EnvironmentDescription description,
+      List<SchedulingAction> actions,
+      Map<String, InstanceBackoff> backoffs,
+      Deadline deadline) {
+    List<SchedulingAction> claimed = inFlightActions.claimAll(actions, deadline);
+    if (claimed.size() < actions.size()) {
+      log.info(
+          "Skipping {} actions for environment {} that are in flight or weren't claimed in time",
+          actions.size() - claimed.size(),
+          environmentId);
+    }
+
+    Duration remainingTime = deadline == null ? null : deadline.remaining();
+    List<ActionResult> results = actionExecutor.execute(actionPlanner.plan(claimed), remainingTime);
+    inFlightActions.releaseFailed(results);
+    instanceBackoffs.update(environmentId, backoffs, results);
 
     Map<Boolean, Long> outcomeCounts =
-        outcomes
+        results
+            .stream()
+            .collect(Collectors.groupingBy(ActionResult::isSuccessful, Collectors.counting()));
+
+    Map<String, Long> failureReasons =
+        results
             .stream()
-            .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+            .filter(r -> !r.isSuccessful())
+            .collect(Collectors.groupingBy(ActionResult::getFailureReason, Collectors.counting()));
+    if (!failureReasons.isEmpty()) {
+      log.warn("Failed actions for environment {} by reason: {}", environmentId, failureReasons);
+    }
 
+    Set<String> coolingDown = description.getCoolingDownInstances();
     return new SchedulerOutput(
-        input.getSnapshot().getClusterName(),
-        input.getEnvironmentId(),
+        snapshot.getClusterName(),
+        environmentId,
+        outcomeCounts.getOrDefault(true, 0L),
         outcomeCounts.getOrDefault(false, 0L),
-        outcomeCounts.getOrDefault(true, 0L));
-    // TODO: handle exceptions. captured in the lambda exception handling issue
+        coolingDown == null ? Collections.emptyList() : new ArrayList<>(coolingDown),
+        versionOf(description));
+  }
+
+  /**
+   * @return a digest of everything in the description that scheduling depends on, except for the
+   *     instances that are cooling down, which are reported separately
+   */
+  static String versionOf(EnvironmentDescription description) {
+    Fingerprint fingerprint =
+        new Fingerprint()
+            .add(description.getActiveEnvironmentRevisionId())
+            .add(description.getEnvironmentType())
+            .add(description.getDeploymentMethod())
+            .add(description.getTaskDefinitionArn())
+            .add(description.getTaskRequirements());
+
+    InstanceGroup instanceGroup = description.getInstanceGroup();
+    if (instanceGroup == null || instanceGroup.getAttributes() == null) {
+      fingerprint.add((String) null);
+    } else {
+      List<Attribute> attributes = new ArrayList<>(instanceGroup.getAttributes());
+      attributes.sort(Comparator.comparing(Attribute::getName).thenComparing(Attribute::getValue));
+      fingerprint.add(attributes.size());
+      attributes.forEach(a -> fingerprint.add(a.getName()).add(a.getValue()));
+    }
+    return fingerprint.build();
   }
 }
@@ -16,10 +16,32 @@ package com.amazonaws.blox.scheduling.scheduler;
 
 import com.amazonaws.blox.dataservicemodel.v1.model.EnvironmentId;
 import com.amazonaws.blox.scheduling.state.ClusterSnapshot;
+import com.amazonaws.blox.scheduling.state.SnapshotStore;
+import java.util.List;
+import lombok.AllArgsConstructor;
 import lombok.Data;
 
+/**
+ * Request to schedule a batch of environments on the same cluster.
+ *
+ * <p>All environments in the batch are scheduled against the same snapshot of the cluster, so that
+ * it only has to be transferred and deserialized once.
+ */
 @Data
+@AllArgsConstructor
 public class SchedulerInput {
+  /** The snapshot to schedule against, or null if it's referenced by snapshotId instead. */
   final ClusterSnapshot snapshot;
-  final EnvironmentId environmentId;
+  /** The ID of the snapshot to schedule against in the {@link SnapshotStore}. */
+  final String snapshotId;
+
+  final List<EnvironmentId> environmentIds;
+
+  public SchedulerInput(ClusterSnapshot snapshot, List<EnvironmentId> environmentIds) {
+    this(snapshot, null, environmentIds);
+  }
+
+  public SchedulerInput(String snapshotId, List<EnvironmentId> environmentIds) {
+    this(null, snapshotId, environmentIds);
+  }
 }
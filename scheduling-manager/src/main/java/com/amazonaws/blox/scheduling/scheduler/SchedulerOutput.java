@@ -15,6 +15,9 @@
 package com.amazonaws.blox.scheduling.scheduler;
 
 import com.amazonaws.blox.dataservicemodel.v1.model.EnvironmentId;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.Collections;
+import java.util.List;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -28,4 +31,29 @@ public class SchedulerOutput {
 
   private final long successfulActions;
   private final long failedActions;
+
+  /** The instances that no task was started on because earlier starts on them failed. */
+  @JsonInclude(JsonInclude.Include.NON_EMPTY)
+  private final List<String> coolingDownInstances;
+
+  /**
+   * A digest of the environment description that the environment was scheduled from, which changes
+   * whenever the environment is updated, or null if it had nothing to schedule.
+   */
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  private final String environmentVersion;
+
+  public SchedulerOutput(
+      String clusterName, EnvironmentId environmentId, long successfulActions, long failedActions) {
+    this(clusterName, environmentId, successfulActions, failedActions, Collections.emptyList());
+  }
+
+  public SchedulerOutput(
+      String clusterName,
+      EnvironmentId environmentId,
+      long successfulActions,
+      long failedActions,
+      List<String> coolingDownInstances) {
+    this(clusterName, environmentId, successfulActions, failedActions, coolingDownInstances, null);
+  }
 }
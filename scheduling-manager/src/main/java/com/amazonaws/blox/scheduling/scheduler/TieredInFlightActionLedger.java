@@ -0,0 +1,111 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.scheduler;
+
+import com.amazonaws.blox.jsonrpc.Deadline;
+import com.amazonaws.blox.scheduling.scheduler.engine.SchedulingAction;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Ledger that checks a local ledger before a shared one, so that duplicates from ticks handled by
+ * the same warm container don't cost a call to the shared ledger.
+ *
+ * <p>Every claim in the shared ledger is a round-trip, so the actions of a batch are claimed
+ * concurrently, with at most a fixed number of claims in flight.
+ */
+public class TieredInFlightActionLedger implements InFlightActionLedger {
+  public static final int DEFAULT_CLAIM_PARALLELISM = 16;
+
+  private final InFlightActionLedger local;
+  private final InFlightActionLedger shared;
+  private final Executor claimExecutor;
+
+  public TieredInFlightActionLedger(InFlightActionLedger local, InFlightActionLedger shared) {
+    this(local, shared, DEFAULT_CLAIM_PARALLELISM);
+  }
+
+  public TieredInFlightActionLedger(
+      InFlightActionLedger local, InFlightActionLedger shared, int claimParallelism) {
+    this.local = local;
+    this.shared = shared;
+    this.claimExecutor =
+        Executors.newFixedThreadPool(
+            claimParallelism,
+            r -> {
+              Thread thread = new Thread(r, "in-flight-action-claims");
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  @Override
+  public boolean claim(String key) {
+    if (!local.claim(key)) {
+      return false;
+    }
+    if (!shared.claim(key)) {
+      local.release(key);
+      return false;
+    }
+    return true;
+  }
+
+  @Override
+  public void release(String key) {
+    shared.release(key);
+    local.release(key);
+  }
+
+  @Override
+  public List<SchedulingAction> claimAll(List<SchedulingAction> actions, Deadline deadline) {
+    List<CompletableFuture<Boolean>> claims = new ArrayList<>(actions.size());
+    for (SchedulingAction action : actions) {
+      claims.add(
+          CompletableFuture.supplyAsync(
+              () -> (deadline == null || !deadline.isExpired()) && claimTargets(action),
+              claimExecutor));
+    }
+
+    CompletableFuture<Void> all = CompletableFuture.allOf(claims.toArray(new CompletableFuture[0]));
+    try {
+      (deadline == null ? all : deadline.bound(all)).join();
+    } catch (CompletionException e) {
+      // Either the deadline expired, or some claims failed; both are handled per action below.
+    }
+
+    List<SchedulingAction> claimed = new ArrayList<>(actions.size());
+    for (int i = 0; i < actions.size(); i++) {
+      SchedulingAction action = actions.get(i);
+      CompletableFuture<Boolean> claim = claims.get(i);
+      if (!claim.isDone()) {
+        // The action is dropped, so its targets mustn't stay claimed once the claim is made:
+        claim.thenAccept(
+            succeeded -> {
+              if (succeeded) {
+                action.targets().forEach(target -> release(action.keyFor(target)));
+              }
+            });
+      } else if (!claim.isCompletedExceptionally() && claim.join()) {
+        claimed.add(action);
+      }
+    }
+    return claimed;
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.scheduler.engine;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import lombok.Value;
+
+/**
+ * Turns the actions computed by a {@link Scheduler} into the actions that are executed against ECS.
+ *
+ * <p>{@link StartTask} actions with the same cluster, task definition and group are merged into
+ * {@link StartTasks} actions of up to {@link StartTasks#MAX_CONTAINER_INSTANCES} instances each, so
+ * that rolling a daemon onto a large cluster takes a tenth of the StartTask calls. All other
+ * actions are executed as they are.
+ */
+public class ActionPlanner {
+  private final int maxBatchSize;
+
+  public ActionPlanner() {
+    this(StartTasks.MAX_CONTAINER_INSTANCES);
+  }
+
+  public ActionPlanner(int maxBatchSize) {
+    if (maxBatchSize < 1 || maxBatchSize > StartTasks.MAX_CONTAINER_INSTANCES) {
+      throw new IllegalArgumentException(
+          "maxBatchSize must be between 1 and " + StartTasks.MAX_CONTAINER_INSTANCES);
+    }
+    this.maxBatchSize = maxBatchSize;
+  }
+
+  /**
+   * Plan the given actions.
+   *
+   * <p>Batches are ordered by the first action they contain, and the instances within a batch keep
+   * their order, so that {@link SchedulingAction#executeEach} reports outcomes in the order the
+   * scheduler produced the actions in each batch. A batch of a single instance is left as a {@link
+   * StartTask}.
+   */
+  public List<SchedulingAction> plan(List<SchedulingAction> actions) {
+    Map<BatchKey, List<List<String>>> batches = new LinkedHashMap<>();
+    List<Supplier<SchedulingAction>> planned = new ArrayList<>(actions.size());
+
+    for (SchedulingAction action : actions) {
+      if (!(action instanceof StartTask)) {
+        planned.add(() -> action);
+        continue;
+      }
+
+      StartTask start = (StartTask) action;
+      BatchKey key =
+          new BatchKey(start.getClusterName(), start.getTaskDefinitionArn(), start.getGroup());
+      List<List<String>> keyBatches = batches.computeIfAbsent(key, k -> new ArrayList<>());
+      List<String> batch = keyBatches.isEmpty() ? null : keyBatches.get(keyBatches.size() - 1);
+      if (batch == null || batch.size() == maxBatchSize) {
+        batch = new ArrayList<>(maxBatchSize);
+        keyBatches.add(batch);
+        planned.add(new Batch(key, batch)::toAction);
+      }
+      batch.add(start.getContainerInstanceArn());
+    }
+
+    return planned.stream().map(Supplier::get).collect(Collectors.toList());
+  }
+
+  @Value
+  private static class BatchKey {
+    private final String clusterName;
+    private final String taskDefinitionArn;
+    private final String group;
+  }
+
+  @Value
+  private static class Batch {
+    private final BatchKey key;
+    private final List<String> containerInstanceArns;
+
+    SchedulingAction toAction() {
+      if (containerInstanceArns.size() == 1) {
+        return StartTask.builder()
+            .clusterName(key.getClusterName())
+            .containerInstanceArn(containerInstanceArns.get(0))
+            .taskDefinitionArn(key.getTaskDefinitionArn())
+            .group(key.getGroup())
+            .build();
+      }
+
+      return StartTasks.builder()
+          .clusterName(key.getClusterName())
+          .containerInstanceArns(containerInstanceArns)
+          .taskDefinitionArn(key.getTaskDefinitionArn())
+          .group(key.getGroup())
+          .build();
+    }
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.scheduler.engine;
+
+import java.time.Duration;
+import lombok.Builder;
+import lombok.Value;
+
+/** The result of executing a {@link SchedulingAction} for one of its targets. */
+@Value
+@Builder
+public class ActionResult {
+  /** The reason for targets that weren't attempted, or not retried, before the deadline. */
+  public static final String DEADLINE_EXCEEDED = "DEADLINE_EXCEEDED";
+
+  /**
+   * The reason for targets that were still in flight at the deadline, or whose call failed after
+   * ECS may already have acted on it. Whether they succeeded is unknown.
+   */
+  public static final String ABANDONED = "ABANDONED";
+
+  private final SchedulingAction action;
+
+  /** The container instance a task was started on, or the task that was stopped. */
+  private final String target;
+
+  private final boolean successful;
+
+  /**
+   * Why the task wasn't started or stopped: the failure reason or error code from ECS, {@link
+   * #DEADLINE_EXCEEDED} or {@link #ABANDONED}. Null if the action was successful.
+   */
+  private final String failureReason;
+
+  /** How many times the action was executed, including retries. */
+  private final int attempts;
+
+  /** The time from the first attempt until the action succeeded or gave up. */
+  private final Duration latency;
+}
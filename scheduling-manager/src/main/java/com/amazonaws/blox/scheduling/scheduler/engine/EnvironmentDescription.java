@@ -14,6 +14,12 @@
  */
 package com.amazonaws.blox.scheduling.scheduler.engine;
 
+import com.amazonaws.blox.dataservicemodel.v1.model.Attribute;
+import com.amazonaws.blox.dataservicemodel.v1.model.InstanceGroup;
+import com.amazonaws.blox.scheduling.state.CompactClusterSnapshot;
+import com.amazonaws.blox.scheduling.state.InstanceAttributeIndex;
+import java.util.BitSet;
+import java.util.Set;
 import lombok.Builder;
 import lombok.Value;
 
@@ -29,6 +35,57 @@ public class EnvironmentDescription {
   private final String deploymentMethod;
   private final String taskDefinitionArn;
 
+  /** The attributes of the instances to run tasks on, or null to run them on every instance */
+  private final InstanceGroup instanceGroup;
+
+  /**
+   * The resources that a task of {@link #taskDefinitionArn} reserves on its instance, or null if
+   * they aren't known.
+   */
+  private final TaskRequirements taskRequirements;
+
+  /**
+   * The ARNs of instances that recent attempts to start a task of this environment on failed, and
+   * that no task should be started on until they've cooled down, or null if there are none.
+   * Existing tasks on them are left alone.
+   */
+  private final Set<String> coolingDownInstances;
+
+  /**
+   * Return the listed instances in the given snapshot that this environment targets, i.e. those
+   * that have every attribute of its instance group.
+   */
+  public BitSet targetInstances(CompactClusterSnapshot snapshot) {
+    if (instanceGroup == null || instanceGroup.getAttributes() == null) {
+      BitSet all = new BitSet(snapshot.getInstanceCount());
+      all.set(0, snapshot.getInstanceCount());
+      return all;
+    }
+
+    InstanceAttributeIndex index = snapshot.attributeIndex();
+    BitSet targets = index.allInstances();
+    for (Attribute attribute : instanceGroup.getAttributes()) {
+      index.retainInstancesWith(targets, attribute.getName(), attribute.getValue());
+    }
+    return targets;
+  }
+
+  /**
+   * Return the listed instances in the given snapshot that a task of this environment may be
+   * started on: the target instances that aren't cooling down.
+   */
+  public BitSet startableInstances(CompactClusterSnapshot snapshot) {
+    BitSet startable = targetInstances(snapshot);
+    if (coolingDownInstances != null && !coolingDownInstances.isEmpty()) {
+      for (int i = startable.nextSetBit(0); i >= 0; i = startable.nextSetBit(i + 1)) {
+        if (coolingDownInstances.contains(snapshot.instanceArn(i))) {
+          startable.clear(i);
+        }
+      }
+    }
+    return startable;
+  }
+
   public enum EnvironmentType {
     SingleTask,
     Daemon
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.scheduler.engine;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.services.ecs.ECSAsyncClient;
+import software.amazon.awssdk.services.ecs.model.DescribeTasksRequest;
+import software.amazon.awssdk.services.ecs.model.DescribeTasksResponse;
+import software.amazon.awssdk.services.ecs.model.StopTaskRequest;
+import software.amazon.awssdk.services.ecs.model.Task;
+
+/**
+ * Replace a task with one of another task definition on the same container instance: stop the old
+ * task, wait until ECS reports it as stopped, and start the new one.
+ *
+ * <p>Starting the new task right after stopping the old one would usually fail, since the old task
+ * still holds its resources and ports until its containers have exited. Waiting here instead of
+ * starting the new task on the next tick halves the time it takes to deploy a new task definition
+ * to an instance. If the old task doesn't stop within the stop timeout, the new task isn't started,
+ * and the outcome is {@link #STOP_PENDING}; the next tick then starts it like any missing task.
+ *
+ * <p>While it waits, the replacement doesn't count towards the actions in flight of the {@link
+ * SchedulingActionExecutor}. Failed polls are retried until the stop timeout, so once it waits,
+ * only starting the new task can fail; that's all that's retried then (see {@link
+ * #afterWaiting()}).
+ */
+@Value
+@Builder
+@Slf4j
+public class ReplaceTask implements SchedulingAction {
+  /** The failure reason when the old task was stopped, but didn't stop in time. */
+  public static final String STOP_PENDING = "STOP_PENDING";
+
+  public static final Duration DEFAULT_STOP_TIMEOUT = Duration.ofSeconds(15);
+  public static final Duration DEFAULT_POLL_INTERVAL = Duration.ofSeconds(1);
+
+  private static final String STOPPED = "STOPPED";
+  private static final ScheduledExecutorService POLLER =
+      Executors.newSingleThreadScheduledExecutor(
+          r -> {
+            Thread thread = new Thread(r, "replace-task-poller");
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  private final String clusterName;
+  /** The ARN of the task to stop. */
+  private final String task;
+
+  private final String reason;
+  private final String containerInstanceArn;
+  private final String taskDefinitionArn;
+  private final String group;
+
+  /** How long to wait for the old task to stop before giving up on starting the new one. */
+  @Builder.Default private final Duration stopTimeout = DEFAULT_STOP_TIMEOUT;
+
+  @Builder.Default private final Duration pollInterval = DEFAULT_POLL_INTERVAL;
+
+  @Override
+  public List<String> targets() {
+    return Collections.singletonList(containerInstanceArn);
+  }
+
+  /** Replacing a task is a duplicate of starting a task of the same group on the instance. */
+  @Override
+  public String keyFor(String target) {
+    return StartTask.keyFor(clusterName, group, target);
+  }
+
+  /** Replacing the task again could start a second replacement. */
+  @Override
+  public boolean isIdempotent() {
+    return false;
+  }
+
+  @Override
+  public CompletableFuture<List<TaskOutcome>> executeEach(ECSAsyncClient ecs) {
+    return executeEach(ecs, () -> {});
+  }
+
+  @Override
+  public CompletableFuture<List<TaskOutcome>> executeEach(ECSAsyncClient ecs, Runnable waiting) {
+    long deadline = System.nanoTime() + stopTimeout.toNanos();
+
+    return ecs.stopTask(
+            StopTaskRequest.builder().cluster(clusterName).task(task).reason(reason).build())
+        .thenCompose(
+            stopped -> {
+              if (stopped.task() == null) {
+                return CompletableFuture.completedFuture(
+                    Collections.singletonList(
+                        TaskOutcome.failed(containerInstanceArn, TaskOutcome.UNKNOWN_FAILURE)));
+              }
+
+              waiting.run();
+              return awaitStopped(ecs, deadline)
+                  .thenCompose(
+                      isStopped -> {
+                        if (!isStopped) {
+                          log.info(
+                              "Task {} didn't stop within {}, leaving its replacement to the next tick",
+                              task,
+                              stopTimeout);
+                          return CompletableFuture.completedFuture(
+                              Collections.singletonList(
+                                  TaskOutcome.failed(containerInstanceArn, STOP_PENDING)));
+                        }
+                        return startTask().executeEach(ecs);
+                      });
+            });
+  }
+
+  /** Once the old task is stopping, only the start is left to retry. */
+  @Override
+  public SchedulingAction afterWaiting() {
+    return startTask();
+  }
+
+  /** The action that starts the replacement task. */
+  public StartTask startTask() {
+    return StartTask.builder()
+        .clusterName(clusterName)
+        .containerInstanceArn(containerInstanceArn)
+        .taskDefinitionArn(taskDefinitionArn)
+        .group(group)
+        .build();
+  }
+
+  /**
+   * Poll until the task has stopped. Polls that fail are treated like polls that find the task
+   * still running.
+   *
+   * @return whether the task stopped before the deadline, in {@link System#nanoTime()}
+   */
+  private CompletableFuture<Boolean> awaitStopped(ECSAsyncClient ecs, long deadline) {
+    return ecs.describeTasks(
+            DescribeTasksRequest.builder().cluster(clusterName).tasks(task).build())
+        .handle((response, error) -> error == null && isStopped(response))
+        .thenCompose(
+            isStopped -> {
+              if (isStopped) {
+                return CompletableFuture.completedFuture(true);
+              }
+              if (System.nanoTime() + pollInterval.toNanos() > deadline) {
+                return CompletableFuture.completedFuture(false);
+              }
+
+              CompletableFuture<Void> delay = new CompletableFuture<>();
+              POLLER.schedule(
+                  () -> delay.complete(null), pollInterval.toNanos(), TimeUnit.NANOSECONDS);
+              return delay.thenCompose(v -> awaitStopped(ecs, deadline));
+            });
+  }
+
+  /** Whether the task is stopped, or gone: ECS only describes stopped tasks for a while. */
+  private boolean isStopped(DescribeTasksResponse response) {
+    if (response.tasks() != null) {
+      for (Task t : response.tasks()) {
+        if (task.equals(t.taskArn())) {
+          return STOPPED.equals(t.lastStatus());
+        }
+      }
+    }
+    return response.failures() != null && !response.failures().isEmpty();
+  }
+}
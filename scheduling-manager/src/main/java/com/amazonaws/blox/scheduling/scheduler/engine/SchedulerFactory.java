@@ -15,16 +15,17 @@
 package com.amazonaws.blox.scheduling.scheduler.engine;
 
 import com.amazonaws.blox.scheduling.scheduler.engine.daemon.ReplaceAfterTerminateScheduler;
+import com.amazonaws.blox.scheduling.scheduler.engine.placement.PlacementContext;
 import org.springframework.stereotype.Component;
 
 @Component
 public class SchedulerFactory {
-
-  public Scheduler schedulerFor(EnvironmentDescription environment)
+  /** @param placement the capacity that the environments of the batch place their tasks against */
+  public Scheduler schedulerFor(EnvironmentDescription environment, PlacementContext placement)
       throws UnsupportedDeploymentMethodException {
     switch (environment.getEnvironmentType()) {
       case SingleTask:
-        return new SingleTaskScheduler();
+        return new SingleTaskScheduler(placement);
       case Daemon:
         if (environment.getDeploymentMethod().equals(ReplaceAfterTerminateScheduler.ID)) {
           return new ReplaceAfterTerminateScheduler();
@@ -14,11 +14,63 @@
  */
 package com.amazonaws.blox.scheduling.scheduler.engine;
 
+import com.amazonaws.blox.scheduling.ecs.ECSErrors;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import software.amazon.awssdk.services.ecs.ECSAsyncClient;
 
 public interface SchedulingAction {
+  /** The cluster that this action starts or stops tasks in. */
+  String getClusterName();
+
+  /**
+   * The container instances this action starts tasks on, or the tasks it stops, in the order that
+   * {@link #executeEach} reports their outcomes in.
+   */
+  List<String> targets();
+
+  /**
+   * A key that identifies what this action does to the given target, so that actions that would
+   * start or stop the same task have the same key.
+   */
+  default String keyFor(String target) {
+    return getClass().getSimpleName() + "/" + getClusterName() + "/" + target;
+  }
+
+  /**
+   * Whether executing this action again has no further effect, so that it can be retried after any
+   * transient error. Actions that aren't idempotent are only retried when ECS certainly didn't act
+   * on the failed call (see {@link ECSErrors#isUnapplied}).
+   */
+  default boolean isIdempotent() {
+    return true;
+  }
+
   // TODO: We probably want to give this code an ECS facade that can only start/stop tasks in a
   //       single cluster, instead of the full ECS API.
-  CompletableFuture<Boolean> execute(ECSAsyncClient ecs);
+  /** Execute this action, and report the outcome for each of its {@link #targets()}. */
+  CompletableFuture<List<TaskOutcome>> executeEach(ECSAsyncClient ecs);
+
+  /**
+   * Execute this action like {@link #executeEach(ECSAsyncClient)}, and call {@code waiting} once it
+   * only waits for ECS to act on the calls it already made, so that it no longer needs to count as
+   * in flight.
+   */
+  default CompletableFuture<List<TaskOutcome>> executeEach(ECSAsyncClient ecs, Runnable waiting) {
+    return executeEach(ecs);
+  }
+
+  /**
+   * What's left of this action once it has called {@code waiting}, to be retried instead of the
+   * whole action if it fails after that point.
+   */
+  default SchedulingAction afterWaiting() {
+    return this;
+  }
+
+  /** Execute this action, and report whether it succeeded for all of its {@link #targets()}. */
+  default CompletableFuture<Boolean> execute(ECSAsyncClient ecs) {
+    return executeEach(ecs)
+        .thenApply(outcomes -> outcomes.stream().allMatch(TaskOutcome::isSuccessful));
+  }
 }
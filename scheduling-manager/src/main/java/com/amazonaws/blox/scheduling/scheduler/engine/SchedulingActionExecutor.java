@@ -0,0 +1,368 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.scheduler.engine;
+
+import com.amazonaws.blox.retry.Retries;
+import com.amazonaws.blox.scheduling.ecs.ECSErrors;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.ecs.ECSAsyncClient;
+
+/**
+ * Executes {@link SchedulingAction}s against ECS.
+ *
+ * <p>At most a fixed number of actions are in flight in each cluster at a time, including actions
+ * that are waiting to be retried. Actions that fail with a transient error (see {@link
+ * ECSErrors#isTransient}) are retried with exponential backoff and full jitter. Actions that aren't
+ * {@link SchedulingAction#isIdempotent() idempotent}, such as starting a task, are only retried if
+ * ECS certainly didn't act on the failed call; otherwise they're reported as {@link
+ * ActionResult#ABANDONED}, since whether they succeeded is unknown.
+ *
+ * <p>Execution can be given a time limit, such as the remaining time of a Lambda invocation. No
+ * action is started or retried after the time limit, less a reserved amount of time to report the
+ * results in; those actions are reported as failed with {@link ActionResult#DEADLINE_EXCEEDED}.
+ * Actions that are still in flight at that point are no longer waited for, and are reported as
+ * {@link ActionResult#ABANDONED}, so that a slow call can't hold up the results of all others.
+ *
+ * <p>Actions that go on to wait for ECS after their calls were accepted, such as {@link
+ * ReplaceTask} waiting for the old task to stop, stop counting towards the limit while they wait,
+ * so that they don't hold up the actions behind them. If they fail after that, only what's left of
+ * them is retried, once they count towards the limit again.
+ */
+@Component
+@Slf4j
+public class SchedulingActionExecutor {
+  public static final int DEFAULT_MAX_IN_FLIGHT = 10;
+  public static final int DEFAULT_MAX_ATTEMPTS = 4;
+  public static final long DEFAULT_BASE_DELAY_MILLIS = 100;
+  public static final long DEFAULT_MAX_DELAY_MILLIS = 2_000;
+  public static final long DEFAULT_RESERVED_TIME_MILLIS = 5_000;
+
+  private final ECSAsyncClient ecs;
+  private final int maxInFlight;
+  private final int maxAttempts;
+  private final Duration baseDelay;
+  private final Duration maxDelay;
+  private final Duration reservedTime;
+  private final Clock clock;
+
+  private final ConcurrentMap<String, Semaphore> inFlight = new ConcurrentHashMap<>();
+  private final ScheduledExecutorService retries =
+      Executors.newSingleThreadScheduledExecutor(
+          r -> {
+            Thread thread = new Thread(r, "scheduling-action-retries");
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  public SchedulingActionExecutor(ECSAsyncClient ecs) {
+    this(
+        ecs,
+        DEFAULT_MAX_IN_FLIGHT,
+        DEFAULT_MAX_ATTEMPTS,
+        DEFAULT_BASE_DELAY_MILLIS,
+        DEFAULT_MAX_DELAY_MILLIS,
+        DEFAULT_RESERVED_TIME_MILLIS);
+  }
+
+  @Autowired
+  public SchedulingActionExecutor(
+      ECSAsyncClient ecs,
+      @Value("${scheduler_max_actions_in_flight:" + DEFAULT_MAX_IN_FLIGHT + "}") int maxInFlight,
+      @Value("${scheduler_action_max_attempts:" + DEFAULT_MAX_ATTEMPTS + "}") int maxAttempts,
+      @Value("${scheduler_action_retry_base_delay_ms:" + DEFAULT_BASE_DELAY_MILLIS + "}")
+          long baseDelayMillis,
+      @Value("${scheduler_action_retry_max_delay_ms:" + DEFAULT_MAX_DELAY_MILLIS + "}")
+          long maxDelayMillis,
+      @Value("${scheduler_reserved_time_ms:" + DEFAULT_RESERVED_TIME_MILLIS + "}")
+          long reservedTimeMillis) {
+    this(
+        ecs,
+        maxInFlight,
+        maxAttempts,
+        Duration.ofMillis(baseDelayMillis),
+        Duration.ofMillis(maxDelayMillis),
+        Duration.ofMillis(reservedTimeMillis),
+        Clock.systemUTC());
+  }
+
+  public SchedulingActionExecutor(
+      ECSAsyncClient ecs,
+      int maxInFlight,
+      int maxAttempts,
+      Duration baseDelay,
+      Duration maxDelay,
+      Duration reservedTime,
+      Clock clock) {
+    if (maxInFlight < 1) {
+      throw new IllegalArgumentException("maxInFlight must be positive: " + maxInFlight);
+    }
+    if (maxAttempts < 1) {
+      throw new IllegalArgumentException("maxAttempts must be positive: " + maxAttempts);
+    }
+
+    this.ecs = ecs;
+    this.maxInFlight = maxInFlight;
+    this.maxAttempts = maxAttempts;
+    this.baseDelay = baseDelay;
+    this.maxDelay = maxDelay;
+    this.reservedTime = reservedTime;
+    this.clock = clock;
+  }
+
+  /**
+   * Execute the given actions, waiting until all of them have succeeded or given up.
+   *
+   * @param remainingTime the time left to execute the actions in, or null if there is no limit
+   * @return one result for each target of each action, in order
+   */
+  public List<ActionResult> execute(List<SchedulingAction> actions, Duration remainingTime) {
+    Instant deadline =
+        remainingTime == null ? null : clock.instant().plus(remainingTime).minus(reservedTime);
+
+    List<CompletableFuture<List<ActionResult>>> pending = new ArrayList<>(actions.size());
+    for (SchedulingAction action : actions) {
+      Semaphore permits =
+          inFlight.computeIfAbsent(action.getClusterName(), c -> new Semaphore(maxInFlight));
+      if (!acquire(permits, deadline)) {
+        pending.add(
+            CompletableFuture.completedFuture(
+                failed(action, ActionResult.DEADLINE_EXCEEDED, 0, Duration.ZERO)));
+        continue;
+      }
+
+      Execution execution = new Execution(action, permits, clock.instant(), deadline);
+      if (deadline != null) {
+        execution.abandonAtDeadline();
+      }
+      execution.attempt();
+      pending.add(execution.result);
+    }
+
+    return pending
+        .stream()
+        .map(CompletableFuture::join)
+        .flatMap(List::stream)
+        .collect(Collectors.toList());
+  }
+
+  @SneakyThrows(InterruptedException.class)
+  private boolean acquire(Semaphore permits, Instant deadline) {
+    if (deadline == null) {
+      permits.acquire();
+      return true;
+    }
+
+    long remaining = Duration.between(clock.instant(), deadline).toMillis();
+    if (remaining <= 0 || !permits.tryAcquire(remaining, TimeUnit.MILLISECONDS)) {
+      return false;
+    }
+
+    // The permit may have been released by an action that was abandoned at the deadline:
+    if (!clock.instant().isBefore(deadline)) {
+      permits.release();
+      return false;
+    }
+    return true;
+  }
+
+  /** The execution of a single action, from acquiring its permit to reporting its results. */
+  private class Execution {
+    private final SchedulingAction action;
+    private final Semaphore permits;
+    private final Instant start;
+    private final Instant deadline;
+
+    private final CompletableFuture<List<ActionResult>> result = new CompletableFuture<>();
+    private final AtomicInteger attempts = new AtomicInteger();
+
+    /** Whether the permit was given back, because the action is done or waiting for ECS. */
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    /** What's left to attempt of the action; see {@link SchedulingAction#afterWaiting()}. */
+    private volatile SchedulingAction remaining;
+
+    Execution(SchedulingAction action, Semaphore permits, Instant start, Instant deadline) {
+      this.action = action;
+      this.permits = permits;
+      this.start = start;
+      this.deadline = deadline;
+      this.remaining = action;
+      result.whenComplete((r, e) -> release());
+    }
+
+    private void release() {
+      if (released.compareAndSet(false, true)) {
+        permits.release();
+      }
+    }
+
+    private void waiting() {
+      remaining = action.afterWaiting();
+      release();
+    }
+
+    void abandonAtDeadline() {
+      ScheduledFuture<?> timeout =
+          retries.schedule(
+              () -> {
+                if (result.complete(
+                    failed(action, ActionResult.ABANDONED, attempts.get(), latency()))) {
+                  log.warn("Abandoned action {} that was still in flight at the deadline", action);
+                }
+              },
+              Math.max(Duration.between(clock.instant(), deadline).toNanos(), 0),
+              TimeUnit.NANOSECONDS);
+      result.whenComplete((r, e) -> timeout.cancel(false));
+    }
+
+    void attempt() {
+      if (result.isDone()) {
+        // Abandoned at the deadline while waiting to be retried:
+        return;
+      }
+      if (released.get() && !reacquire()) {
+        return;
+      }
+
+      int attempt = attempts.incrementAndGet();
+      SchedulingAction remaining = this.remaining;
+      CompletableFuture<List<TaskOutcome>> outcomes;
+      try {
+        outcomes = remaining.executeEach(ecs, this::waiting);
+      } catch (RuntimeException e) {
+        outcomes = new CompletableFuture<>();
+        outcomes.completeExceptionally(e);
+      }
+
+      outcomes.whenComplete(
+          (o, error) -> {
+            if (error == null) {
+              result.complete(results(action, o, attempt, latency()));
+              return;
+            }
+
+            if (!remaining.isIdempotent()
+                && ECSErrors.isTransient(error)
+                && !ECSErrors.isUnapplied(error)) {
+              log.warn("Not retrying action {}, since ECS may have executed it", action, error);
+              result.complete(failed(action, ActionResult.ABANDONED, attempt, latency()));
+              return;
+            }
+
+            if (attempt >= maxAttempts || !ECSErrors.isTransient(error)) {
+              log.warn("Action {} failed after {} attempts", action, attempt, error);
+              result.complete(failed(action, ECSErrors.reason(error), attempt, latency()));
+              return;
+            }
+
+            long delay = Retries.backoff(attempt, baseDelay, maxDelay);
+            if (deadline != null && clock.instant().plusMillis(delay).isAfter(deadline)) {
+              log.warn("Not retrying action {} after the deadline", action, error);
+              result.complete(failed(action, ActionResult.DEADLINE_EXCEEDED, attempt, latency()));
+              return;
+            }
+
+            log.debug("Retrying action {} in {}ms", action, delay, error);
+            retries.schedule(this::attempt, delay, TimeUnit.MILLISECONDS);
+          });
+    }
+
+    /**
+     * Take a permit again for a retry of an action that gave its permit back while it was waiting.
+     * The retry thread mustn't block, so if no permit is free, the retry is tried again later.
+     *
+     * @return whether the permit was taken, and the retry can go ahead
+     */
+    private boolean reacquire() {
+      if (!permits.tryAcquire()) {
+        long delay = Math.max(baseDelay.toMillis(), 1);
+        if (deadline != null && clock.instant().plusMillis(delay).isAfter(deadline)) {
+          result.complete(
+              failed(action, ActionResult.DEADLINE_EXCEEDED, attempts.get(), latency()));
+        } else {
+          retries.schedule(this::attempt, delay, TimeUnit.MILLISECONDS);
+        }
+        return false;
+      }
+
+      released.set(false);
+      if (result.isDone()) {
+        // Abandoned at the deadline while the permit was taken:
+        release();
+        return false;
+      }
+      return true;
+    }
+
+    private Duration latency() {
+      return Duration.between(start, clock.instant());
+    }
+  }
+
+  private static List<ActionResult> results(
+      SchedulingAction action, List<TaskOutcome> outcomes, int attempts, Duration latency) {
+    return outcomes
+        .stream()
+        .map(
+            o ->
+                ActionResult.builder()
+                    .action(action)
+                    .target(o.getTarget())
+                    .successful(o.isSuccessful())
+                    .failureReason(o.getFailureReason())
+                    .attempts(attempts)
+                    .latency(latency)
+                    .build())
+        .collect(Collectors.toList());
+  }
+
+  private static List<ActionResult> failed(
+      SchedulingAction action, String reason, int attempts, Duration latency) {
+    return action
+        .targets()
+        .stream()
+        .map(
+            target ->
+                ActionResult.builder()
+                    .action(action)
+                    .target(target)
+                    .successful(false)
+                    .failureReason(reason)
+                    .attempts(attempts)
+                    .latency(latency)
+                    .build())
+        .collect(Collectors.toList());
+  }
+}
@@ -14,52 +14,76 @@
  */
 package com.amazonaws.blox.scheduling.scheduler.engine;
 
+import com.amazonaws.blox.scheduling.scheduler.engine.placement.CapacityIndex;
+import com.amazonaws.blox.scheduling.scheduler.engine.placement.PlacementContext;
+import com.amazonaws.blox.scheduling.scheduler.engine.placement.PlacementStrategy;
 import com.amazonaws.blox.scheduling.state.ClusterSnapshot;
-import com.amazonaws.blox.scheduling.state.ClusterSnapshot.ContainerInstance;
-import java.util.Arrays;
+import com.amazonaws.blox.scheduling.state.CompactClusterSnapshot;
+import java.util.BitSet;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
+import java.util.stream.IntStream;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 
 /**
- * Temporary scheduler implementation that just starts a single task on the first instance in the
- * snapshot.
+ * Scheduler that keeps a single task of the environment running in the cluster, placed on an
+ * instance with enough remaining CPU and memory for it. The {@link PlacementStrategy} is chosen by
+ * the environment's deployment method.
  *
- * <p>TODO Remove this, it's only a demo scheduler
+ * <p>Tasks are placed against the {@link PlacementContext} of the batch, which must be of the same
+ * snapshot that the environment is scheduled from.
  */
+@Slf4j
+@RequiredArgsConstructor
 public class SingleTaskScheduler implements Scheduler {
+  private final PlacementContext placement;
 
   @Override
   public List<SchedulingAction> schedule(
       ClusterSnapshot snapshot, EnvironmentDescription environment) {
-    // Naively only run a Task on the first ContainerInstance in the snapshot:
-    ContainerInstance instance =
-        snapshot
-            .getInstances()
-            .stream()
-            .sorted(Comparator.comparing(ContainerInstance::getArn))
-            .findFirst()
-            .get();
+    CapacityIndex index = placement.capacity();
+    CompactClusterSnapshot compact = index.getSnapshot();
 
+    int group = compact.dictionaryIndex(environment.getEnvironmentName());
     boolean hasTaskAlready =
-        snapshot
-            .getTasks()
-            .stream()
-            .anyMatch(
-                task ->
-                    task.getContainerInstanceArn().equals(instance.getArn())
-                        && task.getGroup().equals(environment.getEnvironmentName()));
+        group >= 0
+            && IntStream.range(0, compact.getTaskCount())
+                .anyMatch(
+                    t -> compact.taskGroupIndex(t) == group && compact.taskStatus(t).isHealthy());
+    if (hasTaskAlready) {
+      return Collections.emptyList();
+    }
 
-    if (!hasTaskAlready) {
-      return Arrays.asList(
-          StartTask.builder()
-              .clusterName(snapshot.getClusterName())
-              .taskDefinitionArn(environment.getTaskDefinitionArn())
-              .group(environment.getEnvironmentName())
-              .containerInstanceArn(instance.getArn())
-              .build());
-    } else {
+    BitSet candidates = environment.startableInstances(compact);
+    for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+      if (!compact.isInstanceAcceptingTasks(i)) {
+        candidates.clear(i);
+      }
+    }
+
+    TaskRequirements requirements =
+        environment.getTaskRequirements() != null
+            ? environment.getTaskRequirements()
+            : TaskRequirements.NONE;
+    PlacementStrategy strategy =
+        PlacementStrategy.forDeploymentMethod(environment.getDeploymentMethod());
+    int instance = index.place(requirements, strategy, candidates);
+    if (instance < 0) {
+      log.info(
+          "No instance in cluster {} has room for a task of environment {} requiring {}",
+          environment.getClusterName(),
+          environment.getEnvironmentName(),
+          requirements);
       return Collections.emptyList();
     }
+
+    return Collections.singletonList(
+        StartTask.builder()
+            .clusterName(snapshot.getClusterName())
+            .taskDefinitionArn(environment.getTaskDefinitionArn())
+            .group(environment.getEnvironmentName())
+            .containerInstanceArn(compact.instanceArn(instance))
+            .build());
   }
 }
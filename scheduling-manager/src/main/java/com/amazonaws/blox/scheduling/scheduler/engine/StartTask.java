@@ -14,6 +14,8 @@
  */
 package com.amazonaws.blox.scheduling.scheduler.engine;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import lombok.Builder;
 import lombok.Value;
@@ -26,13 +28,37 @@ import software.amazon.awssdk.services.ecs.model.StartTaskResponse;
 @Builder
 @Slf4j
 public class StartTask implements SchedulingAction {
+  /** The startedBy tag of every task started by Blox. */
+  public static final String STARTED_BY = "blox";
+
   private final String clusterName;
   private final String containerInstanceArn;
   private final String taskDefinitionArn;
   private final String group;
 
   @Override
-  public CompletableFuture<Boolean> execute(ECSAsyncClient ecs) {
+  public List<String> targets() {
+    return Collections.singletonList(containerInstanceArn);
+  }
+
+  @Override
+  public String keyFor(String target) {
+    return keyFor(clusterName, group, target);
+  }
+
+  /** The key of starting a task in the given group on the given container instance. */
+  static String keyFor(String clusterName, String group, String containerInstanceArn) {
+    return "StartTask/" + clusterName + "/" + group + "/" + containerInstanceArn;
+  }
+
+  /** Starting the same task again would start a second copy of it. */
+  @Override
+  public boolean isIdempotent() {
+    return false;
+  }
+
+  @Override
+  public CompletableFuture<List<TaskOutcome>> executeEach(ECSAsyncClient ecs) {
     CompletableFuture<StartTaskResponse> pendingRequest =
         ecs.startTask(
             StartTaskRequest.builder()
@@ -40,12 +66,11 @@ public class StartTask implements SchedulingAction {
                 .containerInstances(containerInstanceArn)
                 .taskDefinition(taskDefinitionArn)
                 .group(group)
-                .startedBy("blox")
+                .startedBy(STARTED_BY)
                 .build());
 
     pendingRequest.thenAccept(r -> log.debug("ECS response: {}", r));
 
-    // TODO: We probably need richer error reporting than a Boolean
-    return pendingRequest.thenApply(startTaskResponse -> startTaskResponse.failures().size() > 0);
+    return pendingRequest.thenApply(r -> StartTasks.outcomes(targets(), r));
   }
 }
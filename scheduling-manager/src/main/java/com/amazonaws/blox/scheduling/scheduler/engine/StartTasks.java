@@ -0,0 +1,114 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.scheduler.engine;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import lombok.Builder;
+import lombok.Singular;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.services.ecs.ECSAsyncClient;
+import software.amazon.awssdk.services.ecs.model.Failure;
+import software.amazon.awssdk.services.ecs.model.StartTaskRequest;
+import software.amazon.awssdk.services.ecs.model.StartTaskResponse;
+import software.amazon.awssdk.services.ecs.model.Task;
+
+/**
+ * Start the same task definition on several container instances with a single StartTask call.
+ *
+ * <p>Created by {@link ActionPlanner} from {@link StartTask} actions that only differ in their
+ * container instance.
+ */
+@Value
+@Builder
+@Slf4j
+public class StartTasks implements SchedulingAction {
+  /** The most container instances that ECS accepts in a single StartTask call. */
+  public static final int MAX_CONTAINER_INSTANCES = 10;
+
+  private final String clusterName;
+  @Singular private final List<String> containerInstanceArns;
+  private final String taskDefinitionArn;
+  private final String group;
+
+  @Override
+  public List<String> targets() {
+    return containerInstanceArns;
+  }
+
+  @Override
+  public String keyFor(String target) {
+    return StartTask.keyFor(clusterName, group, target);
+  }
+
+  /** Starting the same task again would start a second copy of it. */
+  @Override
+  public boolean isIdempotent() {
+    return false;
+  }
+
+  @Override
+  public CompletableFuture<List<TaskOutcome>> executeEach(ECSAsyncClient ecs) {
+    CompletableFuture<StartTaskResponse> pendingRequest =
+        ecs.startTask(
+            StartTaskRequest.builder()
+                .cluster(clusterName)
+                .containerInstances(containerInstanceArns)
+                .taskDefinition(taskDefinitionArn)
+                .group(group)
+                .startedBy(StartTask.STARTED_BY)
+                .build());
+
+    pendingRequest.thenAccept(r -> log.debug("ECS response: {}", r));
+
+    return pendingRequest.thenApply(r -> outcomes(containerInstanceArns, r));
+  }
+
+  /** The outcome of starting a task on each of the given instances, in the same order. */
+  static List<TaskOutcome> outcomes(
+      List<String> containerInstanceArns, StartTaskResponse response) {
+    // An instance that is missing from both the tasks and the failures of the response didn't
+    // start a task either.
+    Set<String> started = new HashSet<>();
+    for (Task task : nullToEmpty(response.tasks())) {
+      started.add(task.containerInstanceArn());
+    }
+    Map<String, String> failureReasons = new HashMap<>();
+    for (Failure failure : nullToEmpty(response.failures())) {
+      failureReasons.putIfAbsent(failure.arn(), failure.reason());
+    }
+
+    return containerInstanceArns
+        .stream()
+        .map(
+            arn ->
+                started.contains(arn)
+                    ? TaskOutcome.succeeded(arn)
+                    : TaskOutcome.failed(
+                        arn, failureReasons.getOrDefault(arn, TaskOutcome.UNKNOWN_FAILURE)))
+        .collect(Collectors.toList());
+  }
+
+  private static <T> List<T> nullToEmpty(List<T> list) {
+    return list != null ? list : Collections.emptyList();
+  }
+}
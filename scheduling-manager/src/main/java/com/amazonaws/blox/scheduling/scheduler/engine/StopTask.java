@@ -14,6 +14,8 @@
  */
 package com.amazonaws.blox.scheduling.scheduler.engine;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import lombok.Builder;
 import lombok.Value;
@@ -31,13 +33,23 @@ public class StopTask implements SchedulingAction {
   private final String reason;
 
   @Override
-  public CompletableFuture<Boolean> execute(ECSAsyncClient ecs) {
+  public List<String> targets() {
+    return Collections.singletonList(task);
+  }
+
+  @Override
+  public CompletableFuture<List<TaskOutcome>> executeEach(ECSAsyncClient ecs) {
     CompletableFuture<StopTaskResponse> pendingRequest =
         ecs.stopTask(
             StopTaskRequest.builder().cluster(clusterName).task(task).reason(reason).build());
 
     pendingRequest.thenAccept(r -> log.debug("ECS response: {}", r));
 
-    return pendingRequest.thenApply(stopTaskResponse -> stopTaskResponse.task() != null);
+    return pendingRequest.thenApply(
+        stopTaskResponse ->
+            Collections.singletonList(
+                stopTaskResponse.task() != null
+                    ? TaskOutcome.succeeded(task)
+                    : TaskOutcome.failed(task, TaskOutcome.UNKNOWN_FAILURE)));
   }
 }
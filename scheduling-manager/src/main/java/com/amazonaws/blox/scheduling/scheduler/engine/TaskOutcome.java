@@ -0,0 +1,42 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.scheduler.engine;
+
+import lombok.Value;
+
+/** Whether a {@link SchedulingAction} started or stopped one task, and if not, why not. */
+@Value
+public class TaskOutcome {
+  /** The reason for a task that ECS neither started nor reported a failure for. */
+  public static final String UNKNOWN_FAILURE = "UNKNOWN";
+
+  /** The container instance a task was started on, or the task that was stopped. */
+  private final String target;
+
+  /** The reason ECS gave for not starting or stopping the task, or null if it succeeded. */
+  private final String failureReason;
+
+  public static TaskOutcome succeeded(String target) {
+    return new TaskOutcome(target, null);
+  }
+
+  public static TaskOutcome failed(String target, String failureReason) {
+    return new TaskOutcome(target, failureReason);
+  }
+
+  public boolean isSuccessful() {
+    return failureReason == null;
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.scheduler.engine;
+
+import java.util.List;
+import lombok.Builder;
+import lombok.Value;
+import software.amazon.awssdk.services.ecs.model.ContainerDefinition;
+import software.amazon.awssdk.services.ecs.model.TaskDefinition;
+
+/** The CPU and memory that a task reserves on the container instance it's placed on. */
+@Value
+@Builder
+public class TaskRequirements {
+  public static final TaskRequirements NONE = new TaskRequirements(0, 0);
+
+  /** CPU units, where 1024 is one vCPU. */
+  private final int cpu;
+  /** Memory in MiB. */
+  private final int memory;
+
+  /**
+   * Derive the requirements of a task definition, as ECS does: from its task-level cpu and memory
+   * if they're set, otherwise from the sum of its container definitions (using the memory
+   * reservation of containers that don't have a hard memory limit).
+   */
+  public static TaskRequirements of(TaskDefinition taskDefinition) {
+    if (taskDefinition == null) {
+      return NONE;
+    }
+
+    List<ContainerDefinition> containers = taskDefinition.containerDefinitions();
+    int cpu = parse(taskDefinition.cpu());
+    if (cpu < 0) {
+      cpu = 0;
+      if (containers != null) {
+        for (ContainerDefinition c : containers) {
+          cpu += valueOf(c.cpu());
+        }
+      }
+    }
+
+    int memory = parse(taskDefinition.memory());
+    if (memory < 0) {
+      memory = 0;
+      if (containers != null) {
+        for (ContainerDefinition c : containers) {
+          memory += c.memory() != null ? c.memory() : valueOf(c.memoryReservation());
+        }
+      }
+    }
+
+    return new TaskRequirements(cpu, memory);
+  }
+
+  private static int parse(String value) {
+    if (value == null) {
+      return -1;
+    }
+    try {
+      return Integer.parseInt(value.trim());
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  private static int valueOf(Integer value) {
+    return value == null ? 0 : value;
+  }
+}
@@ -16,44 +16,31 @@ package com.amazonaws.blox.scheduling.scheduler.engine.daemon;
 
 import com.amazonaws.blox.scheduling.state.ClusterSnapshot;
 import com.amazonaws.blox.scheduling.state.ClusterSnapshot.ContainerInstance;
-import com.amazonaws.blox.scheduling.state.ClusterSnapshot.Task;
-import java.util.Collections;
+import com.amazonaws.blox.scheduling.state.CompactClusterSnapshot;
 import java.util.List;
-import java.util.Map;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 
-/** Wrapper around {@link ClusterSnapshot} that indexes Tasks by ContainerInstance. */
+/**
+ * Wrapper around {@link ClusterSnapshot} that indexes Tasks by ContainerInstance.
+ *
+ * <p>The index is the {@link CompactClusterSnapshot} form of the snapshot, which schedulers can
+ * access directly to avoid creating Task objects.
+ */
 public class ClusterSummary {
-  private final ClusterSnapshot snapshot;
-  private final Map<String, List<Task>> tasksByInstanceArn;
-  private final Map<String, ContainerInstance> instancesByInstanceArn;
+  private final CompactClusterSnapshot snapshot;
 
   public ClusterSummary(ClusterSnapshot snapshot) {
-    this.snapshot = snapshot;
-
-    this.tasksByInstanceArn =
-        snapshot.getTasks().stream().collect(Collectors.groupingBy(Task::getContainerInstanceArn));
-
-    this.instancesByInstanceArn =
-        snapshot
-            .getInstances()
-            .stream()
-            .collect(Collectors.toMap(ContainerInstance::getArn, Function.identity()));
+    this(CompactClusterSnapshot.of(snapshot));
   }
 
-  public List<Task> tasksForInstance(ContainerInstance instance) {
-    String arn = instance.getArn();
+  public ClusterSummary(CompactClusterSnapshot snapshot) {
+    this.snapshot = snapshot;
+  }
 
-    if (instancesByInstanceArn.containsKey(arn)) {
-      return tasksByInstanceArn.getOrDefault(arn, Collections.emptyList());
-    } else {
-      throw new IndexOutOfBoundsException(
-          String.format("ContainerInstance with ARN %s not found in snapshot", arn));
-    }
+  public CompactClusterSnapshot getSnapshot() {
+    return snapshot;
   }
 
   public List<ContainerInstance> getInstances() {
-    return snapshot.getInstances();
+    return snapshot.asClusterSnapshot().getInstances();
   }
 }
@@ -15,31 +15,23 @@
 package com.amazonaws.blox.scheduling.scheduler.engine.daemon;
 
 import com.amazonaws.blox.scheduling.scheduler.engine.EnvironmentDescription;
+import com.amazonaws.blox.scheduling.scheduler.engine.ReplaceTask;
 import com.amazonaws.blox.scheduling.scheduler.engine.StartTask;
 import com.amazonaws.blox.scheduling.scheduler.engine.StopTask;
 import com.amazonaws.blox.scheduling.state.ClusterSnapshot.ContainerInstance;
 import com.amazonaws.blox.scheduling.state.ClusterSnapshot.Task;
-import java.util.Arrays;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import com.amazonaws.blox.scheduling.state.CompactClusterSnapshot;
+import java.util.BitSet;
 import lombok.RequiredArgsConstructor;
 
 /**
- * Wrapper around {@link EnvironmentDescription} that makes it easy to match {@link
- * com.amazonaws.blox.scheduling.state.ClusterSnapshot.Task} instances to a Daemon environment.
+ * Wrapper around {@link EnvironmentDescription} that matches the tasks of a snapshot to a Daemon
+ * environment, and creates the actions that start, stop and replace them.
  */
 @RequiredArgsConstructor
 public class DaemonEnvironment {
-  private static final Set<String> HEALTHY_STATES =
-      new HashSet<>(Arrays.asList("RUNNING", "PENDING"));
-
   private final EnvironmentDescription environment;
 
-  public boolean isMissingHealthyTask(List<Task> tasks) {
-    return tasks.stream().noneMatch(this::isMatchingTask);
-  }
-
   public StartTask startTaskFor(ContainerInstance i) {
     return StartTask.builder()
         .clusterName(environment.getClusterName())
@@ -52,22 +44,83 @@ public class DaemonEnvironment {
   public StopTask stopTaskFor(final Task task) {
     return StopTask.builder()
         .clusterName(environment.getClusterName())
-        .task(task.getTaskDefinitionArn())
-        .reason(
-            String.format(
-                "Stopped by deployment to %s@%s",
-                environment.getEnvironmentName(), environment.getTaskDefinitionArn()))
+        .task(task.getArn())
+        .reason(stopReason())
+        .build();
+  }
+
+  /** Replace the task with one of the environment's task definition, on the same instance. */
+  public ReplaceTask replaceTaskFor(final Task task) {
+    return ReplaceTask.builder()
+        .clusterName(environment.getClusterName())
+        .task(task.getArn())
+        .reason(stopReason())
+        .containerInstanceArn(task.getContainerInstanceArn())
+        .taskDefinitionArn(environment.getTaskDefinitionArn())
+        .group(environment.getEnvironmentName())
         .build();
   }
 
-  public boolean isTaskStoppable(Task t) {
-    return t.getGroup().equals(environment.getEnvironmentName())
-        && !t.getTaskDefinitionArn().equals(environment.getTaskDefinitionArn())
-        && HEALTHY_STATES.contains(t.getStatus());
+  private String stopReason() {
+    return String.format(
+        "Stopped by deployment to %s@%s",
+        environment.getEnvironmentName(), environment.getTaskDefinitionArn());
   }
 
-  public boolean isMatchingTask(Task t) {
-    return t.getGroup().equals(environment.getEnvironmentName())
-        && HEALTHY_STATES.contains(t.getStatus());
+  /** @see EnvironmentDescription#targetInstances */
+  public BitSet targetInstances(CompactClusterSnapshot snapshot) {
+    return environment.targetInstances(snapshot);
+  }
+
+  /**
+   * Return a matcher that matches tasks in the given snapshot against this environment by their
+   * index, without creating a {@link Task} for each of them.
+   */
+  public SnapshotMatcher matcherFor(CompactClusterSnapshot snapshot) {
+    return new SnapshotMatcher(snapshot);
+  }
+
+  /** Matches the tasks and instances of a snapshot against the environment by their index. */
+  public class SnapshotMatcher {
+    private final CompactClusterSnapshot snapshot;
+    private final int group;
+    private final int taskDefinition;
+    private final BitSet targetInstances;
+    private final BitSet startableInstances;
+
+    private SnapshotMatcher(CompactClusterSnapshot snapshot) {
+      this.snapshot = snapshot;
+      this.group = snapshot.dictionaryIndex(environment.getEnvironmentName());
+      this.taskDefinition = snapshot.dictionaryIndex(environment.getTaskDefinitionArn());
+      this.targetInstances = targetInstances(snapshot);
+      this.startableInstances = environment.startableInstances(snapshot);
+    }
+
+    /** Whether the instance is part of the environment's instance group. */
+    public boolean isTargetInstance(int instance) {
+      return targetInstances.get(instance);
+    }
+
+    /**
+     * Whether a task can be started on the instance: it's targeted, not cooling down, and accepting
+     * tasks.
+     */
+    public boolean canStartTaskOn(int instance) {
+      return startableInstances.get(instance) && snapshot.isInstanceAcceptingTasks(instance);
+    }
+
+    public boolean isMissingHealthyTask(int instance) {
+      return snapshot.tasksOnInstance(instance).noneMatch(this::isMatchingTask);
+    }
+
+    public boolean isTaskStoppable(int task) {
+      return isMatchingTask(task) && snapshot.taskDefinitionIndex(task) != taskDefinition;
+    }
+
+    public boolean isMatchingTask(int task) {
+      return group >= 0
+          && snapshot.taskGroupIndex(task) == group
+          && snapshot.taskStatus(task).isHealthy();
+    }
   }
 }
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.scheduler.engine.daemon;
+
+import com.amazonaws.blox.scheduling.scheduler.engine.EnvironmentDescription;
+import com.amazonaws.blox.scheduling.scheduler.engine.EnvironmentDescription.EnvironmentType;
+import com.amazonaws.blox.scheduling.scheduler.engine.SchedulingAction;
+import com.amazonaws.blox.scheduling.state.ClusterSnapshot;
+import com.amazonaws.blox.scheduling.state.CompactClusterSnapshot;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Schedules every {@link ReplaceAfterTerminateScheduler} daemon environment of a cluster in a
+ * single pass over its snapshot.
+ *
+ * <p>Scheduling environments one at a time walks every instance and task of the snapshot once per
+ * environment. Instead, this looks up the environment of every task by the dictionary index of its
+ * group, and decides the start and stop actions of all environments while walking the snapshot
+ * once. Instances are split into partitions that are scheduled in parallel with fork/join.
+ *
+ * <p>The actions for each environment are the same, and in the same order, as those of {@link
+ * ReplaceAfterTerminateScheduler}.
+ */
+public class JointDaemonScheduler {
+  public static final int DEFAULT_PARTITION_SIZE = 1024;
+
+  private final ForkJoinPool pool;
+
+  /** The number of instances below which a partition is scheduled without splitting it further */
+  private final int partitionSize;
+
+  public JointDaemonScheduler() {
+    this(ForkJoinPool.commonPool(), DEFAULT_PARTITION_SIZE);
+  }
+
+  public JointDaemonScheduler(ForkJoinPool pool, int partitionSize) {
+    this.pool = pool;
+    this.partitionSize = partitionSize;
+  }
+
+  /** Whether the environment can be scheduled by this scheduler. */
+  public static boolean canSchedule(EnvironmentDescription environment) {
+    return environment.getEnvironmentType() == EnvironmentType.Daemon
+        && ReplaceAfterTerminateScheduler.ID.equals(environment.getDeploymentMethod());
+  }
+
+  /**
+   * Schedule all given environments against the snapshot.
+   *
+   * @return the actions for each environment, in the same order as the environments
+   */
+  public List<List<SchedulingAction>> schedule(
+      ClusterSnapshot snapshot, List<EnvironmentDescription> environments) {
+    CompactClusterSnapshot compact = CompactClusterSnapshot.of(snapshot);
+    Environments index = new Environments(compact, environments);
+
+    Partition result =
+        pool.invoke(new PartitionTask(compact, index, 0, compact.getInstanceCount()));
+
+    List<List<SchedulingAction>> actions = new ArrayList<>(environments.size());
+    for (int e = 0; e < environments.size(); e++) {
+      List<SchedulingAction> environmentActions = new ArrayList<>(result.starts.get(e));
+      environmentActions.addAll(result.stops.get(e));
+      actions.add(environmentActions);
+    }
+    return actions;
+  }
+
+  /** The environments being scheduled, indexed by the dictionary index of their group. */
+  private static class Environments {
+    private final int count;
+    private final DaemonEnvironment[] environments;
+    private final int[] taskDefinitions;
+    private final BitSet[] targets;
+    /** The target instances that aren't cooling down, by environment. */
+    private final BitSet[] startable;
+
+    /** The first environment with each group, by dictionary index, or -1 */
+    private final int[] firstByGroup;
+    /** The next environment with the same group as each environment, or -1 */
+    private final int[] nextWithSameGroup;
+
+    Environments(CompactClusterSnapshot snapshot, List<EnvironmentDescription> descriptions) {
+      count = descriptions.size();
+      environments = new DaemonEnvironment[count];
+      taskDefinitions = new int[count];
+      targets = new BitSet[count];
+      startable = new BitSet[count];
+      nextWithSameGroup = new int[count];
+
+      // Groups that no task in the snapshot uses have no dictionary index, and never match:
+      int dictionarySize = 0;
+      int[] groups = new int[count];
+      for (int e = 0; e < count; e++) {
+        groups[e] = snapshot.dictionaryIndex(descriptions.get(e).getEnvironmentName());
+        dictionarySize = Math.max(dictionarySize, groups[e] + 1);
+      }
+      firstByGroup = new int[dictionarySize];
+      Arrays.fill(firstByGroup, -1);
+
+      for (int e = count - 1; e >= 0; e--) {
+        EnvironmentDescription description = descriptions.get(e);
+        environments[e] = new DaemonEnvironment(description);
+        taskDefinitions[e] = snapshot.dictionaryIndex(description.getTaskDefinitionArn());
+        targets[e] = environments[e].targetInstances(snapshot);
+        startable[e] = description.startableInstances(snapshot);
+
+        if (groups[e] >= 0) {
+          nextWithSameGroup[e] = firstByGroup[groups[e]];
+          firstByGroup[groups[e]] = e;
+        } else {
+          nextWithSameGroup[e] = -1;
+        }
+      }
+    }
+
+    int firstWithGroup(int group) {
+      return group >= 0 && group < firstByGroup.length ? firstByGroup[group] : -1;
+    }
+  }
+
+  /**
+   * The start and stop actions of every environment for a range of instances. Replacements are
+   * among the stops, in place of the stop of the task they replace.
+   */
+  private static class Partition {
+    private final List<List<SchedulingAction>> starts;
+    private final List<List<SchedulingAction>> stops;
+
+    Partition(int environments) {
+      starts = new ArrayList<>(environments);
+      stops = new ArrayList<>(environments);
+      for (int e = 0; e < environments; e++) {
+        starts.add(new ArrayList<>());
+        stops.add(new ArrayList<>());
+      }
+    }
+
+    /** Append the actions of the partition that follows this one. */
+    Partition append(Partition next) {
+      for (int e = 0; e < starts.size(); e++) {
+        starts.get(e).addAll(next.starts.get(e));
+        stops.get(e).addAll(next.stops.get(e));
+      }
+      return this;
+    }
+  }
+
+  private class PartitionTask extends RecursiveTask<Partition> {
+    private final CompactClusterSnapshot snapshot;
+    private final Environments environments;
+    private final int from;
+    private final int to;
+
+    PartitionTask(CompactClusterSnapshot snapshot, Environments environments, int from, int to) {
+      this.snapshot = snapshot;
+      this.environments = environments;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected Partition compute() {
+      if (to - from > partitionSize) {
+        int middle = (from + to) >>> 1;
+        PartitionTask right = new PartitionTask(snapshot, environments, middle, to);
+        right.fork();
+        Partition left = new PartitionTask(snapshot, environments, from, middle).compute();
+        return left.append(right.join());
+      }
+
+      return schedule();
+    }
+
+    private Partition schedule() {
+      Partition partition = new Partition(environments.count);
+
+      // The last instance each environment was found to have a healthy task on, and one of its
+      // current task definition on:
+      int[] lastHealthy = new int[environments.count];
+      int[] lastCurrent = new int[environments.count];
+      Arrays.fill(lastHealthy, -1);
+      Arrays.fill(lastCurrent, -1);
+      // The last instance each environment stopped a task on, the first task it stopped there,
+      // and the position of that action in its stops:
+      int[] lastStopped = new int[environments.count];
+      int[] firstStopped = new int[environments.count];
+      int[] firstStopAction = new int[environments.count];
+      Arrays.fill(lastStopped, -1);
+
+      for (int instance = from; instance < to; instance++) {
+        for (PrimitiveIterator.OfInt tasks = snapshot.tasksOnInstance(instance).iterator();
+            tasks.hasNext(); ) {
+          int task = tasks.nextInt();
+          if (!snapshot.taskStatus(task).isHealthy()) {
+            continue;
+          }
+
+          for (int e = environments.firstWithGroup(snapshot.taskGroupIndex(task));
+              e >= 0;
+              e = environments.nextWithSameGroup[e]) {
+            lastHealthy[e] = instance;
+            boolean isCurrent =
+                snapshot.taskDefinitionIndex(task) == environments.taskDefinitions[e];
+            if (isCurrent) {
+              lastCurrent[e] = instance;
+            }
+
+            // Tasks on instances that are no longer part of the instance group are all stopped:
+            if (!environments.targets[e].get(instance) || !isCurrent) {
+              List<SchedulingAction> stops = partition.stops.get(e);
+              if (lastStopped[e] != instance) {
+                lastStopped[e] = instance;
+                firstStopped[e] = task;
+                firstStopAction[e] = stops.size();
+              }
+              stops.add(environments.environments[e].stopTaskFor(snapshot.task(task)));
+            }
+          }
+        }
+
+        if (!snapshot.isInstanceAcceptingTasks(instance)) {
+          continue;
+        }
+        for (int e = 0; e < environments.count; e++) {
+          if (!environments.startable[e].get(instance)) {
+            continue;
+          }
+
+          if (lastHealthy[e] != instance) {
+            partition
+                .starts
+                .get(e)
+                .add(environments.environments[e].startTaskFor(snapshot.instance(instance)));
+          } else if (lastCurrent[e] != instance && lastStopped[e] == instance) {
+            // Only outdated tasks: start the new one as soon as the first of them has stopped.
+            partition
+                .stops
+                .get(e)
+                .set(
+                    firstStopAction[e],
+                    environments.environments[e].replaceTaskFor(snapshot.task(firstStopped[e])));
+          }
+        }
+      }
+
+      return partition;
+    }
+  }
+}
@@ -15,28 +15,67 @@
 package com.amazonaws.blox.scheduling.scheduler.engine.daemon;
 
 import com.amazonaws.blox.scheduling.scheduler.engine.SchedulingAction;
+import com.amazonaws.blox.scheduling.state.CompactClusterSnapshot;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.PrimitiveIterator;
 
+/**
+ * Keeps one task of the environment's current task definition running on every instance of its
+ * instance group.
+ *
+ * <p>Tasks of other task definitions are stopped. On instances that only run such outdated tasks,
+ * the first of them is {@link com.amazonaws.blox.scheduling.scheduler.engine.ReplaceTask replaced}
+ * instead, which starts the current task definition once it has stopped.
+ */
 public class ReplaceAfterTerminateScheduler extends DaemonScheduler {
   public static final String ID = "ReplaceAfterTerminate";
 
   public List<SchedulingAction> schedule(DaemonEnvironment env, ClusterSummary summary) {
-    Stream<SchedulingAction> stopTaskActions =
-        summary
-            .getInstances()
-            .stream()
-            .flatMap(i -> summary.tasksForInstance(i).stream().filter(env::isTaskStoppable))
-            .map(env::stopTaskFor);
-
-    Stream<SchedulingAction> startTaskActions =
-        summary
-            .getInstances()
-            .stream()
-            .filter(i -> env.isMissingHealthyTask(summary.tasksForInstance(i)))
-            .map(env::startTaskFor);
-
-    return Stream.concat(startTaskActions, stopTaskActions).collect(Collectors.toList());
+    CompactClusterSnapshot snapshot = summary.getSnapshot();
+    DaemonEnvironment.SnapshotMatcher matcher = env.matcherFor(snapshot);
+
+    List<SchedulingAction> startTaskActions = new ArrayList<>();
+    List<SchedulingAction> stopTaskActions = new ArrayList<>();
+
+    for (int instance = 0; instance < snapshot.getInstanceCount(); instance++) {
+      boolean hasHealthyTask = false;
+      boolean hasCurrentTask = false;
+      // Tasks on instances that are no longer part of the instance group are all stopped:
+      boolean isTarget = matcher.isTargetInstance(instance);
+      // The first task stopped on this instance, and the position of its action:
+      int firstStopped = -1;
+      int firstStopAction = -1;
+
+      for (PrimitiveIterator.OfInt tasks = snapshot.tasksOnInstance(instance).iterator();
+          tasks.hasNext(); ) {
+        int task = tasks.nextInt();
+
+        boolean isMatching = matcher.isMatchingTask(task);
+        boolean isStoppable = matcher.isTaskStoppable(task);
+        hasHealthyTask |= isMatching;
+        hasCurrentTask |= isMatching && !isStoppable;
+        if (isTarget ? isStoppable : isMatching) {
+          if (firstStopped < 0) {
+            firstStopped = task;
+            firstStopAction = stopTaskActions.size();
+          }
+          stopTaskActions.add(env.stopTaskFor(snapshot.task(task)));
+        }
+      }
+
+      if (matcher.canStartTaskOn(instance)) {
+        if (!hasHealthyTask) {
+          startTaskActions.add(env.startTaskFor(snapshot.instance(instance)));
+        } else if (!hasCurrentTask && firstStopped >= 0) {
+          // Only outdated tasks: start the new one as soon as the first of them has stopped.
+          stopTaskActions.set(firstStopAction, env.replaceTaskFor(snapshot.task(firstStopped)));
+        }
+      }
+    }
+
+    List<SchedulingAction> actions = new ArrayList<>(startTaskActions);
+    actions.addAll(stopTaskActions);
+    return actions;
   }
 }
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.scheduler.engine.placement;
+
+import com.amazonaws.blox.scheduling.scheduler.engine.TaskRequirements;
+import com.amazonaws.blox.scheduling.state.CompactClusterSnapshot;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.stream.IntStream;
+
+/**
+ * The listed instances of a snapshot, ordered by their remaining memory and CPU, so that the
+ * instance to place a task on can be found without scanning the whole cluster.
+ *
+ * <p>Placing a task reserves its requirements on the chosen instance, so that tasks placed later
+ * from the same index account for it. Instances whose remaining capacity isn't known are treated as
+ * having unlimited capacity.
+ */
+public class CapacityIndex {
+  private static final int UNKNOWN = -1;
+
+  private final CompactClusterSnapshot snapshot;
+
+  // Indexed by instance, with one more slot at the end for the probe used to search the set:
+  private final int[] remainingMemory;
+  private final int[] remainingCpu;
+  /** The position of each instance's ARN in sorted order, to break ties deterministically. */
+  private final int[] arnRank;
+
+  private final int probe;
+  private final NavigableSet<Integer> instances;
+
+  public CapacityIndex(CompactClusterSnapshot snapshot) {
+    this.snapshot = snapshot;
+
+    int count = snapshot.getInstanceCount();
+    this.probe = count;
+    this.remainingMemory = new int[count + 1];
+    this.remainingCpu = new int[count + 1];
+    this.arnRank = new int[count + 1];
+
+    int[] byArn =
+        IntStream.range(0, count)
+            .boxed()
+            .sorted(Comparator.comparing(snapshot::instanceArn))
+            .mapToInt(Integer::intValue)
+            .toArray();
+    for (int rank = 0; rank < count; rank++) {
+      arnRank[byArn[rank]] = rank;
+    }
+    arnRank[probe] = -1;
+
+    this.instances =
+        new TreeSet<>(
+            Comparator.<Integer>comparingInt(i -> remainingMemory[i])
+                .thenComparingInt(i -> remainingCpu[i])
+                .thenComparingInt(i -> arnRank[i]));
+    for (int i = 0; i < count; i++) {
+      remainingMemory[i] = capacity(snapshot.instanceRemainingMemory(i));
+      remainingCpu[i] = capacity(snapshot.instanceRemainingCpu(i));
+      instances.add(i);
+    }
+  }
+
+  public CompactClusterSnapshot getSnapshot() {
+    return snapshot;
+  }
+
+  /**
+   * Choose an instance among the candidates that has room for a task with the given requirements,
+   * and reserve them on it.
+   *
+   * @return the index of the chosen instance, or -1 if no candidate has room for the task
+   */
+  public synchronized int place(
+      TaskRequirements requirements, PlacementStrategy strategy, BitSet candidates) {
+    int memory = requirements.getMemory();
+    int cpu = requirements.getCpu();
+
+    int chosen = UNKNOWN;
+    if (strategy == PlacementStrategy.SPREAD) {
+      for (int i : instances.descendingSet()) {
+        if (remainingMemory[i] < memory) {
+          break;
+        }
+        if (remainingCpu[i] >= cpu && candidates.get(i)) {
+          chosen = i;
+          break;
+        }
+      }
+    } else {
+      remainingMemory[probe] = memory;
+      remainingCpu[probe] = Integer.MIN_VALUE;
+      for (int i : instances.tailSet(probe, false)) {
+        if (remainingCpu[i] >= cpu && candidates.get(i)) {
+          chosen = i;
+          break;
+        }
+      }
+    }
+
+    if (chosen != UNKNOWN) {
+      instances.remove(chosen);
+      remainingMemory[chosen] = reserve(remainingMemory[chosen], memory);
+      remainingCpu[chosen] = reserve(remainingCpu[chosen], cpu);
+      instances.add(chosen);
+    }
+    return chosen;
+  }
+
+  /** @return the memory that's left on the instance after placing tasks from this index */
+  public synchronized int remainingMemory(int instance) {
+    return remainingMemory[instance] == Integer.MAX_VALUE ? UNKNOWN : remainingMemory[instance];
+  }
+
+  /** @return the CPU units that are left on the instance after placing tasks from this index */
+  public synchronized int remainingCpu(int instance) {
+    return remainingCpu[instance] == Integer.MAX_VALUE ? UNKNOWN : remainingCpu[instance];
+  }
+
+  private static int capacity(int remaining) {
+    return remaining == UNKNOWN ? Integer.MAX_VALUE : remaining;
+  }
+
+  private static int reserve(int remaining, int required) {
+    return remaining == Integer.MAX_VALUE ? remaining : remaining - required;
+  }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.scheduler.engine.placement;
+
+import com.amazonaws.blox.scheduling.state.ClusterSnapshot;
+import com.amazonaws.blox.scheduling.state.CompactClusterSnapshot;
+
+/**
+ * The capacity that the environments of a single batch place their tasks against, so that the
+ * resources reserved for one environment's task aren't handed out again to the next one.
+ *
+ * <p>A new context is created for every batch, so that reservations of tasks that failed to start
+ * aren't carried over to the next one, even if it's scheduled from the same snapshot.
+ */
+public class PlacementContext {
+  private final ClusterSnapshot snapshot;
+  private CapacityIndex capacity;
+
+  public PlacementContext(ClusterSnapshot snapshot) {
+    this.snapshot = snapshot;
+  }
+
+  /** The capacity index of the snapshot, created when it's first placed against. */
+  public synchronized CapacityIndex capacity() {
+    if (capacity == null) {
+      capacity = new CapacityIndex(CompactClusterSnapshot.of(snapshot));
+    }
+    return capacity;
+  }
+}
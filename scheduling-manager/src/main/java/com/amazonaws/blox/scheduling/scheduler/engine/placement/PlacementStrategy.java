@@ -0,0 +1,33 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.scheduler.engine.placement;
+
+/** How to choose among the instances that have room for a task. */
+public enum PlacementStrategy {
+  /**
+   * Place tasks on the instance with the least remaining memory that still fits them, leaving whole
+   * instances free for larger tasks.
+   */
+  BINPACK,
+  /** Place tasks on the instance with the most remaining memory, to even out load. */
+  SPREAD;
+
+  public static final String SPREAD_DEPLOYMENT_METHOD = "Spread";
+
+  /** The strategy for an environment's deployment method: spread if asked for, else binpack. */
+  public static PlacementStrategy forDeploymentMethod(String deploymentMethod) {
+    return SPREAD_DEPLOYMENT_METHOD.equalsIgnoreCase(deploymentMethod) ? SPREAD : BINPACK;
+  }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.shard;
+
+import com.amazonaws.blox.dataservicemodel.v1.client.DataService;
+import com.amazonaws.blox.dataservicemodel.v1.exception.InternalServiceException;
+import com.amazonaws.blox.dataservicemodel.v1.exception.InvalidParameterException;
+import com.amazonaws.blox.dataservicemodel.v1.model.Cluster;
+import com.amazonaws.blox.dataservicemodel.v1.model.wrappers.ListClustersRequest;
+import com.amazonaws.blox.dataservicemodel.v1.model.wrappers.ListClustersResponse;
+import com.amazonaws.blox.jsonrpc.Deadline;
+import com.amazonaws.blox.lambda.LambdaDeadlines;
+import com.amazonaws.blox.lambda.LambdaFunction;
+import com.amazonaws.blox.scheduling.activity.ClusterActivityTracker;
+import com.amazonaws.blox.scheduling.manager.ManagerInput;
+import com.amazonaws.blox.scheduling.manager.ManagerOutput;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reconciles one shard of all clusters: lists the clusters in the shard's segment a page at a time,
+ * and triggers the Manager for each of them that is due according to {@link
+ * ClusterActivityTracker}.
+ *
+ * <p>When an invocation runs low on time before it has listed the whole segment, it triggers a new
+ * invocation of the shard to continue from the next page. Each invocation therefore finishes in
+ * bounded time, however many clusters are in the segment.
+ */
+@Component
+@Slf4j
+public class ShardHandler implements RequestHandler<ShardInput, ShardOutput> {
+  public static final int DEFAULT_PAGE_SIZE = 100;
+  public static final long DEFAULT_RESERVED_MILLIS = 15_000;
+
+  private final DataService dataService;
+  private final LambdaFunction<ManagerInput, ManagerOutput> manager;
+  private final LambdaFunction<ShardInput, ShardOutput> shard;
+  private final ClusterActivityTracker activity;
+
+  /** The maximum number of environments to read from the DataService for each page. */
+  private final int pageSize;
+
+  /** Only list another page while the invocation has more than this much time left. */
+  private final long reservedMillis;
+
+  @Autowired
+  public ShardHandler(
+      DataService dataService,
+      LambdaFunction<ManagerInput, ManagerOutput> manager,
+      LambdaFunction<ShardInput, ShardOutput> shard,
+      ClusterActivityTracker activity,
+      @Value("${shard_page_size:" + DEFAULT_PAGE_SIZE + "}") int pageSize,
+      @Value("${shard_reserved_millis:" + DEFAULT_RESERVED_MILLIS + "}") long reservedMillis) {
+    if (pageSize < 1) {
+      throw new IllegalArgumentException("pageSize must be positive: " + pageSize);
+    }
+
+    this.dataService = dataService;
+    this.manager = manager;
+    this.shard = shard;
+    this.activity = activity;
+    this.pageSize = pageSize;
+    this.reservedMillis = reservedMillis;
+  }
+
+  @Override
+  public ShardOutput handleRequest(ShardInput input, Context context) {
+    log.debug("Shard request: {}", input);
+
+    try (Deadline.Scope scope = LambdaDeadlines.enter(LambdaDeadlines.of(context))) {
+      return reconcile(input, context);
+    } catch (InvalidParameterException | InternalServiceException e) {
+      // The Manager was already triggered for the clusters on earlier pages; the rest of the
+      // segment is listed again on the next tick:
+      throw new IllegalStateException(
+          String.format(
+              "Could not list clusters of shard %d/%d",
+              input.getSegment(), input.getTotalSegments()),
+          e);
+    }
+  }
+
+  private ShardOutput reconcile(ShardInput input, Context context)
+      throws InvalidParameterException, InternalServiceException {
+    String nextToken = input.getNextToken();
+    int clusters = 0;
+    int quietClusters = 0;
+    int failedClusters = 0;
+
+    do {
+      ListClustersResponse page =
+          dataService.listClusters(
+              ListClustersRequest.builder()
+                  .segment(input.getSegment())
+                  .totalSegments(input.getTotalSegments())
+                  .nextToken(nextToken)
+                  .maxResults(pageSize)
+                  .build());
+
+      List<Cluster> due = activity.due(page.getClusters());
+      List<CompletableFuture<Void>> triggers =
+          due.stream()
+              .map(c -> manager.triggerAsync(new ManagerInput(c)))
+              .collect(Collectors.toList());
+
+      // A cluster that the Manager couldn't be triggered for doesn't fail the rest of the shard.
+      // No pass over it is recorded, so it's still due on the next tick:
+      for (int i = 0; i < due.size(); i++) {
+        try {
+          triggers.get(i).join();
+        } catch (CompletionException e) {
+          log.warn("Failed to trigger Manager for cluster {}", due.get(i), e.getCause());
+          failedClusters++;
+        }
+      }
+
+      clusters += due.size();
+      quietClusters += page.getClusters().size() - due.size();
+      nextToken = page.getNextToken();
+    } while (nextToken != null && hasTimeLeft(context));
+
+    if (nextToken != null) {
+      log.info(
+          "Shard {}/{} continues in a new invocation after {} clusters ({} quiet)",
+          input.getSegment(),
+          input.getTotalSegments(),
+          clusters,
+          quietClusters);
+      shard
+          .triggerAsync(new ShardInput(input.getSegment(), input.getTotalSegments(), nextToken))
+          .join();
+    }
+
+    return new ShardOutput(
+        input.getSegment(),
+        input.getTotalSegments(),
+        clusters,
+        quietClusters,
+        failedClusters,
+        nextToken);
+  }
+
+  private boolean hasTimeLeft(Context context) {
+    return context == null || context.getRemainingTimeInMillis() > reservedMillis;
+  }
+}
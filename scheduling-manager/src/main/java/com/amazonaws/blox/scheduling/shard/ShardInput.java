@@ -0,0 +1,28 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.shard;
+
+import lombok.Data;
+
+@Data
+public class ShardInput {
+  /** The segment of all clusters to reconcile, out of totalSegments. */
+  private final int segment;
+
+  private final int totalSegments;
+
+  /** Where to continue listing the segment from, or null to list it from the start. */
+  private final String nextToken;
+}
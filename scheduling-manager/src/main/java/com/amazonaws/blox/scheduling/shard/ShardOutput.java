@@ -0,0 +1,37 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.shard;
+
+import lombok.Data;
+
+@Data
+public class ShardOutput {
+  private final int segment;
+  private final int totalSegments;
+
+  /** The number of clusters that the Manager was triggered for. */
+  private final int clusters;
+
+  /** The number of clusters that were skipped, because nothing changed in them recently. */
+  private final int quietClusters;
+
+  /**
+   * The number of clusters that the Manager couldn't be triggered for, out of {@link #clusters}.
+   */
+  private final int failedClusters;
+
+  /** Where the next invocation continues listing the segment from, or null if it's done. */
+  private final String nextToken;
+}
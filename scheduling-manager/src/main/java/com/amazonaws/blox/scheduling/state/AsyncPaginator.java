@@ -0,0 +1,156 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.state;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Non-blocking paginator that pipelines paginated list API calls with the processing of each page.
+ *
+ * <p>As soon as a page of results arrives, the request for the next page is issued and the page is
+ * handed off for processing (e.g. a describe call for the ARNs it contains), so that fetching page
+ * N+1 overlaps with processing page N. No thread is ever blocked waiting for a page.
+ *
+ * <p>The prefetch depth bounds how far listing may run ahead of processing: the next page is only
+ * requested while at most {@code prefetchDepth} pages are still being processed. A depth of 0 makes
+ * the list and process calls strictly sequential.
+ *
+ * @param <P> The response type returned by the list API call
+ * @param <R> The type of item produced by processing a page
+ */
+@RequiredArgsConstructor
+class AsyncPaginator<P, R> {
+  public static final int DEFAULT_PREFETCH_DEPTH = 4;
+
+  /** Function that extracts the pagination token from a page P */
+  private final Function<P, String> nextToken;
+
+  /** Function that asynchronously makes the list API call for the given pagination token */
+  private final Function<String, CompletableFuture<P>> list;
+
+  /** Function that asynchronously turns a page P into result items */
+  private final Function<P, CompletableFuture<List<R>>> process;
+
+  /** Maximum number of pages that may be processing while the next page is being listed */
+  private final int prefetchDepth;
+
+  /**
+   * Fetch and process every page of results.
+   *
+   * @return a future that completes with the results of all pages in page order, or completes
+   *     exceptionally with the first list or process failure.
+   */
+  public CompletableFuture<List<R>> collect() {
+    if (prefetchDepth < 0) {
+      throw new IllegalArgumentException("prefetchDepth must not be negative: " + prefetchDepth);
+    }
+
+    return new Pagination().start();
+  }
+
+  /** The state of a single pass over all pages. */
+  private class Pagination {
+    private final CompletableFuture<List<R>> result = new CompletableFuture<>();
+    private final List<CompletableFuture<List<R>>> pages = new ArrayList<>();
+
+    private int processing = 0;
+    private boolean listing = true;
+    private String pausedToken = null;
+
+    CompletableFuture<List<R>> start() {
+      fetch(null);
+      return result;
+    }
+
+    private void fetch(String token) {
+      CompletableFuture<P> page;
+      try {
+        page = list.apply(token);
+      } catch (RuntimeException e) {
+        result.completeExceptionally(e);
+        return;
+      }
+
+      page.whenComplete(this::onPage);
+    }
+
+    private void onPage(P page, Throwable error) {
+      if (error != null) {
+        result.completeExceptionally(error);
+        return;
+      }
+
+      CompletableFuture<List<R>> items;
+      try {
+        items = process.apply(page);
+      } catch (RuntimeException e) {
+        result.completeExceptionally(e);
+        return;
+      }
+
+      String token = nextToken.apply(page);
+      boolean fetchNow;
+      synchronized (this) {
+        pages.add(items);
+        processing++;
+
+        listing = token != null;
+        fetchNow = listing && processing <= prefetchDepth;
+        if (listing && !fetchNow) {
+          pausedToken = token;
+        }
+      }
+
+      if (fetchNow && !result.isDone()) {
+        fetch(token);
+      }
+
+      items.whenComplete(this::onProcessed);
+    }
+
+    private void onProcessed(List<R> items, Throwable error) {
+      if (error != null) {
+        result.completeExceptionally(error);
+        return;
+      }
+
+      String resumeToken = null;
+      boolean finished;
+      synchronized (this) {
+        processing--;
+
+        if (pausedToken != null && processing <= prefetchDepth) {
+          resumeToken = pausedToken;
+          pausedToken = null;
+        }
+        finished = !listing && processing == 0;
+      }
+
+      if (resumeToken != null && !result.isDone()) {
+        fetch(resumeToken);
+      }
+
+      if (finished) {
+        result.complete(
+            pages.stream().flatMap(p -> p.join().stream()).collect(Collectors.toList()));
+      }
+    }
+  }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.state;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The state of a single cluster as cached by {@link CachingECSState}, kept up to date by applying
+ * ECS state change events to it.
+ *
+ * <p>ECS increments the version of a task or container instance every time it emits a state change
+ * event for it. This is used to drop duplicate and out-of-order events, and to detect missed events
+ * for resources that are already known, in which case the cluster is marked as stale. Missed events
+ * for resources that were never seen cannot be detected this way.
+ *
+ * <p>If the cluster was listed with a {@link SnapshotFilter}, events for tasks that don't match the
+ * filter are ignored. Container instance filter expressions can't be evaluated locally, so an event
+ * for an instance that isn't already known marks the cluster as stale instead.
+ */
+@Slf4j
+class CachedCluster {
+  // ListTasks only returns tasks that should be running, and ListContainerInstances only returns
+  // registered instances, so drop resources in these states to match a freshly listed snapshot:
+  private static final String STOPPED = "STOPPED";
+  private static final String INACTIVE = "INACTIVE";
+
+  private final String clusterName;
+  private final SnapshotFilter filter;
+
+  private final Map<String, ClusterSnapshot.Task> tasks = new LinkedHashMap<>();
+  private final Map<String, ClusterSnapshot.ContainerInstance> instances = new LinkedHashMap<>();
+
+  /** The latest applied version of every known resource, including removed ones. */
+  private final Map<String, Long> versions = new HashMap<>();
+
+  private Instant refreshedAt = null;
+  private boolean stale = true;
+
+  /** Events received while the cluster is being re-listed, to replay once the listing is done. */
+  private List<Runnable> pendingEvents = null;
+
+  CachedCluster(String clusterName) {
+    this(clusterName, SnapshotFilter.ALL);
+  }
+
+  CachedCluster(String clusterName, SnapshotFilter filter) {
+    this.clusterName = clusterName;
+    this.filter = filter;
+  }
+
+  synchronized boolean isFresh(Instant now, Duration maxStaleness) {
+    return !stale && refreshedAt != null && now.isBefore(refreshedAt.plus(maxStaleness));
+  }
+
+  /**
+   * Whether the cluster hasn't been refreshed for the given idle time after it went stale, which
+   * means it hasn't been snapshotted for that long.
+   */
+  synchronized boolean isIdle(Instant now, Duration maxStaleness, Duration maxIdle) {
+    return pendingEvents == null
+        && (refreshedAt == null || !now.isBefore(refreshedAt.plus(maxStaleness).plus(maxIdle)));
+  }
+
+  synchronized void invalidate() {
+    stale = true;
+  }
+
+  /** Start recording events, so that events that arrive during the re-listing aren't lost. */
+  synchronized void beginRefresh() {
+    pendingEvents = new ArrayList<>();
+  }
+
+  /**
+   * Stop recording events. Called after every re-listing, so that a listing that failed doesn't
+   * leave events accumulating until the next one.
+   */
+  synchronized void endRefresh() {
+    pendingEvents = null;
+  }
+
+  /** Replace the cached state with a freshly listed snapshot. */
+  synchronized void refresh(ClusterSnapshot snapshot, Instant now) {
+    tasks.clear();
+    instances.clear();
+    versions.clear();
+
+    for (ClusterSnapshot.Task task : snapshot.getTasks()) {
+      tasks.put(task.getArn(), task);
+      versions.put(task.getArn(), task.getVersion());
+    }
+    for (ClusterSnapshot.ContainerInstance instance : snapshot.getInstances()) {
+      instances.put(instance.getArn(), instance);
+      versions.put(instance.getArn(), instance.getVersion());
+    }
+
+    refreshedAt = now;
+    stale = false;
+
+    List<Runnable> replay = pendingEvents;
+    pendingEvents = null;
+    if (replay != null) {
+      replay.forEach(Runnable::run);
+    }
+  }
+
+  synchronized ClusterSnapshot snapshot() {
+    return new ClusterSnapshot(
+        clusterName, new ArrayList<>(tasks.values()), new ArrayList<>(instances.values()));
+  }
+
+  synchronized void apply(TaskStateChange change) {
+    if (pendingEvents != null) {
+      pendingEvents.add(() -> applyTask(change));
+    }
+    applyTask(change);
+  }
+
+  synchronized void apply(ContainerInstanceStateChange change) {
+    if (pendingEvents != null) {
+      pendingEvents.add(() -> applyContainerInstance(change));
+    }
+    applyContainerInstance(change);
+  }
+
+  private void applyTask(TaskStateChange change) {
+    if (!filter.matchesTask(change.getStartedBy(), change.getTaskDefinitionArn())) {
+      return;
+    }
+    if (!advanceVersion(change.getTaskArn(), change.getVersion())) {
+      return;
+    }
+
+    if (STOPPED.equals(change.getDesiredStatus())) {
+      tasks.remove(change.getTaskArn());
+    } else {
+      tasks.put(change.getTaskArn(), change.toTask());
+    }
+  }
+
+  private void applyContainerInstance(ContainerInstanceStateChange change) {
+    if (!filter.canMatchContainerInstances()
+        && !instances.containsKey(change.getContainerInstanceArn())
+        && !INACTIVE.equals(change.getStatus())) {
+      stale = true;
+      return;
+    }
+    if (!advanceVersion(change.getContainerInstanceArn(), change.getVersion())) {
+      return;
+    }
+
+    if (INACTIVE.equals(change.getStatus())) {
+      instances.remove(change.getContainerInstanceArn());
+    } else {
+      instances.put(change.getContainerInstanceArn(), change.toContainerInstance());
+    }
+  }
+
+  /**
+   * Record the version of an event for the given resource.
+   *
+   * @return true if the event is newer than the cached state of the resource and should be applied
+   */
+  private boolean advanceVersion(String arn, Long version) {
+    if (version == null) {
+      stale = true;
+      return true;
+    }
+
+    Long current = versions.get(arn);
+    if (current != null) {
+      if (version <= current) {
+        return false;
+      }
+      if (version > current + 1) {
+        log.debug("Missed events for {} between versions {} and {}", arn, current, version);
+        stale = true;
+      }
+    }
+
+    versions.put(arn, version);
+    return true;
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.state;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ECSState that keeps a snapshot of every cluster in memory across warm invocations.
+ *
+ * <p>Cached snapshots are updated by applying ECS state change events to them, and are only listed
+ * again from ECS if they are older than the configured staleness bound, or if a missed event was
+ * detected.
+ *
+ * <p>Lambda does not deliver events to the container that holds the cache for their cluster, so a
+ * warm container only sees some of the events for each cluster. The staleness bound limits how long
+ * changes that were never seen (such as tasks started by another container) can go unnoticed.
+ *
+ * <p>Clusters that are no longer snapshotted, for example because their Manager now runs in another
+ * container, are evicted once they have been idle for a while after going stale.
+ *
+ * <p>Filtered snapshots are cached separately for each filter, except for filters on desired
+ * status, which events can't be matched against and which are always listed from ECS.
+ */
+@Slf4j
+public class CachingECSState implements ECSState {
+  public static final Duration DEFAULT_MAX_IDLE = Duration.ofMinutes(10);
+
+  private final ECSState delegate;
+  private final Clock clock;
+  private final Duration maxStaleness;
+  private final Duration maxIdle;
+
+  private final ConcurrentMap<String, ConcurrentMap<SnapshotFilter, CachedCluster>> clusters =
+      new ConcurrentHashMap<>();
+
+  /** When idle clusters are evicted next; they're looked for at most once per idle period. */
+  private volatile Instant nextEviction;
+
+  public CachingECSState(ECSState delegate, Clock clock, Duration maxStaleness) {
+    this(delegate, clock, maxStaleness, DEFAULT_MAX_IDLE);
+  }
+
+  public CachingECSState(ECSState delegate, Clock clock, Duration maxStaleness, Duration maxIdle) {
+    this.delegate = delegate;
+    this.clock = clock;
+    this.maxStaleness = maxStaleness;
+    this.maxIdle = maxIdle;
+    this.nextEviction = clock.instant().plus(maxIdle);
+  }
+
+  @Override
+  public ClusterSnapshot snapshotState(String clusterName, SnapshotFilter filter) {
+    if (filter.getDesiredStatus() != null) {
+      return delegate.snapshotState(clusterName, filter);
+    }
+    evictIdleClusters();
+
+    CachedCluster cluster =
+        clusters
+            .computeIfAbsent(clusterName, n -> new ConcurrentHashMap<>())
+            .computeIfAbsent(filter, f -> new CachedCluster(clusterName, f));
+    if (cluster.isFresh(clock.instant(), maxStaleness)) {
+      log.debug("Using cached snapshot of cluster {}", clusterName);
+      return cluster.snapshot();
+    }
+
+    cluster.beginRefresh();
+    try {
+      cluster.refresh(delegate.snapshotState(clusterName, filter), clock.instant());
+    } finally {
+      // If listing failed, the cluster is left as it was and listed again by the next snapshot:
+      cluster.endRefresh();
+    }
+    return cluster.snapshot();
+  }
+
+  @Override
+  public void onTaskStateChange(TaskStateChange change) {
+    cached(clusterName(change.getClusterArn())).forEach(c -> c.apply(change));
+    delegate.onTaskStateChange(change);
+  }
+
+  @Override
+  public void onContainerInstanceStateChange(ContainerInstanceStateChange change) {
+    cached(clusterName(change.getClusterArn())).forEach(c -> c.apply(change));
+    delegate.onContainerInstanceStateChange(change);
+  }
+
+  @Override
+  public void invalidate(String clusterName) {
+    cached(clusterName).forEach(CachedCluster::invalidate);
+    delegate.invalidate(clusterName);
+  }
+
+  private void evictIdleClusters() {
+    Instant now = clock.instant();
+    if (now.isBefore(nextEviction)) {
+      return;
+    }
+    nextEviction = now.plus(maxIdle);
+
+    for (String clusterName : clusters.keySet()) {
+      clusters.computeIfPresent(
+          clusterName,
+          (name, filtered) -> {
+            filtered.values().removeIf(c -> c.isIdle(now, maxStaleness, maxIdle));
+            if (filtered.isEmpty()) {
+              log.debug("Evicting idle cluster {}", name);
+              return null;
+            }
+            return filtered;
+          });
+    }
+  }
+
+  /** Whether any snapshot of the given cluster is cached. */
+  boolean isCached(String clusterName) {
+    return clusters.containsKey(clusterName);
+  }
+
+  /** All cached snapshots of the given cluster, one for every filter it was listed with. */
+  private Collection<CachedCluster> cached(String clusterName) {
+    Map<SnapshotFilter, CachedCluster> filtered = clusters.get(clusterName);
+    return filtered == null ? Collections.emptyList() : filtered.values();
+  }
+
+  /** Extract the cluster name from an ARN of the form arn:aws:ecs:region:account:cluster/name */
+  static String clusterName(String clusterArn) {
+    return clusterArn.substring(clusterArn.lastIndexOf('/') + 1);
+  }
+}
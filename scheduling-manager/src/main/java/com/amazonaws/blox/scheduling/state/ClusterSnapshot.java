@@ -14,12 +14,17 @@
  */
 package com.amazonaws.blox.scheduling.state;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import java.util.List;
+import java.util.Map;
 import lombok.Builder;
 import lombok.Data;
+import lombok.Singular;
 import lombok.Value;
 
 @Data
+@JsonDeserialize(using = ClusterSnapshotDeserializer.class)
 public class ClusterSnapshot {
   private final String clusterName;
   private final List<Task> tasks;
@@ -34,6 +39,9 @@ public class ClusterSnapshot {
     private final String status;
     private final String group;
     private final String startedBy;
+    /** The ECS version of this task's state, used to order state change events. */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private final Long version;
 
     public static Task from(software.amazon.awssdk.services.ecs.model.Task t) {
       return builder()
@@ -43,6 +51,7 @@ public class ClusterSnapshot {
           .status(t.desiredStatus())
           .group(t.group())
           .startedBy(t.startedBy())
+          .version(t.version())
           .build();
     }
   }
@@ -50,11 +59,57 @@ public class ClusterSnapshot {
   @Value
   @Builder
   public static class ContainerInstance {
+    public static final String CPU = "CPU";
+    public static final String MEMORY = "MEMORY";
+
     private final String arn;
+    /** The ECS version of this instance's state, used to order state change events. */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private final Long version;
+
+    /** The ECS status of the instance, e.g. ACTIVE or DRAINING. */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private final String status;
+
+    /**
+     * The attributes of the instance that have a value, by name. Attributes without a value (such
+     * as most ECS capabilities) are left out, since instance groups can't select on them.
+     */
+    @Singular
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private final Map<String, String> attributes;
+
+    /** The CPU units that are not reserved by tasks on the instance, if known. */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private final Integer remainingCpu;
+
+    /** The memory in MiB that is not reserved by tasks on the instance, if known. */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private final Integer remainingMemory;
 
     public static ContainerInstance from(
         software.amazon.awssdk.services.ecs.model.ContainerInstance i) {
-      return builder().arn(i.containerInstanceArn()).build();
+      ContainerInstanceBuilder builder =
+          builder().arn(i.containerInstanceArn()).version(i.version()).status(i.status());
+
+      if (i.attributes() != null) {
+        for (software.amazon.awssdk.services.ecs.model.Attribute a : i.attributes()) {
+          if (a.value() != null) {
+            builder.attribute(a.name(), a.value());
+          }
+        }
+      }
+      if (i.remainingResources() != null) {
+        for (software.amazon.awssdk.services.ecs.model.Resource r : i.remainingResources()) {
+          if (CPU.equals(r.name())) {
+            builder.remainingCpu(r.integerValue());
+          } else if (MEMORY.equals(r.name())) {
+            builder.remainingMemory(r.integerValue());
+          }
+        }
+      }
+
+      return builder.build();
     }
   }
 }
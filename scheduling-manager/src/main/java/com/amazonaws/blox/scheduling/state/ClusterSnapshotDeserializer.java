@@ -0,0 +1,199 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.state;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Streaming deserializer that reads a {@link ClusterSnapshot} directly into a {@link
+ * CompactClusterSnapshot}, without creating an object for every task or container instance.
+ *
+ * <p>The deserialized snapshot is a view of the compact snapshot, so that schedulers can get it
+ * back with {@link CompactClusterSnapshot#of(ClusterSnapshot)} at no cost.
+ */
+class ClusterSnapshotDeserializer extends StdDeserializer<ClusterSnapshot> {
+
+  ClusterSnapshotDeserializer() {
+    super(ClusterSnapshot.class);
+  }
+
+  @Override
+  public ClusterSnapshot deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+    CompactClusterSnapshot.Builder builder = CompactClusterSnapshot.builder();
+
+    for (JsonToken t = startObject(p, ctxt); t == JsonToken.FIELD_NAME; t = p.nextToken()) {
+      String field = p.getCurrentName();
+      p.nextToken();
+
+      switch (field) {
+        case "clusterName":
+          builder.clusterName(p.getValueAsString());
+          break;
+        case "tasks":
+          readTasks(p, ctxt, builder);
+          break;
+        case "instances":
+          readInstances(p, ctxt, builder);
+          break;
+        default:
+          ctxt.handleUnknownProperty(p, this, ClusterSnapshot.class, field);
+      }
+    }
+
+    return builder.build().asClusterSnapshot();
+  }
+
+  private void readTasks(
+      JsonParser p, DeserializationContext ctxt, CompactClusterSnapshot.Builder builder)
+      throws IOException {
+    if (!startArray(p, ctxt)) {
+      return;
+    }
+
+    while (p.nextToken() != JsonToken.END_ARRAY) {
+      String arn = null;
+      String containerInstanceArn = null;
+      String taskDefinitionArn = null;
+      String status = null;
+      String group = null;
+      String startedBy = null;
+
+      for (JsonToken t = startObject(p, ctxt); t == JsonToken.FIELD_NAME; t = p.nextToken()) {
+        String field = p.getCurrentName();
+        p.nextToken();
+
+        switch (field) {
+          case "arn":
+            arn = p.getValueAsString();
+            break;
+          case "containerInstanceArn":
+            containerInstanceArn = p.getValueAsString();
+            break;
+          case "taskDefinitionArn":
+            taskDefinitionArn = p.getValueAsString();
+            break;
+          case "status":
+            status = p.getValueAsString();
+            break;
+          case "group":
+            group = p.getValueAsString();
+            break;
+          case "startedBy":
+            startedBy = p.getValueAsString();
+            break;
+          case "version":
+            // Versions are only needed to apply events to cached state, see CachingECSState
+            break;
+          default:
+            ctxt.handleUnknownProperty(p, this, ClusterSnapshot.Task.class, field);
+        }
+      }
+
+      builder.addTask(arn, containerInstanceArn, taskDefinitionArn, status, group, startedBy);
+    }
+  }
+
+  private void readInstances(
+      JsonParser p, DeserializationContext ctxt, CompactClusterSnapshot.Builder builder)
+      throws IOException {
+    if (!startArray(p, ctxt)) {
+      return;
+    }
+
+    while (p.nextToken() != JsonToken.END_ARRAY) {
+      String arn = null;
+      String status = null;
+      Map<String, String> attributes = new HashMap<>();
+      Integer remainingCpu = null;
+      Integer remainingMemory = null;
+
+      for (JsonToken t = startObject(p, ctxt); t == JsonToken.FIELD_NAME; t = p.nextToken()) {
+        String field = p.getCurrentName();
+        p.nextToken();
+
+        switch (field) {
+          case "arn":
+            arn = p.getValueAsString();
+            break;
+          case "version":
+            break;
+          case "status":
+            status = p.getValueAsString();
+            break;
+          case "attributes":
+            readAttributes(p, ctxt, attributes);
+            break;
+          case "remainingCpu":
+            remainingCpu = readInteger(p);
+            break;
+          case "remainingMemory":
+            remainingMemory = readInteger(p);
+            break;
+          default:
+            ctxt.handleUnknownProperty(p, this, ClusterSnapshot.ContainerInstance.class, field);
+        }
+      }
+
+      builder.addInstance(arn, status, attributes, remainingCpu, remainingMemory);
+    }
+  }
+
+  private void readAttributes(
+      JsonParser p, DeserializationContext ctxt, Map<String, String> attributes)
+      throws IOException {
+    if (p.currentToken() == JsonToken.VALUE_NULL) {
+      return;
+    }
+
+    for (JsonToken t = startObject(p, ctxt); t == JsonToken.FIELD_NAME; t = p.nextToken()) {
+      String name = p.getCurrentName();
+      p.nextToken();
+      attributes.put(name, p.getValueAsString());
+    }
+  }
+
+  private Integer readInteger(JsonParser p) throws IOException {
+    return p.currentToken() == JsonToken.VALUE_NULL ? null : p.getIntValue();
+  }
+
+  /** @return the first token inside of the object that the parser is at */
+  private JsonToken startObject(JsonParser p, DeserializationContext ctxt) throws IOException {
+    JsonToken t = p.currentToken();
+    if (t == JsonToken.START_OBJECT) {
+      return p.nextToken();
+    }
+    if (t != JsonToken.FIELD_NAME && t != JsonToken.END_OBJECT) {
+      ctxt.reportWrongTokenException(this, JsonToken.START_OBJECT, null);
+    }
+    return t;
+  }
+
+  /** @return false if the array the parser is at is null */
+  private boolean startArray(JsonParser p, DeserializationContext ctxt) throws IOException {
+    if (p.currentToken() == JsonToken.VALUE_NULL) {
+      return false;
+    }
+    if (p.currentToken() != JsonToken.START_ARRAY) {
+      ctxt.reportWrongTokenException(this, JsonToken.START_ARRAY, null);
+    }
+    return true;
+  }
+}
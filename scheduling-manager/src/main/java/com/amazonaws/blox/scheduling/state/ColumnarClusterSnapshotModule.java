@@ -0,0 +1,265 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.state;
+
+import com.amazonaws.blox.scheduling.state.CompactClusterSnapshot.Columns;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Jackson module that writes a {@link ClusterSnapshot} as the columns of its {@link
+ * CompactClusterSnapshot}, instead of as lists of task and instance objects.
+ *
+ * <p>This avoids repeating field names and instance/task definition ARNs for every task, and lets
+ * most of the snapshot be written as arrays of small integers. It's meant for binary formats like
+ * Smile, where integers are stored compactly; JSON payloads should keep using the default format,
+ * since that is what other consumers of the scheduler payloads understand.
+ */
+public class ColumnarClusterSnapshotModule extends SimpleModule {
+  static final String CLUSTER_NAME = "clusterName";
+  static final String DICTIONARY = "dictionary";
+  static final String INSTANCE_COUNT = "instanceCount";
+  static final String INSTANCE_ARNS = "instanceArns";
+  static final String INSTANCE_STATUSES = "instanceStatuses";
+  static final String INSTANCE_REMAINING_CPU = "instanceRemainingCpu";
+  static final String INSTANCE_REMAINING_MEMORY = "instanceRemainingMemory";
+  static final String INSTANCE_ATTRIBUTE_OFFSETS = "instanceAttributeOffsets";
+  static final String ATTRIBUTE_NAMES = "attributeNames";
+  static final String ATTRIBUTE_VALUES = "attributeValues";
+  static final String TASK_ARNS = "taskArns";
+  static final String TASK_INSTANCES = "taskInstances";
+  static final String TASK_DEFINITIONS = "taskDefinitions";
+  static final String TASK_GROUPS = "taskGroups";
+  static final String TASK_STARTED_BY = "taskStartedBy";
+  static final String TASK_STATUSES = "taskStatuses";
+
+  public ColumnarClusterSnapshotModule() {
+    super(ColumnarClusterSnapshotModule.class.getSimpleName());
+
+    // ClusterSnapshot already declares a deserializer, which can only be overridden with a mix-in:
+    setMixInAnnotation(ClusterSnapshot.class, ColumnarClusterSnapshotMixIn.class);
+  }
+
+  @JsonSerialize(using = Serializer.class)
+  @JsonDeserialize(using = Deserializer.class)
+  private abstract static class ColumnarClusterSnapshotMixIn {}
+
+  static class Serializer extends StdSerializer<ClusterSnapshot> {
+    Serializer() {
+      super(ClusterSnapshot.class);
+    }
+
+    @Override
+    public void serialize(ClusterSnapshot value, JsonGenerator gen, SerializerProvider provider)
+        throws IOException {
+      Columns columns = CompactClusterSnapshot.of(value).columns();
+
+      gen.writeStartObject();
+      gen.writeStringField(CLUSTER_NAME, columns.getClusterName());
+      writeStrings(gen, DICTIONARY, columns.getDictionary());
+      gen.writeNumberField(INSTANCE_COUNT, columns.getInstanceCount());
+      writeInts(gen, INSTANCE_ARNS, columns.getInstanceArns());
+      writeInts(gen, INSTANCE_STATUSES, columns.getInstanceStatuses());
+      writeInts(gen, INSTANCE_REMAINING_CPU, columns.getInstanceRemainingCpu());
+      writeInts(gen, INSTANCE_REMAINING_MEMORY, columns.getInstanceRemainingMemory());
+      writeInts(gen, INSTANCE_ATTRIBUTE_OFFSETS, columns.getInstanceAttributeOffsets());
+      writeInts(gen, ATTRIBUTE_NAMES, columns.getAttributeNames());
+      writeInts(gen, ATTRIBUTE_VALUES, columns.getAttributeValues());
+      writeStrings(gen, TASK_ARNS, columns.getTaskArns());
+      writeInts(gen, TASK_INSTANCES, columns.getTaskInstances());
+      writeInts(gen, TASK_DEFINITIONS, columns.getTaskDefinitions());
+      writeInts(gen, TASK_GROUPS, columns.getTaskGroups());
+      writeInts(gen, TASK_STARTED_BY, columns.getTaskStartedBy());
+      writeInts(gen, TASK_STATUSES, columns.getTaskStatuses());
+      gen.writeEndObject();
+    }
+
+    private static void writeStrings(JsonGenerator gen, String field, String[] values)
+        throws IOException {
+      gen.writeFieldName(field);
+      gen.writeStartArray(values.length);
+      for (String value : values) {
+        gen.writeString(value);
+      }
+      gen.writeEndArray();
+    }
+
+    private static void writeInts(JsonGenerator gen, String field, int[] values)
+        throws IOException {
+      gen.writeFieldName(field);
+      gen.writeArray(values, 0, values.length);
+    }
+  }
+
+  static class Deserializer extends StdDeserializer<ClusterSnapshot> {
+    private static final String[] NO_STRINGS = new String[0];
+    private static final int[] NO_INTS = new int[0];
+
+    Deserializer() {
+      super(ClusterSnapshot.class);
+    }
+
+    @Override
+    public ClusterSnapshot deserialize(JsonParser p, DeserializationContext ctxt)
+        throws IOException {
+      String clusterName = null;
+      String[] dictionary = NO_STRINGS;
+      int instanceCount = 0;
+      int[] instanceArns = NO_INTS;
+      // Missing instance detail columns are filled in by CompactClusterSnapshot.fromColumns:
+      int[] instanceStatuses = null;
+      int[] instanceRemainingCpu = null;
+      int[] instanceRemainingMemory = null;
+      int[] instanceAttributeOffsets = null;
+      int[] attributeNames = null;
+      int[] attributeValues = null;
+      String[] taskArns = NO_STRINGS;
+      int[] taskInstances = NO_INTS;
+      int[] taskDefinitions = NO_INTS;
+      int[] taskGroups = NO_INTS;
+      int[] taskStartedBy = NO_INTS;
+      int[] taskStatuses = NO_INTS;
+
+      if (p.currentToken() != JsonToken.START_OBJECT) {
+        ctxt.reportWrongTokenException(this, JsonToken.START_OBJECT, null);
+      }
+
+      while (p.nextToken() == JsonToken.FIELD_NAME) {
+        String field = p.getCurrentName();
+        p.nextToken();
+
+        switch (field) {
+          case CLUSTER_NAME:
+            clusterName = p.getValueAsString();
+            break;
+          case DICTIONARY:
+            dictionary = readStrings(p, ctxt);
+            break;
+          case INSTANCE_COUNT:
+            instanceCount = p.getIntValue();
+            break;
+          case INSTANCE_ARNS:
+            instanceArns = readInts(p, ctxt);
+            break;
+          case INSTANCE_STATUSES:
+            instanceStatuses = readInts(p, ctxt);
+            break;
+          case INSTANCE_REMAINING_CPU:
+            instanceRemainingCpu = readInts(p, ctxt);
+            break;
+          case INSTANCE_REMAINING_MEMORY:
+            instanceRemainingMemory = readInts(p, ctxt);
+            break;
+          case INSTANCE_ATTRIBUTE_OFFSETS:
+            instanceAttributeOffsets = readInts(p, ctxt);
+            break;
+          case ATTRIBUTE_NAMES:
+            attributeNames = readInts(p, ctxt);
+            break;
+          case ATTRIBUTE_VALUES:
+            attributeValues = readInts(p, ctxt);
+            break;
+          case TASK_ARNS:
+            taskArns = readStrings(p, ctxt);
+            break;
+          case TASK_INSTANCES:
+            taskInstances = readInts(p, ctxt);
+            break;
+          case TASK_DEFINITIONS:
+            taskDefinitions = readInts(p, ctxt);
+            break;
+          case TASK_GROUPS:
+            taskGroups = readInts(p, ctxt);
+            break;
+          case TASK_STARTED_BY:
+            taskStartedBy = readInts(p, ctxt);
+            break;
+          case TASK_STATUSES:
+            taskStatuses = readInts(p, ctxt);
+            break;
+          default:
+            ctxt.handleUnknownProperty(p, this, ClusterSnapshot.class, field);
+        }
+      }
+
+      try {
+        return CompactClusterSnapshot.fromColumns(
+                new Columns(
+                    clusterName,
+                    dictionary,
+                    instanceCount,
+                    instanceArns,
+                    instanceStatuses,
+                    instanceRemainingCpu,
+                    instanceRemainingMemory,
+                    instanceAttributeOffsets,
+                    attributeNames,
+                    attributeValues,
+                    taskArns,
+                    taskInstances,
+                    taskDefinitions,
+                    taskGroups,
+                    taskStartedBy,
+                    taskStatuses))
+            .asClusterSnapshot();
+      } catch (IllegalArgumentException e) {
+        throw JsonMappingException.from(p, "Invalid columnar ClusterSnapshot", e);
+      }
+    }
+
+    private String[] readStrings(JsonParser p, DeserializationContext ctxt) throws IOException {
+      startArray(p, ctxt);
+
+      List<String> values = new ArrayList<>();
+      while (p.nextToken() != JsonToken.END_ARRAY) {
+        values.add(p.getValueAsString());
+      }
+      return values.toArray(new String[values.size()]);
+    }
+
+    private int[] readInts(JsonParser p, DeserializationContext ctxt) throws IOException {
+      startArray(p, ctxt);
+
+      int[] values = new int[16];
+      int size = 0;
+      while (p.nextToken() != JsonToken.END_ARRAY) {
+        if (size == values.length) {
+          values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = p.getIntValue();
+      }
+      return Arrays.copyOf(values, size);
+    }
+
+    private void startArray(JsonParser p, DeserializationContext ctxt) throws IOException {
+      if (p.currentToken() != JsonToken.START_ARRAY) {
+        ctxt.reportWrongTokenException(this, JsonToken.START_ARRAY, null);
+      }
+    }
+  }
+}
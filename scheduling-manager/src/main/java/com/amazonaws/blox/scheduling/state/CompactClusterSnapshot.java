@@ -0,0 +1,756 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.state;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.stream.IntStream;
+import lombok.Value;
+
+/**
+ * Columnar, dictionary-encoded form of a {@link ClusterSnapshot}.
+ *
+ * <p>Tasks and container instances are identified by their integer index in the snapshot. Strings
+ * that repeat across tasks (container instance ARNs, task definition ARNs, groups, startedBy and
+ * statuses) are stored once in a dictionary and referenced by index, and the tasks on every
+ * container instance are grouped into one contiguous array. This allows schedulers to work on large
+ * clusters without creating an object per task.
+ *
+ * <p>Instance statuses and attributes are dictionary-encoded as well, and the attributes of every
+ * instance are grouped into one contiguous array. An inverted index from attributes to instances is
+ * built the first time it's needed, see {@link #attributeIndex()}.
+ *
+ * <p>Besides the instances that are part of the snapshot, tasks can reference instances that
+ * weren't listed (e.g. because they were deregistered while the snapshot was taken). These are
+ * given indexes after the listed instances, so that tasks on them can still be grouped.
+ *
+ * <p>Task and instance versions are not retained.
+ */
+public final class CompactClusterSnapshot {
+  private static final int NONE = -1;
+  private static final String ACTIVE = "ACTIVE";
+
+  private final String clusterName;
+
+  private final String[] dictionary;
+  private final Map<String, Integer> dictionaryIndex;
+
+  /** The number of instances that are part of the snapshot. */
+  private final int instanceCount;
+  /** The dictionary index of the ARN of every instance, including ones only referenced by tasks. */
+  private final int[] instanceArns;
+  /** The instance index for every dictionary entry that is an instance ARN, or -1. */
+  private final int[] instancesByArn;
+  /** The dictionary index of the status of every instance, or -1 if it isn't known. */
+  private final int[] instanceStatuses;
+  /** The remaining CPU units of every instance, or -1 if they aren't known. */
+  private final int[] instanceRemainingCpu;
+  /** The remaining memory of every instance in MiB, or -1 if it isn't known. */
+  private final int[] instanceRemainingMemory;
+
+  /**
+   * The attributes of instance i are the dictionary indexes attributeNames[j] and
+   * attributeValues[j], for j in [instanceAttributeOffsets[i]..instanceAttributeOffsets[i + 1])
+   */
+  private final int[] instanceAttributeOffsets;
+
+  private final int[] attributeNames;
+  private final int[] attributeValues;
+
+  private final String[] taskArns;
+  private final int[] taskInstances;
+  private final int[] taskDefinitions;
+  private final int[] taskGroups;
+  private final int[] taskStartedBy;
+  /** The dictionary index of the status of every task, or -1 if it isn't known. */
+  private final int[] taskStatuses;
+  /** The status of every task, decoded once so that schedulers don't compare strings. */
+  private final TaskStatus[] decodedTaskStatuses;
+
+  /** Tasks on instance i are instanceTasks[instanceTaskOffsets[i]..instanceTaskOffsets[i + 1]) */
+  private final int[] instanceTaskOffsets;
+
+  private final int[] instanceTasks;
+
+  /** Built on first use; building it more than once concurrently is harmless. */
+  private volatile InstanceAttributeIndex attributeIndex;
+
+  private CompactClusterSnapshot(
+      String clusterName,
+      String[] dictionary,
+      Map<String, Integer> dictionaryIndex,
+      int instanceCount,
+      int[] instanceArns,
+      int[] instancesByArn,
+      int[] instanceStatuses,
+      int[] instanceRemainingCpu,
+      int[] instanceRemainingMemory,
+      int[] instanceAttributeOffsets,
+      int[] attributeNames,
+      int[] attributeValues,
+      String[] taskArns,
+      int[] taskInstances,
+      int[] taskDefinitions,
+      int[] taskGroups,
+      int[] taskStartedBy,
+      int[] taskStatuses) {
+    this.clusterName = clusterName;
+    this.dictionary = dictionary;
+    this.dictionaryIndex = dictionaryIndex;
+    this.instanceCount = instanceCount;
+    this.instanceArns = instanceArns;
+    this.instancesByArn = instancesByArn;
+    this.instanceStatuses = instanceStatuses;
+    this.instanceRemainingCpu = instanceRemainingCpu;
+    this.instanceRemainingMemory = instanceRemainingMemory;
+    this.instanceAttributeOffsets = instanceAttributeOffsets;
+    this.attributeNames = attributeNames;
+    this.attributeValues = attributeValues;
+    this.taskArns = taskArns;
+    this.taskInstances = taskInstances;
+    this.taskDefinitions = taskDefinitions;
+    this.taskGroups = taskGroups;
+    this.taskStartedBy = taskStartedBy;
+    this.taskStatuses = taskStatuses;
+
+    this.decodedTaskStatuses = new TaskStatus[taskStatuses.length];
+    for (int task = 0; task < taskStatuses.length; task++) {
+      decodedTaskStatuses[task] = TaskStatus.of(lookup(taskStatuses[task]));
+    }
+
+    // Group tasks by instance with a counting sort, keeping tasks in snapshot order:
+    this.instanceTaskOffsets = new int[instanceArns.length + 1];
+    for (int instance : taskInstances) {
+      if (instance != NONE) {
+        instanceTaskOffsets[instance + 1]++;
+      }
+    }
+    for (int i = 0; i < instanceArns.length; i++) {
+      instanceTaskOffsets[i + 1] += instanceTaskOffsets[i];
+    }
+
+    this.instanceTasks = new int[instanceTaskOffsets[instanceArns.length]];
+    int[] next = Arrays.copyOf(instanceTaskOffsets, instanceArns.length);
+    for (int task = 0; task < taskInstances.length; task++) {
+      if (taskInstances[task] != NONE) {
+        instanceTasks[next[taskInstances[task]]++] = task;
+      }
+    }
+  }
+
+  /**
+   * Return the compact form of the given snapshot.
+   *
+   * <p>If the snapshot is a view returned by {@link #asClusterSnapshot()}, the snapshot that backs
+   * it is returned without copying.
+   */
+  public static CompactClusterSnapshot of(ClusterSnapshot snapshot) {
+    if (snapshot.getTasks() instanceof TaskView
+        && snapshot.getInstances() instanceof InstanceView) {
+      CompactClusterSnapshot tasksOwner = ((TaskView) snapshot.getTasks()).owner();
+      CompactClusterSnapshot instancesOwner = ((InstanceView) snapshot.getInstances()).owner();
+
+      if (tasksOwner == instancesOwner
+          && Objects.equals(tasksOwner.clusterName, snapshot.getClusterName())) {
+        return tasksOwner;
+      }
+    }
+
+    Builder builder = builder().clusterName(snapshot.getClusterName());
+    if (snapshot.getInstances() != null) {
+      for (ClusterSnapshot.ContainerInstance instance : snapshot.getInstances()) {
+        builder.addInstance(
+            instance.getArn(),
+            instance.getStatus(),
+            instance.getAttributes(),
+            instance.getRemainingCpu(),
+            instance.getRemainingMemory());
+      }
+    }
+    if (snapshot.getTasks() != null) {
+      for (ClusterSnapshot.Task task : snapshot.getTasks()) {
+        builder.addTask(
+            task.getArn(),
+            task.getContainerInstanceArn(),
+            task.getTaskDefinitionArn(),
+            task.getStatus(),
+            task.getGroup(),
+            task.getStartedBy());
+      }
+    }
+    return builder.build();
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Create a snapshot directly from its columns, as written by {@link #columns()}.
+   *
+   * @throws IllegalArgumentException if the columns are inconsistent
+   */
+  static CompactClusterSnapshot fromColumns(Columns columns) {
+    String[] dictionary = columns.dictionary;
+    int[] instanceArns = columns.instanceArns;
+    int instanceCount = columns.instanceCount;
+    int taskCount = columns.taskArns.length;
+
+    if (instanceCount < 0 || instanceCount > instanceArns.length) {
+      throw new IllegalArgumentException("Invalid instance count: " + instanceCount);
+    }
+    if (columns.taskInstances.length != taskCount
+        || columns.taskDefinitions.length != taskCount
+        || columns.taskGroups.length != taskCount
+        || columns.taskStartedBy.length != taskCount
+        || columns.taskStatuses.length != taskCount) {
+      throw new IllegalArgumentException("All task columns must have " + taskCount + " entries");
+    }
+
+    // Snapshots written before instance details were captured don't have these columns:
+    int[] instanceStatuses = orNone(columns.instanceStatuses, instanceArns.length);
+    int[] instanceRemainingCpu = orNone(columns.instanceRemainingCpu, instanceArns.length);
+    int[] instanceRemainingMemory = orNone(columns.instanceRemainingMemory, instanceArns.length);
+    int[] instanceAttributeOffsets =
+        columns.instanceAttributeOffsets == null
+            ? new int[instanceArns.length + 1]
+            : columns.instanceAttributeOffsets;
+    int[] attributeNames = columns.attributeNames == null ? new int[0] : columns.attributeNames;
+    int[] attributeValues = columns.attributeValues == null ? new int[0] : columns.attributeValues;
+
+    if (instanceStatuses.length != instanceArns.length
+        || instanceRemainingCpu.length != instanceArns.length
+        || instanceRemainingMemory.length != instanceArns.length
+        || instanceAttributeOffsets.length != instanceArns.length + 1) {
+      throw new IllegalArgumentException(
+          "All instance columns must have " + instanceArns.length + " entries");
+    }
+    if (attributeNames.length != attributeValues.length
+        || instanceAttributeOffsets[0] != 0
+        || instanceAttributeOffsets[instanceArns.length] != attributeNames.length) {
+      throw new IllegalArgumentException("Instance attribute columns are inconsistent");
+    }
+    for (int instance = 0; instance < instanceArns.length; instance++) {
+      if (instanceAttributeOffsets[instance] > instanceAttributeOffsets[instance + 1]) {
+        throw new IllegalArgumentException("Instance attribute offsets must be ascending");
+      }
+      checkIndex(instanceStatuses[instance], dictionary.length, true);
+    }
+    for (int attribute = 0; attribute < attributeNames.length; attribute++) {
+      checkIndex(attributeNames[attribute], dictionary.length, false);
+      checkIndex(attributeValues[attribute], dictionary.length, false);
+    }
+
+    Map<String, Integer> dictionaryIndex = new HashMap<>(dictionary.length * 4 / 3 + 1);
+    for (int i = 0; i < dictionary.length; i++) {
+      dictionaryIndex.put(dictionary[i], i);
+    }
+
+    int[] instancesByArn = new int[dictionary.length];
+    Arrays.fill(instancesByArn, NONE);
+    for (int instance = 0; instance < instanceArns.length; instance++) {
+      instancesByArn[checkIndex(instanceArns[instance], dictionary.length, false)] = instance;
+    }
+    for (int task = 0; task < taskCount; task++) {
+      checkIndex(columns.taskInstances[task], instanceArns.length, true);
+      checkIndex(columns.taskDefinitions[task], dictionary.length, true);
+      checkIndex(columns.taskGroups[task], dictionary.length, true);
+      checkIndex(columns.taskStartedBy[task], dictionary.length, true);
+      checkIndex(columns.taskStatuses[task], dictionary.length, true);
+    }
+
+    return new CompactClusterSnapshot(
+        columns.clusterName,
+        dictionary,
+        Collections.unmodifiableMap(dictionaryIndex),
+        instanceCount,
+        instanceArns,
+        instancesByArn,
+        instanceStatuses,
+        instanceRemainingCpu,
+        instanceRemainingMemory,
+        instanceAttributeOffsets,
+        attributeNames,
+        attributeValues,
+        columns.taskArns,
+        columns.taskInstances,
+        columns.taskDefinitions,
+        columns.taskGroups,
+        columns.taskStartedBy,
+        columns.taskStatuses);
+  }
+
+  private static int[] orNone(int[] column, int length) {
+    if (column != null) {
+      return column;
+    }
+    int[] none = new int[length];
+    Arrays.fill(none, NONE);
+    return none;
+  }
+
+  private static int checkIndex(int index, int size, boolean nullable) {
+    if ((index < 0 || index >= size) && !(nullable && index == NONE)) {
+      throw new IllegalArgumentException("Index " + index + " out of range for size " + size);
+    }
+    return index;
+  }
+
+  /** The raw columns of this snapshot, which must not be modified. */
+  Columns columns() {
+    return new Columns(
+        clusterName,
+        dictionary,
+        instanceCount,
+        instanceArns,
+        instanceStatuses,
+        instanceRemainingCpu,
+        instanceRemainingMemory,
+        instanceAttributeOffsets,
+        attributeNames,
+        attributeValues,
+        taskArns,
+        taskInstances,
+        taskDefinitions,
+        taskGroups,
+        taskStartedBy,
+        taskStatuses);
+  }
+
+  /**
+   * Return a {@link ClusterSnapshot} backed by this snapshot.
+   *
+   * <p>The task and instance lists of the returned snapshot are read-only views that create a
+   * {@link ClusterSnapshot.Task} or {@link ClusterSnapshot.ContainerInstance} on every access.
+   */
+  public ClusterSnapshot asClusterSnapshot() {
+    return new ClusterSnapshot(clusterName, new TaskView(), new InstanceView());
+  }
+
+  public String getClusterName() {
+    return clusterName;
+  }
+
+  /** The number of container instances that are part of the snapshot. */
+  public int getInstanceCount() {
+    return instanceCount;
+  }
+
+  public int getTaskCount() {
+    return taskArns.length;
+  }
+
+  /**
+   * Return the index of the given string in the dictionary, to compare against the {@code *Index}
+   * accessors of tasks.
+   *
+   * @return the index, or -1 if no task or instance in the snapshot uses the string.
+   */
+  public int dictionaryIndex(String value) {
+    return value == null ? NONE : dictionaryIndex.getOrDefault(value, NONE);
+  }
+
+  /** @return the index of the listed container instance with the given ARN, or -1 */
+  public int instanceIndex(String arn) {
+    int s = dictionaryIndex(arn);
+    if (s == NONE || instancesByArn[s] >= instanceCount) {
+      return NONE;
+    }
+    return instancesByArn[s];
+  }
+
+  public String instanceArn(int instance) {
+    return dictionary[instanceArns[instance]];
+  }
+
+  /** @return the ECS status of the instance, or null if it isn't known */
+  public String instanceStatus(int instance) {
+    return lookup(instanceStatuses[instance]);
+  }
+
+  /** Whether the instance isn't known to be in any state other than ACTIVE (e.g. DRAINING). */
+  public boolean isInstanceAcceptingTasks(int instance) {
+    String status = instanceStatus(instance);
+    return status == null || ACTIVE.equals(status);
+  }
+
+  /** @return the CPU units not reserved by tasks on the instance, or -1 if they aren't known */
+  public int instanceRemainingCpu(int instance) {
+    return instanceRemainingCpu[instance];
+  }
+
+  /** @return the memory in MiB not reserved by tasks on the instance, or -1 if it isn't known */
+  public int instanceRemainingMemory(int instance) {
+    return instanceRemainingMemory[instance];
+  }
+
+  /** @return the attributes of the instance, by name */
+  public Map<String, String> instanceAttributes(int instance) {
+    Map<String, String> attributes = new HashMap<>();
+    for (int a = instanceAttributeOffsets[instance];
+        a < instanceAttributeOffsets[instance + 1];
+        a++) {
+      attributes.put(dictionary[attributeNames[a]], dictionary[attributeValues[a]]);
+    }
+    return attributes;
+  }
+
+  /** The inverted index from attributes to the listed instances that have them. */
+  public InstanceAttributeIndex attributeIndex() {
+    InstanceAttributeIndex index = attributeIndex;
+    if (index == null) {
+      index = new InstanceAttributeIndex(this, columns());
+      attributeIndex = index;
+    }
+    return index;
+  }
+
+  /** @return the indexes of all tasks on the given instance, in snapshot order */
+  public IntStream tasksOnInstance(int instance) {
+    return Arrays.stream(
+        instanceTasks, instanceTaskOffsets[instance], instanceTaskOffsets[instance + 1]);
+  }
+
+  public int taskCountOnInstance(int instance) {
+    return instanceTaskOffsets[instance + 1] - instanceTaskOffsets[instance];
+  }
+
+  public String taskArn(int task) {
+    return taskArns[task];
+  }
+
+  /** @return the index of the instance the task is on, or -1 if it isn't on an instance */
+  public int taskInstance(int task) {
+    return taskInstances[task];
+  }
+
+  public String taskInstanceArn(int task) {
+    return taskInstances[task] == NONE ? null : instanceArn(taskInstances[task]);
+  }
+
+  public int taskDefinitionIndex(int task) {
+    return taskDefinitions[task];
+  }
+
+  public String taskDefinitionArn(int task) {
+    return lookup(taskDefinitions[task]);
+  }
+
+  public int taskGroupIndex(int task) {
+    return taskGroups[task];
+  }
+
+  public String taskGroup(int task) {
+    return lookup(taskGroups[task]);
+  }
+
+  public String taskStartedBy(int task) {
+    return lookup(taskStartedBy[task]);
+  }
+
+  public TaskStatus taskStatus(int task) {
+    return decodedTaskStatuses[task];
+  }
+
+  /** Create a {@link ClusterSnapshot.Task} for the task with the given index. */
+  public ClusterSnapshot.Task task(int task) {
+    return ClusterSnapshot.Task.builder()
+        .arn(taskArn(task))
+        .containerInstanceArn(taskInstanceArn(task))
+        .taskDefinitionArn(taskDefinitionArn(task))
+        .status(taskStatus(task).toStatusString())
+        .group(taskGroup(task))
+        .startedBy(taskStartedBy(task))
+        .build();
+  }
+
+  /** Create a {@link ClusterSnapshot.ContainerInstance} for the instance with the given index. */
+  public ClusterSnapshot.ContainerInstance instance(int instance) {
+    return ClusterSnapshot.ContainerInstance.builder()
+        .arn(instanceArn(instance))
+        .status(instanceStatus(instance))
+        .attributes(instanceAttributes(instance))
+        .remainingCpu(unlessNone(instanceRemainingCpu[instance]))
+        .remainingMemory(unlessNone(instanceRemainingMemory[instance]))
+        .build();
+  }
+
+  private String lookup(int index) {
+    return index == NONE ? null : dictionary[index];
+  }
+
+  private static Integer unlessNone(int value) {
+    return value == NONE ? null : value;
+  }
+
+  private class TaskView extends AbstractList<ClusterSnapshot.Task> implements RandomAccess {
+    @Override
+    public ClusterSnapshot.Task get(int index) {
+      return task(index);
+    }
+
+    @Override
+    public int size() {
+      return getTaskCount();
+    }
+
+    CompactClusterSnapshot owner() {
+      return CompactClusterSnapshot.this;
+    }
+  }
+
+  private class InstanceView extends AbstractList<ClusterSnapshot.ContainerInstance>
+      implements RandomAccess {
+    @Override
+    public ClusterSnapshot.ContainerInstance get(int index) {
+      if (index >= instanceCount) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + instanceCount);
+      }
+      return instance(index);
+    }
+
+    @Override
+    public int size() {
+      return instanceCount;
+    }
+
+    CompactClusterSnapshot owner() {
+      return CompactClusterSnapshot.this;
+    }
+  }
+
+  /**
+   * The arrays that make up a snapshot.
+   *
+   * <p>Tasks reference their instance by instance index, and everything else by dictionary index.
+   */
+  @Value
+  static class Columns {
+    String clusterName;
+    String[] dictionary;
+    /** The number of entries at the start of instanceArns that are listed in the snapshot. */
+    int instanceCount;
+
+    int[] instanceArns;
+    /** Columns with an entry for every instance; null in snapshots written without them. */
+    int[] instanceStatuses;
+
+    int[] instanceRemainingCpu;
+    int[] instanceRemainingMemory;
+    int[] instanceAttributeOffsets;
+    int[] attributeNames;
+    int[] attributeValues;
+    String[] taskArns;
+    int[] taskInstances;
+    int[] taskDefinitions;
+    int[] taskGroups;
+    int[] taskStartedBy;
+    int[] taskStatuses;
+  }
+
+  /** Incrementally builds a {@link CompactClusterSnapshot}, interning strings as they're added. */
+  public static class Builder {
+    private String clusterName;
+
+    private final List<String> dictionary = new ArrayList<>();
+    private final Map<String, Integer> dictionaryIndex = new HashMap<>();
+
+    private final IntArray instanceArns = new IntArray();
+    private final IntArray instanceStatuses = new IntArray();
+    private final IntArray instanceRemainingCpu = new IntArray();
+    private final IntArray instanceRemainingMemory = new IntArray();
+    /** Attributes of the n-th added instance start at attributeNames[addedAttributeOffsets[n]] */
+    private final IntArray addedAttributeOffsets = new IntArray();
+
+    private final IntArray attributeNames = new IntArray();
+    private final IntArray attributeValues = new IntArray();
+
+    private final List<String> taskArns = new ArrayList<>();
+    private final IntArray taskInstanceArns = new IntArray();
+    private final IntArray taskDefinitions = new IntArray();
+    private final IntArray taskGroups = new IntArray();
+    private final IntArray taskStartedBy = new IntArray();
+    private final IntArray taskStatuses = new IntArray();
+
+    public Builder clusterName(String clusterName) {
+      this.clusterName = clusterName;
+      return this;
+    }
+
+    public Builder addInstance(String arn) {
+      return addInstance(arn, null, Collections.emptyMap(), null, null);
+    }
+
+    public Builder addInstance(
+        String arn,
+        String status,
+        Map<String, String> attributes,
+        Integer remainingCpu,
+        Integer remainingMemory) {
+      instanceArns.add(intern(arn));
+      instanceStatuses.add(intern(status));
+      instanceRemainingCpu.add(remainingCpu == null ? NONE : remainingCpu);
+      instanceRemainingMemory.add(remainingMemory == null ? NONE : remainingMemory);
+      addedAttributeOffsets.add(attributeNames.size());
+      if (attributes != null) {
+        for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+          if (attribute.getKey() != null && attribute.getValue() != null) {
+            attributeNames.add(intern(attribute.getKey()));
+            attributeValues.add(intern(attribute.getValue()));
+          }
+        }
+      }
+      return this;
+    }
+
+    public Builder addTask(
+        String arn,
+        String containerInstanceArn,
+        String taskDefinitionArn,
+        String status,
+        String group,
+        String startedBy) {
+      taskArns.add(arn);
+      taskInstanceArns.add(intern(containerInstanceArn));
+      taskDefinitions.add(intern(taskDefinitionArn));
+      taskGroups.add(intern(group));
+      taskStartedBy.add(intern(startedBy));
+      taskStatuses.add(intern(TaskStatus.of(status).toStatusString()));
+      return this;
+    }
+
+    private int intern(String value) {
+      if (value == null) {
+        return NONE;
+      }
+
+      Integer index = dictionaryIndex.get(value);
+      if (index == null) {
+        index = dictionary.size();
+        dictionary.add(value);
+        dictionaryIndex.put(value, index);
+      }
+      return index;
+    }
+
+    public CompactClusterSnapshot build() {
+      // Map the dictionary index of each instance ARN to its instance index, listed instances
+      // first, followed by instances that are only referenced by tasks:
+      int[] instanceByArn = new int[dictionary.size()];
+      Arrays.fill(instanceByArn, NONE);
+
+      // If an instance was added more than once, the first one wins:
+      IntArray instances = new IntArray();
+      IntArray instanceStatusColumn = new IntArray();
+      IntArray remainingCpu = new IntArray();
+      IntArray remainingMemory = new IntArray();
+      IntArray attributeOffsets = new IntArray();
+      IntArray names = new IntArray();
+      IntArray values = new IntArray();
+      for (int i = 0; i < instanceArns.size(); i++) {
+        int arn = instanceArns.get(i);
+        if (instanceByArn[arn] == NONE) {
+          instanceByArn[arn] = instances.size();
+          instances.add(arn);
+          instanceStatusColumn.add(instanceStatuses.get(i));
+          remainingCpu.add(instanceRemainingCpu.get(i));
+          remainingMemory.add(instanceRemainingMemory.get(i));
+          attributeOffsets.add(names.size());
+
+          int end =
+              i + 1 < addedAttributeOffsets.size()
+                  ? addedAttributeOffsets.get(i + 1)
+                  : attributeNames.size();
+          for (int a = addedAttributeOffsets.get(i); a < end; a++) {
+            names.add(attributeNames.get(a));
+            values.add(attributeValues.get(a));
+          }
+        }
+      }
+      int instanceCount = instances.size();
+
+      int[] taskInstances = new int[taskArns.size()];
+      for (int task = 0; task < taskInstances.length; task++) {
+        int arn = taskInstanceArns.get(task);
+        if (arn == NONE) {
+          taskInstances[task] = NONE;
+          continue;
+        }
+        if (instanceByArn[arn] == NONE) {
+          instanceByArn[arn] = instances.size();
+          instances.add(arn);
+          instanceStatusColumn.add(NONE);
+          remainingCpu.add(NONE);
+          remainingMemory.add(NONE);
+          attributeOffsets.add(names.size());
+        }
+        taskInstances[task] = instanceByArn[arn];
+      }
+      attributeOffsets.add(names.size());
+
+      return new CompactClusterSnapshot(
+          clusterName,
+          dictionary.toArray(new String[dictionary.size()]),
+          Collections.unmodifiableMap(dictionaryIndex),
+          instanceCount,
+          instances.toArray(),
+          instanceByArn,
+          instanceStatusColumn.toArray(),
+          remainingCpu.toArray(),
+          remainingMemory.toArray(),
+          attributeOffsets.toArray(),
+          names.toArray(),
+          values.toArray(),
+          taskArns.toArray(new String[taskArns.size()]),
+          taskInstances,
+          taskDefinitions.toArray(),
+          taskGroups.toArray(),
+          taskStartedBy.toArray(),
+          taskStatuses.toArray());
+    }
+  }
+
+  /** Minimal growable array of primitive ints. */
+  private static class IntArray {
+    private int[] values = new int[16];
+    private int size = 0;
+
+    void add(int value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = value;
+    }
+
+    int get(int index) {
+      return values[index];
+    }
+
+    int size() {
+      return size;
+    }
+
+    int[] toArray() {
+      return Arrays.copyOf(values, size);
+    }
+  }
+}
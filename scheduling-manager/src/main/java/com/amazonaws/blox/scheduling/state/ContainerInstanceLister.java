@@ -15,11 +15,10 @@
 package com.amazonaws.blox.scheduling.state;
 
 import com.amazonaws.blox.scheduling.state.ClusterSnapshot.ContainerInstance;
-import com.spotify.futures.CompletableFutures;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 import lombok.RequiredArgsConstructor;
 import software.amazon.awssdk.services.ecs.ECSAsyncClient;
 import software.amazon.awssdk.services.ecs.model.DescribeContainerInstancesRequest;
@@ -36,44 +35,49 @@ class ContainerInstanceLister {
   private final ECSAsyncClient ecs;
   private final ListContainerInstancesRequest.Builder listRequest;
   private final DescribeContainerInstancesRequest.Builder describeRequest;
+  private final int prefetchDepth;
 
   public ContainerInstanceLister(ECSAsyncClient ecs, String clusterName) {
+    this(ecs, clusterName, AsyncPaginator.DEFAULT_PREFETCH_DEPTH);
+  }
+
+  public ContainerInstanceLister(ECSAsyncClient ecs, String clusterName, int prefetchDepth) {
     this(
         ecs,
         ListContainerInstancesRequest.builder().cluster(clusterName),
-        DescribeContainerInstancesRequest.builder().cluster(clusterName));
+        DescribeContainerInstancesRequest.builder().cluster(clusterName),
+        prefetchDepth);
   }
 
-  protected ListContainerInstancesResponse list(String nextToken) {
-    CompletableFuture<ListContainerInstancesResponse> r =
-        ecs.listContainerInstances(listRequest.copy().nextToken(nextToken).build());
-    return r.join();
+  protected CompletableFuture<ListContainerInstancesResponse> list(String nextToken) {
+    return ecs.listContainerInstances(listRequest.copy().nextToken(nextToken).build());
   }
 
   public CompletableFuture<List<ContainerInstance>> describe() {
-    return new PaginatedResponseIterator<>(ListContainerInstancesResponse::nextToken, this::list)
-        .stream()
-        .map(ListContainerInstancesResponse::containerInstanceArns)
-        .filter(arns -> !arns.isEmpty())
-        .map(this::describeContainerInstances)
-        .collect(CompletableFutures.joinList())
-        .thenApply(this::extractContainerInstancesFromResponses);
+    return new AsyncPaginator<>(
+            ListContainerInstancesResponse::nextToken,
+            this::list,
+            this::describeContainerInstances,
+            prefetchDepth)
+        .collect();
   }
 
-  private CompletableFuture<DescribeContainerInstancesResponse> describeContainerInstances(
-      List<String> arns) {
-    return ecs.describeContainerInstances(describeRequest.copy().containerInstances(arns).build());
-  }
+  private CompletableFuture<List<ContainerInstance>> describeContainerInstances(
+      ListContainerInstancesResponse page) {
+    List<String> arns = page.containerInstanceArns();
+    if (arns.isEmpty()) {
+      return CompletableFuture.completedFuture(Collections.emptyList());
+    }
 
-  private List<ContainerInstance> extractContainerInstancesFromResponses(
-      List<DescribeContainerInstancesResponse> r) {
-    return r.stream()
-        .flatMap(this::extractContainerInstancesFromResponse)
-        .collect(Collectors.toList());
+    return ecs.describeContainerInstances(describeRequest.copy().containerInstances(arns).build())
+        .thenApply(this::extractContainerInstancesFromResponse);
   }
 
-  private Stream<ContainerInstance> extractContainerInstancesFromResponse(
+  private List<ContainerInstance> extractContainerInstancesFromResponse(
       DescribeContainerInstancesResponse r) {
-    return r.containerInstances().stream().map(ContainerInstance::from);
+    return r.containerInstances()
+        .stream()
+        .map(ContainerInstance::from)
+        .collect(Collectors.toList());
   }
 }
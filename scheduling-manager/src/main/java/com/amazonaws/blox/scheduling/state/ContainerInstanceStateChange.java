@@ -0,0 +1,78 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.state;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import java.util.List;
+import lombok.Data;
+
+/**
+ * The "detail" of an "ECS Container Instance State Change" CloudWatch event.
+ *
+ * <p>See http://docs.aws.amazon.com/AmazonECS/latest/developerguide/cloudwatch_event_stream.html
+ * for details.
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ContainerInstanceStateChange {
+  private String clusterArn;
+  private String containerInstanceArn;
+  private String status;
+  private List<Attribute> attributes;
+  private List<Resource> remainingResources;
+  private Long version;
+
+  public ClusterSnapshot.ContainerInstance toContainerInstance() {
+    ClusterSnapshot.ContainerInstance.ContainerInstanceBuilder builder =
+        ClusterSnapshot.ContainerInstance.builder()
+            .arn(containerInstanceArn)
+            .version(version)
+            .status(status);
+
+    if (attributes != null) {
+      for (Attribute a : attributes) {
+        if (a.getValue() != null) {
+          builder.attribute(a.getName(), a.getValue());
+        }
+      }
+    }
+    if (remainingResources != null) {
+      for (Resource r : remainingResources) {
+        if (ClusterSnapshot.ContainerInstance.CPU.equals(r.getName())) {
+          builder.remainingCpu(r.getIntegerValue());
+        } else if (ClusterSnapshot.ContainerInstance.MEMORY.equals(r.getName())) {
+          builder.remainingMemory(r.getIntegerValue());
+        }
+      }
+    }
+
+    return builder.build();
+  }
+
+  @Data
+  @JsonIgnoreProperties(ignoreUnknown = true)
+  public static class Attribute {
+    private String name;
+    private String value;
+  }
+
+  @Data
+  @JsonIgnoreProperties(ignoreUnknown = true)
+  public static class Resource {
+    private String name;
+    private String type;
+    private Integer integerValue;
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.state;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Cache of described ECS resources keyed by ARN, kept across warm invocations so that listing a
+ * cluster again only has to describe the resources that changed.
+ *
+ * <p>List APIs only return ARNs, so a cached resource is reused for as long as it keeps being
+ * listed, unless it was still in a transition when it was described (e.g. a task that was PENDING),
+ * or it was described longer ago than the max age. State change events seen by this container
+ * update cached resources in place; the max age bounds how long changes whose events were never
+ * seen can go unnoticed. Resources that haven't been listed for longer than the max age are
+ * evicted.
+ *
+ * <p>A max age of zero disables the cache, so that every listed resource is described.
+ *
+ * @param <T> The type of cached resource
+ */
+@RequiredArgsConstructor
+class DescribeCache<T> {
+  /** Function that extracts the ECS version of a resource, used to order updates. */
+  private final Function<T, Long> version;
+
+  private final Duration maxAge;
+  private final Clock clock;
+
+  private final ConcurrentMap<String, Entry<T>> entries = new ConcurrentHashMap<>();
+
+  public static <T> DescribeCache<T> disabled() {
+    return new DescribeCache<>(r -> null, Duration.ZERO, Clock.systemUTC());
+  }
+
+  public boolean isEnabled() {
+    return !maxAge.isZero();
+  }
+
+  /**
+   * Get the cached resource with the given ARN, if it can be used instead of describing it again.
+   *
+   * @param usable Whether the cached resource still matches the list request it was listed by
+   * @return the cached resource, or null if it has to be described
+   */
+  public T get(String arn, Predicate<T> usable) {
+    Entry<T> entry = entries.get(arn);
+    if (entry == null) {
+      return null;
+    }
+
+    Instant now = clock.instant();
+    entry.listedAt = now;
+    if (!entry.settled
+        || entry.updatedAt.plus(maxAge).isBefore(now)
+        || !usable.test(entry.resource)) {
+      return null;
+    }
+    return entry.resource;
+  }
+
+  /**
+   * Cache a resource that was just described.
+   *
+   * @param settled Whether the resource is in a steady state, and can be reused while it is listed
+   */
+  public void put(String arn, T resource, boolean settled) {
+    if (isEnabled()) {
+      entries.put(arn, new Entry<>(resource, settled, clock.instant()));
+    }
+  }
+
+  /**
+   * Update a cached resource from a state change event. Resources that aren't cached are not added,
+   * and cached resources are only replaced by newer versions.
+   */
+  public void update(String arn, T resource, boolean settled) {
+    entries.computeIfPresent(
+        arn,
+        (a, cached) -> {
+          Long current = version.apply(cached.resource);
+          Long updated = version.apply(resource);
+          if (current != null && (updated == null || updated <= current)) {
+            return cached;
+          }
+
+          Entry<T> entry = new Entry<>(resource, settled, clock.instant());
+          entry.listedAt = cached.listedAt;
+          return entry;
+        });
+  }
+
+  /** Evict every resource that hasn't been listed for longer than the max age. */
+  public void evictUnlisted() {
+    Instant evictBefore = clock.instant().minus(maxAge);
+    entries.values().removeIf(e -> e.listedAt.isBefore(evictBefore));
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  private static class Entry<T> {
+    private final T resource;
+    private final boolean settled;
+    private final Instant updatedAt;
+    private volatile Instant listedAt;
+
+    Entry(T resource, boolean settled, Instant updatedAt) {
+      this.resource = resource;
+      this.settled = settled;
+      this.updatedAt = updatedAt;
+      this.listedAt = updatedAt;
+    }
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.state;
+
+import com.amazonaws.blox.scheduling.reconciler.CloudWatchEvent;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Entry point for functions that receive ECS state change events as well as other requests.
+ *
+ * <p>ECS state change events are applied to the given {@link ECSState}, and all other requests are
+ * passed on to the given handler.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class ECSEventStreamHandler implements RequestStreamHandler {
+  static final String ECS_EVENT_SOURCE = "aws.ecs";
+  static final String TASK_STATE_CHANGE = "ECS Task State Change";
+  static final String CONTAINER_INSTANCE_STATE_CHANGE = "ECS Container Instance State Change";
+
+  private final ObjectMapper mapper;
+  private final RequestStreamHandler handler;
+  private final ECSState state;
+
+  @Override
+  public void handleRequest(InputStream input, OutputStream output, Context context)
+      throws IOException {
+    JsonNode request = mapper.readTree(input);
+
+    if (!ECS_EVENT_SOURCE.equals(request.path("source").asText())) {
+      handler.handleRequest(
+          new ByteArrayInputStream(mapper.writeValueAsBytes(request)), output, context);
+      return;
+    }
+
+    String detailType = request.path("detail-type").asText();
+    switch (detailType) {
+      case TASK_STATE_CHANGE:
+        CloudWatchEvent<TaskStateChange> taskEvent =
+            mapper.convertValue(request, new TypeReference<CloudWatchEvent<TaskStateChange>>() {});
+        state.onTaskStateChange(taskEvent.getDetail());
+        break;
+      case CONTAINER_INSTANCE_STATE_CHANGE:
+        CloudWatchEvent<ContainerInstanceStateChange> instanceEvent =
+            mapper.convertValue(
+                request, new TypeReference<CloudWatchEvent<ContainerInstanceStateChange>>() {});
+        state.onContainerInstanceStateChange(instanceEvent.getDetail());
+        break;
+      default:
+        log.warn("Ignoring unsupported ECS event type: {}", detailType);
+    }
+
+    mapper.writeValue(output, null);
+  }
+}
@@ -16,5 +16,25 @@ package com.amazonaws.blox.scheduling.state;
 
 public interface ECSState {
 
-  ClusterSnapshot snapshotState(String clusterName);
+  default ClusterSnapshot snapshotState(String clusterName) {
+    return snapshotState(clusterName, SnapshotFilter.ALL);
+  }
+
+  /**
+   * Snapshot only the tasks and container instances of the cluster that match the filter.
+   *
+   * @throws com.amazonaws.blox.jsonrpc.DeadlineExceededException if the {@link
+   *     com.amazonaws.blox.jsonrpc.Deadline#current() current deadline} expires before the snapshot
+   *     is complete
+   */
+  ClusterSnapshot snapshotState(String clusterName, SnapshotFilter filter);
+
+  /** Apply a task state change event to any state cached for the task's cluster. */
+  default void onTaskStateChange(TaskStateChange change) {}
+
+  /** Apply a container instance state change event to any state cached for its cluster. */
+  default void onContainerInstanceStateChange(ContainerInstanceStateChange change) {}
+
+  /** Discard any state cached for the cluster, so that the next snapshot is read from ECS. */
+  default void invalidate(String clusterName) {}
 }
@@ -14,26 +14,179 @@
  */
 package com.amazonaws.blox.scheduling.state;
 
+import com.amazonaws.blox.jsonrpc.Deadline;
+import com.spotify.futures.CompletableFutures;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
-import lombok.RequiredArgsConstructor;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 import software.amazon.awssdk.services.ecs.ECSAsyncClient;
+import software.amazon.awssdk.services.ecs.model.DescribeContainerInstancesRequest;
+import software.amazon.awssdk.services.ecs.model.DescribeTasksRequest;
 
+/**
+ * ECSState that lists and describes every task and container instance of a cluster from ECS.
+ *
+ * <p>Described tasks are cached by ARN across warm invocations, so that listing a cluster again
+ * only describes those that are new or still changing. Cached tasks are updated by state change
+ * events, and described again once they are older than the max cache age. See {@link
+ * DescribeCache}. The caches of clusters that are no longer listed are evicted after the max age.
+ *
+ * <p>Container instances are described every time, since their remaining resources change with
+ * every task that's started or stopped on them, also by other containers, and are used for
+ * placement.
+ */
 @Component
 @Profile("!test")
-@RequiredArgsConstructor
+@Slf4j
 public class ECSStateClient implements ECSState {
   private final ECSAsyncClient ecs;
 
+  /** How many list pages may be fetched ahead of the describe calls still in flight. */
+  private final int prefetchDepth;
+
+  /** How long a described resource may be reused; zero disables the describe cache. */
+  private final Duration describeCacheMaxAge;
+
+  private final Clock clock;
+
+  private final ConcurrentMap<String, DescribeCache<ClusterSnapshot.Task>> taskCaches =
+      new ConcurrentHashMap<>();
+
+  /** When the caches of idle clusters are evicted next; they're looked for once per max age. */
+  private volatile Instant nextEviction;
+
+  public ECSStateClient(ECSAsyncClient ecs) {
+    this(ecs, AsyncPaginator.DEFAULT_PREFETCH_DEPTH);
+  }
+
+  public ECSStateClient(ECSAsyncClient ecs, int prefetchDepth) {
+    this(ecs, prefetchDepth, Duration.ZERO, Clock.systemUTC());
+  }
+
+  @Autowired
+  public ECSStateClient(
+      ECSAsyncClient ecs,
+      @Value("${ecs_list_prefetch_depth:4}") int prefetchDepth,
+      @Value("${ecs_describe_cache_max_age_seconds:300}") long describeCacheMaxAgeSeconds) {
+    this(ecs, prefetchDepth, Duration.ofSeconds(describeCacheMaxAgeSeconds), Clock.systemUTC());
+  }
+
+  public ECSStateClient(
+      ECSAsyncClient ecs, int prefetchDepth, Duration describeCacheMaxAge, Clock clock) {
+    this.ecs = ecs;
+    this.prefetchDepth = prefetchDepth;
+    this.describeCacheMaxAge = describeCacheMaxAge;
+    this.clock = clock;
+    this.nextEviction = clock.instant().plus(describeCacheMaxAge);
+  }
+
   @Override
-  public ClusterSnapshot snapshotState(String clusterName) {
+  public ClusterSnapshot snapshotState(String clusterName, SnapshotFilter filter) {
+    evictIdleClusters();
+    DescribeCache<ClusterSnapshot.Task> taskCache = taskCache(clusterName);
+
+    // All listers return immediately, so tasks and instances are paginated concurrently:
     CompletableFuture<List<ClusterSnapshot.Task>> tasks =
-        new TaskLister(ecs, clusterName).describe();
+        filter
+            .listTasksRequests(clusterName)
+            .stream()
+            .map(
+                request ->
+                    new TaskLister(
+                            ecs,
+                            request,
+                            DescribeTasksRequest.builder().cluster(clusterName),
+                            prefetchDepth,
+                            taskCache)
+                        .describe())
+            .collect(CompletableFutures.joinList())
+            .thenApply(pages -> pages.stream().flatMap(List::stream).collect(Collectors.toList()));
     CompletableFuture<List<ClusterSnapshot.ContainerInstance>> instances =
-        new ContainerInstanceLister(ecs, clusterName).describe();
+        new ContainerInstanceLister(
+                ecs,
+                filter.listContainerInstancesRequest(clusterName),
+                DescribeContainerInstancesRequest.builder().cluster(clusterName),
+                prefetchDepth)
+            .describe();
+
+    // Give up on the snapshot once the caller's deadline expires, rather than running it out of
+    // time:
+    Deadline deadline = Deadline.current();
+    if (deadline != null) {
+      tasks = deadline.bound(tasks);
+      instances = deadline.bound(instances);
+    }
+
+    ClusterSnapshot snapshot = new ClusterSnapshot(clusterName, tasks.join(), instances.join());
+
+    taskCache.evictUnlisted();
+    log.debug("Cluster {} has {} cached tasks", clusterName, taskCache.size());
+
+    return snapshot;
+  }
+
+  @Override
+  public void onTaskStateChange(TaskStateChange change) {
+    DescribeCache<ClusterSnapshot.Task> cache =
+        taskCaches.get(CachingECSState.clusterName(change.getClusterArn()));
+    if (cache != null) {
+      cache.update(
+          change.getTaskArn(),
+          change.toTask(),
+          TaskLister.isSettled(change.getLastStatus(), change.getDesiredStatus()));
+    }
+  }
+
+  @Override
+  public void onContainerInstanceStateChange(ContainerInstanceStateChange change) {
+    // Container instances aren't cached.
+  }
+
+  /** Discard the described tasks of the cluster. */
+  @Override
+  public void invalidate(String clusterName) {
+    taskCaches.remove(clusterName);
+  }
+
+  /** Whether any described tasks of the given cluster are cached. */
+  boolean isCached(String clusterName) {
+    return taskCaches.containsKey(clusterName);
+  }
+
+  /** Evict the caches of clusters whose tasks all went unlisted for longer than the max age. */
+  private void evictIdleClusters() {
+    Instant now = clock.instant();
+    if (now.isBefore(nextEviction)) {
+      return;
+    }
+    nextEviction = now.plus(describeCacheMaxAge);
+
+    for (String clusterName : taskCaches.keySet()) {
+      taskCaches.computeIfPresent(
+          clusterName,
+          (name, cache) -> {
+            cache.evictUnlisted();
+            return cache.size() == 0 ? null : cache;
+          });
+    }
+  }
 
-    return new ClusterSnapshot(clusterName, tasks.join(), instances.join());
+  private DescribeCache<ClusterSnapshot.Task> taskCache(String clusterName) {
+    if (describeCacheMaxAge.isZero()) {
+      return DescribeCache.disabled();
+    }
+    return taskCaches.computeIfAbsent(
+        clusterName,
+        n -> new DescribeCache<>(ClusterSnapshot.Task::getVersion, describeCacheMaxAge, clock));
   }
 }
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.state;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * BlobStore that keeps every object in a file in a local directory, for running all functions on
+ * the same host.
+ */
+@RequiredArgsConstructor
+public class FileSystemBlobStore implements BlobStore {
+  private final Path directory;
+
+  @Override
+  public void put(String key, byte[] content) throws IOException {
+    Files.createDirectories(directory);
+
+    // Write to a temporary file first, so that readers never see a partially written object:
+    Path temporary = Files.createTempFile(directory, key, ".tmp");
+    try {
+      Files.write(temporary, content);
+      Files.move(temporary, path(key), StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  @Override
+  public byte[] get(String key) throws IOException {
+    try {
+      return Files.readAllBytes(path(key));
+    } catch (NoSuchFileException e) {
+      return null;
+    }
+  }
+
+  private Path path(String key) {
+    Path path = directory.resolve(key).normalize();
+    if (!path.getParent().equals(directory.normalize())) {
+      throw new IllegalArgumentException("Invalid key: " + key);
+    }
+    return path;
+  }
+}
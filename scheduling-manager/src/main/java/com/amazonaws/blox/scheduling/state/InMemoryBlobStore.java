@@ -0,0 +1,38 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.state;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** BlobStore that keeps all content in memory, for tests and local use. */
+public class InMemoryBlobStore implements BlobStore {
+  private final Map<String, byte[]> blobs = new ConcurrentHashMap<>();
+
+  @Override
+  public void put(String key, byte[] content) {
+    blobs.put(key, content.clone());
+  }
+
+  @Override
+  public byte[] get(String key) {
+    byte[] content = blobs.get(key);
+    return content == null ? null : content.clone();
+  }
+
+  public int size() {
+    return blobs.size();
+  }
+}
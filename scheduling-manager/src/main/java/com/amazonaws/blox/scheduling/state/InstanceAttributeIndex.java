@@ -0,0 +1,90 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.state;
+
+import com.amazonaws.blox.scheduling.state.CompactClusterSnapshot.Columns;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Inverted index from instance attributes to the listed instances of a {@link
+ * CompactClusterSnapshot} that have them.
+ *
+ * <p>Every attribute name/value pair maps to a bitset of instance indexes, so that the instances
+ * that have several attributes are found by intersecting bitsets, instead of scanning the
+ * attributes of every instance for every environment.
+ */
+public final class InstanceAttributeIndex {
+  private final CompactClusterSnapshot snapshot;
+  private final int instanceCount;
+
+  /** Instances by attribute, keyed by the dictionary indexes of the name and value. */
+  private final Map<Long, BitSet> instances = new HashMap<>();
+
+  InstanceAttributeIndex(CompactClusterSnapshot snapshot, Columns columns) {
+    this.snapshot = snapshot;
+    this.instanceCount = columns.getInstanceCount();
+
+    int[] offsets = columns.getInstanceAttributeOffsets();
+    for (int instance = 0; instance < instanceCount; instance++) {
+      for (int a = offsets[instance]; a < offsets[instance + 1]; a++) {
+        instances
+            .computeIfAbsent(
+                key(columns.getAttributeNames()[a], columns.getAttributeValues()[a]),
+                k -> new BitSet(instanceCount))
+            .set(instance);
+      }
+    }
+  }
+
+  /** @return a new bitset of all listed instances in the snapshot */
+  public BitSet allInstances() {
+    BitSet all = new BitSet(instanceCount);
+    all.set(0, instanceCount);
+    return all;
+  }
+
+  /**
+   * Remove every instance that doesn't have the given attribute from the given set of instances.
+   */
+  public void retainInstancesWith(BitSet instances, String name, String value) {
+    int n = snapshot.dictionaryIndex(name);
+    int v = snapshot.dictionaryIndex(value);
+    BitSet matching = n < 0 || v < 0 ? null : this.instances.get(key(n, v));
+
+    if (matching == null) {
+      instances.clear();
+    } else {
+      instances.and(matching);
+    }
+  }
+
+  /** @return a new bitset of the listed instances that have all of the given attributes */
+  public BitSet instancesWith(Map<String, String> attributes) {
+    BitSet matching = allInstances();
+    for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+      if (matching.isEmpty()) {
+        break;
+      }
+      retainInstancesWith(matching, attribute.getKey(), attribute.getValue());
+    }
+    return matching;
+  }
+
+  private static long key(int name, int value) {
+    return ((long) name << 32) | (value & 0xffffffffL);
+  }
+}
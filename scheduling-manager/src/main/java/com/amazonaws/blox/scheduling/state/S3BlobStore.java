@@ -0,0 +1,54 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.state;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.util.IOUtils;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import lombok.RequiredArgsConstructor;
+
+/** BlobStore that keeps every object in S3, under a common key prefix in a single bucket. */
+@RequiredArgsConstructor
+public class S3BlobStore implements BlobStore {
+  private static final int NOT_FOUND = 404;
+
+  private final AmazonS3 s3;
+  private final String bucketName;
+  private final String prefix;
+
+  @Override
+  public void put(String key, byte[] content) {
+    ObjectMetadata metadata = new ObjectMetadata();
+    metadata.setContentLength(content.length);
+
+    s3.putObject(bucketName, prefix + key, new ByteArrayInputStream(content), metadata);
+  }
+
+  @Override
+  public byte[] get(String key) throws IOException {
+    try (S3Object object = s3.getObject(bucketName, prefix + key)) {
+      return IOUtils.toByteArray(object.getObjectContent());
+    } catch (AmazonS3Exception e) {
+      if (e.getStatusCode() == NOT_FOUND) {
+        return null;
+      }
+      throw e;
+    }
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.state;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import lombok.Builder;
+import lombok.Singular;
+import lombok.Value;
+import software.amazon.awssdk.services.ecs.model.ListContainerInstancesRequest;
+import software.amazon.awssdk.services.ecs.model.ListTasksRequest;
+
+/**
+ * Restricts a {@link ClusterSnapshot} to the tasks and container instances that match the given ECS
+ * list filters, so that resources that aren't needed are never described.
+ *
+ * <p>Every field is optional, and a filter with no fields set (such as {@link #ALL}) matches every
+ * task that ECS lists by default and every registered container instance.
+ */
+@Value
+@Builder
+public class SnapshotFilter {
+  public static final SnapshotFilter ALL = SnapshotFilter.builder().build();
+
+  /** Only include tasks with this startedBy tag. */
+  private final String startedBy;
+
+  /** Only include tasks whose task definition is in one of these families. */
+  @Singular private final Set<String> families;
+
+  /** Only include tasks with this desired status, or tasks that should be RUNNING if unset. */
+  private final String desiredStatus;
+
+  /**
+   * Only include container instances that match this expression in the ECS cluster query language.
+   */
+  private final String containerInstanceFilter;
+
+  /**
+   * The ListTasks requests needed to list all matching tasks. ListTasks only accepts a single
+   * family, so there's one request for each family.
+   */
+  List<ListTasksRequest.Builder> listTasksRequests(String clusterName) {
+    ListTasksRequest.Builder request =
+        ListTasksRequest.builder()
+            .cluster(clusterName)
+            .startedBy(startedBy)
+            .desiredStatus(desiredStatus);
+
+    if (families.isEmpty()) {
+      return Collections.singletonList(request);
+    }
+    return families.stream().map(f -> request.copy().family(f)).collect(Collectors.toList());
+  }
+
+  ListContainerInstancesRequest.Builder listContainerInstancesRequest(String clusterName) {
+    return ListContainerInstancesRequest.builder()
+        .cluster(clusterName)
+        .filter(containerInstanceFilter);
+  }
+
+  /**
+   * Whether a task with the given (immutable) startedBy and task definition matches this filter.
+   * Desired status isn't checked, since it changes over the lifetime of a task.
+   */
+  public boolean matchesTask(String taskStartedBy, String taskDefinitionArn) {
+    if (startedBy != null && !startedBy.equals(taskStartedBy)) {
+      return false;
+    }
+    return families.isEmpty() || families.contains(family(taskDefinitionArn));
+  }
+
+  /** Whether a container instance can be checked against this filter without listing it. */
+  public boolean canMatchContainerInstances() {
+    return containerInstanceFilter == null;
+  }
+
+  /** Extract the family from an ARN of the form arn:aws:ecs:region:account:task-definition/f:1 */
+  private static String family(String taskDefinitionArn) {
+    if (taskDefinitionArn == null) {
+      return null;
+    }
+    int start = taskDefinitionArn.lastIndexOf('/') + 1;
+    int end = taskDefinitionArn.lastIndexOf(':');
+    return end > start
+        ? taskDefinitionArn.substring(start, end)
+        : taskDefinitionArn.substring(start);
+  }
+}
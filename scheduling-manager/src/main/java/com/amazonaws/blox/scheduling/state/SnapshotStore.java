@@ -0,0 +1,121 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.state;
+
+import com.amazonaws.blox.lambda.PayloadCodec;
+import com.amazonaws.blox.lambda.PayloadCodecs;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Content-addressed store for cluster snapshots.
+ *
+ * <p>The Manager publishes a snapshot once and passes its ID to every Scheduler invocation for the
+ * cluster, instead of sending a copy of the snapshot to each of them. The ID is the SHA-256 hash of
+ * the encoded snapshot, so it can be verified on fetch and identical snapshots share one object.
+ *
+ * <p>Recently published or fetched snapshots are cached by ID, so that a warm Scheduler instance
+ * fetches each snapshot from the {@link BlobStore} only once.
+ */
+@Slf4j
+public class SnapshotStore {
+  private static final JavaType SNAPSHOT_TYPE =
+      TypeFactory.defaultInstance().constructType(ClusterSnapshot.class);
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private final BlobStore blobs;
+  private final PayloadCodecs codecs;
+  private final PayloadCodec codec;
+  private final Map<String, ClusterSnapshot> cache;
+
+  /**
+   * @param codecs the formats that stored snapshots can be read in
+   * @param codec the format to store snapshots in
+   * @param cacheSize the maximum number of snapshots to keep in memory
+   */
+  public SnapshotStore(BlobStore blobs, PayloadCodecs codecs, PayloadCodec codec, int cacheSize) {
+    this.blobs = blobs;
+    this.codecs = codecs;
+    this.codec = codec;
+    this.cache =
+        Collections.synchronizedMap(
+            new LinkedHashMap<String, ClusterSnapshot>(cacheSize, 0.75f, true) {
+              @Override
+              protected boolean removeEldestEntry(Map.Entry<String, ClusterSnapshot> eldest) {
+                return size() > cacheSize;
+              }
+            });
+  }
+
+  /** Store the given snapshot, and return the ID to fetch it with. */
+  public String publish(ClusterSnapshot snapshot) throws IOException {
+    byte[] content = codecs.write(codec, snapshot, SNAPSHOT_TYPE);
+    String id = hash(content);
+
+    blobs.put(id, content);
+    cache.put(id, snapshot);
+
+    log.debug(
+        "Published snapshot of {} as {} ({} bytes)", snapshot.getClusterName(), id, content.length);
+    return id;
+  }
+
+  /**
+   * Fetch the snapshot with the given ID.
+   *
+   * @throws IllegalArgumentException if there's no snapshot with the given ID
+   */
+  public ClusterSnapshot fetch(String id) throws IOException {
+    ClusterSnapshot snapshot = cache.get(id);
+    if (snapshot != null) {
+      return snapshot;
+    }
+
+    byte[] content = blobs.get(id);
+    if (content == null) {
+      throw new IllegalArgumentException("No snapshot with ID " + id);
+    }
+    if (!hash(content).equals(id)) {
+      throw new IOException("Content of snapshot " + id + " doesn't match its ID");
+    }
+
+    snapshot = codecs.read(content, SNAPSHOT_TYPE);
+    cache.put(id, snapshot);
+    return snapshot;
+  }
+
+  private static String hash(byte[] content) {
+    byte[] digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256").digest(content);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is required to be supported by every JVM", e);
+    }
+
+    char[] hex = new char[digest.length * 2];
+    for (int i = 0; i < digest.length; i++) {
+      hex[i * 2] = HEX[(digest[i] >> 4) & 0xf];
+      hex[i * 2 + 1] = HEX[digest[i] & 0xf];
+    }
+    return new String(hex);
+  }
+}
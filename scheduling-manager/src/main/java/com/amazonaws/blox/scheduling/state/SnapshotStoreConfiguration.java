@@ -0,0 +1,70 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.state;
+
+import com.amazonaws.blox.lambda.PayloadCodecs;
+import com.amazonaws.blox.lambda.SmilePayloadCodec;
+import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import java.nio.file.Paths;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+
+/**
+ * Beans for the snapshot store shared by the Manager and Scheduler functions.
+ *
+ * <p>Snapshots are stored in S3. Storing them in a local directory instead only works if all
+ * functions run on the same host, such as in the {@link
+ * com.amazonaws.blox.scheduling.daemon.SchedulingDaemon}, so it has to be enabled explicitly with
+ * the {@value #LOCAL_SNAPSHOTS_PROFILE} profile.
+ */
+@Configuration
+public class SnapshotStoreConfiguration {
+  /** The profile that stores snapshots in a local directory if no bucket is configured. */
+  public static final String LOCAL_SNAPSHOTS_PROFILE = "local-snapshots";
+
+  // Wired in through environment variable in CloudFormation template
+  @Value("${snapshot_bucket_name:}")
+  String bucketName;
+
+  @Value("${snapshot_directory:${java.io.tmpdir}/blox-snapshots}")
+  String directory;
+
+  @Value("${snapshot_cache_size:16}")
+  int cacheSize;
+
+  @Bean
+  @Profile("!test")
+  public BlobStore snapshotBlobStore(Environment environment) {
+    if (bucketName.isEmpty()) {
+      if (!environment.acceptsProfiles(LOCAL_SNAPSHOTS_PROFILE)) {
+        throw new IllegalStateException(
+            "snapshot_bucket_name must be set unless the "
+                + LOCAL_SNAPSHOTS_PROFILE
+                + " profile is active");
+      }
+      return new FileSystemBlobStore(Paths.get(directory));
+    }
+
+    return new S3BlobStore(AmazonS3ClientBuilder.defaultClient(), bucketName, "snapshots/");
+  }
+
+  @Bean
+  public SnapshotStore snapshotStore(BlobStore blobs, PayloadCodecs codecs) {
+    return new SnapshotStore(blobs, codecs, codecs.get(SmilePayloadCodec.CONTENT_TYPE), cacheSize);
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.state;
+
+import com.amazonaws.blox.scheduling.state.repository.ClusterStateRepository;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * ECSState that reads the state of clusters from the {@link ClusterStateRepository} instead of
+ * listing it from ECS, and keeps the repository up to date with ECS state change events.
+ *
+ * <p>The repository only holds tasks that should be running, and can't evaluate container instance
+ * filter expressions, so snapshots with filters on either of those are still listed from ECS.
+ */
+@RequiredArgsConstructor
+public class StateService implements ECSState {
+  private static final String STOPPED = "STOPPED";
+  private static final String INACTIVE = "INACTIVE";
+
+  private final ClusterStateRepository repository;
+  private final ECSState ecs;
+
+  @Override
+  public ClusterSnapshot snapshotState(String clusterName, SnapshotFilter filter) {
+    if (filter.getDesiredStatus() != null || !filter.canMatchContainerInstances()) {
+      return ecs.snapshotState(clusterName, filter);
+    }
+
+    ClusterSnapshot state = repository.getClusterState(clusterName);
+    return new ClusterSnapshot(
+        clusterName,
+        state
+            .getTasks()
+            .stream()
+            .filter(t -> filter.matchesTask(t.getStartedBy(), t.getTaskDefinitionArn()))
+            .collect(Collectors.toList()),
+        state.getInstances());
+  }
+
+  @Override
+  public void onTaskStateChange(TaskStateChange change) {
+    String clusterName = clusterName(change.getClusterArn());
+    if (STOPPED.equals(change.getDesiredStatus())) {
+      repository.removeTask(clusterName, change.getTaskArn(), change.getVersion());
+    } else {
+      repository.putTask(clusterName, change.toTask());
+    }
+  }
+
+  @Override
+  public void onContainerInstanceStateChange(ContainerInstanceStateChange change) {
+    String clusterName = clusterName(change.getClusterArn());
+    if (INACTIVE.equals(change.getStatus())) {
+      repository.removeContainerInstance(
+          clusterName, change.getContainerInstanceArn(), change.getVersion());
+    } else {
+      repository.putContainerInstance(clusterName, change.toContainerInstance());
+    }
+  }
+
+  /** Extract the cluster name from an ARN of the form arn:aws:ecs:region:account:cluster/name */
+  private static String clusterName(String clusterArn) {
+    return clusterArn.substring(clusterArn.lastIndexOf('/') + 1);
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.state;
+
+import com.amazonaws.blox.scheduling.DynamoDBStores;
+import com.amazonaws.blox.scheduling.state.repository.ClusterStateRepository;
+import com.amazonaws.blox.scheduling.state.repository.ClusterStateRepositoryDDB;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig.TableNameOverride;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Beans for reading the state of clusters.
+ *
+ * <p>If a cluster state table is configured, cluster state is read from the table that the state
+ * service keeps up to date (see {@link StateService}). Otherwise it's listed from ECS and cached
+ * across warm invocations (see {@link CachingECSState}).
+ */
+@Configuration
+public class StateServiceConfiguration {
+  /**
+   * Just under the one-minute reconciliation tick, so that every tick lists each cluster from ECS
+   * again. Changes that were never seen as events, such as a stopped daemon task, are then still
+   * noticed on the next tick.
+   */
+  public static final long DEFAULT_MAX_STALENESS_SECONDS = 50;
+
+  // Wired in through environment variable in CloudFormation template
+  @Value("${cluster_state_table_name:}")
+  String clusterStateTableName;
+
+  /**
+   * How long a cached snapshot is used for before it's listed from ECS again. Raising it saves ECS
+   * calls on large clusters, at the cost of noticing unseen changes up to that much later.
+   */
+  @Value("${ecs_state_max_staleness_seconds:" + DEFAULT_MAX_STALENESS_SECONDS + "}")
+  long maxStalenessSeconds;
+
+  @Bean
+  @Primary
+  @Profile("!test")
+  public ECSState ecsState(ECSStateClient ecs) {
+    return ecsState(ecs, DynamoDBStores::client);
+  }
+
+  ECSState ecsState(ECSStateClient ecs, Supplier<AmazonDynamoDB> dynamoDB) {
+    if (clusterStateTableName.isEmpty()) {
+      return new CachingECSState(ecs, Clock.systemUTC(), Duration.ofSeconds(maxStalenessSeconds));
+    }
+
+    return new StateService(clusterStateRepository(dynamoDB.get(), clusterStateTableName), ecs);
+  }
+
+  /** The repository of cluster state in the given table. */
+  public static ClusterStateRepository clusterStateRepository(
+      AmazonDynamoDB dynamoDB, String tableName) {
+    DynamoDBMapperConfig config =
+        new DynamoDBMapperConfig.Builder()
+            .withTableNameOverride(TableNameOverride.withTableNameReplacement(tableName))
+            .withSaveBehavior(DynamoDBMapperConfig.SaveBehavior.UPDATE)
+            .withConsistentReads(DynamoDBMapperConfig.ConsistentReads.EVENTUAL)
+            .build();
+
+    return new ClusterStateRepositoryDDB(new DynamoDBMapper(dynamoDB, config));
+  }
+}
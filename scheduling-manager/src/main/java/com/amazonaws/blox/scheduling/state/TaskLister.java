@@ -15,15 +15,17 @@
 package com.amazonaws.blox.scheduling.state;
 
 import com.amazonaws.blox.scheduling.state.ClusterSnapshot.Task;
-import com.spotify.futures.CompletableFutures;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 import lombok.RequiredArgsConstructor;
 import software.amazon.awssdk.services.ecs.ECSAsyncClient;
 import software.amazon.awssdk.services.ecs.model.DescribeTasksRequest;
-import software.amazon.awssdk.services.ecs.model.DescribeTasksResponse;
 import software.amazon.awssdk.services.ecs.model.ListTasksRequest;
 import software.amazon.awssdk.services.ecs.model.ListTasksResponse;
 
@@ -33,37 +35,81 @@ class TaskLister {
   private final ECSAsyncClient ecs;
   private final ListTasksRequest.Builder listRequest;
   private final DescribeTasksRequest.Builder describeRequest;
+  private final int prefetchDepth;
+
+  /** Tasks described by earlier listings of the same cluster */
+  private final DescribeCache<Task> cache;
 
   public TaskLister(ECSAsyncClient ecs, String clusterName) {
+    this(ecs, clusterName, AsyncPaginator.DEFAULT_PREFETCH_DEPTH);
+  }
+
+  public TaskLister(ECSAsyncClient ecs, String clusterName, int prefetchDepth) {
     this(
         ecs,
         ListTasksRequest.builder().cluster(clusterName),
-        DescribeTasksRequest.builder().cluster(clusterName));
+        DescribeTasksRequest.builder().cluster(clusterName),
+        prefetchDepth,
+        DescribeCache.disabled());
   }
 
-  protected ListTasksResponse list(String nextToken) {
-    return ecs.listTasks(listRequest.copy().nextToken(nextToken).build()).join();
+  protected CompletableFuture<ListTasksResponse> list(String nextToken) {
+    return ecs.listTasks(listRequest.copy().nextToken(nextToken).build());
   }
 
   public CompletableFuture<List<Task>> describe() {
-    return new PaginatedResponseIterator<>(ListTasksResponse::nextToken, this::list)
-        .stream()
-        .map(ListTasksResponse::taskArns)
-        .filter(arns -> !arns.isEmpty())
-        .map(this::describeTasks)
-        .collect(CompletableFutures.joinList())
-        .thenApply(this::extractTasksFromResponses);
+    return new AsyncPaginator<>(
+            ListTasksResponse::nextToken, this::list, this::describeTasks, prefetchDepth)
+        .collect();
+  }
+
+  private CompletableFuture<List<Task>> describeTasks(ListTasksResponse page) {
+    List<String> arns = page.taskArns();
+    if (arns.isEmpty()) {
+      return CompletableFuture.completedFuture(Collections.emptyList());
+    }
+
+    // Only describe tasks that are new, changing, or no longer match what they were cached for:
+    String desiredStatus = desiredStatus();
+    Map<String, Task> tasks = new HashMap<>();
+    List<String> uncached = new ArrayList<>();
+    for (String arn : arns) {
+      Task task = cache.get(arn, t -> desiredStatus.equals(t.getStatus()));
+      if (task == null) {
+        uncached.add(arn);
+      } else {
+        tasks.put(arn, task);
+      }
+    }
+
+    if (uncached.isEmpty()) {
+      return CompletableFuture.completedFuture(inPageOrder(arns, tasks));
+    }
+
+    return ecs.describeTasks(describeRequest.copy().tasks(uncached).build())
+        .thenApply(
+            r -> {
+              for (software.amazon.awssdk.services.ecs.model.Task t : r.tasks()) {
+                Task task = Task.from(t);
+                cache.put(t.taskArn(), task, isSettled(t.lastStatus(), t.desiredStatus()));
+                tasks.put(t.taskArn(), task);
+              }
+              return inPageOrder(arns, tasks);
+            });
   }
 
-  private CompletableFuture<DescribeTasksResponse> describeTasks(List<String> arns) {
-    return ecs.describeTasks(describeRequest.copy().tasks(arns).build());
+  /** The desired status of the listed tasks; ECS lists RUNNING tasks if none is given. */
+  private String desiredStatus() {
+    String desiredStatus = listRequest.copy().build().desiredStatus();
+    return desiredStatus == null ? TaskStatus.RUNNING.name() : desiredStatus;
   }
 
-  private List<Task> extractTasksFromResponses(List<DescribeTasksResponse> r) {
-    return r.stream().flatMap(this::extractTasksFromResponse).collect(Collectors.toList());
+  /** Whether a task with the given status has finished transitioning to its desired status. */
+  static boolean isSettled(String lastStatus, String desiredStatus) {
+    return lastStatus != null && lastStatus.equals(desiredStatus);
   }
 
-  private Stream<Task> extractTasksFromResponse(DescribeTasksResponse r) {
-    return r.tasks().stream().map(Task::from);
+  private static List<Task> inPageOrder(List<String> arns, Map<String, Task> tasks) {
+    return arns.stream().map(tasks::get).filter(Objects::nonNull).collect(Collectors.toList());
   }
 }
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.state;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+/**
+ * The "detail" of an "ECS Task State Change" CloudWatch event.
+ *
+ * <p>See http://docs.aws.amazon.com/AmazonECS/latest/developerguide/cloudwatch_event_stream.html
+ * for details.
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class TaskStateChange {
+  private String clusterArn;
+  private String taskArn;
+  private String containerInstanceArn;
+  private String taskDefinitionArn;
+  private String desiredStatus;
+  private String lastStatus;
+  private String group;
+  private String startedBy;
+  private Long version;
+
+  public ClusterSnapshot.Task toTask() {
+    return ClusterSnapshot.Task.builder()
+        .arn(taskArn)
+        .containerInstanceArn(containerInstanceArn)
+        .taskDefinitionArn(taskDefinitionArn)
+        .status(desiredStatus)
+        .group(group)
+        .startedBy(startedBy)
+        .version(version)
+        .build();
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.state;
+
+/** The desired status of an ECS task, as stored in a {@link CompactClusterSnapshot}. */
+public enum TaskStatus {
+  PENDING,
+  RUNNING,
+  STOPPED,
+  /** The status was missing or isn't one known to ECS. */
+  UNKNOWN;
+
+  private static final TaskStatus[] VALUES = values();
+
+  public static TaskStatus of(String status) {
+    if (status != null) {
+      for (TaskStatus s : VALUES) {
+        if (s != UNKNOWN && s.name().equals(status)) {
+          return s;
+        }
+      }
+    }
+    return UNKNOWN;
+  }
+
+  /** The ECS name of this status, or null for {@link #UNKNOWN}. */
+  public String toStatusString() {
+    return this == UNKNOWN ? null : name();
+  }
+
+  /** Whether a task with this status is, or is about to be, running. */
+  public boolean isHealthy() {
+    return this == PENDING || this == RUNNING;
+  }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.state.repository;
+
+import com.amazonaws.blox.scheduling.state.ClusterSnapshot;
+
+/**
+ * Persistent copy of the tasks and container instances of ECS clusters.
+ *
+ * <p>Every update carries the ECS version of the resource it changes, and updates that are older
+ * than the stored state of the resource are dropped, so that updates can be applied in any order.
+ */
+public interface ClusterStateRepository {
+
+  /** The current tasks and container instances of the cluster. */
+  ClusterSnapshot getClusterState(String clusterName);
+
+  /** @return false if the stored task is newer than the given one, and was left unchanged */
+  boolean putTask(String clusterName, ClusterSnapshot.Task task);
+
+  /** @return false if the stored task is newer than the given version, and was left unchanged */
+  boolean removeTask(String clusterName, String taskArn, Long version);
+
+  /** @return false if the stored instance is newer than the given one, and was left unchanged */
+  boolean putContainerInstance(String clusterName, ClusterSnapshot.ContainerInstance instance);
+
+  /**
+   * @return false if the stored instance is newer than the given version, and was left unchanged
+   */
+  boolean removeContainerInstance(String clusterName, String containerInstanceArn, Long version);
+
+  /**
+   * Make the stored state of the cluster match a snapshot listed from ECS, for resources that
+   * weren't changed by a newer update in the meantime.
+   */
+  void reconcile(ClusterSnapshot listed);
+}
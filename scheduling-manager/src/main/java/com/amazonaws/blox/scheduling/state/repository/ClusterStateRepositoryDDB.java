@@ -0,0 +1,213 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.state.repository;
+
+import static com.amazonaws.blox.scheduling.state.repository.model.ClusterResourceDDBRecord.RESOURCE_ID_RANGE_KEY;
+import static com.amazonaws.blox.scheduling.state.repository.model.ClusterResourceDDBRecord.VERSION;
+
+import com.amazonaws.blox.scheduling.state.ClusterSnapshot;
+import com.amazonaws.blox.scheduling.state.repository.model.ClusterResourceDDBRecord;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBQueryExpression;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBSaveExpression;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ComparisonOperator;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.ConditionalOperator;
+import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+public class ClusterStateRepositoryDDB implements ClusterStateRepository {
+  /** How long removed resources are kept, to drop any events for them that arrive late. */
+  static final Duration TOMBSTONE_RETENTION = Duration.ofDays(1);
+
+  @NonNull private final DynamoDBMapper dynamoDBMapper;
+  @NonNull private final Clock clock;
+
+  public ClusterStateRepositoryDDB(final DynamoDBMapper dynamoDBMapper) {
+    this(dynamoDBMapper, Clock.systemUTC());
+  }
+
+  public ClusterStateRepositoryDDB(final DynamoDBMapper dynamoDBMapper, final Clock clock) {
+    this.dynamoDBMapper = dynamoDBMapper;
+    this.clock = clock;
+  }
+
+  @Override
+  public ClusterSnapshot getClusterState(@NonNull final String clusterName) {
+    List<ClusterSnapshot.Task> tasks = new ArrayList<>();
+    List<ClusterSnapshot.ContainerInstance> instances = new ArrayList<>();
+
+    for (ClusterResourceDDBRecord record : query(clusterName)) {
+      if (!record.isLive()) {
+        continue;
+      }
+      if (record.isTask()) {
+        tasks.add(record.toTask());
+      } else if (record.isContainerInstance()) {
+        instances.add(record.toContainerInstance());
+      }
+    }
+
+    return new ClusterSnapshot(clusterName, tasks, instances);
+  }
+
+  @Override
+  public boolean putTask(
+      @NonNull final String clusterName, @NonNull final ClusterSnapshot.Task task) {
+    return save(ClusterResourceDDBRecord.fromTask(clusterName, task), ComparisonOperator.LT);
+  }
+
+  @Override
+  public boolean removeTask(
+      @NonNull final String clusterName, @NonNull final String taskArn, final Long version) {
+    return save(
+        tombstone(clusterName, ClusterResourceDDBRecord.taskId(taskArn), version),
+        ComparisonOperator.LT);
+  }
+
+  @Override
+  public boolean putContainerInstance(
+      @NonNull final String clusterName,
+      @NonNull final ClusterSnapshot.ContainerInstance instance) {
+    return save(
+        ClusterResourceDDBRecord.fromContainerInstance(clusterName, instance),
+        ComparisonOperator.LT);
+  }
+
+  @Override
+  public boolean removeContainerInstance(
+      @NonNull final String clusterName,
+      @NonNull final String containerInstanceArn,
+      final Long version) {
+    return save(
+        tombstone(
+            clusterName,
+            ClusterResourceDDBRecord.containerInstanceId(containerInstanceArn),
+            version),
+        ComparisonOperator.LT);
+  }
+
+  @Override
+  public void reconcile(@NonNull final ClusterSnapshot listed) {
+    String clusterName = listed.getClusterName();
+    Map<String, ClusterResourceDDBRecord> stored =
+        query(clusterName)
+            .stream()
+            .collect(
+                Collectors.toMap(ClusterResourceDDBRecord::getResourceId, Function.identity()));
+
+    List<ClusterResourceDDBRecord> current = new ArrayList<>();
+    listed.getTasks().forEach(t -> current.add(ClusterResourceDDBRecord.fromTask(clusterName, t)));
+    listed
+        .getInstances()
+        .forEach(i -> current.add(ClusterResourceDDBRecord.fromContainerInstance(clusterName, i)));
+
+    int updated = 0;
+    int removed = 0;
+
+    // A listed resource is at least as new as the stored one, unless an event updated it since:
+    Set<String> listedIds = new HashSet<>();
+    for (ClusterResourceDDBRecord record : current) {
+      listedIds.add(record.getResourceId());
+      if (!record.equals(stored.get(record.getResourceId()))
+          && save(record, ComparisonOperator.LE)) {
+        updated++;
+      }
+    }
+
+    // A stored resource that wasn't listed was removed, unless an event updated it since:
+    for (ClusterResourceDDBRecord record : stored.values()) {
+      if (record.isLive()
+          && !listedIds.contains(record.getResourceId())
+          && save(
+              tombstone(clusterName, record.getResourceId(), record.getVersion()),
+              ComparisonOperator.LE)) {
+        removed++;
+      }
+    }
+
+    log.debug(
+        "Reconciled cluster {}: {} resources updated, {} removed", clusterName, updated, removed);
+  }
+
+  private List<ClusterResourceDDBRecord> query(final String clusterName) {
+    // The query result is paginated lazily, so copy it to read all pages up front:
+    return new ArrayList<>(
+        dynamoDBMapper.query(
+            ClusterResourceDDBRecord.class,
+            new DynamoDBQueryExpression<ClusterResourceDDBRecord>()
+                .withHashKeyValues(ClusterResourceDDBRecord.withHashKey(clusterName))));
+  }
+
+  private ClusterResourceDDBRecord tombstone(
+      final String clusterName, final String resourceId, final Long version) {
+    return ClusterResourceDDBRecord.tombstone(
+        clusterName,
+        resourceId,
+        version,
+        clock.instant().plus(TOMBSTONE_RETENTION).getEpochSecond());
+  }
+
+  /**
+   * Save the record, unless the stored record has a version that doesn't compare to the record's
+   * version with the given operator.
+   *
+   * @return false if the record wasn't saved because the stored record is newer
+   */
+  private boolean save(
+      final ClusterResourceDDBRecord record, final ComparisonOperator versionComparison) {
+    if (record.getVersion() == null) {
+      // Without a version, there's no way to tell whether the stored record is newer:
+      dynamoDBMapper.save(record);
+      return true;
+    }
+
+    Map<String, ExpectedAttributeValue> expected = new HashMap<>();
+    expected.put(
+        VERSION,
+        new ExpectedAttributeValue()
+            .withComparisonOperator(versionComparison)
+            .withAttributeValueList(new AttributeValue().withN(record.getVersion().toString())));
+    expected.put(RESOURCE_ID_RANGE_KEY, new ExpectedAttributeValue(false));
+
+    try {
+      dynamoDBMapper.save(
+          record,
+          new DynamoDBSaveExpression()
+              .withExpected(expected)
+              .withConditionalOperator(ConditionalOperator.OR));
+      return true;
+    } catch (final ConditionalCheckFailedException e) {
+      log.debug(
+          "Not saving {} at version {}, the stored record is newer",
+          record.getResourceId(),
+          record.getVersion());
+      return false;
+    }
+  }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.state.repository.model;
+
+import com.amazonaws.blox.scheduling.state.ClusterSnapshot;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBHashKey;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBIgnore;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBRangeKey;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTable;
+import java.util.Collections;
+import java.util.Map;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A task or container instance in a cluster. Both are stored in the same table under the cluster
+ * name, so that the whole cluster can be read with a single query, and are told apart by the prefix
+ * of their resource ID.
+ */
+@DynamoDBTable(tableName = "ClusterState")
+@Data
+@Builder
+// Required for builder because an empty constructor exists
+@AllArgsConstructor
+// Required for dynamodbmapper
+@NoArgsConstructor
+public class ClusterResourceDDBRecord {
+
+  public static final String CLUSTER_NAME_HASH_KEY = "clusterName";
+  public static final String RESOURCE_ID_RANGE_KEY = "resourceId";
+  public static final String VERSION = "version";
+
+  private static final String TASK_PREFIX = "task/";
+  private static final String INSTANCE_PREFIX = "instance/";
+
+  public static ClusterResourceDDBRecord withHashKey(final String clusterName) {
+    return ClusterResourceDDBRecord.builder().clusterName(clusterName).build();
+  }
+
+  public static ClusterResourceDDBRecord fromTask(
+      final String clusterName, final ClusterSnapshot.Task task) {
+    return ClusterResourceDDBRecord.builder()
+        .clusterName(clusterName)
+        .resourceId(TASK_PREFIX + task.getArn())
+        .version(task.getVersion())
+        .containerInstanceArn(task.getContainerInstanceArn())
+        .taskDefinitionArn(task.getTaskDefinitionArn())
+        .status(task.getStatus())
+        .group(task.getGroup())
+        .startedBy(task.getStartedBy())
+        .build();
+  }
+
+  public static ClusterResourceDDBRecord fromContainerInstance(
+      final String clusterName, final ClusterSnapshot.ContainerInstance instance) {
+    return ClusterResourceDDBRecord.builder()
+        .clusterName(clusterName)
+        .resourceId(INSTANCE_PREFIX + instance.getArn())
+        .version(instance.getVersion())
+        .status(instance.getStatus())
+        // DynamoDBMapper can't tell an empty map from a missing one, so always store null:
+        .attributes(instance.getAttributes().isEmpty() ? null : instance.getAttributes())
+        .remainingCpu(instance.getRemainingCpu())
+        .remainingMemory(instance.getRemainingMemory())
+        .build();
+  }
+
+  /**
+   * A record of a resource that was removed from the cluster at the given version. It's kept until
+   * the given expiry time, so that older events for the resource can't add it back.
+   */
+  public static ClusterResourceDDBRecord tombstone(
+      final String clusterName,
+      final String resourceId,
+      final Long version,
+      final long expiresAtEpochSecond) {
+    return ClusterResourceDDBRecord.builder()
+        .clusterName(clusterName)
+        .resourceId(resourceId)
+        .version(version)
+        .removed(true)
+        .expiresAt(expiresAtEpochSecond)
+        .build();
+  }
+
+  public static String taskId(final String taskArn) {
+    return TASK_PREFIX + taskArn;
+  }
+
+  public static String containerInstanceId(final String containerInstanceArn) {
+    return INSTANCE_PREFIX + containerInstanceArn;
+  }
+
+  @DynamoDBHashKey(attributeName = CLUSTER_NAME_HASH_KEY)
+  private String clusterName;
+
+  @DynamoDBRangeKey(attributeName = RESOURCE_ID_RANGE_KEY)
+  private String resourceId;
+
+  /** The ECS version of the resource's state, used to drop stale updates. */
+  private Long version;
+
+  private Boolean removed;
+
+  /** When a removed resource can be deleted by DynamoDB's TTL, in epoch seconds. */
+  private Long expiresAt;
+
+  /** The desired status of a task, or the status of a container instance. */
+  private String status;
+
+  // Only set for tasks:
+  private String containerInstanceArn;
+  private String taskDefinitionArn;
+  private String group;
+  private String startedBy;
+
+  // Only set for container instances:
+  private Map<String, String> attributes;
+  private Integer remainingCpu;
+  private Integer remainingMemory;
+
+  @DynamoDBIgnore
+  public boolean isTask() {
+    return resourceId.startsWith(TASK_PREFIX);
+  }
+
+  @DynamoDBIgnore
+  public boolean isContainerInstance() {
+    return resourceId.startsWith(INSTANCE_PREFIX);
+  }
+
+  @DynamoDBIgnore
+  public boolean isLive() {
+    return !Boolean.TRUE.equals(removed);
+  }
+
+  public ClusterSnapshot.Task toTask() {
+    return ClusterSnapshot.Task.builder()
+        .arn(resourceId.substring(TASK_PREFIX.length()))
+        .containerInstanceArn(containerInstanceArn)
+        .taskDefinitionArn(taskDefinitionArn)
+        .status(status)
+        .group(group)
+        .startedBy(startedBy)
+        .version(version)
+        .build();
+  }
+
+  public ClusterSnapshot.ContainerInstance toContainerInstance() {
+    return ClusterSnapshot.ContainerInstance.builder()
+        .arn(resourceId.substring(INSTANCE_PREFIX.length()))
+        .version(version)
+        .status(status)
+        .attributes(attributes == null ? Collections.emptyMap() : attributes)
+        .remainingCpu(remainingCpu)
+        .remainingMemory(remainingMemory)
+        .build();
+  }
+}
@@ -15,16 +15,23 @@
 package com.amazonaws.blox.lambda;
 
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.amazonaws.blox.jsonrpc.Deadline;
+import com.amazonaws.blox.jsonrpc.DeadlineExceededException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
 import java.nio.ByteBuffer;
+import java.time.Duration;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import lombok.Data;
 import org.junit.Before;
 import org.junit.Test;
@@ -99,6 +106,34 @@ public class AwsSdkV2LambdaFunctionTest {
         requestArgument.getValue().invocationType(), equalTo(InvocationType.Event.toString()));
   }
 
+  @Test
+  public void doesNotInvokeFunctionAfterDeadline() {
+    CompletableFuture<TestOutput> output;
+    try (Deadline.Scope scope = Deadline.after(Duration.ZERO).enter()) {
+      output = function.callAsync(new TestInput("test"));
+    }
+
+    assertThat(output.isCompletedExceptionally(), equalTo(true));
+    verify(client, never()).invoke(any());
+  }
+
+  @Test
+  public void failsCallThatIsPendingAtDeadline() {
+    when(client.invoke(any())).thenReturn(new CompletableFuture<>());
+
+    CompletableFuture<TestOutput> output;
+    try (Deadline.Scope scope = Deadline.after(Duration.ofMillis(50)).enter()) {
+      output = function.callAsync(new TestInput("test"));
+    }
+
+    try {
+      output.join();
+      fail("Expected the call to fail at the deadline");
+    } catch (CompletionException e) {
+      assertThat(e.getCause(), instanceOf(DeadlineExceededException.class));
+    }
+  }
+
   @Data
   static class TestInput {
 
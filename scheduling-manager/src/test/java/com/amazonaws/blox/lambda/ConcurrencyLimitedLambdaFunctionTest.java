@@ -0,0 +1,236 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.lambda;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import com.amazonaws.blox.jsonrpc.Deadline;
+import com.amazonaws.blox.jsonrpc.DeadlineExceededException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import software.amazon.awssdk.AmazonServiceException;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ConcurrencyLimitedLambdaFunctionTest {
+  @Mock private ScheduledExecutorService retries;
+
+  private final PendingLambdaFunction function = new PendingLambdaFunction();
+
+  @Test
+  public void queuesInvocationsBeyondLimit() {
+    ConcurrencyLimitedLambdaFunction<String, String> limited = limited(2, 5);
+
+    CompletableFuture<String> first = limited.callAsync("a");
+    limited.callAsync("b");
+    CompletableFuture<String> third = limited.callAsync("c");
+
+    assertThat(function.inputs).containsExactly("a", "b");
+    assertThat(limited.metrics().getQueued()).isEqualTo(1);
+
+    function.pending.get(0).complete("A");
+
+    assertThat(first).isCompletedWithValue("A");
+    assertThat(function.inputs).containsExactly("a", "b", "c");
+    assertThat(third).isNotDone();
+    assertThat(limited.metrics().getQueuedInvocations()).isEqualTo(1);
+  }
+
+  @Test
+  public void growsLimitWhileInvocationsSucceed() {
+    ConcurrencyLimitedLambdaFunction<String, String> limited = limited(2, 5);
+
+    limited.callAsync("a");
+    function.pending.get(0).complete("A");
+
+    assertThat(limited.metrics().getLimit()).isEqualTo(2.5);
+  }
+
+  @Test
+  public void retriesThrottledInvocationsAndHalvesLimit() {
+    ConcurrencyLimitedLambdaFunction<String, String> limited = limited(4, 5);
+
+    CompletableFuture<String> result = limited.callAsync("a");
+    function.pending.get(0).completeExceptionally(throttled());
+
+    assertThat(result).isNotDone();
+    assertThat(limited.metrics().getLimit()).isEqualTo(2);
+
+    retryScheduled().run();
+    function.pending.get(1).complete("A");
+
+    assertThat(function.inputs).containsExactly("a", "a");
+    assertThat(result).isCompletedWithValue("A");
+    assertThat(limited.metrics().getRetries()).isEqualTo(1);
+  }
+
+  @Test
+  public void failsInvocationAfterMaxAttempts() {
+    ConcurrencyLimitedLambdaFunction<String, String> limited = limited(4, 2);
+
+    CompletableFuture<String> result = limited.callAsync("a");
+    function.pending.get(0).completeExceptionally(throttled());
+    retryScheduled().run();
+    function.pending.get(1).completeExceptionally(throttled());
+
+    assertThat(result).isCompletedExceptionally();
+    assertThat(limited.metrics().getThrottles()).isEqualTo(2);
+    assertThat(limited.metrics().getInFlight()).isEqualTo(0);
+  }
+
+  @Test
+  public void doesNotRetryOtherErrors() {
+    ConcurrencyLimitedLambdaFunction<String, String> limited = limited(4, 5);
+
+    CompletableFuture<String> result = limited.callAsync("a");
+    function.pending.get(0).completeExceptionally(new AmazonServiceException("Function not found"));
+
+    assertThat(result).isCompletedExceptionally();
+    assertThat(limited.metrics().getLimit()).isEqualTo(4);
+    verify(retries, never()).schedule(any(Runnable.class), anyLong(), any());
+  }
+
+  @Test
+  public void reducesLimitOnlyOnceForInvocationsStartedBeforeDecrease() {
+    ConcurrencyLimitedLambdaFunction<String, String> limited = limited(4, 5);
+
+    limited.callAsync("a");
+    limited.callAsync("b");
+    function.pending.get(0).completeExceptionally(throttled());
+    function.pending.get(1).completeExceptionally(throttled());
+
+    assertThat(limited.metrics().getThrottles()).isEqualTo(2);
+    assertThat(limited.metrics().getLimit()).isEqualTo(2);
+  }
+
+  @Test
+  public void failsTriggersIndependently() {
+    ConcurrencyLimitedLambdaFunction<String, String> limited = limited(4, 1);
+
+    CompletableFuture<Void> first = limited.triggerAsync("a");
+    CompletableFuture<Void> second = limited.triggerAsync("b");
+    function.triggers.get(0).completeExceptionally(throttled());
+    function.triggers.get(1).complete(null);
+
+    assertThat(first).isCompletedExceptionally();
+    assertThat(second).isCompleted();
+  }
+
+  @Test
+  public void failsQueuedInvocationsWhoseDeadlineExpired() {
+    ConcurrencyLimitedLambdaFunction<String, String> limited = limited(1, 5);
+
+    limited.callAsync("a");
+    CompletableFuture<String> expired;
+    try (Deadline.Scope scope = Deadline.after(Duration.ZERO).enter()) {
+      expired = limited.callAsync("b");
+    }
+    function.pending.get(0).complete("A");
+
+    assertThat(expired).isCompletedExceptionally();
+    assertThatThrownBy(expired::join).hasCauseInstanceOf(DeadlineExceededException.class);
+    assertThat(function.inputs).containsExactly("a");
+    assertThat(limited.metrics().getInFlight()).isEqualTo(0);
+  }
+
+  @Test
+  public void skipsManyExpiredInvocationsWithoutRecursing() {
+    ConcurrencyLimitedLambdaFunction<String, String> limited = limited(1, 5);
+
+    limited.callAsync("a");
+    List<CompletableFuture<String>> expired = new ArrayList<>();
+    try (Deadline.Scope scope = Deadline.after(Duration.ZERO).enter()) {
+      for (int i = 0; i < 100_000; i++) {
+        expired.add(limited.callAsync("expired"));
+      }
+    }
+    CompletableFuture<String> last = limited.callAsync("b");
+    function.pending.get(0).complete("A");
+
+    assertThat(expired).allMatch(CompletableFuture::isCompletedExceptionally);
+    assertThat(function.inputs).containsExactly("a", "b");
+    assertThat(last).isNotDone();
+    assertThat(limited.metrics().getQueued()).isEqualTo(0);
+  }
+
+  private ConcurrencyLimitedLambdaFunction<String, String> limited(
+      double initialLimit, int maxAttempts) {
+    // Each invocation is started one tick after the previous one:
+    long[] now = {0};
+    return new ConcurrencyLimitedLambdaFunction<>(
+        "function",
+        function,
+        initialLimit,
+        1,
+        10,
+        maxAttempts,
+        Duration.ofMillis(100),
+        Duration.ofSeconds(1),
+        retries,
+        () -> now[0]++);
+  }
+
+  private Runnable retryScheduled() {
+    ArgumentCaptor<Runnable> retry = ArgumentCaptor.forClass(Runnable.class);
+    ArgumentCaptor<Long> delay = ArgumentCaptor.forClass(Long.class);
+    verify(retries).schedule(retry.capture(), delay.capture(), eq(MILLISECONDS));
+    assertThat(delay.getValue()).isBetween(0L, 100L);
+    return retry.getValue();
+  }
+
+  private static AmazonServiceException throttled() {
+    AmazonServiceException throttled = new AmazonServiceException("Rate exceeded");
+    throttled.setErrorCode("TooManyRequestsException");
+    throttled.setStatusCode(429);
+    return throttled;
+  }
+
+  /** Records every invocation, and leaves it to the test to complete. */
+  private static class PendingLambdaFunction implements LambdaFunction<String, String> {
+    private final List<String> inputs = new ArrayList<>();
+    private final List<CompletableFuture<String>> pending = new ArrayList<>();
+    private final List<CompletableFuture<Void>> triggers = new ArrayList<>();
+
+    @Override
+    public CompletableFuture<String> callAsync(String input) {
+      inputs.add(input);
+      CompletableFuture<String> result = new CompletableFuture<>();
+      pending.add(result);
+      return result;
+    }
+
+    @Override
+    public CompletableFuture<Void> triggerAsync(String input) {
+      inputs.add(input);
+      CompletableFuture<Void> result = new CompletableFuture<>();
+      triggers.add(result);
+      return result;
+    }
+  }
+}
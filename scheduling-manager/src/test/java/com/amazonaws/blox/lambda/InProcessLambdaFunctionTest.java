@@ -0,0 +1,75 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.lambda;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Test;
+
+public class InProcessLambdaFunctionTest {
+  private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+  @After
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void returnsOutputOfHandler() {
+    LambdaFunction<String, Integer> function =
+        new InProcessLambdaFunction<>("length", (input, context) -> input.length(), executor);
+
+    assertThat(function.call("input")).isEqualTo(5);
+  }
+
+  @Test
+  public void runsHandlerOnExecutor() {
+    AtomicReference<Thread> thread = new AtomicReference<>();
+    LambdaFunction<String, Void> function =
+        new InProcessLambdaFunction<>(
+            "thread",
+            (input, context) -> {
+              thread.set(Thread.currentThread());
+              return null;
+            },
+            executor);
+
+    function.triggerAsync("input").join();
+
+    assertThat(thread.get()).isNotNull().isNotEqualTo(Thread.currentThread());
+  }
+
+  @Test
+  public void failsCallsWhenHandlerFails() {
+    LambdaFunction<String, Void> function =
+        new InProcessLambdaFunction<>(
+            "failing",
+            (input, context) -> {
+              throw new IllegalStateException("failed");
+            },
+            executor);
+
+    assertThatThrownBy(() -> function.call("input"))
+        .isInstanceOf(CompletionException.class)
+        .hasCauseInstanceOf(IllegalStateException.class);
+    assertThat(function.triggerAsync("input").join()).isNull();
+  }
+}
@@ -21,6 +21,7 @@ import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
 import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import lombok.Data;
@@ -41,6 +42,25 @@ public class JacksonRequestStreamHandlerTest {
     assertThat(outputStream.toString(), is("{\"output\":\"input\"}"));
   }
 
+  @Test
+  public void respondsInFormatOfRequest() throws Exception {
+    SmilePayloadCodec smile = new SmilePayloadCodec(new ObjectMapper(new SmileFactory()));
+    PayloadCodecs codecs = new PayloadCodecs(mapper, smile);
+    RequestStreamHandler handler = new JacksonRequestStreamHandler<>(codecs, new TestHandler());
+
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    handler.handleRequest(
+        new ByteArrayInputStream(
+            codecs.write(smile, new FakeInput("input"), mapper.constructType(FakeInput.class))),
+        outputStream,
+        null);
+
+    PayloadCodecs.Payload response = codecs.open(outputStream.toByteArray());
+    assertThat(response.getCodec(), is(smile));
+    assertThat(
+        response.decode(mapper.constructType(FakeOutput.class)), is(new FakeOutput("input")));
+  }
+
   abstract static class BaseHandler implements RequestHandler<FakeInput, FakeOutput> {}
 
   static class TestHandler extends BaseHandler {
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.lambda;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import java.nio.charset.StandardCharsets;
+import lombok.Data;
+import org.junit.Test;
+
+public class PayloadCodecsTest {
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final SmilePayloadCodec smile =
+      new SmilePayloadCodec(new ObjectMapper(new SmileFactory()));
+  private final PayloadCodecs codecs = new PayloadCodecs(mapper, smile);
+
+  private final JavaType type = mapper.constructType(Value.class);
+
+  @Test
+  public void writesJsonWithoutEnvelope() throws Exception {
+    byte[] payload = codecs.write(codecs.getJson(), new Value("test"), type);
+
+    assertThat(new String(payload, StandardCharsets.UTF_8)).isEqualTo("{\"value\":\"test\"}");
+  }
+
+  @Test
+  public void readsPayloadsWithoutEnvelopeAsJson() throws Exception {
+    PayloadCodecs.Payload payload =
+        codecs.open("{\"value\":\"test\"}".getBytes(StandardCharsets.UTF_8));
+
+    assertThat(payload.getCodec()).isSameAs(codecs.getJson());
+    assertThat(payload.<Value>decode(type)).isEqualTo(new Value("test"));
+  }
+
+  @Test
+  public void wrapsOtherFormatsInJsonEnvelope() throws Exception {
+    byte[] payload = codecs.write(smile, new Value("test"), type);
+
+    assertThat(mapper.readTree(payload).get(PayloadCodecs.CONTENT_TYPE_FIELD).asText())
+        .isEqualTo(SmilePayloadCodec.CONTENT_TYPE);
+  }
+
+  @Test
+  public void roundtripsOtherFormatsThroughEnvelope() throws Exception {
+    byte[] payload = codecs.write(smile, new Value("test"), type);
+
+    PayloadCodecs.Payload opened = codecs.open(payload);
+    assertThat(opened.getCodec()).isSameAs(smile);
+    assertThat(opened.<Value>decode(type)).isEqualTo(new Value("test"));
+  }
+
+  @Test
+  public void rejectsUnsupportedContentTypes() {
+    PayloadCodecs jsonOnly = new PayloadCodecs(mapper);
+    byte[] payload =
+        "{\"$contentType\":\"application/x-unknown\",\"$payload\":\"\"}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    assertThatThrownBy(() -> jsonOnly.open(payload))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("application/x-unknown");
+  }
+
+  @Data
+  static class Value {
+    private final String value;
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.retry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletionException;
+import org.junit.Test;
+import software.amazon.awssdk.AmazonServiceException;
+
+public class RetriesTest {
+  @Test
+  public void recognizesThrottlingByStatusOrErrorCode() {
+    AmazonServiceException tooManyRequests = new AmazonServiceException("Too many requests");
+    tooManyRequests.setStatusCode(429);
+    AmazonServiceException throttling = new AmazonServiceException("Rate exceeded");
+    throttling.setStatusCode(400);
+    throttling.setErrorCode("ThrottlingException");
+    AmazonServiceException invalid = new AmazonServiceException("Invalid");
+    invalid.setStatusCode(400);
+    invalid.setErrorCode("InvalidParameterException");
+
+    assertThat(Retries.isThrottling(tooManyRequests)).isTrue();
+    assertThat(Retries.isThrottling(new CompletionException(throttling))).isTrue();
+    assertThat(Retries.isThrottling(invalid)).isFalse();
+    assertThat(Retries.isThrottling(new IOException())).isFalse();
+  }
+
+  @Test
+  public void capsBackoffAtMaxDelay() {
+    for (int attempt = 1; attempt <= 40; attempt++) {
+      long ceiling = Math.min(100L << Math.min(attempt - 1, 30), 1000L);
+      assertThat(Retries.backoff(attempt, Duration.ofMillis(100), Duration.ofSeconds(1)))
+          .isBetween(0L, ceiling);
+    }
+  }
+}
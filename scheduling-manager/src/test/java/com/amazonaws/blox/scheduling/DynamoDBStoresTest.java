@@ -0,0 +1,51 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import org.junit.Test;
+
+public class DynamoDBStoresTest {
+  private final AmazonDynamoDB dynamoDB = mock(AmazonDynamoDB.class);
+
+  @Test
+  public void keepsStoreInMemoryWithoutCreatingClientIfNoTableIsConfigured() {
+    String store =
+        DynamoDBStores.storeFor(
+            "",
+            () -> "in-memory",
+            (client, table) -> table,
+            () -> {
+              throw new AssertionError("Created a DynamoDB client");
+            });
+
+    assertThat(store).isEqualTo("in-memory");
+  }
+
+  @Test
+  public void keepsStoreInConfiguredTable() {
+    String store =
+        DynamoDBStores.storeFor(
+            "table",
+            () -> "in-memory",
+            (client, table) -> client == dynamoDB ? table : "other client",
+            () -> dynamoDB);
+
+    assertThat(store).isEqualTo("table");
+  }
+}
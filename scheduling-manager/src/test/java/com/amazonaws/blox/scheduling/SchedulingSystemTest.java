@@ -23,19 +23,33 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.amazonaws.blox.dataservicemodel.v1.client.DataService;
+import com.amazonaws.blox.lambda.PayloadCodecs;
 import com.amazonaws.blox.lambda.TestLambdaFunction;
+import com.amazonaws.blox.scheduling.activity.ClusterActivityConfiguration;
+import com.amazonaws.blox.scheduling.activity.ClusterActivityTracker;
+import com.amazonaws.blox.scheduling.activity.InMemoryClusterActivityStore;
+import com.amazonaws.blox.scheduling.ecs.ECSRateLimiters;
 import com.amazonaws.blox.scheduling.manager.ManagerHandler;
 import com.amazonaws.blox.scheduling.manager.ManagerInput;
 import com.amazonaws.blox.scheduling.manager.ManagerOutput;
+import com.amazonaws.blox.scheduling.manager.SchedulerBatchSizer;
 import com.amazonaws.blox.scheduling.reconciler.CloudWatchEvent;
 import com.amazonaws.blox.scheduling.reconciler.ReconcilerHandler;
+import com.amazonaws.blox.scheduling.scheduler.SchedulerBatchOutput;
 import com.amazonaws.blox.scheduling.scheduler.SchedulerHandler;
 import com.amazonaws.blox.scheduling.scheduler.SchedulerInput;
-import com.amazonaws.blox.scheduling.scheduler.SchedulerOutput;
 import com.amazonaws.blox.scheduling.scheduler.engine.SchedulerFactory;
+import com.amazonaws.blox.scheduling.shard.ShardHandler;
+import com.amazonaws.blox.scheduling.shard.ShardInput;
+import com.amazonaws.blox.scheduling.shard.ShardOutput;
 import com.amazonaws.blox.scheduling.state.ClusterSnapshot;
 import com.amazonaws.blox.scheduling.state.ClusterSnapshot.ContainerInstance;
 import com.amazonaws.blox.scheduling.state.ECSState;
+import com.amazonaws.blox.scheduling.state.InMemoryBlobStore;
+import com.amazonaws.blox.scheduling.state.SnapshotFilter;
+import com.amazonaws.blox.scheduling.state.SnapshotStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.concurrent.CompletableFuture;
@@ -65,19 +79,49 @@ public class SchedulingSystemTest {
   private final ECSState ecsState = mock(ECSState.class);
   private final ECSAsyncClient ecs = mock(ECSAsyncClient.class);
 
+  private final PayloadCodecs codecs = new PayloadCodecs(new ObjectMapper());
+  private final SnapshotStore snapshots =
+      new SnapshotStore(new InMemoryBlobStore(), codecs, codecs.getJson(), 16);
+
   private final SchedulerFactory schedulerFactory = new SchedulerFactory();
   private final SchedulerHandler scheduler =
-      new SchedulerHandler(dataService, ecs, schedulerFactory);
-  private final TestLambdaFunction<SchedulerInput, SchedulerOutput> schedulerClient =
+      new SchedulerHandler(dataService, ecs, schedulerFactory, snapshots);
+  private final TestLambdaFunction<SchedulerInput, SchedulerBatchOutput> schedulerClient =
       new TestLambdaFunction<>(scheduler);
 
-  private final ManagerHandler manager = new ManagerHandler(dataService, ecsState, schedulerClient);
+  private final ClusterActivityTracker activity =
+      new ClusterActivityTracker(
+          new InMemoryClusterActivityStore(),
+          Duration.ofSeconds(ClusterActivityConfiguration.DEFAULT_BASE_SWEEP_INTERVAL_SECONDS),
+          Duration.ofSeconds(ClusterActivityConfiguration.DEFAULT_MAX_SWEEP_INTERVAL_SECONDS));
+
+  private final ManagerHandler manager =
+      new ManagerHandler(
+          dataService,
+          ecsState,
+          schedulerClient,
+          snapshots,
+          new SchedulerBatchSizer(50, 1000),
+          SnapshotFilter.ALL,
+          activity,
+          mock(ECSRateLimiters.class));
   private final TestLambdaFunction<ManagerInput, ManagerOutput> managerClient =
       new TestLambdaFunction<>(manager);
 
+  private final TestLambdaFunction<ShardInput, ShardOutput> shardClient =
+      new TestLambdaFunction<>((input, context) -> this.shard.handleRequest(input, context));
+  private final ShardHandler shard =
+      new ShardHandler(
+          dataService,
+          managerClient,
+          shardClient,
+          activity,
+          ShardHandler.DEFAULT_PAGE_SIZE,
+          ShardHandler.DEFAULT_RESERVED_MILLIS);
+
   @Test
   public void runSingleReconciliation() {
-    when(ecsState.snapshotState(CLUSTER_NAME)).thenReturn(snapshot);
+    when(ecsState.snapshotState(CLUSTER_NAME, SnapshotFilter.ALL)).thenReturn(snapshot);
 
     when(ecs.startTask(any()))
         .thenReturn(
@@ -85,7 +129,7 @@ public class SchedulingSystemTest {
 
     snapshot.getInstances().add(ContainerInstance.builder().arn(INSTANCE_ARN).build());
 
-    ReconcilerHandler recon = new ReconcilerHandler(dataService, managerClient);
+    ReconcilerHandler recon = new ReconcilerHandler(shardClient, 2);
     recon.handleRequest(new CloudWatchEvent<>(), null);
 
     ArgumentCaptor<StartTaskRequest> startArgument =
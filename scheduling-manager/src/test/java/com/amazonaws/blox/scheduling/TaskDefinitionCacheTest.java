@@ -0,0 +1,124 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import software.amazon.awssdk.services.ecs.ECSAsyncClient;
+import software.amazon.awssdk.services.ecs.model.DescribeTaskDefinitionRequest;
+import software.amazon.awssdk.services.ecs.model.DescribeTaskDefinitionResponse;
+import software.amazon.awssdk.services.ecs.model.TaskDefinition;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TaskDefinitionCacheTest {
+  private static final String TASK_DEFINITION_1 = "arn:aws:ecs:us-east-1:1:task-definition/app:1";
+  private static final String TASK_DEFINITION_2 = "arn:aws:ecs:us-east-1:1:task-definition/app:2";
+  private static final String TASK_DEFINITION_3 = "arn:aws:ecs:us-east-1:1:task-definition/app:3";
+
+  @Mock private ECSAsyncClient ecs;
+
+  @Test
+  public void describesEachTaskDefinitionOnce() {
+    CompletableFuture<DescribeTaskDefinitionResponse> response = new CompletableFuture<>();
+    when(ecs.describeTaskDefinition(request(TASK_DEFINITION_1))).thenReturn(response);
+    TaskDefinitionCache cache = new TaskDefinitionCache(ecs);
+
+    CompletableFuture<TaskDefinition> first = cache.get(TASK_DEFINITION_1);
+    CompletableFuture<TaskDefinition> second = cache.get(TASK_DEFINITION_1);
+    response.complete(response(TASK_DEFINITION_1));
+
+    assertThat(first.join().taskDefinitionArn()).isEqualTo(TASK_DEFINITION_1);
+    assertThat(second.join().taskDefinitionArn()).isEqualTo(TASK_DEFINITION_1);
+    assertThat(cache.get(TASK_DEFINITION_1).join().taskDefinitionArn())
+        .isEqualTo(TASK_DEFINITION_1);
+
+    verify(ecs, times(1)).describeTaskDefinition(request(TASK_DEFINITION_1));
+    assertThat(cache.metrics())
+        .isEqualTo(
+            TaskDefinitionCache.Metrics.builder().hits(2).misses(1).failures(0).size(1).build());
+  }
+
+  @Test
+  public void evictsLeastRecentlyUsedTaskDefinition() {
+    stub(TASK_DEFINITION_1);
+    stub(TASK_DEFINITION_2);
+    stub(TASK_DEFINITION_3);
+    TaskDefinitionCache cache = new TaskDefinitionCache(ecs, 2);
+
+    cache.get(TASK_DEFINITION_1).join();
+    cache.get(TASK_DEFINITION_2).join();
+    cache.get(TASK_DEFINITION_1).join();
+    cache.get(TASK_DEFINITION_3).join();
+    cache.get(TASK_DEFINITION_1).join();
+    cache.get(TASK_DEFINITION_2).join();
+
+    verify(ecs, times(1)).describeTaskDefinition(request(TASK_DEFINITION_1));
+    verify(ecs, times(2)).describeTaskDefinition(request(TASK_DEFINITION_2));
+    assertThat(cache.metrics().getSize()).isEqualTo(2);
+  }
+
+  @Test
+  public void doesNotCacheFailures() {
+    CompletableFuture<DescribeTaskDefinitionResponse> failed = new CompletableFuture<>();
+    failed.completeExceptionally(new RuntimeException("Throttled"));
+    when(ecs.describeTaskDefinition(request(TASK_DEFINITION_1)))
+        .thenReturn(failed)
+        .thenReturn(CompletableFuture.completedFuture(response(TASK_DEFINITION_1)));
+    TaskDefinitionCache cache = new TaskDefinitionCache(ecs);
+
+    assertThatThrownBy(() -> cache.get(TASK_DEFINITION_1).join())
+        .isInstanceOf(CompletionException.class);
+    assertThat(cache.get(TASK_DEFINITION_1).join().taskDefinitionArn())
+        .isEqualTo(TASK_DEFINITION_1);
+    assertThat(cache.metrics().getFailures()).isEqualTo(1);
+  }
+
+  @Test
+  public void alwaysDescribesTaskDefinitionsWithoutRevision() {
+    stub("app");
+    TaskDefinitionCache cache = new TaskDefinitionCache(ecs);
+
+    cache.get("app").join();
+    cache.get("app").join();
+
+    verify(ecs, times(2)).describeTaskDefinition(request("app"));
+    assertThat(cache.metrics().getSize()).isEqualTo(0);
+  }
+
+  private void stub(String taskDefinitionArn) {
+    when(ecs.describeTaskDefinition(request(taskDefinitionArn)))
+        .thenReturn(CompletableFuture.completedFuture(response(taskDefinitionArn)));
+  }
+
+  private static DescribeTaskDefinitionRequest request(String taskDefinitionArn) {
+    return DescribeTaskDefinitionRequest.builder().taskDefinition(taskDefinitionArn).build();
+  }
+
+  private static DescribeTaskDefinitionResponse response(String taskDefinitionArn) {
+    return DescribeTaskDefinitionResponse.builder()
+        .taskDefinition(TaskDefinition.builder().taskDefinitionArn(taskDefinitionArn).build())
+        .build();
+  }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.activity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.amazonaws.blox.dataservicemodel.v1.model.Cluster;
+import com.amazonaws.blox.dataservicemodel.v1.model.EnvironmentId;
+import com.amazonaws.blox.scheduling.scheduler.SchedulerOutput;
+import com.amazonaws.blox.scheduling.state.ClusterSnapshot;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ClusterActivityTrackerTest {
+  private static final Cluster CLUSTER1 = cluster("cluster1");
+  private static final Cluster CLUSTER2 = cluster("cluster2");
+  private static final EnvironmentId ENVIRONMENT =
+      EnvironmentId.builder()
+          .accountId("123456789012")
+          .cluster("cluster1")
+          .environmentName("environment1")
+          .build();
+
+  private Instant now = Instant.parse("2017-10-01T12:00:00Z");
+  private ClusterActivityTracker tracker;
+
+  @Before
+  public void setUp() {
+    Clock clock =
+        new Clock() {
+          @Override
+          public ZoneId getZone() {
+            return ZoneOffset.UTC;
+          }
+
+          @Override
+          public Clock withZone(ZoneId zone) {
+            return this;
+          }
+
+          @Override
+          public Instant instant() {
+            return now;
+          }
+        };
+    tracker =
+        new ClusterActivityTracker(
+            new InMemoryClusterActivityStore(),
+            Duration.ofMinutes(2),
+            Duration.ofMinutes(15),
+            clock);
+  }
+
+  @Test
+  public void clustersWithoutActivityAreDue() {
+    assertThat(tracker.due(Arrays.asList(CLUSTER1, CLUSTER2))).containsExactly(CLUSTER1, CLUSTER2);
+  }
+
+  @Test
+  public void sweepsQuietClustersLessAndLessOften() {
+    ClusterSnapshot snapshot = snapshot("task-1");
+
+    assertThat(pass(snapshot, 0).getQuietPasses()).isEqualTo(0);
+    assertThat(tracker.due(Collections.singletonList(CLUSTER1))).containsExactly(CLUSTER1);
+
+    ClusterActivity second = pass(snapshot, 0);
+    assertThat(second.getQuietPasses()).isEqualTo(1);
+    assertThat(second.getNextSweepAt()).isEqualTo(now.plus(Duration.ofMinutes(2)));
+    assertThat(tracker.due(Collections.singletonList(CLUSTER1))).isEmpty();
+
+    now = now.plus(Duration.ofMinutes(2));
+    assertThat(tracker.due(Collections.singletonList(CLUSTER1))).containsExactly(CLUSTER1);
+    assertThat(pass(snapshot, 0).getNextSweepAt()).isEqualTo(now.plus(Duration.ofMinutes(4)));
+  }
+
+  @Test
+  public void resetsBackoffWhenClusterChanges() {
+    pass(snapshot("task-1"), 0);
+    pass(snapshot("task-1"), 0);
+
+    assertThat(pass(snapshot("task-1", "task-2"), 0).getQuietPasses()).isEqualTo(0);
+    assertThat(tracker.due(Collections.singletonList(CLUSTER1))).containsExactly(CLUSTER1);
+  }
+
+  @Test
+  public void resetsBackoffWhenSchedulerTakesActions() {
+    pass(snapshot("task-1"), 0);
+    pass(snapshot("task-1"), 0);
+
+    assertThat(pass(snapshot("task-1"), 1).getQuietPasses()).isEqualTo(0);
+  }
+
+  @Test
+  public void clusterMarkedDirtyIsDueImmediately() {
+    pass(snapshot("task-1"), 0);
+    pass(snapshot("task-1"), 0);
+
+    tracker.markDirty(ClusterActivityTracker.keyOf(CLUSTER1));
+
+    assertThat(tracker.due(Arrays.asList(CLUSTER1, CLUSTER2))).containsExactly(CLUSTER1, CLUSTER2);
+  }
+
+  @Test
+  public void changeDuringPassKeepsClusterDirty() {
+    pass(snapshot("task-1"), 0);
+
+    ClusterActivityTracker.Pass pass = tracker.beginPass(CLUSTER1);
+    tracker.markDirty(ClusterActivityTracker.keyOf(CLUSTER1));
+    now = now.plusSeconds(5);
+    pass.end(snapshot("task-1"), outputs(0));
+
+    assertThat(tracker.due(Collections.singletonList(CLUSTER1))).containsExactly(CLUSTER1);
+  }
+
+  @Test
+  public void delayDoublesUpToMax() {
+    assertThat(tracker.delayAfter(0)).isEqualTo(Duration.ZERO);
+    assertThat(tracker.delayAfter(1)).isEqualTo(Duration.ofMinutes(2));
+    assertThat(tracker.delayAfter(3)).isEqualTo(Duration.ofMinutes(8));
+    assertThat(tracker.delayAfter(4)).isEqualTo(Duration.ofMinutes(15));
+    assertThat(tracker.delayAfter(100)).isEqualTo(Duration.ofMinutes(15));
+  }
+
+  @Test
+  public void fingerprintDependsOnEnvironmentVersion() {
+    ClusterSnapshot snapshot = snapshot("task-1");
+
+    assertThat(ClusterActivityTracker.fingerprint(snapshot, outputs("version-1")))
+        .isEqualTo(ClusterActivityTracker.fingerprint(snapshot, outputs("version-1")))
+        .isNotEqualTo(ClusterActivityTracker.fingerprint(snapshot, outputs("version-2")));
+  }
+
+  private ClusterActivity pass(ClusterSnapshot snapshot, long successfulActions) {
+    return tracker.beginPass(CLUSTER1).end(snapshot, outputs(successfulActions));
+  }
+
+  private static List<SchedulerOutput> outputs(long successfulActions) {
+    return Collections.singletonList(
+        new SchedulerOutput("cluster1", ENVIRONMENT, successfulActions, 0));
+  }
+
+  private static List<SchedulerOutput> outputs(String environmentVersion) {
+    return Collections.singletonList(
+        new SchedulerOutput(
+            "cluster1", ENVIRONMENT, 0, 0, Collections.emptyList(), environmentVersion));
+  }
+
+  private static ClusterSnapshot snapshot(String... taskArns) {
+    ClusterSnapshot.Task[] tasks = new ClusterSnapshot.Task[taskArns.length];
+    for (int i = 0; i < taskArns.length; i++) {
+      tasks[i] =
+          ClusterSnapshot.Task.builder()
+              .arn(taskArns[i])
+              .containerInstanceArn("instance-1")
+              .status("RUNNING")
+              .version(1L)
+              .build();
+    }
+    return new ClusterSnapshot(
+        "cluster1",
+        Arrays.asList(tasks),
+        Collections.singletonList(
+            ClusterSnapshot.ContainerInstance.builder()
+                .arn("instance-1")
+                .status("ACTIVE")
+                .attribute("stack", "prod")
+                .build()));
+  }
+
+  private static Cluster cluster(String name) {
+    return Cluster.builder().accountId("123456789012").clusterName(name).build();
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.activity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import com.amazonaws.blox.scheduling.state.ContainerInstanceStateChange;
+import com.amazonaws.blox.scheduling.state.ECSState;
+import com.amazonaws.blox.scheduling.state.TaskStateChange;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DirtyMarkingECSStateTest {
+  private static final String CLUSTER_ARN = "arn:aws:ecs:us-east-1:123456789012:cluster/cluster1";
+  private static final String CLUSTER_KEY = "123456789012/cluster1";
+
+  @Mock private ECSState delegate;
+  @Mock private ClusterActivityTracker activity;
+
+  @Test
+  public void marksClusterDirtyWhenTaskStops() {
+    TaskStateChange change = task("RUNNING", "STOPPED");
+
+    new DirtyMarkingECSState(delegate, activity).onTaskStateChange(change);
+
+    verify(activity).markDirty(CLUSTER_KEY);
+    verify(delegate).onTaskStateChange(change);
+  }
+
+  @Test
+  public void doesNotMarkClusterDirtyWhenTaskStarts() {
+    TaskStateChange change = task("RUNNING", "PENDING");
+
+    new DirtyMarkingECSState(delegate, activity).onTaskStateChange(change);
+
+    verify(activity, never()).markDirty(CLUSTER_KEY);
+    verify(delegate).onTaskStateChange(change);
+  }
+
+  @Test
+  public void marksClusterDirtyWhenInstanceChanges() {
+    ContainerInstanceStateChange change = new ContainerInstanceStateChange();
+    change.setClusterArn(CLUSTER_ARN);
+    change.setStatus("DRAINING");
+
+    new DirtyMarkingECSState(delegate, activity).onContainerInstanceStateChange(change);
+
+    verify(activity).markDirty(CLUSTER_KEY);
+    verify(delegate).onContainerInstanceStateChange(change);
+  }
+
+  @Test
+  public void parsesClusterKeyFromArn() {
+    assertThat(DirtyMarkingECSState.keyOf(CLUSTER_ARN)).isEqualTo(CLUSTER_KEY);
+    assertThat(DirtyMarkingECSState.keyOf("arn:aws:ecs:us-east-1:123456789012:task/task1"))
+        .isNull();
+    assertThat(DirtyMarkingECSState.keyOf("cluster1")).isNull();
+  }
+
+  private static TaskStateChange task(String lastStatus, String desiredStatus) {
+    TaskStateChange change = new TaskStateChange();
+    change.setClusterArn(CLUSTER_ARN);
+    change.setTaskArn("arn:aws:ecs:us-east-1:123456789012:task/task1");
+    change.setLastStatus(lastStatus);
+    change.setDesiredStatus(desiredStatus);
+    return change;
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.activity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AmazonDynamoDBException;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.KeysAndAttributes;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DynamoDBClusterActivityStoreTest {
+  private static final String TABLE_NAME = "ClusterActivity";
+  private static final String CLUSTER_KEY = "123456789012/cluster1";
+
+  private final ClusterActivity activity =
+      ClusterActivity.builder()
+          .clusterKey(CLUSTER_KEY)
+          .fingerprint("fingerprint")
+          .quietPasses(2)
+          .reconciledAt(Instant.parse("2017-10-01T12:00:00.250Z"))
+          .nextSweepAt(Instant.parse("2017-10-01T12:04:00.250Z"))
+          .build();
+
+  @Mock private AmazonDynamoDB dynamoDB;
+
+  private DynamoDBClusterActivityStore store() {
+    return new DynamoDBClusterActivityStore(dynamoDB, TABLE_NAME);
+  }
+
+  @Test
+  public void readsBackPassesItRecorded() {
+    store().recordPass(activity);
+
+    ArgumentCaptor<UpdateItemRequest> update = ArgumentCaptor.forClass(UpdateItemRequest.class);
+    verify(dynamoDB).updateItem(update.capture());
+    assertThat(update.getValue().getTableName()).isEqualTo(TABLE_NAME);
+    assertThat(update.getValue().getUpdateExpression()).doesNotContain("dirtyAt");
+
+    Map<String, AttributeValue> item = new HashMap<>();
+    item.put(DynamoDBClusterActivityStore.CLUSTER_KEY, new AttributeValue(CLUSTER_KEY));
+    update
+        .getValue()
+        .getExpressionAttributeValues()
+        .forEach((name, value) -> item.put(name.substring(1), value));
+    when(dynamoDB.batchGetItem(any(BatchGetItemRequest.class)))
+        .thenReturn(
+            new BatchGetItemResult()
+                .withResponses(
+                    Collections.singletonMap(TABLE_NAME, Collections.singletonList(item))));
+
+    assertThat(store().get(Collections.singletonList(CLUSTER_KEY)))
+        .isEqualTo(Collections.singletonMap(CLUSTER_KEY, activity));
+  }
+
+  @Test
+  public void marksClusterDirtyWithoutTouchingPass() {
+    Instant at = Instant.parse("2017-10-01T12:01:00Z");
+
+    store().markDirty(CLUSTER_KEY, at);
+
+    ArgumentCaptor<UpdateItemRequest> update = ArgumentCaptor.forClass(UpdateItemRequest.class);
+    verify(dynamoDB).updateItem(update.capture());
+    assertThat(update.getValue().getKey())
+        .containsEntry(DynamoDBClusterActivityStore.CLUSTER_KEY, new AttributeValue(CLUSTER_KEY));
+    assertThat(update.getValue().getExpressionAttributeValues())
+        .containsOnlyKeys(":dirtyAt", ":expiresAt")
+        .containsEntry(":dirtyAt", new AttributeValue().withN(Long.toString(at.toEpochMilli())));
+  }
+
+  @Test
+  public void retriesUnprocessedKeys() {
+    Map<String, KeysAndAttributes> unprocessed =
+        Collections.singletonMap(
+            TABLE_NAME,
+            new KeysAndAttributes()
+                .withKeys(
+                    Collections.singletonMap(
+                        DynamoDBClusterActivityStore.CLUSTER_KEY,
+                        new AttributeValue(CLUSTER_KEY))));
+    when(dynamoDB.batchGetItem(any(BatchGetItemRequest.class)))
+        .thenReturn(new BatchGetItemResult().withUnprocessedKeys(unprocessed))
+        .thenReturn(new BatchGetItemResult());
+
+    assertThat(store().get(Collections.singletonList(CLUSTER_KEY))).isEmpty();
+
+    ArgumentCaptor<BatchGetItemRequest> requests =
+        ArgumentCaptor.forClass(BatchGetItemRequest.class);
+    verify(dynamoDB, times(2)).batchGetItem(requests.capture());
+    assertThat(requests.getAllValues().get(1).getRequestItems()).isEqualTo(unprocessed);
+  }
+
+  @Test
+  public void readsClustersInBatchesOfHundred() {
+    when(dynamoDB.batchGetItem(any(BatchGetItemRequest.class)))
+        .thenReturn(new BatchGetItemResult());
+    String[] clusterKeys = new String[150];
+    for (int i = 0; i < clusterKeys.length; i++) {
+      clusterKeys[i] = "123456789012/cluster" + i;
+    }
+
+    store().get(Arrays.asList(clusterKeys));
+
+    ArgumentCaptor<BatchGetItemRequest> requests =
+        ArgumentCaptor.forClass(BatchGetItemRequest.class);
+    verify(dynamoDB, times(2)).batchGetItem(requests.capture());
+    List<BatchGetItemRequest> batches = requests.getAllValues();
+    assertThat(batches.get(0).getRequestItems().get(TABLE_NAME).getKeys()).hasSize(100);
+    assertThat(batches.get(1).getRequestItems().get(TABLE_NAME).getKeys()).hasSize(50);
+  }
+
+  @Test
+  public void treatsEveryClusterAsUnknownWhenTableIsUnavailable() {
+    when(dynamoDB.batchGetItem(any(BatchGetItemRequest.class)))
+        .thenThrow(new AmazonDynamoDBException("unavailable"));
+
+    assertThat(store().get(Collections.singletonList(CLUSTER_KEY))).isEmpty();
+  }
+}
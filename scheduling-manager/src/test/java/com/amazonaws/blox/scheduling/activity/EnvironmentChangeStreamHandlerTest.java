@@ -0,0 +1,82 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.activity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class EnvironmentChangeStreamHandlerTest {
+  private final ObjectMapper mapper = new ObjectMapper();
+
+  @Mock private RequestStreamHandler handler;
+  @Mock private ClusterActivityTracker activity;
+
+  @Test
+  public void marksClustersOfChangedEnvironmentsDirty() throws Exception {
+    String request =
+        "{\"Records\":["
+            + record("123456789012/cluster1", "environment1")
+            + ","
+            + record("123456789012/cluster1", "environment2")
+            + ","
+            + record("123456789012/cluster2", "environment1")
+            + "]}";
+
+    String output = handle(request);
+
+    verify(activity).markDirty("123456789012/cluster1");
+    verify(activity).markDirty("123456789012/cluster2");
+    verifyZeroInteractions(handler);
+    assertThat(output).isEqualTo("null");
+  }
+
+  @Test
+  public void passesOtherRequestsOn() throws Exception {
+    handle("{\"cluster\":{\"accountId\":\"123456789012\",\"clusterName\":\"cluster1\"}}");
+
+    verify(handler).handleRequest(any(), any(), any());
+    verifyZeroInteractions(activity);
+  }
+
+  private String handle(String request) throws Exception {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    new EnvironmentChangeStreamHandler(mapper, handler, activity)
+        .handleRequest(
+            new ByteArrayInputStream(request.getBytes(StandardCharsets.UTF_8)), output, null);
+    return new String(output.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  private static String record(String accountIdCluster, String environmentName) {
+    return "{\"eventSource\":\"aws:dynamodb\",\"eventName\":\"MODIFY\",\"dynamodb\":{\"Keys\":{"
+        + "\"accountIdCluster\":{\"S\":\""
+        + accountIdCluster
+        + "\"},\"environmentName\":{\"S\":\""
+        + environmentName
+        + "\"}}}}";
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.activity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.util.Collections;
+import org.junit.Test;
+
+public class InMemoryClusterActivityStoreTest {
+  private static final String CLUSTER_KEY = "123456789012/cluster1";
+  private static final Instant RECONCILED_AT = Instant.parse("2017-10-01T12:00:00Z");
+  private static final Instant DIRTY_AT = Instant.parse("2017-10-01T12:01:00Z");
+
+  private final ClusterActivityStore store = new InMemoryClusterActivityStore();
+
+  @Test
+  public void passDoesNotClearDirtyMark() {
+    store.markDirty(CLUSTER_KEY, DIRTY_AT);
+    store.recordPass(pass());
+
+    assertThat(activity().getDirtyAt()).isEqualTo(DIRTY_AT);
+    assertThat(activity().getFingerprint()).isEqualTo("fingerprint");
+  }
+
+  @Test
+  public void dirtyMarkDoesNotClearPass() {
+    store.recordPass(pass());
+    store.markDirty(CLUSTER_KEY, DIRTY_AT);
+
+    assertThat(activity()).isEqualTo(pass().toBuilder().dirtyAt(DIRTY_AT).build());
+  }
+
+  private ClusterActivity activity() {
+    return store.get(Collections.singletonList(CLUSTER_KEY)).get(CLUSTER_KEY);
+  }
+
+  private static ClusterActivity pass() {
+    return ClusterActivity.builder()
+        .clusterKey(CLUSTER_KEY)
+        .fingerprint("fingerprint")
+        .quietPasses(1)
+        .reconciledAt(RECONCILED_AT)
+        .nextSweepAt(RECONCILED_AT.plusSeconds(120))
+        .build();
+  }
+}
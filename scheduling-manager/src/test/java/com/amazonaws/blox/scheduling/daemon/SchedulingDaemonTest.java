@@ -0,0 +1,129 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.daemon;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.hasItem;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.blox.dataservicemodel.v1.client.DataService;
+import com.amazonaws.blox.scheduling.FakeDataService;
+import com.amazonaws.blox.scheduling.scheduler.engine.SchedulerFactory;
+import com.amazonaws.blox.scheduling.state.BlobStore;
+import com.amazonaws.blox.scheduling.state.ClusterSnapshot;
+import com.amazonaws.blox.scheduling.state.ClusterSnapshot.ContainerInstance;
+import com.amazonaws.blox.scheduling.state.ECSState;
+import com.amazonaws.blox.scheduling.state.InMemoryBlobStore;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import software.amazon.awssdk.services.ecs.ECSAsyncClient;
+import software.amazon.awssdk.services.ecs.model.StartTaskRequest;
+import software.amazon.awssdk.services.ecs.model.StartTaskResponse;
+
+public class SchedulingDaemonTest {
+  private static final String CLUSTER_NAME = "cluster1";
+  private static final String INSTANCE_ARN = "arn:::::instance1";
+  private static final String ENVIRONMENT_NAME = "env1";
+  private static final String TASKDEF_ARN = "arn:::::task:1";
+
+  private final DataService dataService =
+      FakeDataService.builder()
+          .clusterName(CLUSTER_NAME)
+          .environmentName(ENVIRONMENT_NAME)
+          .taskDefinition(TASKDEF_ARN)
+          .build();
+  private final ECSState ecsState = mock(ECSState.class);
+  private final ECSAsyncClient ecs = mock(ECSAsyncClient.class);
+  private final BlobStore blobs = new InMemoryBlobStore();
+
+  private final SchedulingDaemon daemon =
+      new SchedulingDaemon(
+          Duration.ofSeconds(1),
+          2,
+          context -> {
+            context.getEnvironment().setActiveProfiles("test");
+            context.getBeanFactory().registerSingleton("schedulingDaemonTest", this);
+            context.register(TestConfig.class);
+          });
+
+  @After
+  public void close() {
+    daemon.close();
+  }
+
+  @Test
+  public void tickSchedulesEveryClusterInProcess() {
+    when(ecsState.snapshotState(any(), any()))
+        .thenReturn(
+            new ClusterSnapshot(
+                CLUSTER_NAME,
+                Collections.emptyList(),
+                Collections.singletonList(ContainerInstance.builder().arn(INSTANCE_ARN).build())));
+    when(ecs.startTask(any()))
+        .thenReturn(
+            CompletableFuture.completedFuture(StartTaskResponse.builder().failures().build()));
+
+    daemon.tick();
+
+    ArgumentCaptor<StartTaskRequest> startArgument =
+        ArgumentCaptor.forClass(StartTaskRequest.class);
+    verify(ecs).startTask(startArgument.capture());
+
+    StartTaskRequest request = startArgument.getValue();
+    assertThat(request.cluster(), equalTo(CLUSTER_NAME));
+    assertThat(request.containerInstances(), hasItem(INSTANCE_ARN));
+    assertThat(request.taskDefinition(), equalTo(TASKDEF_ARN));
+    assertThat(request.group(), equalTo(ENVIRONMENT_NAME));
+  }
+
+  /** Shares the same fakes between the contexts of all functions. */
+  @Configuration
+  public static class TestConfig {
+    @Bean
+    public DataService dataService(SchedulingDaemonTest test) {
+      return test.dataService;
+    }
+
+    @Bean
+    public ECSState ecsState(SchedulingDaemonTest test) {
+      return test.ecsState;
+    }
+
+    @Bean
+    public ECSAsyncClient ecs(SchedulingDaemonTest test) {
+      return test.ecs;
+    }
+
+    @Bean
+    public BlobStore snapshotBlobStore(SchedulingDaemonTest test) {
+      return test.blobs;
+    }
+
+    @Bean
+    public SchedulerFactory schedulerFactory() {
+      return new SchedulerFactory();
+    }
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.ecs;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class AdaptiveRateLimiterTest {
+  private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  private long now = 0;
+  private final AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(10, 1, 20, 2, () -> now);
+
+  @Test
+  public void delaysPermitsBeyondBurst() {
+    assertThat(limiter.reserve()).isEqualTo(0);
+    assertThat(limiter.reserve()).isEqualTo(0);
+    assertThat(limiter.reserve()).isEqualTo(SECOND / 10);
+    assertThat(limiter.reserve()).isEqualTo(2 * SECOND / 10);
+
+    assertThat(limiter.metrics().getPermits()).isEqualTo(4);
+    assertThat(limiter.metrics().getDelayedPermits()).isEqualTo(2);
+    assertThat(limiter.metrics().getTotalDelayNanos()).isEqualTo(3 * SECOND / 10);
+  }
+
+  @Test
+  public void refillsTokensAtCurrentRate() {
+    limiter.reserve();
+    limiter.reserve();
+
+    now += SECOND / 10;
+
+    assertThat(limiter.reserve()).isEqualTo(0);
+    assertThat(limiter.reserve()).isGreaterThan(0);
+  }
+
+  @Test
+  public void halvesRateWhenThrottled() {
+    limiter.onThrottle(limiter.now());
+
+    assertThat(limiter.metrics().getRate()).isEqualTo(5);
+    assertThat(limiter.metrics().getThrottles()).isEqualTo(1);
+  }
+
+  @Test
+  public void onlyDecreasesOnceForCallsStartedBeforeLastDecrease() {
+    long startedAt = limiter.now();
+    now += 1;
+    limiter.onThrottle(startedAt);
+    limiter.onThrottle(startedAt);
+
+    assertThat(limiter.metrics().getRate()).isEqualTo(5);
+    assertThat(limiter.metrics().getThrottles()).isEqualTo(2);
+  }
+
+  @Test
+  public void neverDecreasesBelowMinimumRate() {
+    for (int i = 0; i < 10; i++) {
+      limiter.onThrottle(limiter.now());
+    }
+
+    assertThat(limiter.metrics().getRate()).isEqualTo(1);
+  }
+
+  @Test
+  public void increasesRateByOnePerSecondOfSuccessfulCalls() {
+    for (int i = 0; i < 10; i++) {
+      limiter.onSuccess();
+    }
+
+    assertThat(limiter.metrics().getRate()).isBetween(10.9, 11.0);
+  }
+
+  @Test
+  public void neverIncreasesAboveMaximumRate() {
+    for (int i = 0; i < 1000; i++) {
+      limiter.onSuccess();
+    }
+
+    assertThat(limiter.metrics().getRate()).isEqualTo(20);
+  }
+
+  @Test
+  public void rejectsInvalidLimits() {
+    assertThatThrownBy(() -> new AdaptiveRateLimiter(10, 20, 30, 1))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+}
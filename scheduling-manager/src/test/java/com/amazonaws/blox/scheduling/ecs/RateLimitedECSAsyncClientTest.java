@@ -0,0 +1,112 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.ecs;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import software.amazon.awssdk.AmazonServiceException;
+import software.amazon.awssdk.services.ecs.ECSAsyncClient;
+import software.amazon.awssdk.services.ecs.model.ListTasksRequest;
+import software.amazon.awssdk.services.ecs.model.ListTasksResponse;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RateLimitedECSAsyncClientTest {
+  private static final ListTasksRequest REQUEST =
+      ListTasksRequest.builder().cluster("cluster1").build();
+
+  @Mock private ECSAsyncClient ecs;
+  @Mock private ScheduledExecutorService scheduler;
+
+  private long now = 0;
+  private final AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(10, 1, 20, 1, () -> now);
+  private RateLimitedECSAsyncClient client;
+
+  @Before
+  public void setUp() {
+    client = new RateLimitedECSAsyncClient(ecs, cluster -> limiter, scheduler);
+  }
+
+  @Test
+  public void callsImmediatelyWithinLimit() {
+    when(ecs.listTasks(REQUEST))
+        .thenReturn(CompletableFuture.completedFuture(ListTasksResponse.builder().build()));
+
+    client.listTasks(REQUEST).join();
+
+    verify(scheduler, never()).schedule(any(Runnable.class), anyLong(), any());
+    assertThat(client.metrics().get("cluster1").getPermits()).isEqualTo(1);
+  }
+
+  @Test
+  public void delaysCallsBeyondLimit() {
+    when(ecs.listTasks(REQUEST))
+        .thenReturn(CompletableFuture.completedFuture(ListTasksResponse.builder().build()));
+    client.listTasks(REQUEST).join();
+
+    CompletableFuture<ListTasksResponse> delayed = client.listTasks(REQUEST);
+
+    ArgumentCaptor<Runnable> permit = ArgumentCaptor.forClass(Runnable.class);
+    ArgumentCaptor<Long> delay = ArgumentCaptor.forClass(Long.class);
+    verify(scheduler).schedule(permit.capture(), delay.capture(), eq(NANOSECONDS));
+    // The successful call raised the rate slightly above 10/s, so the delay is just under 100ms:
+    assertThat(delay.getValue()).isBetween(90_000_000L, 100_000_000L);
+    assertThat(delayed).isNotDone();
+
+    permit.getValue().run();
+
+    assertThat(delayed).isCompleted();
+  }
+
+  @Test
+  public void reducesRateWhenThrottled() {
+    AmazonServiceException throttled = new AmazonServiceException("Rate exceeded");
+    throttled.setErrorCode("ThrottlingException");
+    CompletableFuture<ListTasksResponse> failed = new CompletableFuture<>();
+    failed.completeExceptionally(throttled);
+    when(ecs.listTasks(REQUEST)).thenReturn(failed);
+
+    assertThat(client.listTasks(REQUEST)).isCompletedExceptionally();
+
+    assertThat(limiter.metrics().getThrottles()).isEqualTo(1);
+    assertThat(limiter.metrics().getRate()).isEqualTo(5);
+  }
+
+  @Test
+  public void doesNotReduceRateForOtherErrors() {
+    CompletableFuture<ListTasksResponse> failed = new CompletableFuture<>();
+    failed.completeExceptionally(new AmazonServiceException("Cluster not found"));
+    when(ecs.listTasks(REQUEST)).thenReturn(failed);
+
+    assertThat(client.listTasks(REQUEST)).isCompletedExceptionally();
+
+    assertThat(limiter.metrics().getThrottles()).isEqualTo(0);
+    assertThat(limiter.metrics().getRate()).isEqualTo(10);
+  }
+}
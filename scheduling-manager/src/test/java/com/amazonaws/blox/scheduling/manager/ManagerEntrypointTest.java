@@ -17,7 +17,9 @@ package com.amazonaws.blox.scheduling.manager;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.argThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.amazonaws.blox.dataservicemodel.v1.client.DataService;
@@ -29,12 +31,17 @@ import com.amazonaws.blox.lambda.LambdaFunction;
 import com.amazonaws.blox.lambda.TestLambdaFunction;
 import com.amazonaws.blox.scheduling.LambdaHandlerTestCase;
 import com.amazonaws.blox.scheduling.manager.ManagerEntrypointTest.TestConfig;
+import com.amazonaws.blox.scheduling.scheduler.SchedulerBatchOutput;
 import com.amazonaws.blox.scheduling.scheduler.SchedulerInput;
 import com.amazonaws.blox.scheduling.scheduler.SchedulerOutput;
+import com.amazonaws.blox.scheduling.state.BlobStore;
 import com.amazonaws.blox.scheduling.state.ClusterSnapshot;
 import com.amazonaws.blox.scheduling.state.ECSState;
+import com.amazonaws.blox.scheduling.state.InMemoryBlobStore;
 import java.util.Collections;
+import java.util.stream.Collectors;
 import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
@@ -43,12 +50,27 @@ import org.springframework.test.context.ContextConfiguration;
 @ContextConfiguration(classes = TestConfig.class)
 public class ManagerEntrypointTest extends LambdaHandlerTestCase {
 
+  @Autowired ECSState ecsState;
+
   @Test
   public void convertsInputsAndOutputsFromJson() throws Exception {
     String result = callHandler(fixture("handlers/Manager.input.json"));
     assertThat(result, is(fixtureAsString("handlers/Manager.output.json")));
   }
 
+  @Test
+  public void appliesECSStateChangeEventsToState() throws Exception {
+    String result = callHandler(fixture("handlers/Manager.task-event.json"));
+
+    assertThat(result, is("null"));
+    verify(ecsState)
+        .onTaskStateChange(
+            argThat(
+                change ->
+                    change.getTaskArn().endsWith("task/b99d40b3-5176-4f71-9a52-9dbd6f1cebef")
+                        && change.getVersion() == 2L));
+  }
+
   @Configuration
   @Import(ManagerApplication.class)
   public static class TestConfig {
@@ -79,18 +101,27 @@ public class ManagerEntrypointTest extends LambdaHandlerTestCase {
 
     @Bean
     public ECSState ecsState() {
-      return when(mock(ECSState.class).snapshotState(any()))
+      return when(mock(ECSState.class).snapshotState(any(), any()))
           .thenReturn(
               new ClusterSnapshot(CLUSTER_NAME, Collections.emptyList(), Collections.emptyList()))
           .getMock();
     }
 
     @Bean
-    public LambdaFunction<SchedulerInput, SchedulerOutput> scheduler() {
+    public LambdaFunction<SchedulerInput, SchedulerBatchOutput> scheduler() {
       return new TestLambdaFunction<>(
           (input, context) ->
-              new SchedulerOutput(
-                  input.getSnapshot().getClusterName(), input.getEnvironmentId(), 0L, 0L));
+              new SchedulerBatchOutput(
+                  input
+                      .getEnvironmentIds()
+                      .stream()
+                      .map(id -> new SchedulerOutput(id.getCluster(), id, 0L, 0L))
+                      .collect(Collectors.toList())));
+    }
+
+    @Bean
+    public BlobStore snapshotBlobStore() {
+      return new InMemoryBlobStore();
     }
   }
 }
@@ -14,10 +14,16 @@
  */
 package com.amazonaws.blox.scheduling.manager;
 
+import static org.hamcrest.CoreMatchers.allOf;
+import static org.hamcrest.CoreMatchers.everyItem;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.hasProperty;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.amazonaws.blox.dataservicemodel.v1.client.DataService;
@@ -26,11 +32,24 @@ import com.amazonaws.blox.dataservicemodel.v1.model.EnvironmentId;
 import com.amazonaws.blox.dataservicemodel.v1.model.wrappers.ListEnvironmentsRequest;
 import com.amazonaws.blox.dataservicemodel.v1.model.wrappers.ListEnvironmentsResponse;
 import com.amazonaws.blox.lambda.LambdaFunction;
+import com.amazonaws.blox.scheduling.activity.ClusterActivity;
+import com.amazonaws.blox.scheduling.activity.ClusterActivityStore;
+import com.amazonaws.blox.scheduling.activity.ClusterActivityTracker;
+import com.amazonaws.blox.scheduling.activity.InMemoryClusterActivityStore;
+import com.amazonaws.blox.scheduling.ecs.ECSRateLimiters;
+import com.amazonaws.blox.scheduling.scheduler.SchedulerBatchOutput;
 import com.amazonaws.blox.scheduling.scheduler.SchedulerInput;
 import com.amazonaws.blox.scheduling.scheduler.SchedulerOutput;
+import com.amazonaws.blox.scheduling.state.ClusterSnapshot;
 import com.amazonaws.blox.scheduling.state.ECSState;
+import com.amazonaws.blox.scheduling.state.SnapshotFilter;
+import com.amazonaws.blox.scheduling.state.SnapshotStore;
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
@@ -59,33 +78,190 @@ public class ManagerHandlerTest {
           .cluster(CLUSTER_NAME)
           .build();
 
+  private static final SnapshotFilter FILTER = SnapshotFilter.builder().startedBy("blox").build();
+  private static final ClusterSnapshot SNAPSHOT = new ClusterSnapshot(CLUSTER_NAME, null, null);
+
   private ArgumentCaptor<SchedulerInput> schedulerArgument =
       ArgumentCaptor.forClass(SchedulerInput.class);
-  @Mock private LambdaFunction<SchedulerInput, SchedulerOutput> scheduler;
+  @Mock private LambdaFunction<SchedulerInput, SchedulerBatchOutput> scheduler;
   @Mock private ECSState ecs;
   @Mock private DataService dataService;
+  @Mock private SnapshotStore snapshots;
+  @Mock private ECSRateLimiters ecsRateLimiters;
 
-  @Test
-  @SuppressWarnings("unchecked")
-  public void invokesSchedulerForAllEnvironments() throws Exception {
+  private final ClusterActivityStore activityStore = new InMemoryClusterActivityStore();
+  private final ClusterActivityTracker activity =
+      new ClusterActivityTracker(activityStore, Duration.ofMinutes(2), Duration.ofMinutes(15));
+
+  @Before
+  public void defaultStubs() throws Exception {
     when(dataService.listEnvironments(ListEnvironmentsRequest.builder().cluster(CLUSTER).build()))
         .thenReturn(
             ListEnvironmentsResponse.builder()
                 .environmentIds(Arrays.asList(FIRST_ENVIRONMENT_ID, SECOND_ENVIRONMENT_ID))
                 .build());
+    when(ecs.snapshotState(CLUSTER_NAME, FILTER)).thenReturn(SNAPSHOT);
+    when(snapshots.publish(SNAPSHOT)).thenReturn("snapshot-id");
+  }
 
-    when(scheduler.callAsync(schedulerArgument.capture()))
-        .thenReturn(
-            CompletableFuture.completedFuture(
-                new SchedulerOutput(CLUSTER_NAME, FIRST_ENVIRONMENT_ID, 1, 1)));
+  @Test
+  public void invokesSchedulerForAllEnvironments() throws Exception {
+    schedulerReturns(0, 0);
 
-    ManagerHandler handler = new ManagerHandler(dataService, ecs, scheduler);
-    handler.handleRequest(new ManagerInput(CLUSTER), null);
+    ManagerOutput output =
+        handler(new SchedulerBatchSizer(50, 1000)).handleRequest(new ManagerInput(CLUSTER), null);
 
     assertThat(
         schedulerArgument.getAllValues(),
+        contains(
+            hasProperty("environmentIds", contains(FIRST_ENVIRONMENT_ID, SECOND_ENVIRONMENT_ID))));
+    assertThat(
+        output.getScheduleResults(),
         contains(
             hasProperty("environmentId", is(FIRST_ENVIRONMENT_ID)),
             hasProperty("environmentId", is(SECOND_ENVIRONMENT_ID))));
   }
+
+  @Test
+  public void reportsEcsRateLimiterOfCluster() throws Exception {
+    schedulerReturns(0, 0);
+
+    handler(new SchedulerBatchSizer(50, 1000)).handleRequest(new ManagerInput(CLUSTER), null);
+
+    verify(ecsRateLimiters).metrics(CLUSTER_NAME);
+  }
+
+  @Test
+  public void splitsEnvironmentsIntoBatches() throws Exception {
+    schedulerReturns(0, 0);
+
+    handler(new SchedulerBatchSizer(1, 1000)).handleRequest(new ManagerInput(CLUSTER), null);
+
+    assertThat(
+        schedulerArgument.getAllValues(),
+        contains(
+            hasProperty("environmentIds", contains(FIRST_ENVIRONMENT_ID)),
+            hasProperty("environmentIds", contains(SECOND_ENVIRONMENT_ID))));
+  }
+
+  @Test
+  public void invalidatesCachedStateWhenSchedulerTookActions() throws Exception {
+    schedulerReturns(1, 0);
+
+    handler(new SchedulerBatchSizer(50, 1000)).handleRequest(new ManagerInput(CLUSTER), null);
+
+    verify(ecs).invalidate(CLUSTER_NAME);
+  }
+
+  @Test
+  public void publishesSnapshotOnceForAllEnvironments() throws Exception {
+    schedulerReturns(0, 0);
+
+    handler(new SchedulerBatchSizer(1, 1000)).handleRequest(new ManagerInput(CLUSTER), null);
+
+    verify(snapshots, times(1)).publish(SNAPSHOT);
+    assertThat(
+        schedulerArgument.getAllValues(),
+        everyItem(
+            allOf(
+                hasProperty("snapshotId", is("snapshot-id")),
+                hasProperty("snapshot", nullValue()))));
+  }
+
+  @Test
+  public void backsOffFromClusterWhileNothingChanges() throws Exception {
+    schedulerReturns(0, 0);
+    ManagerHandler handler = handler(new SchedulerBatchSizer(50, 1000));
+
+    handler.handleRequest(new ManagerInput(CLUSTER), null);
+    handler.handleRequest(new ManagerInput(CLUSTER), null);
+    handler.handleRequest(new ManagerInput(CLUSTER), null);
+
+    assertThat(activity(), hasProperty("quietPasses", is(2)));
+    assertThat(activity.due(Collections.singletonList(CLUSTER)), empty());
+  }
+
+  @Test
+  public void keepsReconcilingClusterWhileSchedulerTakesActions() throws Exception {
+    schedulerReturns(1, 0);
+    ManagerHandler handler = handler(new SchedulerBatchSizer(50, 1000));
+
+    handler.handleRequest(new ManagerInput(CLUSTER), null);
+    handler.handleRequest(new ManagerInput(CLUSTER), null);
+
+    assertThat(activity(), hasProperty("quietPasses", is(0)));
+    assertThat(activity.due(Collections.singletonList(CLUSTER)), contains(CLUSTER));
+  }
+
+  @Test
+  public void reportsEnvironmentsOfFailedBatchesAndKeepsOthers() throws Exception {
+    CompletableFuture<SchedulerBatchOutput> failed = new CompletableFuture<>();
+    failed.completeExceptionally(new IllegalStateException("Rate exceeded"));
+    when(scheduler.callAsync(
+            new SchedulerInput("snapshot-id", Arrays.asList(FIRST_ENVIRONMENT_ID))))
+        .thenReturn(failed);
+    when(scheduler.callAsync(
+            new SchedulerInput("snapshot-id", Arrays.asList(SECOND_ENVIRONMENT_ID))))
+        .thenReturn(
+            CompletableFuture.completedFuture(
+                new SchedulerBatchOutput(
+                    Arrays.asList(
+                        new SchedulerOutput(CLUSTER_NAME, SECOND_ENVIRONMENT_ID, 0, 0)))));
+
+    ManagerOutput output =
+        handler(new SchedulerBatchSizer(1, 1000)).handleRequest(new ManagerInput(CLUSTER), null);
+
+    assertThat(output.getFailedEnvironments(), contains(FIRST_ENVIRONMENT_ID));
+    assertThat(
+        output.getScheduleResults(),
+        contains(hasProperty("environmentId", is(SECOND_ENVIRONMENT_ID))));
+    // The cluster stays due, so that the failed environments are retried on the next tick:
+    assertThat(activity.due(Collections.singletonList(CLUSTER)), contains(CLUSTER));
+  }
+
+  @Test
+  public void reportsEnvironmentsThatSchedulerRanOutOfTimeFor() throws Exception {
+    when(scheduler.callAsync(
+            new SchedulerInput(
+                "snapshot-id", Arrays.asList(FIRST_ENVIRONMENT_ID, SECOND_ENVIRONMENT_ID))))
+        .thenReturn(
+            CompletableFuture.completedFuture(
+                new SchedulerBatchOutput(
+                    Arrays.asList(new SchedulerOutput(CLUSTER_NAME, SECOND_ENVIRONMENT_ID, 0, 0)),
+                    true)));
+
+    ManagerOutput output =
+        handler(new SchedulerBatchSizer(50, 1000)).handleRequest(new ManagerInput(CLUSTER), null);
+
+    assertThat(output.isTruncated(), is(true));
+    assertThat(output.getFailedEnvironments(), contains(FIRST_ENVIRONMENT_ID));
+    assertThat(activity.due(Collections.singletonList(CLUSTER)), contains(CLUSTER));
+  }
+
+  private ClusterActivity activity() {
+    String clusterKey = ClusterActivityTracker.keyOf(CLUSTER);
+    return activityStore.get(Collections.singletonList(clusterKey)).get(clusterKey);
+  }
+
+  private ManagerHandler handler(SchedulerBatchSizer batchSizer) {
+    return new ManagerHandler(
+        dataService, ecs, scheduler, snapshots, batchSizer, FILTER, activity, ecsRateLimiters);
+  }
+
+  private void schedulerReturns(long successfulActions, long failedActions) {
+    when(scheduler.callAsync(schedulerArgument.capture()))
+        .thenAnswer(
+            invocation ->
+                CompletableFuture.completedFuture(
+                    new SchedulerBatchOutput(
+                        invocation
+                            .<SchedulerInput>getArgument(0)
+                            .getEnvironmentIds()
+                            .stream()
+                            .map(
+                                id ->
+                                    new SchedulerOutput(
+                                        CLUSTER_NAME, id, successfulActions, failedActions))
+                            .collect(Collectors.toList()))));
+  }
 }
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.manager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.amazonaws.blox.dataservicemodel.v1.model.EnvironmentId;
+import com.amazonaws.blox.scheduling.state.ClusterSnapshot;
+import com.amazonaws.blox.scheduling.state.ClusterSnapshot.ContainerInstance;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.Test;
+
+public class SchedulerBatchSizerTest {
+  private static final ClusterSnapshot EMPTY_CLUSTER =
+      new ClusterSnapshot("cluster1", Collections.emptyList(), Collections.emptyList());
+
+  @Test
+  public void putsAllEnvironmentsInOneBatchIfTheyFit() {
+    List<List<EnvironmentId>> batches =
+        new SchedulerBatchSizer(50, 1000).batches(environments(20), EMPTY_CLUSTER);
+
+    assertThat(batches).containsExactly(environments(20));
+  }
+
+  @Test
+  public void spreadsEnvironmentsEvenlyOverBatches() {
+    List<List<EnvironmentId>> batches =
+        new SchedulerBatchSizer(10, 1000).batches(environments(21), EMPTY_CLUSTER);
+
+    assertThat(batches).extracting(List::size).containsExactly(7, 7, 7);
+    assertThat(batches.stream().flatMap(List::stream).collect(Collectors.toList()))
+        .isEqualTo(environments(21));
+  }
+
+  @Test
+  public void limitsBatchSizeByWorkForLargeSnapshots() {
+    ClusterSnapshot snapshot =
+        new ClusterSnapshot(
+            "cluster1",
+            Collections.emptyList(),
+            Collections.nCopies(250, ContainerInstance.builder().arn("i-1").build()));
+
+    SchedulerBatchSizer sizer = new SchedulerBatchSizer(50, 1000);
+
+    assertThat(sizer.maxBatchSize(snapshot)).isEqualTo(4);
+    assertThat(sizer.batches(environments(10), snapshot))
+        .extracting(List::size)
+        .containsExactly(3, 3, 4);
+  }
+
+  @Test
+  public void alwaysAllowsAtLeastOneEnvironmentPerBatch() {
+    ClusterSnapshot snapshot =
+        new ClusterSnapshot(
+            "cluster1",
+            Collections.emptyList(),
+            Collections.nCopies(5000, ContainerInstance.builder().arn("i-1").build()));
+
+    assertThat(new SchedulerBatchSizer(50, 1000).maxBatchSize(snapshot)).isEqualTo(1);
+  }
+
+  @Test
+  public void returnsNoBatchesForNoEnvironments() {
+    assertThat(new SchedulerBatchSizer(50, 1000).batches(environments(0), EMPTY_CLUSTER)).isEmpty();
+  }
+
+  private static List<EnvironmentId> environments(int count) {
+    return IntStream.range(0, count)
+        .mapToObj(
+            i ->
+                EnvironmentId.builder()
+                    .accountId("123456789012")
+                    .cluster("cluster1")
+                    .environmentName("environment" + i)
+                    .build())
+        .collect(Collectors.toList());
+  }
+}
@@ -14,18 +14,13 @@
  */
 package com.amazonaws.blox.scheduling.reconciler;
 
-import static org.hamcrest.CoreMatchers.hasItems;
-import static org.junit.Assert.assertThat;
-import static org.mockito.Mockito.any;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.when;
 
-import com.amazonaws.blox.dataservicemodel.v1.client.DataService;
-import com.amazonaws.blox.dataservicemodel.v1.model.Cluster;
-import com.amazonaws.blox.dataservicemodel.v1.model.wrappers.ListClustersResponse;
 import com.amazonaws.blox.lambda.LambdaFunction;
-import com.amazonaws.blox.scheduling.manager.ManagerInput;
-import com.amazonaws.blox.scheduling.manager.ManagerOutput;
-import java.util.Arrays;
+import com.amazonaws.blox.scheduling.shard.ShardInput;
+import com.amazonaws.blox.scheduling.shard.ShardOutput;
 import java.util.concurrent.CompletableFuture;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -36,30 +31,38 @@ import org.mockito.junit.MockitoJUnitRunner;
 @RunWith(MockitoJUnitRunner.class)
 public class ReconcilerHandlerTest {
 
-  public static final String ACCOUNT_ID = "123456789012";
-  public static final String FIRST_CLUSTER_NAME = "cluster1";
-  public static final String SECOND_CLUSTER_NAME = "cluster2";
+  private ArgumentCaptor<ShardInput> input = ArgumentCaptor.forClass(ShardInput.class);
+  @Mock private LambdaFunction<ShardInput, ShardOutput> shard;
 
-  private static final Cluster CLUSTER1 =
-      Cluster.builder().accountId(ACCOUNT_ID).clusterName(FIRST_CLUSTER_NAME).build();
-  private static final Cluster CLUSTER2 =
-      Cluster.builder().accountId(ACCOUNT_ID).clusterName(SECOND_CLUSTER_NAME).build();
+  @Test
+  public void invokesShardAsynchronouslyForEachSegment() throws Exception {
+    when(shard.triggerAsync(input.capture())).thenReturn(CompletableFuture.completedFuture(null));
 
-  private ArgumentCaptor<ManagerInput> input = ArgumentCaptor.forClass(ManagerInput.class);
-  @Mock private DataService data;
-  @Mock private LambdaFunction<ManagerInput, ManagerOutput> manager;
+    ReconcilerHandler handler = new ReconcilerHandler(shard, 3);
+    handler.handleRequest(new CloudWatchEvent<>(), null);
 
-  @Test
-  public void invokesManagerAsynchronouslyForAllClusters() throws Exception {
-    when(data.listClusters(any()))
-        .thenReturn(new ListClustersResponse(Arrays.asList(CLUSTER1, CLUSTER2)));
+    assertThat(input.getAllValues())
+        .containsExactlyInAnyOrder(
+            new ShardInput(0, 3, null), new ShardInput(1, 3, null), new ShardInput(2, 3, null));
+  }
 
-    when(manager.triggerAsync(input.capture())).thenReturn(CompletableFuture.completedFuture(null));
+  @Test
+  public void triggersRemainingShardsWhenOneFails() throws Exception {
+    CompletableFuture<Void> failed = new CompletableFuture<>();
+    failed.completeExceptionally(new IllegalStateException("Rate exceeded"));
+    when(shard.triggerAsync(input.capture()))
+        .thenReturn(failed)
+        .thenReturn(CompletableFuture.completedFuture(null));
 
-    ReconcilerHandler handler = new ReconcilerHandler(data, manager);
+    ReconcilerHandler handler = new ReconcilerHandler(shard, 3);
     handler.handleRequest(new CloudWatchEvent<>(), null);
 
-    assertThat(
-        input.getAllValues(), hasItems(new ManagerInput(CLUSTER1), new ManagerInput(CLUSTER2)));
+    assertThat(input.getAllValues()).hasSize(3);
+  }
+
+  @Test
+  public void requiresAtLeastOneShard() throws Exception {
+    assertThatThrownBy(() -> new ReconcilerHandler(shard, 0))
+        .isInstanceOf(IllegalArgumentException.class);
   }
 }
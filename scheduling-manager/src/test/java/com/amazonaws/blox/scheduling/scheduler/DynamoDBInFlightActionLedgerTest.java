@@ -0,0 +1,97 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.scheduler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AmazonDynamoDBException;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.DeleteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DynamoDBInFlightActionLedgerTest {
+  private static final String TABLE_NAME = "InFlightActions";
+  private static final Instant NOW = Instant.parse("2017-11-01T00:00:00Z");
+
+  @Mock private AmazonDynamoDB dynamoDB;
+
+  private DynamoDBInFlightActionLedger ledger() {
+    return new DynamoDBInFlightActionLedger(
+        dynamoDB, TABLE_NAME, Duration.ofMinutes(3), Clock.fixed(NOW, ZoneOffset.UTC));
+  }
+
+  @Test
+  public void claimsKeysThatAreAbsentOrExpired() {
+    assertThat(ledger().claim("key-1")).isTrue();
+
+    ArgumentCaptor<PutItemRequest> request = ArgumentCaptor.forClass(PutItemRequest.class);
+    verify(dynamoDB).putItem(request.capture());
+    assertThat(request.getValue().getTableName()).isEqualTo(TABLE_NAME);
+    assertThat(request.getValue().getItem())
+        .containsEntry(DynamoDBInFlightActionLedger.ACTION_KEY, new AttributeValue("key-1"))
+        .containsEntry(
+            DynamoDBInFlightActionLedger.EXPIRES_AT,
+            new AttributeValue().withN(Long.toString(NOW.getEpochSecond() + 180)));
+    assertThat(request.getValue().getConditionExpression())
+        .isEqualTo("attribute_not_exists(#key) OR #expiresAt <= :now");
+    assertThat(request.getValue().getExpressionAttributeValues())
+        .containsEntry(":now", new AttributeValue().withN(Long.toString(NOW.getEpochSecond())));
+  }
+
+  @Test
+  public void rejectsKeysThatAreInFlight() {
+    when(dynamoDB.putItem(any(PutItemRequest.class)))
+        .thenThrow(new ConditionalCheckFailedException("in flight"));
+
+    assertThat(ledger().claim("key-1")).isFalse();
+  }
+
+  @Test
+  public void claimsKeysWhenTableIsUnavailable() {
+    when(dynamoDB.putItem(any(PutItemRequest.class)))
+        .thenThrow(new AmazonDynamoDBException("unavailable"));
+
+    assertThat(ledger().claim("key-1")).isTrue();
+  }
+
+  @Test
+  public void deletesReleasedKeys() {
+    ledger().release("key-1");
+
+    verify(dynamoDB)
+        .deleteItem(
+            new DeleteItemRequest()
+                .withTableName(TABLE_NAME)
+                .withKey(
+                    Collections.singletonMap(
+                        DynamoDBInFlightActionLedger.ACTION_KEY, new AttributeValue("key-1"))));
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.scheduler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AmazonDynamoDBException;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DynamoDBInstanceBackoffStoreTest {
+  private static final String TABLE_NAME = "InstanceBackoffs";
+  private static final String ENVIRONMENT_KEY = "123456789012/cluster/environment";
+
+  private final InstanceBackoff backoff =
+      InstanceBackoff.builder()
+          .instanceArn("instance-1")
+          .failures(2)
+          .reason("RESOURCE:MEMORY")
+          .retryAt(Instant.parse("2017-11-01T00:02:00.500Z"))
+          .expiresAt(Instant.parse("2017-11-01T00:32:00Z"))
+          .build();
+
+  @Mock private AmazonDynamoDB dynamoDB;
+
+  private DynamoDBInstanceBackoffStore store() {
+    return new DynamoDBInstanceBackoffStore(dynamoDB, TABLE_NAME);
+  }
+
+  @Test
+  public void readsBackBackoffsItStored() {
+    store().put(ENVIRONMENT_KEY, backoff);
+
+    ArgumentCaptor<PutItemRequest> put = ArgumentCaptor.forClass(PutItemRequest.class);
+    verify(dynamoDB).putItem(put.capture());
+    assertThat(put.getValue().getTableName()).isEqualTo(TABLE_NAME);
+    Map<String, AttributeValue> item = put.getValue().getItem();
+    assertThat(item)
+        .containsEntry(
+            DynamoDBInstanceBackoffStore.ENVIRONMENT_KEY, new AttributeValue(ENVIRONMENT_KEY))
+        .containsEntry(
+            DynamoDBInstanceBackoffStore.EXPIRES_AT,
+            new AttributeValue().withN(Long.toString(backoff.getExpiresAt().getEpochSecond())));
+
+    when(dynamoDB.query(any(QueryRequest.class)))
+        .thenReturn(new QueryResult().withItems(Collections.singletonList(new HashMap<>(item))));
+
+    assertThat(store().get(ENVIRONMENT_KEY))
+        .isEqualTo(Collections.singletonMap("instance-1", backoff));
+  }
+
+  @Test
+  public void queriesAllPagesOfEnvironment() {
+    Map<String, AttributeValue> lastKey =
+        Collections.singletonMap(
+            DynamoDBInstanceBackoffStore.INSTANCE_ARN, new AttributeValue("instance-1"));
+    when(dynamoDB.query(any(QueryRequest.class)))
+        .thenReturn(new QueryResult().withItems().withLastEvaluatedKey(lastKey))
+        .thenReturn(new QueryResult().withItems());
+
+    assertThat(store().get(ENVIRONMENT_KEY)).isEmpty();
+
+    ArgumentCaptor<QueryRequest> queries = ArgumentCaptor.forClass(QueryRequest.class);
+    verify(dynamoDB, times(2)).query(queries.capture());
+    assertThat(queries.getAllValues().get(0).getExpressionAttributeValues())
+        .containsEntry(":environment", new AttributeValue(ENVIRONMENT_KEY));
+    assertThat(queries.getAllValues().get(1).getExclusiveStartKey()).isEqualTo(lastKey);
+  }
+
+  @Test
+  public void coolsNothingDownWhenTableIsUnavailable() {
+    when(dynamoDB.query(any(QueryRequest.class)))
+        .thenThrow(new AmazonDynamoDBException("unavailable"));
+
+    assertThat(store().get(ENVIRONMENT_KEY)).isEmpty();
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.scheduler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.amazonaws.blox.scheduling.scheduler.engine.ActionResult;
+import com.amazonaws.blox.scheduling.scheduler.engine.SchedulingAction;
+import com.amazonaws.blox.scheduling.scheduler.engine.StartTask;
+import com.amazonaws.blox.scheduling.scheduler.engine.StopTask;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+public class InMemoryInFlightActionLedgerTest {
+  private static final Duration TTL = Duration.ofMinutes(3);
+
+  private Instant now = Instant.parse("2017-11-01T00:00:00Z");
+  private InMemoryInFlightActionLedger ledger;
+
+  @Before
+  public void setUp() {
+    Clock clock =
+        new Clock() {
+          @Override
+          public ZoneId getZone() {
+            return ZoneOffset.UTC;
+          }
+
+          @Override
+          public Clock withZone(ZoneId zone) {
+            return this;
+          }
+
+          @Override
+          public Instant instant() {
+            return now;
+          }
+        };
+    ledger = new InMemoryInFlightActionLedger(TTL, clock);
+  }
+
+  @Test
+  public void rejectsDuplicateClaims() {
+    assertThat(ledger.claim("key-1")).isTrue();
+    assertThat(ledger.claim("key-1")).isFalse();
+    assertThat(ledger.claim("key-2")).isTrue();
+  }
+
+  @Test
+  public void claimsExpiredKeysAgain() {
+    ledger.claim("key-1");
+
+    now = now.plus(TTL).minusSeconds(1);
+    assertThat(ledger.claim("key-1")).isFalse();
+
+    now = now.plusSeconds(1);
+    assertThat(ledger.claim("key-1")).isTrue();
+  }
+
+  @Test
+  public void claimsReleasedKeysAgain() {
+    ledger.claim("key-1");
+    ledger.release("key-1");
+
+    assertThat(ledger.claim("key-1")).isTrue();
+  }
+
+  @Test
+  public void dropsActionsThatAreAlreadyInFlight() {
+    SchedulingAction start = start("instance-1", "task-definition:1");
+    SchedulingAction stop = stop("task-1");
+    ledger.claimAll(Arrays.asList(start, stop));
+
+    // Starting a newer revision in the same group would still be a duplicate daemon:
+    SchedulingAction otherRevision = start("instance-1", "task-definition:2");
+    SchedulingAction otherInstance = start("instance-2", "task-definition:1");
+    List<SchedulingAction> claimed =
+        ledger.claimAll(Arrays.asList(otherRevision, stop, otherInstance));
+
+    assertThat(claimed).containsExactly(otherInstance);
+  }
+
+  @Test
+  public void releasesFailedActions() {
+    SchedulingAction succeeded = start("instance-1", "task-definition:1");
+    SchedulingAction failed = start("instance-2", "task-definition:1");
+    ledger.claimAll(Arrays.asList(succeeded, failed));
+
+    ledger.releaseFailed(
+        Arrays.asList(result(succeeded, "instance-1", true), result(failed, "instance-2", false)));
+
+    assertThat(ledger.claimAll(Arrays.asList(succeeded, failed))).containsExactly(failed);
+  }
+
+  @Test
+  public void keepsAbandonedActionsClaimed() {
+    SchedulingAction abandoned = start("instance-1", "task-definition:1");
+    ledger.claimAll(Arrays.asList(abandoned));
+
+    ledger.releaseFailed(
+        Arrays.asList(
+            ActionResult.builder()
+                .action(abandoned)
+                .target("instance-1")
+                .successful(false)
+                .failureReason(ActionResult.ABANDONED)
+                .attempts(1)
+                .latency(Duration.ZERO)
+                .build()));
+
+    assertThat(ledger.claimAll(Arrays.asList(abandoned))).isEmpty();
+  }
+
+  private static ActionResult result(SchedulingAction action, String target, boolean successful) {
+    return ActionResult.builder()
+        .action(action)
+        .target(target)
+        .successful(successful)
+        .failureReason(successful ? null : "RESOURCE:CPU")
+        .attempts(1)
+        .latency(Duration.ZERO)
+        .build();
+  }
+
+  private static StartTask start(String instance, String taskDefinition) {
+    return StartTask.builder()
+        .clusterName("cluster")
+        .containerInstanceArn(instance)
+        .taskDefinitionArn(taskDefinition)
+        .group("environment")
+        .build();
+  }
+
+  private static StopTask stop(String task) {
+    return StopTask.builder().clusterName("cluster").task(task).reason("test").build();
+  }
+}
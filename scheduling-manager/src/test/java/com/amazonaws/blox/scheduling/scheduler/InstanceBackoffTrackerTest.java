@@ -0,0 +1,168 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.scheduler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.amazonaws.blox.dataservicemodel.v1.model.EnvironmentId;
+import com.amazonaws.blox.scheduling.scheduler.engine.ActionResult;
+import com.amazonaws.blox.scheduling.scheduler.engine.StartTask;
+import com.amazonaws.blox.scheduling.scheduler.engine.StopTask;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.Set;
+import org.junit.Before;
+import org.junit.Test;
+
+public class InstanceBackoffTrackerTest {
+  private static final Duration BASE_DELAY = Duration.ofMinutes(1);
+  private static final Duration MAX_DELAY = Duration.ofMinutes(30);
+
+  private final EnvironmentId environmentId =
+      EnvironmentId.builder()
+          .accountId("123456789012")
+          .cluster("cluster")
+          .environmentName("environment")
+          .build();
+
+  private Instant now = Instant.parse("2017-11-01T00:00:00Z");
+  private InstanceBackoffTracker tracker;
+
+  @Before
+  public void setUp() {
+    Clock clock =
+        new Clock() {
+          @Override
+          public ZoneId getZone() {
+            return ZoneOffset.UTC;
+          }
+
+          @Override
+          public Clock withZone(ZoneId zone) {
+            return this;
+          }
+
+          @Override
+          public Instant instant() {
+            return now;
+          }
+        };
+    tracker =
+        new InstanceBackoffTracker(
+            new InMemoryInstanceBackoffStore(), BASE_DELAY, MAX_DELAY, clock);
+  }
+
+  @Test
+  public void coolsDownInstanceAfterInstanceFailure() {
+    tick(start("instance-1", "RESOURCE:MEMORY"));
+
+    assertThat(coolingDown()).containsExactly("instance-1");
+    now = now.plus(BASE_DELAY);
+    assertThat(coolingDown()).isEmpty();
+  }
+
+  @Test
+  public void doublesCooldownAfterEveryConsecutiveFailure() {
+    tick(start("instance-1", "AGENT"));
+    now = now.plus(BASE_DELAY);
+    tick(start("instance-1", "AGENT"));
+
+    now = now.plus(BASE_DELAY);
+    assertThat(coolingDown()).containsExactly("instance-1");
+    now = now.plus(BASE_DELAY);
+    assertThat(coolingDown()).isEmpty();
+  }
+
+  @Test
+  public void capsCooldownAtMaxDelay() {
+    assertThat(tracker.delayAfter(1)).isEqualTo(BASE_DELAY);
+    assertThat(tracker.delayAfter(3)).isEqualTo(Duration.ofMinutes(4));
+    assertThat(tracker.delayAfter(6)).isEqualTo(MAX_DELAY);
+    assertThat(tracker.delayAfter(100)).isEqualTo(MAX_DELAY);
+  }
+
+  @Test
+  public void resetsBackoffAfterSuccessfulStart() {
+    tick(start("instance-1", "RESOURCE:PORTS"));
+    now = now.plus(BASE_DELAY);
+    tick(start("instance-1", null));
+    tick(start("instance-1", "RESOURCE:PORTS"));
+
+    now = now.plus(BASE_DELAY);
+    assertThat(coolingDown()).isEmpty();
+  }
+
+  @Test
+  public void forgetsFailuresAfterMaxDelayWithoutFailures() {
+    tick(start("instance-1", "RESOURCE:MEMORY"));
+
+    now = now.plus(BASE_DELAY).plus(MAX_DELAY);
+    assertThat(tracker.load(environmentId)).isEmpty();
+  }
+
+  @Test
+  public void ignoresFailuresThatArentCausedByInstance() {
+    tick(start("instance-1", "ThrottlingException"));
+    tick(start("instance-2", ActionResult.DEADLINE_EXCEEDED));
+    tick(
+        ActionResult.builder()
+            .action(StopTask.builder().clusterName("cluster").task("task-1").build())
+            .target("task-1")
+            .failureReason("MISSING")
+            .build());
+
+    assertThat(tracker.load(environmentId)).isEmpty();
+  }
+
+  @Test
+  public void tracksEnvironmentsSeparately() {
+    tick(start("instance-1", "RESOURCE:MEMORY"));
+
+    EnvironmentId other =
+        EnvironmentId.builder()
+            .accountId("123456789012")
+            .cluster("cluster")
+            .environmentName("other")
+            .build();
+    assertThat(tracker.load(other)).isEmpty();
+  }
+
+  private void tick(ActionResult result) {
+    tracker.update(environmentId, tracker.load(environmentId), Collections.singletonList(result));
+  }
+
+  private Set<String> coolingDown() {
+    return tracker.coolingDown(tracker.load(environmentId));
+  }
+
+  private static ActionResult start(String instance, String failureReason) {
+    return ActionResult.builder()
+        .action(
+            StartTask.builder()
+                .clusterName("cluster")
+                .group("environment")
+                .taskDefinitionArn("task-definition")
+                .containerInstanceArn(instance)
+                .build())
+        .target(instance)
+        .successful(failureReason == null)
+        .failureReason(failureReason)
+        .build();
+  }
+}
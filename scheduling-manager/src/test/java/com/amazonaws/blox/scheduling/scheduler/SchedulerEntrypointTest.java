@@ -35,6 +35,8 @@ import com.amazonaws.blox.dataservicemodel.v1.model.wrappers.DescribeEnvironment
 import com.amazonaws.blox.scheduling.LambdaHandlerTestCase;
 import com.amazonaws.blox.scheduling.scheduler.SchedulerEntrypointTest.TestConfig;
 import com.amazonaws.blox.scheduling.scheduler.engine.SchedulerFactory;
+import com.amazonaws.blox.scheduling.state.BlobStore;
+import com.amazonaws.blox.scheduling.state.InMemoryBlobStore;
 import java.time.Instant;
 import java.util.Collections;
 import org.junit.Test;
@@ -117,9 +119,14 @@ public class SchedulerEntrypointTest extends LambdaHandlerTestCase {
 
     @Bean
     public SchedulerFactory schedulerFactory() throws Exception {
-      return when(mock(SchedulerFactory.class).schedulerFor(any()))
+      return when(mock(SchedulerFactory.class).schedulerFor(any(), any()))
           .thenReturn((snapshot, deploymentConfiguration) -> Collections.emptyList())
           .getMock();
     }
+
+    @Bean
+    public BlobStore snapshotBlobStore() {
+      return new InMemoryBlobStore();
+    }
   }
 }
@@ -15,10 +15,12 @@
 package com.amazonaws.blox.scheduling.scheduler;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -34,21 +36,39 @@ import com.amazonaws.blox.dataservicemodel.v1.model.wrappers.DescribeEnvironment
 import com.amazonaws.blox.dataservicemodel.v1.model.wrappers.DescribeEnvironmentResponse;
 import com.amazonaws.blox.dataservicemodel.v1.model.wrappers.DescribeEnvironmentRevisionRequest;
 import com.amazonaws.blox.dataservicemodel.v1.model.wrappers.DescribeEnvironmentRevisionResponse;
+import com.amazonaws.blox.lambda.LambdaDeadlines;
+import com.amazonaws.blox.scheduling.ecs.ECSRateLimiters;
 import com.amazonaws.blox.scheduling.scheduler.engine.EnvironmentDescription;
 import com.amazonaws.blox.scheduling.scheduler.engine.Scheduler;
 import com.amazonaws.blox.scheduling.scheduler.engine.SchedulerFactory;
 import com.amazonaws.blox.scheduling.scheduler.engine.SchedulingAction;
+import com.amazonaws.blox.scheduling.scheduler.engine.TaskOutcome;
+import com.amazonaws.blox.scheduling.scheduler.engine.TaskRequirements;
+import com.amazonaws.blox.scheduling.scheduler.engine.placement.PlacementContext;
 import com.amazonaws.blox.scheduling.state.ClusterSnapshot;
+import com.amazonaws.blox.scheduling.state.ClusterSnapshot.ContainerInstance;
+import com.amazonaws.blox.scheduling.state.SnapshotStore;
+import com.amazonaws.services.lambda.runtime.Context;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import software.amazon.awssdk.services.ecs.ECSAsyncClient;
+import software.amazon.awssdk.services.ecs.model.DescribeTaskDefinitionRequest;
+import software.amazon.awssdk.services.ecs.model.DescribeTaskDefinitionResponse;
+import software.amazon.awssdk.services.ecs.model.Failure;
+import software.amazon.awssdk.services.ecs.model.StartTaskRequest;
+import software.amazon.awssdk.services.ecs.model.StartTaskResponse;
+import software.amazon.awssdk.services.ecs.model.Task;
+import software.amazon.awssdk.services.ecs.model.TaskDefinition;
 
 @RunWith(MockitoJUnitRunner.class)
 public class SchedulerHandlerTest {
@@ -70,6 +90,7 @@ public class SchedulerHandlerTest {
   @Mock private SchedulerFactory schedulerFactory;
   @Mock private DataService dataService;
   @Mock private ECSAsyncClient ecs;
+  @Mock private SnapshotStore snapshots;
 
   @Test
   public void doesNothingIfNoEnvironmentRevisionIsActive() throws Exception {
@@ -82,10 +103,14 @@ public class SchedulerHandlerTest {
                 .environment(environmentWithActiveRevision(null))
                 .build());
 
-    SchedulerHandler handler = new SchedulerHandler(dataService, ecs, schedulerFactory);
+    SchedulerHandler handler = new SchedulerHandler(dataService, ecs, schedulerFactory, snapshots);
 
     SchedulerOutput output =
-        handler.handleRequest(new SchedulerInput(EMPTY_CLUSTER, environmentId), null);
+        handler
+            .handleRequest(
+                new SchedulerInput(EMPTY_CLUSTER, Collections.singletonList(environmentId)), null)
+            .getOutputs()
+            .get(0);
 
     verify(dataService, never()).describeEnvironmentRevision(any());
     assertThat(output)
@@ -93,6 +118,27 @@ public class SchedulerHandlerTest {
         .hasFieldOrPropertyWithValue("successfulActions", 0L);
   }
 
+  @Test
+  public void reportsEcsRateLimiterOfCluster() throws Exception {
+    DescribeEnvironmentRequest describeEnvironmentRequest =
+        DescribeEnvironmentRequest.builder().environmentId(environmentId).build();
+
+    when(dataService.describeEnvironment(describeEnvironmentRequest))
+        .thenReturn(
+            DescribeEnvironmentResponse.builder()
+                .environment(environmentWithActiveRevision(null))
+                .build());
+
+    ECSRateLimiters rateLimiters = mock(ECSRateLimiters.class);
+    SchedulerHandler handler =
+        new SchedulerHandler(dataService, ecs, schedulerFactory, snapshots, rateLimiters);
+
+    handler.handleRequest(
+        new SchedulerInput(EMPTY_CLUSTER, Collections.singletonList(environmentId)), null);
+
+    verify(rateLimiters).metrics(EMPTY_CLUSTER.getClusterName());
+  }
+
   @Test
   public void invokesSchedulerCoreForDeploymentMethod() throws Exception {
 
@@ -120,20 +166,36 @@ public class SchedulerHandlerTest {
                         .createdTime(Instant.now())
                         .build())
                 .build());
+    when(ecs.describeTaskDefinition(
+            DescribeTaskDefinitionRequest.builder().taskDefinition(TASK_DEFINITION).build()))
+        .thenReturn(
+            CompletableFuture.completedFuture(
+                DescribeTaskDefinitionResponse.builder()
+                    .taskDefinition(
+                        TaskDefinition.builder()
+                            .taskDefinitionArn(TASK_DEFINITION)
+                            .cpu("256")
+                            .memory("512")
+                            .build())
+                    .build()));
 
-    SchedulingAction successfulAction = e -> CompletableFuture.completedFuture(true);
-    SchedulingAction failedAction = e -> CompletableFuture.completedFuture(false);
+    SchedulingAction successfulAction = action("instance-1", null);
+    SchedulingAction failedAction = action("instance-2", "RESOURCE:CPU");
 
     Scheduler mockScheduler = mock(Scheduler.class);
     when(mockScheduler.schedule(any(), any()))
         .thenReturn(Arrays.asList(successfulAction, failedAction));
 
-    when(schedulerFactory.schedulerFor(any())).thenReturn(mockScheduler);
+    when(schedulerFactory.schedulerFor(any(), any())).thenReturn(mockScheduler);
 
-    SchedulerHandler handler = new SchedulerHandler(dataService, ecs, schedulerFactory);
+    SchedulerHandler handler = new SchedulerHandler(dataService, ecs, schedulerFactory, snapshots);
 
     SchedulerOutput output =
-        handler.handleRequest(new SchedulerInput(EMPTY_CLUSTER, environmentId), null);
+        handler
+            .handleRequest(
+                new SchedulerInput(EMPTY_CLUSTER, Collections.singletonList(environmentId)), null)
+            .getOutputs()
+            .get(0);
 
     verify(dataService).describeEnvironment(describeEnvironmentRequest);
     verify(dataService).describeEnvironmentRevision(describeEnvironmentRevisionRequest);
@@ -149,6 +211,7 @@ public class SchedulerHandlerTest {
                 .environmentType(EnvironmentDescription.EnvironmentType.SingleTask)
                 .taskDefinitionArn(TASK_DEFINITION)
                 .deploymentMethod(DEPLOYMENT_METHOD)
+                .taskRequirements(TaskRequirements.builder().cpu(256).memory(512).build())
                 .build());
 
     assertThat(output.getClusterName()).isEqualTo(CLUSTER_NAME);
@@ -157,11 +220,400 @@ public class SchedulerHandlerTest {
     assertThat(output.getFailedActions()).isEqualTo(1L);
   }
 
+  @Test
+  public void placesEachInvocationAgainstItsOwnCapacity() throws Exception {
+    when(dataService.describeEnvironment(any()))
+        .thenReturn(
+            DescribeEnvironmentResponse.builder()
+                .environment(environmentWithActiveRevision(ACTIVE_ENVIRONMENT_REVISION_ID))
+                .build());
+    when(dataService.describeEnvironmentRevision(any()))
+        .thenReturn(
+            DescribeEnvironmentRevisionResponse.builder()
+                .environmentRevision(
+                    EnvironmentRevision.builder()
+                        .environmentId(environmentId)
+                        .environmentRevisionId(ACTIVE_ENVIRONMENT_REVISION_ID)
+                        .taskDefinition(TASK_DEFINITION)
+                        .createdTime(Instant.now())
+                        .build())
+                .build());
+    when(ecs.describeTaskDefinition(any()))
+        .thenReturn(
+            CompletableFuture.completedFuture(
+                DescribeTaskDefinitionResponse.builder()
+                    .taskDefinition(
+                        TaskDefinition.builder()
+                            .taskDefinitionArn(TASK_DEFINITION)
+                            .cpu("256")
+                            .memory("512")
+                            .build())
+                    .build()));
+    Scheduler mockScheduler = mock(Scheduler.class);
+    when(mockScheduler.schedule(any(), any())).thenReturn(Collections.emptyList());
+    when(schedulerFactory.schedulerFor(any(), any())).thenReturn(mockScheduler);
+
+    SchedulerHandler handler = new SchedulerHandler(dataService, ecs, schedulerFactory, snapshots);
+    SchedulerInput input =
+        new SchedulerInput(EMPTY_CLUSTER, Collections.singletonList(environmentId));
+    handler.handleRequest(input, null);
+    handler.handleRequest(input, null);
+
+    ArgumentCaptor<PlacementContext> placements = ArgumentCaptor.forClass(PlacementContext.class);
+    verify(schedulerFactory, times(2)).schedulerFor(any(), placements.capture());
+    assertThat(placements.getAllValues().get(0)).isNotSameAs(placements.getAllValues().get(1));
+  }
+
+  @Test
+  public void fetchesReferencedSnapshotFromStore() throws Exception {
+    when(dataService.describeEnvironment(any()))
+        .thenReturn(
+            DescribeEnvironmentResponse.builder()
+                .environment(environmentWithActiveRevision(null))
+                .build());
+    when(snapshots.fetch("snapshot-id")).thenReturn(EMPTY_CLUSTER);
+
+    SchedulerHandler handler = new SchedulerHandler(dataService, ecs, schedulerFactory, snapshots);
+
+    SchedulerOutput output =
+        handler
+            .handleRequest(
+                new SchedulerInput("snapshot-id", Collections.singletonList(environmentId)), null)
+            .getOutputs()
+            .get(0);
+
+    verify(snapshots).fetch("snapshot-id");
+    assertThat(output).hasFieldOrPropertyWithValue("clusterName", CLUSTER_NAME);
+  }
+
+  @Test
+  public void schedulesEveryEnvironmentInBatch() throws Exception {
+    EnvironmentId otherEnvironmentId = otherEnvironment();
+    when(dataService.describeEnvironment(any()))
+        .thenReturn(
+            DescribeEnvironmentResponse.builder()
+                .environment(environmentWithActiveRevision(null))
+                .build());
+
+    SchedulerHandler handler = new SchedulerHandler(dataService, ecs, schedulerFactory, snapshots);
+
+    SchedulerBatchOutput output =
+        handler.handleRequest(
+            new SchedulerInput(EMPTY_CLUSTER, Arrays.asList(environmentId, otherEnvironmentId)),
+            null);
+
+    assertThat(output.getOutputs())
+        .extracting(SchedulerOutput::getEnvironmentId)
+        .containsExactly(environmentId, otherEnvironmentId);
+  }
+
+  @Test
+  public void failsBatchOnlyAfterSchedulingAllEnvironments() throws Exception {
+    EnvironmentId otherEnvironmentId = otherEnvironment();
+    when(dataService.describeEnvironment(
+            DescribeEnvironmentRequest.builder().environmentId(environmentId).build()))
+        .thenThrow(new IllegalStateException("describe failed"));
+    when(dataService.describeEnvironment(
+            DescribeEnvironmentRequest.builder().environmentId(otherEnvironmentId).build()))
+        .thenReturn(
+            DescribeEnvironmentResponse.builder()
+                .environment(environmentWithActiveRevision(null))
+                .build());
+
+    SchedulerHandler handler = new SchedulerHandler(dataService, ecs, schedulerFactory, snapshots);
+
+    assertThatThrownBy(
+            () ->
+                handler.handleRequest(
+                    new SchedulerInput(
+                        EMPTY_CLUSTER, Arrays.asList(environmentId, otherEnvironmentId)),
+                    null))
+        .isInstanceOf(IllegalStateException.class);
+    verify(dataService)
+        .describeEnvironment(
+            DescribeEnvironmentRequest.builder().environmentId(otherEnvironmentId).build());
+  }
+
+  @Test
+  public void returnsTruncatedOutputWhenRunningOutOfTime() throws Exception {
+    EnvironmentId otherEnvironmentId = otherEnvironment();
+    CountDownLatch describeReturns = new CountDownLatch(1);
+    when(dataService.describeEnvironment(
+            DescribeEnvironmentRequest.builder().environmentId(environmentId).build()))
+        .thenAnswer(
+            invocation -> {
+              describeReturns.await();
+              return DescribeEnvironmentResponse.builder()
+                  .environment(environmentWithActiveRevision(null))
+                  .build();
+            });
+    when(dataService.describeEnvironment(
+            DescribeEnvironmentRequest.builder().environmentId(otherEnvironmentId).build()))
+        .thenReturn(
+            DescribeEnvironmentResponse.builder()
+                .environment(environmentWithActiveRevision(null))
+                .build());
+    Context context = mock(Context.class);
+    when(context.getRemainingTimeInMillis())
+        .thenReturn((int) LambdaDeadlines.DEFAULT_RESERVED_MILLIS + 1000);
+
+    SchedulerHandler handler = new SchedulerHandler(dataService, ecs, schedulerFactory, snapshots);
+
+    SchedulerBatchOutput output =
+        handler.handleRequest(
+            new SchedulerInput(EMPTY_CLUSTER, Arrays.asList(environmentId, otherEnvironmentId)),
+            context);
+    describeReturns.countDown();
+
+    assertThat(output.isTruncated()).isTrue();
+    assertThat(output.getOutputs())
+        .extracting(SchedulerOutput::getEnvironmentId)
+        .containsExactly(otherEnvironmentId);
+  }
+
+  @Test
+  public void schedulesDaemonEnvironmentsTogether() throws Exception {
+    EnvironmentId otherEnvironmentId = otherEnvironment();
+    when(dataService.describeEnvironment(any()))
+        .thenReturn(
+            DescribeEnvironmentResponse.builder()
+                .environment(
+                    environmentWithActiveRevision(
+                        ACTIVE_ENVIRONMENT_REVISION_ID, EnvironmentType.Daemon))
+                .build());
+    when(dataService.describeEnvironmentRevision(any()))
+        .thenAnswer(
+            invocation -> {
+              DescribeEnvironmentRevisionRequest request = invocation.getArgument(0);
+              return DescribeEnvironmentRevisionResponse.builder()
+                  .environmentRevision(
+                      EnvironmentRevision.builder()
+                          .environmentId(request.getEnvironmentId())
+                          .environmentRevisionId(ACTIVE_ENVIRONMENT_REVISION_ID)
+                          .taskDefinition(TASK_DEFINITION)
+                          .createdTime(Instant.now())
+                          .build())
+                  .build();
+            });
+    when(ecs.startTask(any()))
+        .thenReturn(
+            CompletableFuture.completedFuture(StartTaskResponse.builder().failures().build()));
+    ClusterSnapshot snapshot =
+        new ClusterSnapshot(
+            CLUSTER_NAME,
+            Collections.emptyList(),
+            Collections.singletonList(ContainerInstance.builder().arn("instance-1").build()));
+
+    SchedulerHandler handler = new SchedulerHandler(dataService, ecs, schedulerFactory, snapshots);
+
+    SchedulerBatchOutput output =
+        handler.handleRequest(
+            new SchedulerInput(snapshot, Arrays.asList(environmentId, otherEnvironmentId)), null);
+
+    verify(schedulerFactory, never()).schedulerFor(any(), any());
+    ArgumentCaptor<StartTaskRequest> requests = ArgumentCaptor.forClass(StartTaskRequest.class);
+    verify(ecs, times(2)).startTask(requests.capture());
+    assertThat(requests.getAllValues())
+        .extracting(StartTaskRequest::group)
+        .containsExactlyInAnyOrder(ENVIRONMENT_NAME, "environment2");
+    assertThat(output.getOutputs())
+        .extracting(o -> o.getSuccessfulActions() + o.getFailedActions())
+        .containsExactly(1L, 1L);
+  }
+
+  @Test
+  public void startsDaemonTasksOnUpToTenInstancesPerCall() throws Exception {
+    when(dataService.describeEnvironment(any()))
+        .thenReturn(
+            DescribeEnvironmentResponse.builder()
+                .environment(
+                    environmentWithActiveRevision(
+                        ACTIVE_ENVIRONMENT_REVISION_ID, EnvironmentType.Daemon))
+                .build());
+    when(dataService.describeEnvironmentRevision(any()))
+        .thenReturn(
+            DescribeEnvironmentRevisionResponse.builder()
+                .environmentRevision(
+                    EnvironmentRevision.builder()
+                        .environmentId(environmentId)
+                        .environmentRevisionId(ACTIVE_ENVIRONMENT_REVISION_ID)
+                        .taskDefinition(TASK_DEFINITION)
+                        .createdTime(Instant.now())
+                        .build())
+                .build());
+    when(ecs.startTask(any()))
+        .thenAnswer(
+            invocation -> {
+              StartTaskRequest request = invocation.getArgument(0);
+              StartTaskResponse.Builder response = StartTaskResponse.builder();
+              List<Task> tasks = new ArrayList<>();
+              List<Failure> failures = new ArrayList<>();
+              for (String instance : request.containerInstances()) {
+                if (instance.equals("instance-3")) {
+                  failures.add(Failure.builder().arn(instance).reason("RESOURCE:CPU").build());
+                } else {
+                  tasks.add(Task.builder().containerInstanceArn(instance).build());
+                }
+              }
+              return CompletableFuture.completedFuture(
+                  response.tasks(tasks).failures(failures).build());
+            });
+    List<ContainerInstance> instances = new ArrayList<>();
+    for (int i = 0; i < 12; i++) {
+      instances.add(ContainerInstance.builder().arn("instance-" + i).build());
+    }
+    ClusterSnapshot snapshot =
+        new ClusterSnapshot(CLUSTER_NAME, Collections.emptyList(), instances);
+
+    SchedulerHandler handler = new SchedulerHandler(dataService, ecs, schedulerFactory, snapshots);
+
+    SchedulerOutput output =
+        handler
+            .handleRequest(new SchedulerInput(snapshot, Arrays.asList(environmentId)), null)
+            .getOutputs()
+            .get(0);
+
+    ArgumentCaptor<StartTaskRequest> requests = ArgumentCaptor.forClass(StartTaskRequest.class);
+    verify(ecs, times(2)).startTask(requests.capture());
+    assertThat(requests.getAllValues())
+        .extracting(r -> r.containerInstances().size())
+        .containsExactly(10, 2);
+    assertThat(output)
+        .hasFieldOrPropertyWithValue("failedActions", 1L)
+        .hasFieldOrPropertyWithValue("successfulActions", 11L);
+  }
+
+  @Test
+  public void skipsStartsThatAreStillInFlightFromEarlierTick() throws Exception {
+    when(dataService.describeEnvironment(any()))
+        .thenReturn(
+            DescribeEnvironmentResponse.builder()
+                .environment(
+                    environmentWithActiveRevision(
+                        ACTIVE_ENVIRONMENT_REVISION_ID, EnvironmentType.Daemon))
+                .build());
+    when(dataService.describeEnvironmentRevision(any()))
+        .thenReturn(
+            DescribeEnvironmentRevisionResponse.builder()
+                .environmentRevision(
+                    EnvironmentRevision.builder()
+                        .environmentId(environmentId)
+                        .environmentRevisionId(ACTIVE_ENVIRONMENT_REVISION_ID)
+                        .taskDefinition(TASK_DEFINITION)
+                        .createdTime(Instant.now())
+                        .build())
+                .build());
+    when(ecs.startTask(any()))
+        .thenReturn(
+            CompletableFuture.completedFuture(
+                StartTaskResponse.builder()
+                    .tasks(Task.builder().containerInstanceArn("instance-1").build())
+                    .failures()
+                    .build()));
+    // ECS doesn't report the started task yet, so both ticks see the same snapshot:
+    ClusterSnapshot snapshot =
+        new ClusterSnapshot(
+            CLUSTER_NAME,
+            Collections.emptyList(),
+            Collections.singletonList(ContainerInstance.builder().arn("instance-1").build()));
+    SchedulerInput input = new SchedulerInput(snapshot, Collections.singletonList(environmentId));
+
+    SchedulerHandler handler = new SchedulerHandler(dataService, ecs, schedulerFactory, snapshots);
+
+    SchedulerOutput first = handler.handleRequest(input, null).getOutputs().get(0);
+    SchedulerOutput second = handler.handleRequest(input, null).getOutputs().get(0);
+
+    verify(ecs, times(1)).startTask(any());
+    assertThat(first).hasFieldOrPropertyWithValue("successfulActions", 1L);
+    assertThat(second)
+        .hasFieldOrPropertyWithValue("failedActions", 0L)
+        .hasFieldOrPropertyWithValue("successfulActions", 0L);
+  }
+
+  @Test
+  public void backsOffInstancesThatTasksFailedToStartOn() throws Exception {
+    when(dataService.describeEnvironment(any()))
+        .thenReturn(
+            DescribeEnvironmentResponse.builder()
+                .environment(
+                    environmentWithActiveRevision(
+                        ACTIVE_ENVIRONMENT_REVISION_ID, EnvironmentType.Daemon))
+                .build());
+    when(dataService.describeEnvironmentRevision(any()))
+        .thenReturn(
+            DescribeEnvironmentRevisionResponse.builder()
+                .environmentRevision(
+                    EnvironmentRevision.builder()
+                        .environmentId(environmentId)
+                        .environmentRevisionId(ACTIVE_ENVIRONMENT_REVISION_ID)
+                        .taskDefinition(TASK_DEFINITION)
+                        .createdTime(Instant.now())
+                        .build())
+                .build());
+    when(ecs.startTask(any()))
+        .thenReturn(
+            CompletableFuture.completedFuture(
+                StartTaskResponse.builder()
+                    .tasks()
+                    .failures(Failure.builder().arn("instance-1").reason("RESOURCE:MEMORY").build())
+                    .build()));
+    ClusterSnapshot snapshot =
+        new ClusterSnapshot(
+            CLUSTER_NAME,
+            Collections.emptyList(),
+            Collections.singletonList(ContainerInstance.builder().arn("instance-1").build()));
+    SchedulerInput input = new SchedulerInput(snapshot, Collections.singletonList(environmentId));
+
+    SchedulerHandler handler = new SchedulerHandler(dataService, ecs, schedulerFactory, snapshots);
+
+    SchedulerOutput first = handler.handleRequest(input, null).getOutputs().get(0);
+    SchedulerOutput second = handler.handleRequest(input, null).getOutputs().get(0);
+
+    verify(ecs, times(1)).startTask(any());
+    assertThat(first).hasFieldOrPropertyWithValue("failedActions", 1L);
+    assertThat(first.getCoolingDownInstances()).isEmpty();
+    assertThat(second).hasFieldOrPropertyWithValue("failedActions", 0L);
+    assertThat(second.getCoolingDownInstances()).containsExactly("instance-1");
+  }
+
+  private static SchedulingAction action(String target, String failureReason) {
+    return new SchedulingAction() {
+      @Override
+      public String getClusterName() {
+        return CLUSTER_NAME;
+      }
+
+      @Override
+      public List<String> targets() {
+        return Collections.singletonList(target);
+      }
+
+      @Override
+      public CompletableFuture<List<TaskOutcome>> executeEach(ECSAsyncClient ecs) {
+        return CompletableFuture.completedFuture(
+            Collections.singletonList(new TaskOutcome(target, failureReason)));
+      }
+    };
+  }
+
+  private EnvironmentId otherEnvironment() {
+    return EnvironmentId.builder()
+        .accountId(ACCOUNT_ID)
+        .cluster(CLUSTER_NAME)
+        .environmentName("environment2")
+        .build();
+  }
+
   private Environment environmentWithActiveRevision(final String revisionId) {
+    return environmentWithActiveRevision(revisionId, EnvironmentType.SingleTask);
+  }
+
+  private Environment environmentWithActiveRevision(
+      final String revisionId, final EnvironmentType type) {
     return Environment.builder()
         .environmentId(environmentId)
         .role("")
-        .environmentType(EnvironmentType.SingleTask)
+        .environmentType(type)
         .createdTime(Instant.now())
         .lastUpdatedTime(Instant.now())
         .environmentHealth(EnvironmentHealth.HEALTHY)
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.scheduler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.blox.jsonrpc.Deadline;
+import com.amazonaws.blox.scheduling.scheduler.engine.SchedulingAction;
+import com.amazonaws.blox.scheduling.scheduler.engine.StopTask;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TieredInFlightActionLedgerTest {
+  @Mock private InFlightActionLedger local;
+  @Mock private InFlightActionLedger shared;
+
+  @Test
+  public void skipsSharedLedgerForLocalDuplicates() {
+    when(local.claim("key-1")).thenReturn(false);
+
+    assertThat(new TieredInFlightActionLedger(local, shared).claim("key-1")).isFalse();
+    verify(shared, never()).claim("key-1");
+  }
+
+  @Test
+  public void releasesLocalClaimForSharedDuplicates() {
+    when(local.claim("key-1")).thenReturn(true);
+    when(shared.claim("key-1")).thenReturn(false);
+
+    assertThat(new TieredInFlightActionLedger(local, shared).claim("key-1")).isFalse();
+    verify(local).release("key-1");
+  }
+
+  @Test
+  public void claimsKeysInBothLedgers() {
+    when(local.claim("key-1")).thenReturn(true);
+    when(shared.claim("key-1")).thenReturn(true);
+
+    assertThat(new TieredInFlightActionLedger(local, shared).claim("key-1")).isTrue();
+  }
+
+  @Test
+  public void claimsActionsConcurrently() {
+    CyclicBarrier allInFlight = new CyclicBarrier(3);
+    InFlightActionLedger slowShared =
+        new FakeSharedLedger() {
+          @Override
+          public boolean claim(String key) {
+            try {
+              // Only passes if all three claims are in flight at the same time:
+              allInFlight.await(5, TimeUnit.SECONDS);
+              return true;
+            } catch (Exception e) {
+              return false;
+            }
+          }
+        };
+    List<SchedulingAction> actions = Arrays.asList(stop("task-1"), stop("task-2"), stop("task-3"));
+
+    TieredInFlightActionLedger ledger =
+        new TieredInFlightActionLedger(
+            new InMemoryInFlightActionLedger(Duration.ofMinutes(3)), slowShared, 3);
+
+    assertThat(ledger.claimAll(actions, Deadline.after(Duration.ofSeconds(10))))
+        .containsExactlyElementsOf(actions);
+  }
+
+  @Test
+  public void dropsAndReleasesActionsNotClaimedByDeadline() throws Exception {
+    CountDownLatch claimed = new CountDownLatch(1);
+    CountDownLatch released = new CountDownLatch(1);
+    InFlightActionLedger slowShared =
+        new FakeSharedLedger() {
+          @Override
+          public boolean claim(String key) {
+            try {
+              return claimed.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+              return false;
+            }
+          }
+        };
+    InFlightActionLedger localLedger =
+        new InMemoryInFlightActionLedger(Duration.ofMinutes(3)) {
+          @Override
+          public void release(String key) {
+            super.release(key);
+            released.countDown();
+          }
+        };
+    TieredInFlightActionLedger ledger = new TieredInFlightActionLedger(localLedger, slowShared);
+    SchedulingAction stop = stop("task-1");
+
+    assertThat(
+            ledger.claimAll(
+                Collections.singletonList(stop), Deadline.after(Duration.ofMillis(100))))
+        .isEmpty();
+
+    claimed.countDown();
+    assertThat(released.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(localLedger.claim(stop.keyFor("task-1"))).isTrue();
+  }
+
+  private static StopTask stop(String task) {
+    return StopTask.builder().clusterName("cluster").task(task).reason("test").build();
+  }
+
+  private abstract static class FakeSharedLedger implements InFlightActionLedger {
+    @Override
+    public void release(String key) {}
+  }
+}
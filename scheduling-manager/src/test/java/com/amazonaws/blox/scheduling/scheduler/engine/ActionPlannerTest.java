@@ -0,0 +1,98 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.scheduler.engine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class ActionPlannerTest {
+  private static final String CLUSTER_NAME = "cluster";
+
+  private final ActionPlanner planner = new ActionPlanner();
+
+  @Test
+  public void leavesSingleStartsAndStopsAlone() {
+    List<SchedulingAction> actions =
+        Arrays.asList(
+            start("instance-1", "v1", "env-1"), stop("task-1"), start("instance-1", "v2", "env-2"));
+
+    assertThat(planner.plan(actions)).isEqualTo(actions);
+  }
+
+  @Test
+  public void mergesStartsOfSameTaskDefinitionAndGroup() {
+    List<SchedulingAction> actions =
+        Arrays.asList(
+            start("instance-1", "v1", "env-1"),
+            stop("task-1"),
+            start("instance-1", "v2", "env-2"),
+            start("instance-2", "v1", "env-1"),
+            start("instance-3", "v1", "env-1"),
+            start("instance-2", "v2", "env-2"));
+
+    assertThat(planner.plan(actions))
+        .containsExactly(
+            starts("v1", "env-1", "instance-1", "instance-2", "instance-3"),
+            stop("task-1"),
+            starts("v2", "env-2", "instance-1", "instance-2"));
+  }
+
+  @Test
+  public void splitsBatchesLargerThanMaxBatchSize() {
+    List<SchedulingAction> actions = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      actions.add(start("instance-" + i, "v1", "env-1"));
+    }
+
+    assertThat(new ActionPlanner(2).plan(actions))
+        .containsExactly(
+            starts("v1", "env-1", "instance-0", "instance-1"),
+            starts("v1", "env-1", "instance-2", "instance-3"),
+            start("instance-4", "v1", "env-1"));
+  }
+
+  @Test
+  public void rejectsBatchesLargerThanEcsAccepts() {
+    assertThatThrownBy(() -> new ActionPlanner(StartTasks.MAX_CONTAINER_INSTANCES + 1))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private static StartTask start(String instance, String taskDefinition, String group) {
+    return StartTask.builder()
+        .clusterName(CLUSTER_NAME)
+        .containerInstanceArn(instance)
+        .taskDefinitionArn(taskDefinition)
+        .group(group)
+        .build();
+  }
+
+  private static StartTasks starts(String taskDefinition, String group, String... instances) {
+    return StartTasks.builder()
+        .clusterName(CLUSTER_NAME)
+        .containerInstanceArns(Arrays.asList(instances))
+        .taskDefinitionArn(taskDefinition)
+        .group(group)
+        .build();
+  }
+
+  private static StopTask stop(String task) {
+    return StopTask.builder().clusterName(CLUSTER_NAME).task(task).reason("test").build();
+  }
+}
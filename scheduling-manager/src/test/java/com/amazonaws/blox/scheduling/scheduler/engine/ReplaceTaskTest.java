@@ -0,0 +1,173 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.scheduler.engine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import software.amazon.awssdk.services.ecs.ECSAsyncClient;
+import software.amazon.awssdk.services.ecs.model.DescribeTasksResponse;
+import software.amazon.awssdk.services.ecs.model.Failure;
+import software.amazon.awssdk.services.ecs.model.StartTaskResponse;
+import software.amazon.awssdk.services.ecs.model.StopTaskResponse;
+import software.amazon.awssdk.services.ecs.model.Task;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReplaceTaskTest {
+  @Mock private ECSAsyncClient ecs;
+
+  private final ReplaceTask action =
+      ReplaceTask.builder()
+          .clusterName("cluster")
+          .task("task-1")
+          .reason("Stopped by deployment")
+          .containerInstanceArn("instance-1")
+          .taskDefinitionArn("task-definition:2")
+          .group("environment")
+          .stopTimeout(Duration.ofMillis(50))
+          .pollInterval(Duration.ofMillis(5))
+          .build();
+
+  @Test
+  public void startsNewTaskOnceOldTaskHasStopped() {
+    stopSucceeds();
+    when(ecs.describeTasks(any()))
+        .thenReturn(described("RUNNING"))
+        .thenReturn(described("STOPPED"));
+    when(ecs.startTask(any()))
+        .thenReturn(
+            CompletableFuture.completedFuture(
+                StartTaskResponse.builder()
+                    .tasks(Task.builder().containerInstanceArn("instance-1").build())
+                    .failures()
+                    .build()));
+
+    assertThat(action.executeEach(ecs).join()).containsExactly(TaskOutcome.succeeded("instance-1"));
+  }
+
+  @Test
+  public void startsNewTaskWhenOldTaskIsNoLongerDescribed() {
+    stopSucceeds();
+    when(ecs.describeTasks(any()))
+        .thenReturn(
+            CompletableFuture.completedFuture(
+                DescribeTasksResponse.builder()
+                    .tasks()
+                    .failures(Failure.builder().arn("task-1").reason("MISSING").build())
+                    .build()));
+    when(ecs.startTask(any()))
+        .thenReturn(
+            CompletableFuture.completedFuture(
+                StartTaskResponse.builder()
+                    .tasks(Task.builder().containerInstanceArn("instance-1").build())
+                    .failures()
+                    .build()));
+
+    assertThat(action.execute(ecs).join()).isTrue();
+  }
+
+  @Test
+  public void keepsPollingWhenDescribingOldTaskFails() {
+    stopSucceeds();
+    CompletableFuture<DescribeTasksResponse> throttled = new CompletableFuture<>();
+    throttled.completeExceptionally(new IllegalStateException("Rate exceeded"));
+    when(ecs.describeTasks(any())).thenReturn(throttled).thenReturn(described("STOPPED"));
+    when(ecs.startTask(any()))
+        .thenReturn(
+            CompletableFuture.completedFuture(
+                StartTaskResponse.builder()
+                    .tasks(Task.builder().containerInstanceArn("instance-1").build())
+                    .failures()
+                    .build()));
+
+    assertThat(action.executeEach(ecs).join()).containsExactly(TaskOutcome.succeeded("instance-1"));
+  }
+
+  @Test
+  public void leavesOnlyStartToRetryOnceWaiting() {
+    assertThat(action.afterWaiting()).isEqualTo(action.startTask());
+  }
+
+  @Test
+  public void leavesStartToNextTickWhenOldTaskDoesNotStopInTime() {
+    stopSucceeds();
+    when(ecs.describeTasks(any())).thenReturn(described("RUNNING"));
+
+    assertThat(action.executeEach(ecs).join())
+        .containsExactly(TaskOutcome.failed("instance-1", ReplaceTask.STOP_PENDING));
+    verify(ecs, never()).startTask(any());
+  }
+
+  @Test
+  public void doesNotStartNewTaskWhenOldTaskCannotBeStopped() {
+    when(ecs.stopTask(any()))
+        .thenReturn(CompletableFuture.completedFuture(StopTaskResponse.builder().build()));
+
+    assertThat(action.execute(ecs).join()).isFalse();
+    verify(ecs, never()).describeTasks(any());
+    verify(ecs, never()).startTask(any());
+  }
+
+  @Test
+  public void signalsWaitingOnlyOnceStopIsAccepted() {
+    stopSucceeds();
+    CompletableFuture<DescribeTasksResponse> described = new CompletableFuture<>();
+    when(ecs.describeTasks(any())).thenReturn(described);
+    AtomicBoolean waiting = new AtomicBoolean();
+
+    CompletableFuture<List<TaskOutcome>> outcomes =
+        action.executeEach(ecs, () -> waiting.set(true));
+
+    assertThat(waiting).isTrue();
+    assertThat(outcomes).isNotDone();
+  }
+
+  @Test
+  public void doesNotSignalWaitingWhenOldTaskCannotBeStopped() {
+    when(ecs.stopTask(any()))
+        .thenReturn(CompletableFuture.completedFuture(StopTaskResponse.builder().build()));
+    AtomicBoolean waiting = new AtomicBoolean();
+
+    action.executeEach(ecs, () -> waiting.set(true)).join();
+
+    assertThat(waiting).isFalse();
+  }
+
+  private void stopSucceeds() {
+    when(ecs.stopTask(any()))
+        .thenReturn(
+            CompletableFuture.completedFuture(
+                StopTaskResponse.builder().task(Task.builder().taskArn("task-1").build()).build()));
+  }
+
+  private static CompletableFuture<DescribeTasksResponse> described(String lastStatus) {
+    return CompletableFuture.completedFuture(
+        DescribeTasksResponse.builder()
+            .tasks(Task.builder().taskArn("task-1").lastStatus(lastStatus).build())
+            .failures()
+            .build());
+  }
+}
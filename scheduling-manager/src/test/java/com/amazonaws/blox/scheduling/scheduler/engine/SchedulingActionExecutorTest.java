@@ -0,0 +1,353 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.scheduler.engine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import org.junit.Test;
+import software.amazon.awssdk.AmazonServiceException;
+import software.amazon.awssdk.services.ecs.ECSAsyncClient;
+import software.amazon.awssdk.services.ecs.model.StartTaskResponse;
+import software.amazon.awssdk.services.ecs.model.Task;
+
+public class SchedulingActionExecutorTest {
+  private static final String CLUSTER_NAME = "cluster";
+
+  private final SchedulingActionExecutor executor = executor(10);
+
+  @Test
+  public void reportsOutcomeOfEachTarget() {
+    FakeAction action =
+        new FakeAction(
+            "instance-1",
+            () ->
+                CompletableFuture.completedFuture(
+                    Collections.singletonList(TaskOutcome.failed("instance-1", "RESOURCE:CPU"))));
+
+    List<ActionResult> results = executor.execute(Collections.singletonList(action), null);
+
+    assertThat(results)
+        .extracting("target", "successful", "failureReason", "attempts")
+        .containsExactly(tuple("instance-1", false, "RESOURCE:CPU", 1));
+  }
+
+  @Test
+  public void retriesThrottledActions() {
+    FakeAction action =
+        new FakeAction(
+            "instance-1",
+            () -> failed(error("ThrottlingException", 400)),
+            () -> failed(error(null, 503)),
+            () -> succeeded("instance-1"));
+
+    List<ActionResult> results = executor.execute(Collections.singletonList(action), null);
+
+    assertThat(results)
+        .extracting("successful", "failureReason", "attempts")
+        .containsExactly(tuple(true, null, 3));
+  }
+
+  @Test
+  public void doesNotRetryPermanentErrors() {
+    FakeAction action =
+        new FakeAction(
+            "instance-1",
+            () -> failed(error("InvalidParameterException", 400)),
+            () -> succeeded("instance-1"));
+
+    List<ActionResult> results = executor.execute(Collections.singletonList(action), null);
+
+    assertThat(results)
+        .extracting("successful", "failureReason", "attempts")
+        .containsExactly(tuple(false, "InvalidParameterException", 1));
+  }
+
+  @Test
+  public void givesUpAfterMaxAttempts() {
+    Supplier<CompletableFuture<List<TaskOutcome>>> throttled =
+        () -> failed(error("ThrottlingException", 400));
+    FakeAction action = new FakeAction("instance-1", throttled, throttled, throttled, throttled);
+
+    List<ActionResult> results = executor.execute(Collections.singletonList(action), null);
+
+    assertThat(results)
+        .extracting("successful", "failureReason", "attempts")
+        .containsExactly(tuple(false, "ThrottlingException", 4));
+  }
+
+  @Test
+  public void stopsStartingActionsAfterDeadline() {
+    FakeAction slow = new FakeAction("instance-1", () -> delayed(succeeded("instance-1"), 150));
+    FakeAction next = new FakeAction("instance-2", () -> succeeded("instance-2"));
+
+    List<ActionResult> results =
+        executor(1).execute(Arrays.asList(slow, next), Duration.ofMillis(100));
+
+    assertThat(results)
+        .extracting("target", "successful", "failureReason", "attempts")
+        .containsExactly(
+            tuple("instance-1", false, ActionResult.ABANDONED, 1),
+            tuple("instance-2", false, ActionResult.DEADLINE_EXCEEDED, 0));
+    assertThat(next.attempts).isEqualTo(0);
+  }
+
+  @Test
+  public void abandonsActionsStillInFlightAtDeadline() {
+    FakeAction fast = new FakeAction("instance-1", () -> succeeded("instance-1"));
+    FakeAction hanging = new FakeAction("instance-2", CompletableFuture::new);
+
+    long start = System.nanoTime();
+    List<ActionResult> results =
+        executor(2).execute(Arrays.asList(fast, hanging), Duration.ofMillis(100));
+
+    assertThat(results)
+        .extracting("target", "successful", "failureReason")
+        .containsExactly(
+            tuple("instance-1", true, null), tuple("instance-2", false, ActionResult.ABANDONED));
+    assertThat(System.nanoTime() - start).isLessThan(Duration.ofSeconds(5).toNanos());
+  }
+
+  @Test
+  public void doesNotResendStartsThatMayHaveReachedEcs() {
+    ECSAsyncClient ecs = mock(ECSAsyncClient.class);
+    when(ecs.startTask(any()))
+        .thenReturn(failed(new IOException("Connection reset")), started("instance-1"));
+
+    List<ActionResult> results =
+        executor(ecs).execute(Collections.singletonList(startTask()), null);
+
+    assertThat(results)
+        .extracting("successful", "failureReason", "attempts")
+        .containsExactly(tuple(false, ActionResult.ABANDONED, 1));
+    verify(ecs, times(1)).startTask(any());
+  }
+
+  @Test
+  public void resendsStartsThatWereThrottled() {
+    ECSAsyncClient ecs = mock(ECSAsyncClient.class);
+    when(ecs.startTask(any()))
+        .thenReturn(
+            failed(error("ThrottlingException", 400)),
+            failed(new ConnectException("Connection refused")),
+            started("instance-1"));
+
+    List<ActionResult> results =
+        executor(ecs).execute(Collections.singletonList(startTask()), null);
+
+    assertThat(results)
+        .extracting("successful", "failureReason", "attempts")
+        .containsExactly(tuple(true, null, 3));
+  }
+
+  @Test
+  public void startsNextActionWhileOneWaitsForEcs() {
+    CompletableFuture<List<TaskOutcome>> stopped = new CompletableFuture<>();
+    FakeAction waiting =
+        new FakeAction("instance-1", () -> stopped) {
+          @Override
+          public CompletableFuture<List<TaskOutcome>> executeEach(
+              ECSAsyncClient ecs, Runnable waiting) {
+            CompletableFuture<List<TaskOutcome>> outcomes = executeEach(ecs);
+            waiting.run();
+            return outcomes;
+          }
+        };
+    FakeAction next =
+        new FakeAction(
+            "instance-2",
+            () -> {
+              stopped.complete(Collections.singletonList(TaskOutcome.succeeded("instance-1")));
+              return succeeded("instance-2");
+            });
+
+    List<ActionResult> results =
+        executor(1).execute(Arrays.asList(waiting, next), Duration.ofSeconds(5));
+
+    assertThat(results)
+        .extracting("target", "successful")
+        .containsExactly(tuple("instance-1", true), tuple("instance-2", true));
+  }
+
+  @Test
+  public void retriesOnlyWhatIsLeftOfWaitingActions() {
+    FakeAction rest = new FakeAction("instance-1", () -> succeeded("instance-1"));
+    FakeAction waiting =
+        new WaitingAction("instance-1", rest, () -> failed(error("ThrottlingException", 400)));
+
+    List<ActionResult> results =
+        executor(1).execute(Collections.singletonList(waiting), Duration.ofSeconds(5));
+
+    assertThat(results).extracting("successful", "attempts").containsExactly(tuple(true, 2));
+    assertThat(waiting.attempts).isEqualTo(1);
+    assertThat(rest.attempts).isEqualTo(1);
+  }
+
+  @Test
+  public void takesPermitAgainBeforeRetryingWaitingActions() {
+    AtomicInteger inFlight = new AtomicInteger();
+    AtomicInteger maxInFlight = new AtomicInteger();
+    Function<String, Supplier<CompletableFuture<List<TaskOutcome>>>> counted =
+        target ->
+            () -> {
+              maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+              return delayed(succeeded(target), 50)
+                  .whenComplete((o, e) -> inFlight.decrementAndGet());
+            };
+    FakeAction waiting =
+        new WaitingAction(
+            "instance-1",
+            new FakeAction("instance-1", counted.apply("instance-1")),
+            () -> failed(error("ThrottlingException", 400)));
+    FakeAction next = new FakeAction("instance-2", counted.apply("instance-2"));
+
+    List<ActionResult> results =
+        executor(1).execute(Arrays.asList(waiting, next), Duration.ofSeconds(5));
+
+    assertThat(results)
+        .extracting("target", "successful")
+        .containsExactly(tuple("instance-1", true), tuple("instance-2", true));
+    assertThat(maxInFlight.get()).isEqualTo(1);
+  }
+
+  private static StartTask startTask() {
+    return StartTask.builder()
+        .clusterName(CLUSTER_NAME)
+        .containerInstanceArn("instance-1")
+        .taskDefinitionArn("task-definition")
+        .group("environment")
+        .build();
+  }
+
+  private static SchedulingActionExecutor executor(ECSAsyncClient ecs) {
+    return new SchedulingActionExecutor(
+        ecs, 10, 4, Duration.ZERO, Duration.ZERO, Duration.ZERO, Clock.systemUTC());
+  }
+
+  private static SchedulingActionExecutor executor(int maxInFlight) {
+    return new SchedulingActionExecutor(
+        null, maxInFlight, 4, Duration.ZERO, Duration.ZERO, Duration.ZERO, Clock.systemUTC());
+  }
+
+  private static AmazonServiceException error(String code, int status) {
+    AmazonServiceException e = new AmazonServiceException("error");
+    e.setErrorCode(code);
+    e.setStatusCode(status);
+    return e;
+  }
+
+  private static CompletableFuture<List<TaskOutcome>> succeeded(String target) {
+    return CompletableFuture.completedFuture(
+        Collections.singletonList(TaskOutcome.succeeded(target)));
+  }
+
+  private static CompletableFuture<StartTaskResponse> started(String containerInstanceArn) {
+    return CompletableFuture.completedFuture(
+        StartTaskResponse.builder()
+            .tasks(Task.builder().containerInstanceArn(containerInstanceArn).build())
+            .failures()
+            .build());
+  }
+
+  private static <T> CompletableFuture<T> failed(Throwable error) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    future.completeExceptionally(new CompletionException(error));
+    return future;
+  }
+
+  private static <T> CompletableFuture<T> delayed(CompletableFuture<T> future, long millis) {
+    return CompletableFuture.runAsync(() -> sleep(millis)).thenCompose(v -> future);
+  }
+
+  @SneakyThrows
+  private static void sleep(long millis) {
+    Thread.sleep(millis);
+  }
+
+  @RequiredArgsConstructor
+  private static class FakeAction implements SchedulingAction {
+    private final String target;
+    private final Deque<Supplier<CompletableFuture<List<TaskOutcome>>>> responses;
+    private int attempts = 0;
+
+    @SafeVarargs
+    FakeAction(String target, Supplier<CompletableFuture<List<TaskOutcome>>>... responses) {
+      this(target, new ArrayDeque<>(Arrays.asList(responses)));
+    }
+
+    @Override
+    public String getClusterName() {
+      return CLUSTER_NAME;
+    }
+
+    @Override
+    public List<String> targets() {
+      return Collections.singletonList(target);
+    }
+
+    @Override
+    public CompletableFuture<List<TaskOutcome>> executeEach(ECSAsyncClient ecs) {
+      attempts++;
+      return responses.removeFirst().get();
+    }
+  }
+
+  /** Action that waits for ECS as soon as it's executed, leaving the given action to retry. */
+  private static class WaitingAction extends FakeAction {
+    private final SchedulingAction rest;
+
+    @SafeVarargs
+    WaitingAction(
+        String target,
+        SchedulingAction rest,
+        Supplier<CompletableFuture<List<TaskOutcome>>>... responses) {
+      super(target, responses);
+      this.rest = rest;
+    }
+
+    @Override
+    public CompletableFuture<List<TaskOutcome>> executeEach(ECSAsyncClient ecs, Runnable waiting) {
+      CompletableFuture<List<TaskOutcome>> outcomes = executeEach(ecs);
+      waiting.run();
+      return outcomes;
+    }
+
+    @Override
+    public SchedulingAction afterWaiting() {
+      return rest;
+    }
+  }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.scheduler.engine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.amazonaws.blox.dataservicemodel.v1.model.Attribute;
+import com.amazonaws.blox.dataservicemodel.v1.model.InstanceGroup;
+import com.amazonaws.blox.scheduling.scheduler.engine.EnvironmentDescription.EnvironmentType;
+import com.amazonaws.blox.scheduling.scheduler.engine.placement.PlacementContext;
+import com.amazonaws.blox.scheduling.state.ClusterSnapshot;
+import com.amazonaws.blox.scheduling.state.ClusterSnapshot.ContainerInstance;
+import com.amazonaws.blox.scheduling.state.ClusterSnapshot.Task;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+public class SingleTaskSchedulerTest {
+  private static final String CLUSTER_NAME = "cluster";
+  private static final TaskRequirements REQUIREMENTS =
+      TaskRequirements.builder().cpu(512).memory(1024).build();
+
+  private final List<Task> tasks = new ArrayList<>();
+  private final ClusterSnapshot snapshot =
+      new ClusterSnapshot(
+          CLUSTER_NAME,
+          tasks,
+          Arrays.asList(
+              instance("instance-small", "ACTIVE", 1024, 1024).build(),
+              instance("instance-large", "ACTIVE", 2048, 4096).attribute("stack", "prod").build(),
+              instance("instance-draining", "DRAINING", 1024, 1536).build(),
+              instance("instance-full", "ACTIVE", 256, 512).build()));
+
+  private final SingleTaskScheduler scheduler =
+      new SingleTaskScheduler(new PlacementContext(snapshot));
+
+  @Test
+  public void binpacksOntoInstanceWithLeastRoomThatFits() {
+    assertThat(scheduler.schedule(snapshot, environment("env", "Binpack", null)))
+        .containsExactly(startTask("env", "instance-small"));
+  }
+
+  @Test
+  public void spreadsOntoInstanceWithMostRoom() {
+    assertThat(scheduler.schedule(snapshot, environment("env", "Spread", null)))
+        .containsExactly(startTask("env", "instance-large"));
+  }
+
+  @Test
+  public void placesOnlyOnInstancesOfInstanceGroup() {
+    InstanceGroup prod = new InstanceGroup(Collections.singleton(new Attribute("stack", "prod")));
+
+    assertThat(scheduler.schedule(snapshot, environment("env", "Binpack", prod)))
+        .containsExactly(startTask("env", "instance-large"));
+  }
+
+  @Test
+  public void accountsForTasksPlacedEarlierFromSameSnapshot() {
+    assertThat(scheduler.schedule(snapshot, environment("env-1", "Binpack", null)))
+        .containsExactly(startTask("env-1", "instance-small"));
+    assertThat(scheduler.schedule(snapshot, environment("env-2", "Binpack", null)))
+        .containsExactly(startTask("env-2", "instance-large"));
+  }
+
+  @Test
+  public void placesAgainInNextBatchFromSameSnapshot() throws Exception {
+    SchedulerFactory factory = new SchedulerFactory();
+    EnvironmentDescription environment =
+        EnvironmentDescription.builder()
+            .clusterName(CLUSTER_NAME)
+            .environmentName("env")
+            .environmentType(EnvironmentType.SingleTask)
+            .taskDefinitionArn("task-definition")
+            .taskRequirements(TaskRequirements.builder().cpu(2048).memory(4096).build())
+            .build();
+
+    // The task started in the first batch failed, so the second batch has the same snapshot:
+    for (int batch = 0; batch < 2; batch++) {
+      assertThat(
+              factory
+                  .schedulerFor(environment, new PlacementContext(snapshot))
+                  .schedule(snapshot, environment))
+          .containsExactly(startTask("env", "instance-large"));
+    }
+  }
+
+  @Test
+  public void skipsInstancesThatAreCoolingDown() {
+    EnvironmentDescription environment =
+        EnvironmentDescription.builder()
+            .clusterName(CLUSTER_NAME)
+            .environmentName("env")
+            .environmentType(EnvironmentType.SingleTask)
+            .taskDefinitionArn("task-definition")
+            .taskRequirements(REQUIREMENTS)
+            .coolingDownInstances(Collections.singleton("instance-small"))
+            .build();
+
+    assertThat(scheduler.schedule(snapshot, environment))
+        .containsExactly(startTask("env", "instance-large"));
+  }
+
+  @Test
+  public void doesNothingWhenNoInstanceHasRoom() {
+    EnvironmentDescription environment =
+        EnvironmentDescription.builder()
+            .clusterName(CLUSTER_NAME)
+            .environmentName("env")
+            .environmentType(EnvironmentType.SingleTask)
+            .taskDefinitionArn("task-definition")
+            .taskRequirements(TaskRequirements.builder().cpu(512).memory(8192).build())
+            .build();
+
+    assertThat(scheduler.schedule(snapshot, environment)).isEmpty();
+  }
+
+  @Test
+  public void doesNothingWhenEnvironmentHasHealthyTask() {
+    tasks.add(task("env", "instance-full", "RUNNING"));
+
+    assertThat(scheduler.schedule(snapshot, environment("env", "Binpack", null))).isEmpty();
+  }
+
+  @Test
+  public void replacesStoppedTask() {
+    tasks.add(task("env", "instance-full", "STOPPED"));
+
+    assertThat(scheduler.schedule(snapshot, environment("env", "Binpack", null)))
+        .containsExactly(startTask("env", "instance-small"));
+  }
+
+  private static EnvironmentDescription environment(
+      String name, String deploymentMethod, InstanceGroup instanceGroup) {
+    return EnvironmentDescription.builder()
+        .clusterName(CLUSTER_NAME)
+        .environmentName(name)
+        .environmentType(EnvironmentType.SingleTask)
+        .deploymentMethod(deploymentMethod)
+        .taskDefinitionArn("task-definition")
+        .instanceGroup(instanceGroup)
+        .taskRequirements(REQUIREMENTS)
+        .build();
+  }
+
+  private static StartTask startTask(String environment, String instance) {
+    return StartTask.builder()
+        .clusterName(CLUSTER_NAME)
+        .taskDefinitionArn("task-definition")
+        .group(environment)
+        .containerInstanceArn(instance)
+        .build();
+  }
+
+  private static Task task(String group, String instance, String status) {
+    return Task.builder()
+        .arn("task-" + group)
+        .containerInstanceArn(instance)
+        .taskDefinitionArn("task-definition")
+        .group(group)
+        .status(status)
+        .startedBy("blox")
+        .build();
+  }
+
+  private static ContainerInstance.ContainerInstanceBuilder instance(
+      String arn, String status, int cpu, int memory) {
+    return ContainerInstance.builder()
+        .arn(arn)
+        .status(status)
+        .remainingCpu(cpu)
+        .remainingMemory(memory);
+  }
+}
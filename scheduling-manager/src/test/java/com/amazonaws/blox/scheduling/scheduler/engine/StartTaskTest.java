@@ -0,0 +1,70 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.scheduler.engine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CompletableFuture;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import software.amazon.awssdk.services.ecs.ECSAsyncClient;
+import software.amazon.awssdk.services.ecs.model.Failure;
+import software.amazon.awssdk.services.ecs.model.StartTaskResponse;
+import software.amazon.awssdk.services.ecs.model.Task;
+
+@RunWith(MockitoJUnitRunner.class)
+public class StartTaskTest {
+  @Mock private ECSAsyncClient ecs;
+
+  private final StartTask action =
+      StartTask.builder()
+          .clusterName("cluster")
+          .containerInstanceArn("instance-1")
+          .taskDefinitionArn("task-definition")
+          .group("environment")
+          .build();
+
+  @Test
+  public void succeedsWhenTaskIsStarted() {
+    when(ecs.startTask(any()))
+        .thenReturn(
+            CompletableFuture.completedFuture(
+                StartTaskResponse.builder()
+                    .tasks(Task.builder().containerInstanceArn("instance-1").build())
+                    .failures()
+                    .build()));
+
+    assertThat(action.execute(ecs).join()).isTrue();
+  }
+
+  @Test
+  public void reportsFailureReasonFromEcs() {
+    when(ecs.startTask(any()))
+        .thenReturn(
+            CompletableFuture.completedFuture(
+                StartTaskResponse.builder()
+                    .tasks()
+                    .failures(Failure.builder().arn("instance-1").reason("RESOURCE:MEMORY").build())
+                    .build()));
+
+    assertThat(action.execute(ecs).join()).isFalse();
+    assertThat(action.executeEach(ecs).join())
+        .containsExactly(TaskOutcome.failed("instance-1", "RESOURCE:MEMORY"));
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.scheduler.engine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CompletableFuture;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import software.amazon.awssdk.services.ecs.ECSAsyncClient;
+import software.amazon.awssdk.services.ecs.model.Failure;
+import software.amazon.awssdk.services.ecs.model.StartTaskRequest;
+import software.amazon.awssdk.services.ecs.model.StartTaskResponse;
+import software.amazon.awssdk.services.ecs.model.Task;
+
+@RunWith(MockitoJUnitRunner.class)
+public class StartTasksTest {
+  @Mock private ECSAsyncClient ecs;
+
+  private final StartTasks action =
+      StartTasks.builder()
+          .clusterName("cluster")
+          .containerInstanceArn("instance-1")
+          .containerInstanceArn("instance-2")
+          .containerInstanceArn("instance-3")
+          .taskDefinitionArn("task-definition")
+          .group("environment")
+          .build();
+
+  @Test
+  public void startsTasksOnAllInstancesInOneCall() {
+    when(ecs.startTask(any()))
+        .thenReturn(
+            CompletableFuture.completedFuture(
+                StartTaskResponse.builder()
+                    .tasks(task("instance-1"), task("instance-2"), task("instance-3"))
+                    .failures()
+                    .build()));
+
+    assertThat(action.execute(ecs).join()).isTrue();
+    verify(ecs)
+        .startTask(
+            StartTaskRequest.builder()
+                .cluster("cluster")
+                .containerInstances("instance-1", "instance-2", "instance-3")
+                .taskDefinition("task-definition")
+                .group("environment")
+                .startedBy(StartTask.STARTED_BY)
+                .build());
+  }
+
+  @Test
+  public void reportsOutcomeForEachInstance() {
+    when(ecs.startTask(any()))
+        .thenReturn(
+            CompletableFuture.completedFuture(
+                StartTaskResponse.builder()
+                    .tasks(task("instance-3"))
+                    .failures(Failure.builder().arn("instance-1").reason("RESOURCE:CPU").build())
+                    .build()));
+
+    assertThat(action.executeEach(ecs).join())
+        .containsExactly(
+            TaskOutcome.failed("instance-1", "RESOURCE:CPU"),
+            TaskOutcome.failed("instance-2", TaskOutcome.UNKNOWN_FAILURE),
+            TaskOutcome.succeeded("instance-3"));
+    assertThat(action.execute(ecs).join()).isFalse();
+  }
+
+  private static Task task(String instance) {
+    return Task.builder().containerInstanceArn(instance).build();
+  }
+}
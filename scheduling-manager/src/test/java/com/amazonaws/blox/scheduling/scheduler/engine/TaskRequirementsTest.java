@@ -0,0 +1,53 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.scheduler.engine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+import software.amazon.awssdk.services.ecs.model.ContainerDefinition;
+import software.amazon.awssdk.services.ecs.model.TaskDefinition;
+
+public class TaskRequirementsTest {
+  @Test
+  public void usesTaskLevelResourcesWhenSet() {
+    TaskDefinition taskDefinition =
+        TaskDefinition.builder()
+            .cpu("512")
+            .memory("1024")
+            .containerDefinitions(ContainerDefinition.builder().cpu(128).memory(256).build())
+            .build();
+
+    assertThat(TaskRequirements.of(taskDefinition)).isEqualTo(new TaskRequirements(512, 1024));
+  }
+
+  @Test
+  public void sumsContainerResourcesOtherwise() {
+    TaskDefinition taskDefinition =
+        TaskDefinition.builder()
+            .containerDefinitions(
+                ContainerDefinition.builder().cpu(128).memory(256).memoryReservation(64).build(),
+                ContainerDefinition.builder().cpu(256).memoryReservation(128).build(),
+                ContainerDefinition.builder().build())
+            .build();
+
+    assertThat(TaskRequirements.of(taskDefinition)).isEqualTo(new TaskRequirements(384, 384));
+  }
+
+  @Test
+  public void requiresNothingWithoutTaskDefinition() {
+    assertThat(TaskRequirements.of(null)).isEqualTo(TaskRequirements.NONE);
+  }
+}
@@ -15,14 +15,14 @@
 package com.amazonaws.blox.scheduling.scheduler.engine.daemon;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import com.amazonaws.blox.scheduling.state.ClusterSnapshot;
 import com.amazonaws.blox.scheduling.state.ClusterSnapshot.ContainerInstance;
 import com.amazonaws.blox.scheduling.state.ClusterSnapshot.Task;
+import com.amazonaws.blox.scheduling.state.CompactClusterSnapshot;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
+import java.util.stream.Collectors;
 import org.junit.Test;
 
 public class ClusterSummaryTest {
@@ -32,30 +32,36 @@ public class ClusterSummaryTest {
       new ClusterSnapshot(CLUSTER_ARN, new ArrayList<>(), new ArrayList<>());
 
   @Test
-  public void tasksForInstanceReturnsNoTasksForEmptyInstance() {
+  public void indexesNoTasksForEmptyInstance() {
     given(instance("i-1"));
 
-    ClusterSummary summary = new ClusterSummary(snapshot);
+    CompactClusterSnapshot compact = new ClusterSummary(snapshot).getSnapshot();
 
-    assertThat(summary.tasksForInstance(instance("i-1"))).isEmpty();
+    assertThat(compact.taskCountOnInstance(compact.instanceIndex("i-1"))).isEqualTo(0);
   }
 
   @Test
-  public void tasksForInstanceReturnsCorrectTasksForGivenInstance() {
+  public void indexesTasksByInstance() {
     given(instance("i-1"), instance("i-2"), instance("i-3"));
     given(task("i-1", "t-1"), task("i-1", "t-2"), task("i-2", "t-3"));
 
-    ClusterSummary summary = new ClusterSummary(snapshot);
+    CompactClusterSnapshot compact = new ClusterSummary(snapshot).getSnapshot();
 
-    assertThat(summary.tasksForInstance(instance("i-1")))
+    assertThat(
+            compact
+                .tasksOnInstance(compact.instanceIndex("i-1"))
+                .mapToObj(compact::task)
+                .collect(Collectors.toList()))
         .containsExactly(task("i-1", "t-1"), task("i-1", "t-2"));
   }
 
   @Test
-  public void tasksForInstanceThrowsForNonexistentInstance() {
-    ClusterSummary summary = new ClusterSummary(snapshot);
+  public void returnsListedInstancesOnly() {
+    given(instance("i-1"), instance("i-2"));
+    given(task("i-1", "t-1"), task("i-3", "t-2"));
 
-    assertThatThrownBy(() -> summary.tasksForInstance(instance("i-1"))).hasMessageContaining("i-1");
+    assertThat(new ClusterSummary(snapshot).getInstances())
+        .containsExactly(instance("i-1"), instance("i-2"));
   }
 
   private void given(ContainerInstance... instances) {
@@ -73,8 +79,4 @@ public class ClusterSummaryTest {
   private Task task(String instanceArn, String taskArn) {
     return Task.builder().containerInstanceArn(instanceArn).arn(taskArn).build();
   }
-
-  private ClusterSnapshot snapshot(List<ContainerInstance> instances, List<Task> tasks) {
-    return new ClusterSnapshot(CLUSTER_ARN, tasks, instances);
-  }
 }
@@ -17,13 +17,19 @@ package com.amazonaws.blox.scheduling.scheduler.engine.daemon;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.SoftAssertions.assertSoftly;
 
+import com.amazonaws.blox.dataservicemodel.v1.model.Attribute;
+import com.amazonaws.blox.dataservicemodel.v1.model.InstanceGroup;
 import com.amazonaws.blox.scheduling.scheduler.engine.EnvironmentDescription;
 import com.amazonaws.blox.scheduling.scheduler.engine.EnvironmentDescription.EnvironmentType;
 import com.amazonaws.blox.scheduling.scheduler.engine.StartTask;
 import com.amazonaws.blox.scheduling.scheduler.engine.StopTask;
+import com.amazonaws.blox.scheduling.state.ClusterSnapshot;
 import com.amazonaws.blox.scheduling.state.ClusterSnapshot.ContainerInstance;
 import com.amazonaws.blox.scheduling.state.ClusterSnapshot.Task;
+import com.amazonaws.blox.scheduling.state.CompactClusterSnapshot;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import org.junit.Test;
 
 public class DaemonEnvironmentTest {
@@ -49,37 +55,6 @@ public class DaemonEnvironmentTest {
         .status("RUNNING");
   }
 
-  @Test
-  public void matchesHealthyTasksWithSameTaskDefinition() {
-    boolean matches =
-        environment.isMatchingTask(
-            defaultTask().taskDefinitionArn(env.getTaskDefinitionArn()).status("RUNNING").build());
-
-    assertThat(matches).isTrue();
-  }
-
-  @Test
-  public void matchesTaskWithDifferentTaskDefinition() {
-    boolean matches =
-        environment.isMatchingTask(defaultTask().taskDefinitionArn("different-taskdef").build());
-
-    assertThat(matches).isTrue();
-  }
-
-  @Test
-  public void doesntMatchTaskWithDifferentGroup() {
-    boolean matches = environment.isMatchingTask(defaultTask().group("different-group").build());
-
-    assertThat(matches).isFalse();
-  }
-
-  @Test
-  public void doesntMatchUnhealthyTask() {
-    boolean matches = environment.isMatchingTask(defaultTask().status("STOPPED").build());
-
-    assertThat(matches).isFalse();
-  }
-
   @Test
   public void startsTasksThatMatchesEnvironmentAndInstance() {
     ContainerInstance instance = ContainerInstance.builder().arn("instance-1").build();
@@ -95,75 +70,6 @@ public class DaemonEnvironmentTest {
         });
   }
 
-  @Test
-  public void hasTaskToStop() {
-    boolean stop =
-        environment.isTaskStoppable(defaultTask().taskDefinitionArn("different-taskdef").build());
-
-    assertThat(stop).isTrue();
-  }
-
-  @Test
-  public void noTasksToStopForDesiredTasks() {
-    boolean stop = environment.isTaskStoppable(defaultTask().build());
-
-    assertThat(stop).isFalse();
-  }
-
-  @Test
-  public void noTasksToStopForAlreadyStoppedTasks() {
-    boolean stop =
-        environment.isTaskStoppable(
-            defaultTask().taskDefinitionArn("different-taskdef").status("STOPPED").build());
-
-    assertThat(stop).isFalse();
-  }
-
-  @Test
-  public void noTasksToStopForAnotherEnvironment() {
-    boolean stop =
-        environment.isTaskStoppable(
-            defaultTask().taskDefinitionArn("different-taskdef").group("different-group").build());
-
-    assertThat(stop).isFalse();
-  }
-
-  @Test
-  public void noHealthyTasks() {
-    boolean isMissingHealthyTask =
-        environment.isMissingHealthyTask(
-            Collections.singletonList(defaultTask().status("STOPPED").build()));
-
-    assertThat(isMissingHealthyTask).isTrue();
-  }
-
-  @Test
-  public void hasHealthyTasks() {
-    boolean isMissingHealthyTask =
-        environment.isMissingHealthyTask(Collections.singletonList(defaultTask().build()));
-
-    assertThat(isMissingHealthyTask).isFalse();
-  }
-
-  @Test
-  public void hasHealthyTasksWithAnotherVersion() {
-    boolean isMissingHealthyTask =
-        environment.isMissingHealthyTask(
-            Collections.singletonList(
-                defaultTask().taskDefinitionArn("different-taskdef").build()));
-
-    assertThat(isMissingHealthyTask).isFalse();
-  }
-
-  @Test
-  public void hasHealthyTasksOnAnotherEnvironment() {
-    boolean isMissingHealthyTask =
-        environment.isMissingHealthyTask(
-            Collections.singletonList(defaultTask().group("different-environment").build()));
-
-    assertThat(isMissingHealthyTask).isTrue();
-  }
-
   @Test
   public void stopTasksOnEnvironmentWithDifferentVersion() {
     Task taskWithDifferentVersion = defaultTask().taskDefinitionArn("different-taskdef").build();
@@ -173,8 +79,7 @@ public class DaemonEnvironmentTest {
     assertSoftly(
         s -> {
           s.assertThat(stopTask.getClusterName()).isEqualTo(env.getClusterName());
-          s.assertThat(stopTask.getTask())
-              .isEqualTo(taskWithDifferentVersion.getTaskDefinitionArn());
+          s.assertThat(stopTask.getTask()).isEqualTo(taskWithDifferentVersion.getArn());
           s.assertThat(stopTask.getReason())
               .isEqualTo(
                   String.format(
@@ -182,4 +87,40 @@ public class DaemonEnvironmentTest {
                       env.getEnvironmentName(), env.getTaskDefinitionArn()));
         });
   }
+
+  @Test
+  public void targetsInstancesInInstanceGroup() {
+    DaemonEnvironment grouped =
+        new DaemonEnvironment(
+            EnvironmentDescription.builder()
+                .clusterName("TestCluster")
+                .environmentName("TestEnvironment")
+                .taskDefinitionArn("test-taskdef")
+                .instanceGroup(
+                    new InstanceGroup(
+                        new HashSet<>(
+                            Arrays.asList(
+                                new Attribute("stack", "prod"),
+                                new Attribute("zone", "us-west-2a")))))
+                .build());
+    CompactClusterSnapshot snapshot =
+        CompactClusterSnapshot.of(
+            new ClusterSnapshot(
+                "TestCluster",
+                Collections.emptyList(),
+                Arrays.asList(
+                    ContainerInstance.builder()
+                        .arn("instance-1")
+                        .attribute("stack", "prod")
+                        .attribute("zone", "us-west-2a")
+                        .build(),
+                    ContainerInstance.builder()
+                        .arn("instance-2")
+                        .attribute("stack", "prod")
+                        .build(),
+                    ContainerInstance.builder().arn("instance-3").build())));
+
+    assertThat(grouped.targetInstances(snapshot).stream()).containsExactly(0);
+    assertThat(environment.targetInstances(snapshot).stream()).containsExactly(0, 1, 2);
+  }
 }
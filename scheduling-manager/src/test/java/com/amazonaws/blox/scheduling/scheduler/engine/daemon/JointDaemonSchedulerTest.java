@@ -0,0 +1,188 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.scheduler.engine.daemon;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.amazonaws.blox.dataservicemodel.v1.model.Attribute;
+import com.amazonaws.blox.dataservicemodel.v1.model.InstanceGroup;
+import com.amazonaws.blox.scheduling.scheduler.engine.EnvironmentDescription;
+import com.amazonaws.blox.scheduling.scheduler.engine.EnvironmentDescription.EnvironmentType;
+import com.amazonaws.blox.scheduling.scheduler.engine.SchedulingAction;
+import com.amazonaws.blox.scheduling.scheduler.engine.StartTask;
+import com.amazonaws.blox.scheduling.state.ClusterSnapshot;
+import com.amazonaws.blox.scheduling.state.ClusterSnapshot.ContainerInstance;
+import com.amazonaws.blox.scheduling.state.ClusterSnapshot.Task;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+
+public class JointDaemonSchedulerTest {
+  private static final String CLUSTER_NAME = "TestCluster";
+  private static final String[] STATUSES = {"PENDING", "RUNNING", "STOPPED"};
+
+  @Test
+  public void schedulesLikeReplaceAfterTerminateForEveryEnvironment() {
+    Random random = new Random(42);
+    List<EnvironmentDescription> environments = new ArrayList<>();
+    for (int e = 0; e < 20; e++) {
+      environments.add(environment("env-" + e, "v" + (e % 3), e % 4 == 0 ? "prod" : null));
+    }
+    // An environment without any tasks in the cluster yet:
+    environments.add(environment("new-env", "v1", null));
+
+    List<ContainerInstance> instances = new ArrayList<>();
+    List<Task> tasks = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      String arn = "instance-" + i;
+      ContainerInstance.ContainerInstanceBuilder instance =
+          ContainerInstance.builder().arn(arn).status(i % 50 == 0 ? "DRAINING" : "ACTIVE");
+      if (random.nextBoolean()) {
+        instance.attribute("stack", "prod");
+      }
+      instances.add(instance.build());
+
+      for (int t = random.nextInt(6); t > 0; t--) {
+        tasks.add(
+            Task.builder()
+                .arn("task-" + tasks.size())
+                .containerInstanceArn(arn)
+                .taskDefinitionArn("v" + random.nextInt(3))
+                .group("env-" + random.nextInt(25))
+                .status(STATUSES[random.nextInt(STATUSES.length)])
+                .startedBy("blox")
+                .build());
+      }
+    }
+    ClusterSnapshot snapshot = new ClusterSnapshot(CLUSTER_NAME, tasks, instances);
+
+    List<List<SchedulingAction>> joint =
+        new JointDaemonScheduler(new ForkJoinPool(4), 16).schedule(snapshot, environments);
+
+    ReplaceAfterTerminateScheduler scheduler = new ReplaceAfterTerminateScheduler();
+    for (int e = 0; e < environments.size(); e++) {
+      assertThat(joint.get(e)).isEqualTo(scheduler.schedule(snapshot, environments.get(e)));
+    }
+  }
+
+  @Test
+  public void schedulesEnvironmentsWithoutInstances() {
+    List<List<SchedulingAction>> actions =
+        new JointDaemonScheduler()
+            .schedule(
+                new ClusterSnapshot(CLUSTER_NAME, Collections.emptyList(), Collections.emptyList()),
+                Arrays.asList(environment("env-1", "v1", null)));
+
+    assertThat(actions).containsExactly(Collections.emptyList());
+  }
+
+  @Test
+  public void startsTasksForEveryEnvironmentOnEmptyInstance() {
+    ClusterSnapshot snapshot =
+        new ClusterSnapshot(
+            CLUSTER_NAME,
+            Collections.emptyList(),
+            Arrays.asList(ContainerInstance.builder().arn("instance-1").build()));
+
+    List<List<SchedulingAction>> actions =
+        new JointDaemonScheduler()
+            .schedule(
+                snapshot,
+                Arrays.asList(environment("env-1", "v1", null), environment("env-2", "v2", null)));
+
+    assertThat(actions)
+        .containsExactly(
+            Arrays.asList(start("env-1", "v1", "instance-1")),
+            Arrays.asList(start("env-2", "v2", "instance-1")));
+  }
+
+  @Test
+  public void doesNotStartTasksOnInstancesThatAreCoolingDown() {
+    ClusterSnapshot snapshot =
+        new ClusterSnapshot(
+            CLUSTER_NAME,
+            Collections.singletonList(
+                Task.builder()
+                    .arn("task-1")
+                    .containerInstanceArn("instance-2")
+                    .taskDefinitionArn("v0")
+                    .group("env-1")
+                    .status("RUNNING")
+                    .startedBy("blox")
+                    .build()),
+            Arrays.asList(
+                ContainerInstance.builder().arn("instance-1").build(),
+                ContainerInstance.builder().arn("instance-2").build()));
+    EnvironmentDescription environment =
+        EnvironmentDescription.builder()
+            .clusterName(CLUSTER_NAME)
+            .environmentName("env-1")
+            .environmentType(EnvironmentType.Daemon)
+            .deploymentMethod(ReplaceAfterTerminateScheduler.ID)
+            .taskDefinitionArn("v1")
+            .coolingDownInstances(Collections.singleton("instance-2"))
+            .build();
+
+    List<SchedulingAction> actions =
+        new JointDaemonScheduler().schedule(snapshot, Arrays.asList(environment)).get(0);
+
+    // The outdated task on instance-2 is still stopped, but not replaced while it cools down:
+    assertThat(actions)
+        .containsOnlyElementsOf(
+            new ReplaceAfterTerminateScheduler().schedule(snapshot, environment))
+        .extracting(a -> a.getClass().getSimpleName())
+        .containsExactlyInAnyOrder("StartTask", "StopTask");
+  }
+
+  @Test
+  public void onlySchedulesReplaceAfterTerminateDaemons() {
+    assertThat(JointDaemonScheduler.canSchedule(environment("env-1", "v1", null))).isTrue();
+    assertThat(
+            JointDaemonScheduler.canSchedule(
+                EnvironmentDescription.builder()
+                    .environmentType(EnvironmentType.SingleTask)
+                    .deploymentMethod(ReplaceAfterTerminateScheduler.ID)
+                    .build()))
+        .isFalse();
+  }
+
+  private static EnvironmentDescription environment(
+      String name, String taskDefinition, String stack) {
+    return EnvironmentDescription.builder()
+        .clusterName(CLUSTER_NAME)
+        .environmentName(name)
+        .environmentType(EnvironmentType.Daemon)
+        .deploymentMethod(ReplaceAfterTerminateScheduler.ID)
+        .taskDefinitionArn(taskDefinition)
+        .instanceGroup(
+            stack == null
+                ? null
+                : new InstanceGroup(Collections.singleton(new Attribute("stack", stack))))
+        .build();
+  }
+
+  private static StartTask start(String group, String taskDefinition, String instance) {
+    return StartTask.builder()
+        .clusterName(CLUSTER_NAME)
+        .containerInstanceArn(instance)
+        .taskDefinitionArn(taskDefinition)
+        .group(group)
+        .build();
+  }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.scheduler.engine.placement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.amazonaws.blox.scheduling.scheduler.engine.TaskRequirements;
+import com.amazonaws.blox.scheduling.state.ClusterSnapshot;
+import com.amazonaws.blox.scheduling.state.ClusterSnapshot.ContainerInstance;
+import com.amazonaws.blox.scheduling.state.CompactClusterSnapshot;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Random;
+import org.junit.Test;
+
+public class CapacityIndexTest {
+  private static final TaskRequirements SMALL = requirements(256, 512);
+
+  private final CompactClusterSnapshot snapshot =
+      CompactClusterSnapshot.of(
+          new ClusterSnapshot(
+              "cluster",
+              Collections.emptyList(),
+              Arrays.asList(
+                  instance("instance-0", 1024, 2048),
+                  instance("instance-1", 1024, 1024),
+                  instance("instance-2", 128, 4096),
+                  instance("instance-3", 2048, 3072))));
+
+  private final CapacityIndex index = new CapacityIndex(snapshot);
+
+  @Test
+  public void binpackChoosesInstanceWithLeastMemoryThatFits() {
+    assertThat(arnOf(index.place(SMALL, PlacementStrategy.BINPACK, all()))).isEqualTo("instance-1");
+    assertThat(arnOf(index.place(SMALL, PlacementStrategy.BINPACK, all()))).isEqualTo("instance-1");
+    assertThat(arnOf(index.place(SMALL, PlacementStrategy.BINPACK, all()))).isEqualTo("instance-0");
+  }
+
+  @Test
+  public void spreadChoosesInstanceWithMostMemoryThatFits() {
+    // instance-2 has the most memory, but not enough CPU:
+    assertThat(arnOf(index.place(SMALL, PlacementStrategy.SPREAD, all()))).isEqualTo("instance-3");
+    assertThat(arnOf(index.place(SMALL, PlacementStrategy.SPREAD, all()))).isEqualTo("instance-3");
+    assertThat(arnOf(index.place(SMALL, PlacementStrategy.SPREAD, all()))).isEqualTo("instance-3");
+    assertThat(arnOf(index.place(SMALL, PlacementStrategy.SPREAD, all()))).isEqualTo("instance-0");
+  }
+
+  @Test
+  public void reservesRequirementsOnChosenInstance() {
+    int instance = index.place(SMALL, PlacementStrategy.BINPACK, all());
+
+    assertThat(index.remainingCpu(instance)).isEqualTo(1024 - 256);
+    assertThat(index.remainingMemory(instance)).isEqualTo(1024 - 512);
+  }
+
+  @Test
+  public void onlyPlacesOnCandidates() {
+    BitSet candidates = new BitSet();
+    candidates.set(instanceIndex("instance-3"));
+
+    assertThat(arnOf(index.place(SMALL, PlacementStrategy.BINPACK, candidates)))
+        .isEqualTo("instance-3");
+  }
+
+  @Test
+  public void returnsNegativeWhenNothingFits() {
+    assertThat(index.place(requirements(512, 8192), PlacementStrategy.BINPACK, all()))
+        .isEqualTo(-1);
+    assertThat(index.place(requirements(4096, 512), PlacementStrategy.SPREAD, all())).isEqualTo(-1);
+  }
+
+  @Test
+  public void treatsUnknownCapacityAsUnlimited() {
+    CapacityIndex unknown =
+        new CapacityIndex(
+            CompactClusterSnapshot.of(
+                new ClusterSnapshot(
+                    "cluster",
+                    Collections.emptyList(),
+                    Collections.singletonList(ContainerInstance.builder().arn("i").build()))));
+    BitSet candidates = new BitSet();
+    candidates.set(0);
+
+    assertThat(unknown.place(requirements(512, 8192), PlacementStrategy.BINPACK, candidates))
+        .isEqualTo(0);
+    assertThat(unknown.remainingMemory(0)).isEqualTo(-1);
+  }
+
+  @Test
+  public void matchesLinearScan() {
+    Random random = new Random(7);
+    ContainerInstance[] instances = new ContainerInstance[300];
+    for (int i = 0; i < instances.length; i++) {
+      instances[i] = instance("instance-" + i, random.nextInt(8) * 256, random.nextInt(16) * 512);
+    }
+    CompactClusterSnapshot large =
+        CompactClusterSnapshot.of(
+            new ClusterSnapshot("cluster", Collections.emptyList(), Arrays.asList(instances)));
+
+    for (PlacementStrategy strategy : PlacementStrategy.values()) {
+      CapacityIndex index = new CapacityIndex(large);
+      int[] cpu = new int[instances.length];
+      int[] memory = new int[instances.length];
+      for (int i = 0; i < instances.length; i++) {
+        cpu[i] = large.instanceRemainingCpu(i);
+        memory[i] = large.instanceRemainingMemory(i);
+      }
+      BitSet candidates = new BitSet();
+      candidates.set(0, instances.length);
+      for (int i = 0; i < instances.length; i += 3) {
+        candidates.clear(i);
+      }
+
+      for (int t = 0; t < 500; t++) {
+        TaskRequirements requirements =
+            requirements(random.nextInt(4) * 128, random.nextInt(4) * 256);
+        int expected = -1;
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+          if (cpu[i] < requirements.getCpu() || memory[i] < requirements.getMemory()) {
+            continue;
+          }
+          if (expected < 0 || isBetter(large, strategy, cpu, memory, i, expected)) {
+            expected = i;
+          }
+        }
+
+        assertThat(index.place(requirements, strategy, candidates)).isEqualTo(expected);
+        if (expected >= 0) {
+          cpu[expected] -= requirements.getCpu();
+          memory[expected] -= requirements.getMemory();
+        }
+      }
+    }
+  }
+
+  private static boolean isBetter(
+      CompactClusterSnapshot snapshot,
+      PlacementStrategy strategy,
+      int[] cpu,
+      int[] memory,
+      int i,
+      int best) {
+    int order = Integer.compare(memory[i], memory[best]);
+    if (order == 0) {
+      order = Integer.compare(cpu[i], cpu[best]);
+    }
+    if (order == 0) {
+      order = snapshot.instanceArn(i).compareTo(snapshot.instanceArn(best));
+    }
+    return strategy == PlacementStrategy.BINPACK ? order < 0 : order > 0;
+  }
+
+  private BitSet all() {
+    BitSet all = new BitSet();
+    all.set(0, snapshot.getInstanceCount());
+    return all;
+  }
+
+  private int instanceIndex(String arn) {
+    for (int i = 0; i < snapshot.getInstanceCount(); i++) {
+      if (snapshot.instanceArn(i).equals(arn)) {
+        return i;
+      }
+    }
+    throw new IllegalArgumentException(arn);
+  }
+
+  private String arnOf(int instance) {
+    return instance < 0 ? null : snapshot.instanceArn(instance);
+  }
+
+  private static TaskRequirements requirements(int cpu, int memory) {
+    return TaskRequirements.builder().cpu(cpu).memory(memory).build();
+  }
+
+  private static ContainerInstance instance(String arn, int cpu, int memory) {
+    return ContainerInstance.builder()
+        .arn(arn)
+        .status("ACTIVE")
+        .remainingCpu(cpu)
+        .remainingMemory(memory)
+        .build();
+  }
+}
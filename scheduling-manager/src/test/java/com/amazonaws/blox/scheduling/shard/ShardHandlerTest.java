@@ -0,0 +1,178 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.shard;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.blox.dataservicemodel.v1.client.DataService;
+import com.amazonaws.blox.dataservicemodel.v1.exception.InternalServiceException;
+import com.amazonaws.blox.dataservicemodel.v1.model.Cluster;
+import com.amazonaws.blox.dataservicemodel.v1.model.wrappers.ListClustersRequest;
+import com.amazonaws.blox.dataservicemodel.v1.model.wrappers.ListClustersResponse;
+import com.amazonaws.blox.lambda.LambdaFunction;
+import com.amazonaws.blox.scheduling.activity.ClusterActivity;
+import com.amazonaws.blox.scheduling.activity.ClusterActivityStore;
+import com.amazonaws.blox.scheduling.activity.ClusterActivityTracker;
+import com.amazonaws.blox.scheduling.activity.InMemoryClusterActivityStore;
+import com.amazonaws.blox.scheduling.manager.ManagerInput;
+import com.amazonaws.blox.scheduling.manager.ManagerOutput;
+import com.amazonaws.services.lambda.runtime.Context;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ShardHandlerTest {
+  private static final Cluster CLUSTER1 = cluster("cluster1");
+  private static final Cluster CLUSTER2 = cluster("cluster2");
+  private static final Cluster CLUSTER3 = cluster("cluster3");
+
+  private ArgumentCaptor<ManagerInput> managerInput = ArgumentCaptor.forClass(ManagerInput.class);
+  @Mock private DataService data;
+  @Mock private LambdaFunction<ManagerInput, ManagerOutput> manager;
+  @Mock private LambdaFunction<ShardInput, ShardOutput> shard;
+  @Mock private Context context;
+
+  private ArgumentCaptor<ListClustersRequest> listRequest =
+      ArgumentCaptor.forClass(ListClustersRequest.class);
+
+  private final Instant now = Instant.parse("2017-10-01T12:00:00Z");
+  private final ClusterActivityStore activityStore = new InMemoryClusterActivityStore();
+  private final ClusterActivityTracker activity =
+      new ClusterActivityTracker(
+          activityStore,
+          Duration.ofMinutes(2),
+          Duration.ofMinutes(15),
+          Clock.fixed(now, ZoneOffset.UTC));
+
+  @Test
+  public void invokesManagerForAllClustersInSegment() throws Exception {
+    ShardHandler handler = new ShardHandler(data, manager, shard, activity, 10, 5_000);
+    when(data.listClusters(listRequest.capture()))
+        .thenReturn(page("page-2", CLUSTER1, CLUSTER2))
+        .thenReturn(page(null, CLUSTER3));
+    when(manager.triggerAsync(managerInput.capture()))
+        .thenReturn(CompletableFuture.completedFuture(null));
+    when(context.getRemainingTimeInMillis()).thenReturn(50_000);
+
+    ShardOutput output = handler.handleRequest(new ShardInput(1, 4, null), context);
+
+    assertThat(managerInput.getAllValues())
+        .containsExactlyInAnyOrder(
+            new ManagerInput(CLUSTER1), new ManagerInput(CLUSTER2), new ManagerInput(CLUSTER3));
+    assertThat(listRequest.getAllValues())
+        .extracting("segment", "totalSegments", "nextToken", "maxResults")
+        .containsExactly(tuple(1, 4, null, 10), tuple(1, 4, "page-2", 10));
+    assertThat(output).isEqualTo(new ShardOutput(1, 4, 3, 0, 0, null));
+  }
+
+  @Test
+  public void continuesInNewInvocationWhenRunningOutOfTime() throws Exception {
+    ShardHandler handler = new ShardHandler(data, manager, shard, activity, 10, 5_000);
+    when(data.listClusters(any())).thenReturn(page("page-3", CLUSTER1, CLUSTER2));
+    when(manager.triggerAsync(any())).thenReturn(CompletableFuture.completedFuture(null));
+    when(shard.triggerAsync(any())).thenReturn(CompletableFuture.completedFuture(null));
+    when(context.getRemainingTimeInMillis()).thenReturn(4_000);
+
+    ShardOutput output = handler.handleRequest(new ShardInput(1, 4, "page-2"), context);
+
+    verify(shard).triggerAsync(new ShardInput(1, 4, "page-3"));
+    assertThat(output).isEqualTo(new ShardOutput(1, 4, 2, 0, 0, "page-3"));
+  }
+
+  @Test
+  public void failsWhenClustersCannotBeListed() throws Exception {
+    ShardHandler handler = new ShardHandler(data, manager, shard, activity, 10, 5_000);
+    InternalServiceException error = new InternalServiceException("Unavailable");
+    when(data.listClusters(any())).thenThrow(error);
+
+    assertThatThrownBy(() -> handler.handleRequest(new ShardInput(1, 4, null), context))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessageContaining("1/4")
+        .hasCause(error);
+  }
+
+  @Test
+  public void skipsClustersThatAreNotDue() throws Exception {
+    ShardHandler handler = new ShardHandler(data, manager, shard, activity, 10, 5_000);
+    activityStore.recordPass(quietPass(CLUSTER1));
+    activityStore.recordPass(quietPass(CLUSTER2));
+    activityStore.markDirty(ClusterActivityTracker.keyOf(CLUSTER2), now);
+    when(data.listClusters(any())).thenReturn(page(null, CLUSTER1, CLUSTER2, CLUSTER3));
+    when(manager.triggerAsync(managerInput.capture()))
+        .thenReturn(CompletableFuture.completedFuture(null));
+
+    ShardOutput output = handler.handleRequest(new ShardInput(1, 4, null), context);
+
+    assertThat(managerInput.getAllValues())
+        .containsExactlyInAnyOrder(new ManagerInput(CLUSTER2), new ManagerInput(CLUSTER3));
+    assertThat(output).isEqualTo(new ShardOutput(1, 4, 2, 1, 0, null));
+  }
+
+  @Test
+  public void reportsClustersThatManagerCouldNotBeTriggeredFor() throws Exception {
+    ShardHandler handler = new ShardHandler(data, manager, shard, activity, 10, 5_000);
+    activityStore.recordPass(quietPass(CLUSTER1));
+    activityStore.recordPass(quietPass(CLUSTER2));
+    activityStore.markDirty(ClusterActivityTracker.keyOf(CLUSTER1), now.minusSeconds(30));
+    activityStore.markDirty(ClusterActivityTracker.keyOf(CLUSTER2), now.minusSeconds(30));
+    when(data.listClusters(any())).thenReturn(page(null, CLUSTER1, CLUSTER2));
+    CompletableFuture<Void> failed = new CompletableFuture<>();
+    failed.completeExceptionally(new IllegalStateException("Rate exceeded"));
+    when(manager.triggerAsync(new ManagerInput(CLUSTER1))).thenReturn(failed);
+    when(manager.triggerAsync(new ManagerInput(CLUSTER2)))
+        .thenReturn(CompletableFuture.completedFuture(null));
+
+    ShardOutput output = handler.handleRequest(new ShardInput(1, 4, null), context);
+
+    assertThat(output).isEqualTo(new ShardOutput(1, 4, 2, 0, 1, null));
+    // The failed cluster is retried on the next tick:
+    assertThat(activity.due(Arrays.asList(CLUSTER1))).containsExactly(CLUSTER1);
+  }
+
+  private ClusterActivity quietPass(Cluster cluster) {
+    return ClusterActivity.builder()
+        .clusterKey(ClusterActivityTracker.keyOf(cluster))
+        .fingerprint("fingerprint")
+        .quietPasses(1)
+        .reconciledAt(now.minusSeconds(60))
+        .nextSweepAt(now.plusSeconds(60))
+        .build();
+  }
+
+  private static ListClustersResponse page(String nextToken, Cluster... clusters) {
+    return ListClustersResponse.builder()
+        .clusters(Arrays.asList(clusters))
+        .nextToken(nextToken)
+        .build();
+  }
+
+  private static Cluster cluster(String name) {
+    return Cluster.builder().accountId("123456789012").clusterName(name).build();
+  }
+}
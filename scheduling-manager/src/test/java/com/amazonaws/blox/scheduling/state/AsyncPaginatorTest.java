@@ -0,0 +1,130 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.state;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import org.junit.Test;
+
+public class AsyncPaginatorTest {
+
+  // Pages are numbered 1..PAGES, and the token for page N is the string "N"
+  private static final int PAGES = 5;
+
+  private final List<String> listedTokens = new ArrayList<>();
+  private final List<CompletableFuture<List<String>>> processing = new ArrayList<>();
+
+  private CompletableFuture<Integer> list(String token) {
+    listedTokens.add(token);
+    return CompletableFuture.completedFuture(token == null ? 1 : Integer.parseInt(token));
+  }
+
+  private static String nextToken(Integer page) {
+    return page < PAGES ? String.valueOf(page + 1) : null;
+  }
+
+  private CompletableFuture<List<String>> deferredProcess(Integer page) {
+    CompletableFuture<List<String>> f = new CompletableFuture<>();
+    processing.add(f);
+    return f;
+  }
+
+  private AsyncPaginator<Integer, String> deferredPaginator(int prefetchDepth) {
+    return new AsyncPaginator<>(
+        AsyncPaginatorTest::nextToken, this::list, this::deferredProcess, prefetchDepth);
+  }
+
+  @Test
+  public void listsNextPageWhileProcessingPreviousPage() {
+    deferredPaginator(1).collect();
+
+    // page 2 is requested even though page 1 hasn't finished processing yet
+    assertThat(listedTokens).containsExactly(null, "2");
+    assertThat(processing).hasSize(2);
+    assertThat(processing.get(0)).isNotDone();
+  }
+
+  @Test
+  public void pausesListingWhenPrefetchDepthIsReached() {
+    deferredPaginator(2).collect();
+
+    assertThat(listedTokens).containsExactly(null, "2", "3");
+
+    processing.get(0).complete(Collections.emptyList());
+
+    assertThat(listedTokens).containsExactly(null, "2", "3", "4");
+  }
+
+  @Test
+  public void zeroPrefetchDepthListsAndProcessesSequentially() {
+    deferredPaginator(0).collect();
+
+    assertThat(listedTokens).containsExactly((String) null);
+
+    processing.get(0).complete(Collections.emptyList());
+
+    assertThat(listedTokens).containsExactly(null, "2");
+  }
+
+  @Test
+  public void returnsResultsInPageOrderWhenProcessingCompletesOutOfOrder() {
+    CompletableFuture<List<String>> result = deferredPaginator(PAGES).collect();
+
+    assertThat(processing).hasSize(PAGES);
+    for (int i = PAGES - 1; i >= 0; i--) {
+      assertThat(result).isNotDone();
+      processing.get(i).complete(Arrays.asList("page" + (i + 1)));
+    }
+
+    assertThat(result.join()).containsExactly("page1", "page2", "page3", "page4", "page5");
+  }
+
+  @Test
+  public void failsWhenListingFails() {
+    AsyncPaginator<Integer, String> paginator =
+        new AsyncPaginator<>(
+            AsyncPaginatorTest::nextToken,
+            token -> {
+              CompletableFuture<Integer> f = new CompletableFuture<>();
+              f.completeExceptionally(new IllegalStateException("list failed"));
+              return f;
+            },
+            this::deferredProcess,
+            1);
+
+    assertThatThrownBy(() -> paginator.collect().join())
+        .isInstanceOf(CompletionException.class)
+        .hasCauseInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  public void failsWhenProcessingAnyPageFails() {
+    CompletableFuture<List<String>> result = deferredPaginator(PAGES).collect();
+
+    processing.get(0).complete(Collections.emptyList());
+    processing.get(1).completeExceptionally(new IllegalStateException("describe failed"));
+
+    assertThatThrownBy(result::join)
+        .isInstanceOf(CompletionException.class)
+        .hasCauseInstanceOf(IllegalStateException.class);
+  }
+}
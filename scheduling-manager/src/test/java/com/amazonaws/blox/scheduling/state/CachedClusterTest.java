@@ -0,0 +1,60 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.state;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.util.Collections;
+import org.junit.Test;
+
+public class CachedClusterTest {
+  private static final String CLUSTER_NAME = "cluster1";
+  private static final Instant NOW = Instant.parse("2017-11-01T00:00:00Z");
+
+  private final CachedCluster cluster = new CachedCluster(CLUSTER_NAME);
+
+  @Test
+  public void replaysEventsReceivedDuringRefresh() {
+    cluster.beginRefresh();
+    cluster.apply(taskEvent("task-1", 1L));
+    cluster.refresh(emptySnapshot(), NOW);
+
+    assertThat(cluster.snapshot().getTasks()).extracting("arn").containsExactly("task-1");
+  }
+
+  @Test
+  public void stopsRecordingEventsWhenRefreshEnds() {
+    cluster.beginRefresh();
+    cluster.endRefresh();
+    cluster.apply(taskEvent("task-1", 1L));
+    cluster.refresh(emptySnapshot(), NOW);
+
+    assertThat(cluster.snapshot().getTasks()).isEmpty();
+  }
+
+  private static ClusterSnapshot emptySnapshot() {
+    return new ClusterSnapshot(CLUSTER_NAME, Collections.emptyList(), Collections.emptyList());
+  }
+
+  private static TaskStateChange taskEvent(String arn, Long version) {
+    TaskStateChange change = new TaskStateChange();
+    change.setClusterArn("arn:aws:ecs:us-west-2:123456789012:cluster/" + CLUSTER_NAME);
+    change.setTaskArn(arn);
+    change.setDesiredStatus("RUNNING");
+    change.setVersion(version);
+    return change;
+  }
+}
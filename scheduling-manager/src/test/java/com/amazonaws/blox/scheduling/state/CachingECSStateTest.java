@@ -0,0 +1,310 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.state;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CachingECSStateTest {
+  private static final String CLUSTER_NAME = "cluster1";
+  private static final String CLUSTER_ARN =
+      "arn:aws:ecs:us-west-2:123456789012:cluster/" + CLUSTER_NAME;
+  private static final String INSTANCE_ARN = "instance-1";
+  private static final Duration MAX_STALENESS = Duration.ofMinutes(5);
+
+  @Mock private ECSState delegate;
+
+  private Instant now = Instant.parse("2017-11-01T00:00:00Z");
+  private CachingECSState state;
+
+  @Before
+  public void setUp() {
+    Clock clock =
+        new Clock() {
+          @Override
+          public ZoneId getZone() {
+            return ZoneOffset.UTC;
+          }
+
+          @Override
+          public Clock withZone(ZoneId zone) {
+            return this;
+          }
+
+          @Override
+          public Instant instant() {
+            return now;
+          }
+        };
+    state = new CachingECSState(delegate, clock, MAX_STALENESS);
+
+    when(delegate.snapshotState(CLUSTER_NAME, SnapshotFilter.ALL))
+        .thenReturn(
+            new ClusterSnapshot(
+                CLUSTER_NAME,
+                new ArrayList<>(Arrays.asList(task("task-1", "RUNNING", 3L))),
+                new ArrayList<>(Arrays.asList(instance(INSTANCE_ARN, 7L)))));
+  }
+
+  @Test
+  public void reusesSnapshotUntilItIsStale() {
+    state.snapshotState(CLUSTER_NAME);
+    now = now.plus(MAX_STALENESS).minusSeconds(1);
+    state.snapshotState(CLUSTER_NAME);
+
+    verify(delegate, times(1)).snapshotState(CLUSTER_NAME, SnapshotFilter.ALL);
+
+    now = now.plusSeconds(1);
+    state.snapshotState(CLUSTER_NAME);
+
+    verify(delegate, times(2)).snapshotState(CLUSTER_NAME, SnapshotFilter.ALL);
+  }
+
+  @Test
+  public void relistsClusterAfterListingFails() {
+    when(delegate.snapshotState(CLUSTER_NAME, SnapshotFilter.ALL))
+        .thenThrow(new IllegalStateException("Rate exceeded"))
+        .thenReturn(
+            new ClusterSnapshot(
+                CLUSTER_NAME,
+                new ArrayList<>(Arrays.asList(task("task-1", "RUNNING", 3L))),
+                new ArrayList<>()));
+
+    assertThatThrownBy(() -> state.snapshotState(CLUSTER_NAME))
+        .isInstanceOf(IllegalStateException.class);
+    state.onTaskStateChange(taskEvent("task-2", "RUNNING", 1L));
+    ClusterSnapshot snapshot = state.snapshotState(CLUSTER_NAME);
+
+    assertThat(snapshot.getTasks()).extracting("arn").containsExactly("task-1");
+  }
+
+  @Test
+  public void appliesTaskEventsToCachedSnapshot() {
+    state.snapshotState(CLUSTER_NAME);
+
+    state.onTaskStateChange(taskEvent("task-1", "STOPPED", 4L));
+    state.onTaskStateChange(taskEvent("task-2", "RUNNING", 1L));
+
+    ClusterSnapshot snapshot = state.snapshotState(CLUSTER_NAME);
+
+    verify(delegate, times(1)).snapshotState(CLUSTER_NAME, SnapshotFilter.ALL);
+    assertThat(snapshot.getTasks()).extracting("arn").containsExactly("task-2");
+  }
+
+  @Test
+  public void appliesContainerInstanceEventsToCachedSnapshot() {
+    state.snapshotState(CLUSTER_NAME);
+
+    state.onContainerInstanceStateChange(instanceEvent(INSTANCE_ARN, "INACTIVE", 8L));
+
+    ClusterSnapshot snapshot = state.snapshotState(CLUSTER_NAME);
+
+    verify(delegate, times(1)).snapshotState(CLUSTER_NAME, SnapshotFilter.ALL);
+    assertThat(snapshot.getInstances()).isEmpty();
+  }
+
+  @Test
+  public void ignoresDuplicateAndOutOfOrderEvents() {
+    state.snapshotState(CLUSTER_NAME);
+
+    state.onTaskStateChange(taskEvent("task-1", "STOPPED", 3L));
+    state.onTaskStateChange(taskEvent("task-1", "STOPPED", 2L));
+
+    ClusterSnapshot snapshot = state.snapshotState(CLUSTER_NAME);
+
+    verify(delegate, times(1)).snapshotState(CLUSTER_NAME, SnapshotFilter.ALL);
+    assertThat(snapshot.getTasks()).extracting("arn").containsExactly("task-1");
+  }
+
+  @Test
+  public void relistsClusterWhenAnEventWasMissed() {
+    state.snapshotState(CLUSTER_NAME);
+
+    state.onTaskStateChange(taskEvent("task-1", "RUNNING", 5L));
+    state.snapshotState(CLUSTER_NAME);
+
+    verify(delegate, times(2)).snapshotState(CLUSTER_NAME, SnapshotFilter.ALL);
+  }
+
+  @Test
+  public void relistsClusterWhenInvalidated() {
+    state.snapshotState(CLUSTER_NAME);
+
+    state.invalidate(CLUSTER_NAME);
+    state.snapshotState(CLUSTER_NAME);
+
+    verify(delegate, times(2)).snapshotState(CLUSTER_NAME, SnapshotFilter.ALL);
+    verify(delegate).invalidate(CLUSTER_NAME);
+  }
+
+  @Test
+  public void ignoresEventsForClustersThatWereNeverListed() {
+    state.onTaskStateChange(taskEvent("task-2", "RUNNING", 1L));
+
+    ClusterSnapshot snapshot = state.snapshotState(CLUSTER_NAME);
+
+    assertThat(snapshot.getTasks()).extracting("arn").containsExactly("task-1");
+  }
+
+  @Test
+  public void replaysEventsReceivedWhileListing() {
+    when(delegate.snapshotState(CLUSTER_NAME, SnapshotFilter.ALL))
+        .thenAnswer(
+            invocation -> {
+              // The first listing sees task-1, the second listing happens while task-1 stops:
+              state.onTaskStateChange(taskEvent("task-1", "STOPPED", 4L));
+              return new ClusterSnapshot(
+                  CLUSTER_NAME,
+                  new ArrayList<>(Arrays.asList(task("task-1", "RUNNING", 3L))),
+                  Collections.emptyList());
+            });
+
+    state.snapshotState(CLUSTER_NAME);
+    state.invalidate(CLUSTER_NAME);
+    ClusterSnapshot snapshot = state.snapshotState(CLUSTER_NAME);
+
+    assertThat(snapshot.getTasks()).isEmpty();
+  }
+
+  @Test
+  public void ignoresEventsForTasksThatDontMatchFilter() {
+    SnapshotFilter filter = SnapshotFilter.builder().startedBy("blox").build();
+    when(delegate.snapshotState(CLUSTER_NAME, filter))
+        .thenReturn(new ClusterSnapshot(CLUSTER_NAME, new ArrayList<>(), new ArrayList<>()));
+
+    state.snapshotState(CLUSTER_NAME, filter);
+
+    TaskStateChange ours = taskEvent("task-2", "RUNNING", 1L);
+    ours.setStartedBy("blox");
+    TaskStateChange theirs = taskEvent("task-3", "RUNNING", 1L);
+    theirs.setStartedBy("someone-else");
+    state.onTaskStateChange(ours);
+    state.onTaskStateChange(theirs);
+
+    ClusterSnapshot snapshot = state.snapshotState(CLUSTER_NAME, filter);
+
+    verify(delegate, times(1)).snapshotState(CLUSTER_NAME, filter);
+    assertThat(snapshot.getTasks()).extracting("arn").containsExactly("task-2");
+  }
+
+  @Test
+  public void cachesSnapshotsForEachFilterSeparately() {
+    SnapshotFilter filter = SnapshotFilter.builder().startedBy("blox").build();
+    when(delegate.snapshotState(CLUSTER_NAME, filter))
+        .thenReturn(new ClusterSnapshot(CLUSTER_NAME, new ArrayList<>(), new ArrayList<>()));
+
+    ClusterSnapshot unfiltered = state.snapshotState(CLUSTER_NAME);
+    ClusterSnapshot filtered = state.snapshotState(CLUSTER_NAME, filter);
+
+    assertThat(unfiltered.getTasks()).extracting("arn").containsExactly("task-1");
+    assertThat(filtered.getTasks()).isEmpty();
+
+    state.invalidate(CLUSTER_NAME);
+    state.snapshotState(CLUSTER_NAME);
+    state.snapshotState(CLUSTER_NAME, filter);
+
+    verify(delegate, times(2)).snapshotState(CLUSTER_NAME, SnapshotFilter.ALL);
+    verify(delegate, times(2)).snapshotState(CLUSTER_NAME, filter);
+  }
+
+  @Test
+  public void relistsFilteredClusterWhenUnknownInstanceChanges() {
+    SnapshotFilter filter =
+        SnapshotFilter.builder().containerInstanceFilter("attribute:role == daemon").build();
+    when(delegate.snapshotState(CLUSTER_NAME, filter))
+        .thenReturn(new ClusterSnapshot(CLUSTER_NAME, new ArrayList<>(), new ArrayList<>()));
+
+    state.snapshotState(CLUSTER_NAME, filter);
+    state.onContainerInstanceStateChange(instanceEvent("instance-2", "ACTIVE", 1L));
+    state.snapshotState(CLUSTER_NAME, filter);
+
+    verify(delegate, times(2)).snapshotState(CLUSTER_NAME, filter);
+  }
+
+  @Test
+  public void evictsClustersThatAreNoLongerSnapshotted() {
+    when(delegate.snapshotState("cluster2", SnapshotFilter.ALL))
+        .thenReturn(new ClusterSnapshot("cluster2", new ArrayList<>(), new ArrayList<>()));
+
+    state.snapshotState(CLUSTER_NAME);
+    now = now.plus(MAX_STALENESS).plus(CachingECSState.DEFAULT_MAX_IDLE);
+    state.snapshotState("cluster2");
+
+    assertThat(state.isCached(CLUSTER_NAME)).isFalse();
+    assertThat(state.isCached("cluster2")).isTrue();
+  }
+
+  @Test
+  public void keepsClustersThatAreStillSnapshotted() {
+    state.snapshotState(CLUSTER_NAME);
+    now = now.plus(CachingECSState.DEFAULT_MAX_IDLE);
+    state.snapshotState(CLUSTER_NAME);
+    now = now.plus(MAX_STALENESS);
+    state.snapshotState(CLUSTER_NAME);
+
+    assertThat(state.isCached(CLUSTER_NAME)).isTrue();
+  }
+
+  private static ClusterSnapshot.Task task(String arn, String status, Long version) {
+    return ClusterSnapshot.Task.builder()
+        .arn(arn)
+        .containerInstanceArn(INSTANCE_ARN)
+        .status(status)
+        .version(version)
+        .build();
+  }
+
+  private static ClusterSnapshot.ContainerInstance instance(String arn, Long version) {
+    return ClusterSnapshot.ContainerInstance.builder().arn(arn).version(version).build();
+  }
+
+  private static TaskStateChange taskEvent(String arn, String desiredStatus, Long version) {
+    TaskStateChange change = new TaskStateChange();
+    change.setClusterArn(CLUSTER_ARN);
+    change.setTaskArn(arn);
+    change.setContainerInstanceArn(INSTANCE_ARN);
+    change.setDesiredStatus(desiredStatus);
+    change.setVersion(version);
+    return change;
+  }
+
+  private static ContainerInstanceStateChange instanceEvent(
+      String arn, String status, Long version) {
+    ContainerInstanceStateChange change = new ContainerInstanceStateChange();
+    change.setClusterArn(CLUSTER_ARN);
+    change.setContainerInstanceArn(arn);
+    change.setStatus(status);
+    change.setVersion(version);
+    return change;
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.state;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+
+import com.amazonaws.blox.scheduling.state.ClusterSnapshot.ContainerInstance;
+import com.amazonaws.blox.scheduling.state.ClusterSnapshot.Task;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.UnrecognizedPropertyException;
+import java.util.Arrays;
+import org.junit.Test;
+
+public class ClusterSnapshotDeserializerTest {
+  private final ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+
+  private final ClusterSnapshot snapshot =
+      new ClusterSnapshot(
+          "cluster1",
+          Arrays.asList(
+              Task.builder()
+                  .arn("t-1")
+                  .containerInstanceArn("i-1")
+                  .taskDefinitionArn("task-definition:1")
+                  .status("RUNNING")
+                  .group("group")
+                  .startedBy("blox")
+                  .version(3L)
+                  .build()),
+          Arrays.asList(
+              ContainerInstance.builder()
+                  .arn("i-1")
+                  .version(7L)
+                  .status("ACTIVE")
+                  .attribute("stack", "prod")
+                  .remainingCpu(1024)
+                  .remainingMemory(2048)
+                  .build()));
+
+  @Test
+  public void deserializesIntoCompactSnapshot() throws Exception {
+    ClusterSnapshot deserialized =
+        mapper.readValue(mapper.writeValueAsBytes(snapshot), ClusterSnapshot.class);
+
+    CompactClusterSnapshot compact = CompactClusterSnapshot.of(deserialized);
+    assertThat(CompactClusterSnapshot.of(deserialized)).isSameAs(compact);
+    assertThat(compact.getClusterName()).isEqualTo("cluster1");
+    assertThat(compact.taskArn(0)).isEqualTo("t-1");
+    assertThat(compact.taskInstanceArn(0)).isEqualTo("i-1");
+    assertThat(compact.taskDefinitionArn(0)).isEqualTo("task-definition:1");
+    assertThat(compact.taskStatus(0)).isEqualTo(TaskStatus.RUNNING);
+    assertThat(compact.taskGroup(0)).isEqualTo("group");
+    assertThat(compact.taskStartedBy(0)).isEqualTo("blox");
+    assertThat(compact.instanceArn(0)).isEqualTo("i-1");
+    assertThat(compact.instanceStatus(0)).isEqualTo("ACTIVE");
+    assertThat(compact.instanceAttributes(0)).containsOnly(entry("stack", "prod"));
+    assertThat(compact.instanceRemainingCpu(0)).isEqualTo(1024);
+    assertThat(compact.instanceRemainingMemory(0)).isEqualTo(2048);
+  }
+
+  @Test
+  public void deserializesMissingAndNullFields() throws Exception {
+    ClusterSnapshot deserialized =
+        mapper.readValue(
+            "{\"clusterName\":\"cluster1\",\"tasks\":[{\"arn\":\"t-1\",\"group\":null}]}",
+            ClusterSnapshot.class);
+
+    assertThat(deserialized.getTasks()).containsExactly(Task.builder().arn("t-1").build());
+    assertThat(deserialized.getInstances()).isEmpty();
+  }
+
+  @Test
+  public void rejectsUnknownFields() {
+    assertThatThrownBy(
+            () ->
+                mapper.readValue(
+                    "{\"clusterName\":\"cluster1\",\"tasks\":[{\"unknown\":1}]}",
+                    ClusterSnapshot.class))
+        .isInstanceOf(UnrecognizedPropertyException.class);
+  }
+}
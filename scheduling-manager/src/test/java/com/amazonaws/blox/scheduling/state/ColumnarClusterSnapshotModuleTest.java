@@ -0,0 +1,169 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.state;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.amazonaws.blox.lambda.JsonPayloadCodec;
+import com.amazonaws.blox.lambda.SmilePayloadCodec;
+import com.amazonaws.blox.scheduling.state.ClusterSnapshot.ContainerInstance;
+import com.amazonaws.blox.scheduling.state.ClusterSnapshot.Task;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import org.junit.Test;
+
+public class ColumnarClusterSnapshotModuleTest {
+  private static final String ARN_PREFIX = "arn:aws:ecs:us-west-2:123456789012:";
+
+  private final ObjectMapper smileMapper =
+      new ObjectMapper(new SmileFactory()).registerModule(new ColumnarClusterSnapshotModule());
+  private final ObjectMapper jsonMapper = new ObjectMapper();
+  private final JavaType type = jsonMapper.constructType(ClusterSnapshot.class);
+
+  @Test
+  public void roundtripsSnapshot() throws Exception {
+    ClusterSnapshot snapshot =
+        new ClusterSnapshot(
+            "cluster1",
+            Arrays.asList(
+                Task.builder()
+                    .arn("t-1")
+                    .containerInstanceArn("i-1")
+                    .taskDefinitionArn("task-definition:1")
+                    .status("RUNNING")
+                    .group("group")
+                    .startedBy("blox")
+                    .build(),
+                Task.builder().arn("t-2").containerInstanceArn("i-unlisted").build(),
+                Task.builder().arn("t-3").build()),
+            Arrays.asList(
+                ContainerInstance.builder()
+                    .arn("i-1")
+                    .status("ACTIVE")
+                    .attribute("stack", "prod")
+                    .remainingCpu(1024)
+                    .remainingMemory(2048)
+                    .build(),
+                ContainerInstance.builder().arn("i-2").build()));
+
+    ClusterSnapshot deserialized =
+        smileMapper.readValue(smileMapper.writeValueAsBytes(snapshot), ClusterSnapshot.class);
+
+    assertThat(deserialized).isEqualTo(snapshot);
+  }
+
+  @Test
+  public void roundtripsEmptySnapshot() throws Exception {
+    ClusterSnapshot snapshot = new ClusterSnapshot("cluster1", null, null);
+
+    ClusterSnapshot deserialized =
+        smileMapper.readValue(smileMapper.writeValueAsBytes(snapshot), ClusterSnapshot.class);
+
+    assertThat(deserialized.getClusterName()).isEqualTo("cluster1");
+    assertThat(deserialized.getTasks()).isEmpty();
+    assertThat(deserialized.getInstances()).isEmpty();
+  }
+
+  @Test
+  public void readsSnapshotsWithoutInstanceDetails() throws Exception {
+    byte[] payload =
+        new ObjectMapper(new SmileFactory())
+            .writeValueAsBytes(
+                jsonMapper.readTree(
+                    "{\"clusterName\":\"c\",\"dictionary\":[\"i-1\"],\"instanceCount\":1,"
+                        + "\"instanceArns\":[0]}"));
+
+    ClusterSnapshot deserialized = smileMapper.readValue(payload, ClusterSnapshot.class);
+
+    assertThat(deserialized.getInstances())
+        .containsExactly(ContainerInstance.builder().arn("i-1").build());
+  }
+
+  @Test
+  public void compressedPayloadIsMuchSmallerThanJson() throws Exception {
+    ClusterSnapshot snapshot = largeSnapshot(1000, 100);
+
+    byte[] json = new JsonPayloadCodec(jsonMapper).encode(snapshot, type);
+    byte[] smile = new SmilePayloadCodec(smileMapper).encode(snapshot, type);
+
+    assertThat(smile.length).isLessThan(json.length / 4);
+  }
+
+  @Test
+  public void writesTaskStatusesThroughDictionary() throws Exception {
+    ClusterSnapshot snapshot =
+        new ClusterSnapshot(
+            "cluster1",
+            Arrays.asList(
+                Task.builder().arn("t-1").status("RUNNING").build(),
+                Task.builder().arn("t-2").status("STOPPED").build(),
+                Task.builder().arn("t-3").build()),
+            null);
+
+    JsonNode columns =
+        new ObjectMapper(new SmileFactory()).readTree(smileMapper.writeValueAsBytes(snapshot));
+
+    assertThat(columns.get("dictionary"))
+        .extracting(JsonNode::asText)
+        .containsExactly("RUNNING", "STOPPED");
+    assertThat(columns.get("taskStatuses")).extracting(JsonNode::asInt).containsExactly(0, 1, -1);
+  }
+
+  @Test
+  public void rejectsOutOfRangeIndexes() throws Exception {
+    byte[] payload =
+        new ObjectMapper(new SmileFactory())
+            .writeValueAsBytes(
+                jsonMapper.readTree(
+                    "{\"clusterName\":\"c\",\"dictionary\":[\"i-1\"],\"instanceCount\":1,"
+                        + "\"instanceArns\":[1]}"));
+
+    assertThatThrownBy(() -> smileMapper.readValue(payload, ClusterSnapshot.class))
+        .isInstanceOf(JsonMappingException.class);
+  }
+
+  private static ClusterSnapshot largeSnapshot(int tasks, int instances) {
+    List<ContainerInstance> instanceList = new ArrayList<>();
+    for (int i = 0; i < instances; i++) {
+      instanceList.add(
+          ContainerInstance.builder()
+              .arn(ARN_PREFIX + "container-instance/" + UUID.randomUUID())
+              .build());
+    }
+
+    List<Task> taskList = new ArrayList<>();
+    for (int i = 0; i < tasks; i++) {
+      taskList.add(
+          Task.builder()
+              .arn(ARN_PREFIX + "task/" + UUID.randomUUID())
+              .containerInstanceArn(instanceList.get(i % instances).getArn())
+              .taskDefinitionArn(ARN_PREFIX + "task-definition/daemon:" + (i % 3))
+              .status("RUNNING")
+              .group("daemon")
+              .startedBy("blox")
+              .build());
+    }
+
+    return new ClusterSnapshot("cluster", taskList, instanceList);
+  }
+}
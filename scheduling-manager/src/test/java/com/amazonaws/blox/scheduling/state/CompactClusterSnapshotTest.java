@@ -0,0 +1,154 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.state;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+import com.amazonaws.blox.scheduling.state.ClusterSnapshot.ContainerInstance;
+import com.amazonaws.blox.scheduling.state.ClusterSnapshot.Task;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.stream.Collectors;
+import org.junit.Test;
+
+public class CompactClusterSnapshotTest {
+  private static final String CLUSTER_NAME = "cluster1";
+
+  private final ClusterSnapshot snapshot =
+      new ClusterSnapshot(
+          CLUSTER_NAME,
+          Arrays.asList(
+              task("t-1", "i-1", "RUNNING"),
+              task("t-2", "i-2", "PENDING"),
+              task("t-3", "i-1", "STOPPED"),
+              task("t-4", "i-unlisted", "RUNNING"),
+              task("t-5", null, "RUNNING")),
+          Arrays.asList(
+              ContainerInstance.builder()
+                  .arn("i-1")
+                  .status("ACTIVE")
+                  .attribute("stack", "prod")
+                  .attribute("zone", "us-west-2a")
+                  .remainingCpu(1024)
+                  .remainingMemory(2048)
+                  .build(),
+              instance("i-2"),
+              instance("i-3")));
+
+  @Test
+  public void convertsBackToEqualClusterSnapshot() {
+    CompactClusterSnapshot compact = CompactClusterSnapshot.of(snapshot);
+
+    assertThat(compact.asClusterSnapshot()).isEqualTo(snapshot);
+  }
+
+  @Test
+  public void groupsTasksByInstanceInSnapshotOrder() {
+    CompactClusterSnapshot compact = CompactClusterSnapshot.of(snapshot);
+
+    assertThat(arnsOfTasksOn(compact, "i-1")).containsExactly("t-1", "t-3");
+    assertThat(arnsOfTasksOn(compact, "i-2")).containsExactly("t-2");
+    assertThat(arnsOfTasksOn(compact, "i-3")).isEmpty();
+  }
+
+  @Test
+  public void onlyExposesListedInstances() {
+    CompactClusterSnapshot compact = CompactClusterSnapshot.of(snapshot);
+
+    assertThat(compact.getInstanceCount()).isEqualTo(3);
+    assertThat(compact.instanceIndex("i-unlisted")).isEqualTo(-1);
+    assertThat(compact.taskInstanceArn(3)).isEqualTo("i-unlisted");
+    assertThat(compact.taskInstance(4)).isEqualTo(-1);
+  }
+
+  @Test
+  public void internsRepeatedStrings() {
+    CompactClusterSnapshot compact = CompactClusterSnapshot.of(snapshot);
+
+    int group = compact.dictionaryIndex("group");
+    assertThat(group).isNotNegative();
+    for (int task = 0; task < compact.getTaskCount(); task++) {
+      assertThat(compact.taskGroupIndex(task)).isEqualTo(group);
+    }
+    assertThat(compact.dictionaryIndex("not-in-snapshot")).isEqualTo(-1);
+  }
+
+  @Test
+  public void encodesTaskStatuses() {
+    CompactClusterSnapshot compact = CompactClusterSnapshot.of(snapshot);
+
+    assertThat(compact.taskStatus(0)).isEqualTo(TaskStatus.RUNNING);
+    assertThat(compact.taskStatus(1)).isEqualTo(TaskStatus.PENDING);
+    assertThat(compact.taskStatus(2)).isEqualTo(TaskStatus.STOPPED);
+  }
+
+  @Test
+  public void exposesInstanceDetails() {
+    CompactClusterSnapshot compact = CompactClusterSnapshot.of(snapshot);
+
+    int instance = compact.instanceIndex("i-1");
+    assertThat(compact.instanceStatus(instance)).isEqualTo("ACTIVE");
+    assertThat(compact.instanceAttributes(instance))
+        .containsOnly(entry("stack", "prod"), entry("zone", "us-west-2a"));
+    assertThat(compact.instanceRemainingCpu(instance)).isEqualTo(1024);
+    assertThat(compact.instanceRemainingMemory(instance)).isEqualTo(2048);
+
+    int unknown = compact.instanceIndex("i-2");
+    assertThat(compact.instanceStatus(unknown)).isNull();
+    assertThat(compact.instanceAttributes(unknown)).isEmpty();
+    assertThat(compact.instanceRemainingCpu(unknown)).isEqualTo(-1);
+  }
+
+  @Test
+  public void reusesSnapshotBackingAView() {
+    CompactClusterSnapshot compact = CompactClusterSnapshot.of(snapshot);
+
+    assertThat(CompactClusterSnapshot.of(compact.asClusterSnapshot())).isSameAs(compact);
+  }
+
+  @Test
+  public void treatsMissingListsAsEmpty() {
+    CompactClusterSnapshot compact =
+        CompactClusterSnapshot.of(new ClusterSnapshot(CLUSTER_NAME, null, null));
+
+    assertThat(compact.asClusterSnapshot())
+        .isEqualTo(
+            new ClusterSnapshot(CLUSTER_NAME, Collections.emptyList(), Collections.emptyList()));
+  }
+
+  private static String[] arnsOfTasksOn(CompactClusterSnapshot compact, String instanceArn) {
+    return compact
+        .tasksOnInstance(compact.instanceIndex(instanceArn))
+        .mapToObj(compact::taskArn)
+        .collect(Collectors.toList())
+        .toArray(new String[0]);
+  }
+
+  private static Task task(String arn, String instanceArn, String status) {
+    return Task.builder()
+        .arn(arn)
+        .containerInstanceArn(instanceArn)
+        .taskDefinitionArn("task-definition:1")
+        .status(status)
+        .group("group")
+        .startedBy("blox")
+        .build();
+  }
+
+  private static ContainerInstance instance(String arn) {
+    return ContainerInstance.builder().arn(arn).build();
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.state;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import com.amazonaws.blox.scheduling.state.ClusterSnapshot.Task;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DescribeCacheTest {
+  private static final Duration MAX_AGE = Duration.ofMinutes(5);
+
+  private Instant now = Instant.parse("2017-11-01T00:00:00Z");
+  private DescribeCache<Task> cache;
+
+  @Before
+  public void setUp() {
+    Clock clock =
+        new Clock() {
+          @Override
+          public ZoneId getZone() {
+            return ZoneOffset.UTC;
+          }
+
+          @Override
+          public Clock withZone(ZoneId zone) {
+            return this;
+          }
+
+          @Override
+          public Instant instant() {
+            return now;
+          }
+        };
+    cache = new DescribeCache<>(Task::getVersion, MAX_AGE, clock);
+  }
+
+  @Test
+  public void reusesSettledResources() {
+    Task task = task("task-1", "RUNNING", 3L);
+    cache.put("task-1", task, true);
+
+    assertThat(cache.get("task-1", t -> true), is(task));
+    assertThat(cache.get("task-2", t -> true), nullValue());
+  }
+
+  @Test
+  public void describesChangingResourcesAgain() {
+    cache.put("task-1", task("task-1", "RUNNING", 3L), false);
+
+    assertThat(cache.get("task-1", t -> true), nullValue());
+  }
+
+  @Test
+  public void describesResourcesThatNoLongerMatchAgain() {
+    cache.put("task-1", task("task-1", "STOPPED", 3L), true);
+
+    assertThat(cache.get("task-1", t -> t.getStatus().equals("RUNNING")), nullValue());
+  }
+
+  @Test
+  public void describesResourcesOlderThanMaxAgeAgain() {
+    cache.put("task-1", task("task-1", "RUNNING", 3L), true);
+
+    now = now.plus(MAX_AGE).plusSeconds(1);
+
+    assertThat(cache.get("task-1", t -> true), nullValue());
+  }
+
+  @Test
+  public void updatesCachedResourcesFromNewerEventsOnly() {
+    Task newer = task("task-1", "STOPPED", 5L);
+    cache.put("task-1", task("task-1", "RUNNING", 3L), true);
+
+    cache.update("task-1", newer, true);
+    cache.update("task-1", task("task-1", "RUNNING", 4L), true);
+    cache.update("task-2", task("task-2", "RUNNING", 1L), true);
+
+    assertThat(cache.get("task-1", t -> true), is(newer));
+    assertThat(cache.get("task-2", t -> true), nullValue());
+  }
+
+  @Test
+  public void evictsResourcesThatAreNoLongerListed() {
+    cache.put("task-1", task("task-1", "RUNNING", 3L), true);
+    cache.put("task-2", task("task-2", "RUNNING", 3L), true);
+
+    now = now.plus(MAX_AGE);
+    cache.get("task-1", t -> true);
+    now = now.plusSeconds(1);
+    cache.evictUnlisted();
+
+    assertThat(cache.size(), is(1));
+  }
+
+  @Test
+  public void cachesNothingWhenDisabled() {
+    DescribeCache<Task> disabled = DescribeCache.disabled();
+    disabled.put("task-1", task("task-1", "RUNNING", 3L), true);
+
+    assertThat(disabled.get("task-1", t -> true), nullValue());
+  }
+
+  private static Task task(String arn, String status, Long version) {
+    return Task.builder().arn(arn).status(status).version(version).build();
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.state;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.CompletableFuture;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import software.amazon.awssdk.services.ecs.ECSAsyncClient;
+import software.amazon.awssdk.services.ecs.model.ContainerInstance;
+import software.amazon.awssdk.services.ecs.model.DescribeContainerInstancesResponse;
+import software.amazon.awssdk.services.ecs.model.DescribeTasksResponse;
+import software.amazon.awssdk.services.ecs.model.ListContainerInstancesResponse;
+import software.amazon.awssdk.services.ecs.model.ListTasksResponse;
+import software.amazon.awssdk.services.ecs.model.Resource;
+import software.amazon.awssdk.services.ecs.model.Task;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ECSStateClientTest {
+  private static final String CLUSTER_NAME = "cluster1";
+  private static final Duration MAX_AGE = Duration.ofMinutes(5);
+
+  @Mock private ECSAsyncClient ecs;
+
+  private Instant now = Instant.parse("2017-11-01T00:00:00Z");
+  private ECSStateClient state;
+
+  @Before
+  public void setUp() {
+    when(ecs.listTasks(any()))
+        .thenReturn(
+            CompletableFuture.completedFuture(
+                ListTasksResponse.builder().taskArns("task-1").build()));
+    when(ecs.describeTasks(any()))
+        .thenReturn(
+            CompletableFuture.completedFuture(
+                DescribeTasksResponse.builder()
+                    .tasks(
+                        Task.builder()
+                            .taskArn("task-1")
+                            .version(1L)
+                            .desiredStatus("RUNNING")
+                            .lastStatus("RUNNING")
+                            .build())
+                    .build()));
+    when(ecs.listContainerInstances(any()))
+        .thenReturn(
+            CompletableFuture.completedFuture(
+                ListContainerInstancesResponse.builder()
+                    .containerInstanceArns("instance-1")
+                    .build()));
+    when(ecs.describeContainerInstances(any()))
+        .thenReturn(instanceWithRemainingCpu(1024), instanceWithRemainingCpu(512));
+
+    Clock clock =
+        new Clock() {
+          @Override
+          public ZoneId getZone() {
+            return ZoneOffset.UTC;
+          }
+
+          @Override
+          public Clock withZone(ZoneId zone) {
+            return this;
+          }
+
+          @Override
+          public Instant instant() {
+            return now;
+          }
+        };
+    state = new ECSStateClient(ecs, 1, MAX_AGE, clock);
+  }
+
+  @Test
+  public void reusesDescribedTasks() {
+    state.snapshotState(CLUSTER_NAME);
+    ClusterSnapshot snapshot = state.snapshotState(CLUSTER_NAME);
+
+    assertThat(snapshot.getTasks()).extracting("arn").containsExactly("task-1");
+    verify(ecs, times(1)).describeTasks(any());
+  }
+
+  @Test
+  public void describesInstancesOnEverySnapshot() {
+    state.snapshotState(CLUSTER_NAME);
+    ClusterSnapshot snapshot = state.snapshotState(CLUSTER_NAME);
+
+    assertThat(snapshot.getInstances()).extracting("remainingCpu").containsExactly(512);
+    verify(ecs, times(2)).describeContainerInstances(any());
+  }
+
+  @Test
+  public void evictsClustersThatAreNoLongerListed() {
+    state.snapshotState(CLUSTER_NAME);
+    now = now.plus(MAX_AGE).plusSeconds(1);
+    state.snapshotState("cluster2");
+
+    assertThat(state.isCached(CLUSTER_NAME)).isFalse();
+    assertThat(state.isCached("cluster2")).isTrue();
+  }
+
+  @Test
+  public void keepsClustersThatAreStillListed() {
+    state.snapshotState(CLUSTER_NAME);
+    now = now.plus(MAX_AGE).minusSeconds(1);
+    state.snapshotState(CLUSTER_NAME);
+    now = now.plusSeconds(2);
+    state.snapshotState("cluster2");
+
+    assertThat(state.isCached(CLUSTER_NAME)).isTrue();
+  }
+
+  private static CompletableFuture<DescribeContainerInstancesResponse> instanceWithRemainingCpu(
+      int cpu) {
+    return CompletableFuture.completedFuture(
+        DescribeContainerInstancesResponse.builder()
+            .containerInstances(
+                ContainerInstance.builder()
+                    .containerInstanceArn("instance-1")
+                    .version(1L)
+                    .status("ACTIVE")
+                    .remainingResources(Resource.builder().name("CPU").integerValue(cpu).build())
+                    .build())
+            .build());
+  }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.state;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FileSystemBlobStoreTest {
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void readsStoredContent() throws Exception {
+    FileSystemBlobStore store = new FileSystemBlobStore(folder.getRoot().toPath().resolve("blobs"));
+
+    store.put("key", new byte[] {1, 2, 3});
+    store.put("key", new byte[] {4, 5});
+
+    assertThat(store.get("key")).containsExactly(4, 5);
+    assertThat(store.get("other")).isNull();
+  }
+
+  @Test
+  public void rejectsKeysOutsideOfDirectory() {
+    FileSystemBlobStore store = new FileSystemBlobStore(folder.getRoot().toPath());
+
+    assertThatThrownBy(() -> store.get("../key")).isInstanceOf(IllegalArgumentException.class);
+  }
+}
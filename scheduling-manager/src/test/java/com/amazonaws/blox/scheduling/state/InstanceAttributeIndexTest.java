@@ -0,0 +1,90 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.state;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.amazonaws.blox.scheduling.state.ClusterSnapshot.ContainerInstance;
+import com.amazonaws.blox.scheduling.state.ClusterSnapshot.Task;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+public class InstanceAttributeIndexTest {
+  private final CompactClusterSnapshot snapshot =
+      CompactClusterSnapshot.of(
+          new ClusterSnapshot(
+              "cluster1",
+              Arrays.asList(Task.builder().arn("t-1").containerInstanceArn("i-unlisted").build()),
+              Arrays.asList(
+                  instance("i-0", "stack", "prod", "zone", "us-west-2a"),
+                  instance("i-1", "stack", "prod", "zone", "us-west-2b"),
+                  instance("i-2", "stack", "test", "zone", "us-west-2a"),
+                  ContainerInstance.builder().arn("i-3").build())));
+
+  private final InstanceAttributeIndex index = snapshot.attributeIndex();
+
+  @Test
+  public void findsInstancesWithAnAttribute() {
+    assertThat(index.instancesWith(Collections.singletonMap("stack", "prod")))
+        .isEqualTo(bits(0, 1));
+    assertThat(index.instancesWith(Collections.singletonMap("zone", "us-west-2a")))
+        .isEqualTo(bits(0, 2));
+  }
+
+  @Test
+  public void intersectsMultipleAttributes() {
+    Map<String, String> attributes = new HashMap<>();
+    attributes.put("stack", "prod");
+    attributes.put("zone", "us-west-2a");
+
+    assertThat(index.instancesWith(attributes)).isEqualTo(bits(0));
+  }
+
+  @Test
+  public void findsNoInstancesForUnknownAttributes() {
+    assertThat(index.instancesWith(Collections.singletonMap("stack", "dev"))).isEqualTo(bits());
+    assertThat(index.instancesWith(Collections.singletonMap("unknown", "prod"))).isEqualTo(bits());
+  }
+
+  @Test
+  public void findsAllListedInstancesWithoutAttributes() {
+    assertThat(index.instancesWith(Collections.emptyMap())).isEqualTo(bits(0, 1, 2, 3));
+  }
+
+  @Test
+  public void reusesIndexOfSnapshot() {
+    assertThat(snapshot.attributeIndex()).isSameAs(index);
+  }
+
+  private static ContainerInstance instance(String arn, String... attributes) {
+    ContainerInstance.ContainerInstanceBuilder builder = ContainerInstance.builder().arn(arn);
+    for (int i = 0; i < attributes.length; i += 2) {
+      builder.attribute(attributes[i], attributes[i + 1]);
+    }
+    return builder.build();
+  }
+
+  private static BitSet bits(int... indexes) {
+    BitSet bits = new BitSet();
+    for (int index : indexes) {
+      bits.set(index);
+    }
+    return bits;
+  }
+}
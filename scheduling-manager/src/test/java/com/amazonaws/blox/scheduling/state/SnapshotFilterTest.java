@@ -0,0 +1,69 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.state;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import org.junit.Test;
+import software.amazon.awssdk.services.ecs.model.ListTasksRequest;
+
+public class SnapshotFilterTest {
+  private static final String CLUSTER_NAME = "cluster1";
+  private static final String TASK_DEFINITION =
+      "arn:aws:ecs:us-west-2:123456789012:task-definition/web:3";
+
+  @Test
+  public void listsAllTasksWithoutFilter() {
+    List<ListTasksRequest.Builder> requests = SnapshotFilter.ALL.listTasksRequests(CLUSTER_NAME);
+
+    assertThat(requests).hasSize(1);
+    assertThat(requests.get(0).build())
+        .isEqualTo(ListTasksRequest.builder().cluster(CLUSTER_NAME).build());
+    assertThat(SnapshotFilter.ALL.matchesTask(null, TASK_DEFINITION)).isTrue();
+  }
+
+  @Test
+  public void listsTasksOfEachFamilySeparately() {
+    SnapshotFilter filter =
+        SnapshotFilter.builder().startedBy("blox").family("web").family("worker").build();
+
+    assertThat(filter.listTasksRequests(CLUSTER_NAME))
+        .extracting(ListTasksRequest.Builder::build)
+        .containsExactlyInAnyOrder(
+            ListTasksRequest.builder()
+                .cluster(CLUSTER_NAME)
+                .startedBy("blox")
+                .family("web")
+                .build(),
+            ListTasksRequest.builder()
+                .cluster(CLUSTER_NAME)
+                .startedBy("blox")
+                .family("worker")
+                .build());
+  }
+
+  @Test
+  public void matchesTasksByStartedByAndFamily() {
+    SnapshotFilter filter = SnapshotFilter.builder().startedBy("blox").family("web").build();
+
+    assertThat(filter.matchesTask("blox", TASK_DEFINITION)).isTrue();
+    assertThat(filter.matchesTask("someone-else", TASK_DEFINITION)).isFalse();
+    assertThat(
+            filter.matchesTask(
+                "blox", "arn:aws:ecs:us-west-2:123456789012:task-definition/worker:1"))
+        .isFalse();
+  }
+}
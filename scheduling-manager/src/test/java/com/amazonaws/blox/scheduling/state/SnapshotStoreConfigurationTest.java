@@ -0,0 +1,45 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.state;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+public class SnapshotStoreConfigurationTest {
+  private final SnapshotStoreConfiguration configuration = new SnapshotStoreConfiguration();
+  private final MockEnvironment environment = new MockEnvironment();
+
+  @Test
+  public void failsWithoutBucket() {
+    configuration.bucketName = "";
+
+    assertThatThrownBy(() -> configuration.snapshotBlobStore(environment))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessageContaining("snapshot_bucket_name");
+  }
+
+  @Test
+  public void storesSnapshotsLocallyWithLocalSnapshotsProfile() {
+    configuration.bucketName = "";
+    configuration.directory = System.getProperty("java.io.tmpdir") + "/blox-snapshots-test";
+    environment.setActiveProfiles(SnapshotStoreConfiguration.LOCAL_SNAPSHOTS_PROFILE);
+
+    assertThat(configuration.snapshotBlobStore(environment))
+        .isInstanceOf(FileSystemBlobStore.class);
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.state;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.amazonaws.blox.lambda.PayloadCodecs;
+import com.amazonaws.blox.lambda.SmilePayloadCodec;
+import com.amazonaws.blox.scheduling.state.ClusterSnapshot.ContainerInstance;
+import com.amazonaws.blox.scheduling.state.ClusterSnapshot.Task;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import java.io.IOException;
+import java.util.Collections;
+import org.junit.Test;
+
+public class SnapshotStoreTest {
+  private final SmilePayloadCodec smile =
+      new SmilePayloadCodec(
+          new ObjectMapper(new SmileFactory()).registerModule(new ColumnarClusterSnapshotModule()));
+  private final PayloadCodecs codecs = new PayloadCodecs(new ObjectMapper(), smile);
+  private final InMemoryBlobStore blobs = new InMemoryBlobStore();
+
+  private final ClusterSnapshot snapshot =
+      new ClusterSnapshot(
+          "cluster1",
+          Collections.singletonList(
+              Task.builder().arn("t-1").containerInstanceArn("i-1").status("RUNNING").build()),
+          Collections.singletonList(ContainerInstance.builder().arn("i-1").build()));
+
+  @Test
+  public void fetchesPublishedSnapshotFromAnotherStore() throws Exception {
+    String id = store().publish(snapshot);
+
+    assertThat(store().fetch(id)).isEqualTo(snapshot);
+  }
+
+  @Test
+  public void identicalSnapshotsHaveTheSameId() throws Exception {
+    SnapshotStore store = store();
+
+    String first = store.publish(snapshot);
+    String second =
+        store.publish(
+            new ClusterSnapshot(
+                snapshot.getClusterName(), snapshot.getTasks(), snapshot.getInstances()));
+
+    assertThat(second).isEqualTo(first);
+    assertThat(blobs.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void cachesFetchedSnapshots() throws Exception {
+    String id = store().publish(snapshot);
+    SnapshotStore store = store();
+
+    ClusterSnapshot fetched = store.fetch(id);
+    blobs.put(id, new byte[0]);
+
+    assertThat(store.fetch(id)).isSameAs(fetched);
+  }
+
+  @Test
+  public void rejectsUnknownIds() {
+    assertThatThrownBy(() -> store().fetch("unknown")).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void rejectsContentThatDoesNotMatchItsId() throws Exception {
+    String id = store().publish(snapshot);
+    blobs.put(id, blobs.get(store().publish(new ClusterSnapshot("cluster2", null, null))));
+
+    assertThatThrownBy(() -> store().fetch(id)).isInstanceOf(IOException.class);
+  }
+
+  private SnapshotStore store() {
+    return new SnapshotStore(blobs, codecs, smile, 16);
+  }
+}
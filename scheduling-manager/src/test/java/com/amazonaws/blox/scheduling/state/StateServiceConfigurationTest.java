@@ -0,0 +1,61 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.state;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import java.util.Collections;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class StateServiceConfigurationTest {
+  @Mock private ECSStateClient ecs;
+  @Mock private AmazonDynamoDB dynamoDB;
+
+  private final StateServiceConfiguration configuration = new StateServiceConfiguration();
+
+  @Test
+  public void listsStateFromEcsWithoutClusterStateTable() {
+    configuration.clusterStateTableName = "";
+    configuration.maxStalenessSeconds = 300;
+
+    ECSState state = configuration.ecsState(ecs, () -> dynamoDB);
+
+    assertThat(state).isInstanceOf(CachingECSState.class);
+  }
+
+  @Test
+  public void readsStateFromClusterStateTableIfConfigured() {
+    ArgumentCaptor<QueryRequest> query = ArgumentCaptor.forClass(QueryRequest.class);
+    when(dynamoDB.query(query.capture()))
+        .thenReturn(new QueryResult().withItems(Collections.emptyList()));
+    configuration.clusterStateTableName = "ClusterStateTable";
+
+    ECSState state = configuration.ecsState(ecs, () -> dynamoDB);
+    ClusterSnapshot snapshot = state.snapshotState("cluster1");
+
+    assertThat(state).isInstanceOf(StateService.class);
+    assertThat(snapshot.getTasks()).isEmpty();
+    assertThat(query.getValue().getTableName()).isEqualTo("ClusterStateTable");
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.state;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.blox.scheduling.state.repository.ClusterStateRepository;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class StateServiceTest {
+  private static final String CLUSTER_NAME = "cluster1";
+  private static final String CLUSTER_ARN =
+      "arn:aws:ecs:us-west-2:123456789012:cluster/" + CLUSTER_NAME;
+
+  @Mock private ClusterStateRepository repository;
+  @Mock private ECSState ecs;
+
+  @Test
+  public void readsSnapshotFromRepository() {
+    ClusterSnapshot.Task ours =
+        ClusterSnapshot.Task.builder().arn("task-1").startedBy("blox").build();
+    ClusterSnapshot.Task theirs =
+        ClusterSnapshot.Task.builder().arn("task-2").startedBy("someone-else").build();
+    when(repository.getClusterState(CLUSTER_NAME))
+        .thenReturn(
+            new ClusterSnapshot(
+                CLUSTER_NAME, Arrays.asList(ours, theirs), Collections.emptyList()));
+
+    ClusterSnapshot snapshot =
+        new StateService(repository, ecs)
+            .snapshotState(CLUSTER_NAME, SnapshotFilter.builder().startedBy("blox").build());
+
+    assertThat(snapshot.getTasks()).containsExactly(ours);
+  }
+
+  @Test
+  public void listsSnapshotsWithInstanceFiltersFromECS() {
+    SnapshotFilter filter =
+        SnapshotFilter.builder().containerInstanceFilter("attribute:role == daemon").build();
+    ClusterSnapshot listed =
+        new ClusterSnapshot(CLUSTER_NAME, Collections.emptyList(), Collections.emptyList());
+    when(ecs.snapshotState(CLUSTER_NAME, filter)).thenReturn(listed);
+
+    assertThat(new StateService(repository, ecs).snapshotState(CLUSTER_NAME, filter))
+        .isSameAs(listed);
+  }
+
+  @Test
+  public void appliesTaskEventsToRepository() {
+    StateService state = new StateService(repository, ecs);
+
+    state.onTaskStateChange(taskEvent("task-1", "RUNNING", 2L));
+    state.onTaskStateChange(taskEvent("task-2", "STOPPED", 3L));
+
+    verify(repository).putTask(CLUSTER_NAME, taskEvent("task-1", "RUNNING", 2L).toTask());
+    verify(repository).removeTask(CLUSTER_NAME, "task-2", 3L);
+  }
+
+  private static TaskStateChange taskEvent(String arn, String desiredStatus, Long version) {
+    TaskStateChange change = new TaskStateChange();
+    change.setClusterArn(CLUSTER_ARN);
+    change.setTaskArn(arn);
+    change.setDesiredStatus(desiredStatus);
+    change.setLastStatus(desiredStatus);
+    change.setVersion(version);
+    return change;
+  }
+}
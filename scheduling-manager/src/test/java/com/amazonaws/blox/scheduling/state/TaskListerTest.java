@@ -14,13 +14,21 @@
  */
 package com.amazonaws.blox.scheduling.state;
 
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.argThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
@@ -66,6 +74,39 @@ public class TaskListerTest {
         containsInAnyOrder("1", "2", "3", "4", "5", "6"));
   }
 
+  @Test
+  public void describesOnlyNewOrChangingTasksOnceCached() {
+    ECSAsyncClient ecs = mock(FakeECSAsyncClient.class, Mockito.CALLS_REAL_METHODS);
+    DescribeCache<ClusterSnapshot.Task> cache =
+        new DescribeCache<>(
+            ClusterSnapshot.Task::getVersion, Duration.ofMinutes(5), Clock.systemUTC());
+    cache.put("1", task("1", "RUNNING"), true);
+    cache.put("2", task("2", "RUNNING"), false);
+    cache.put("3", task("3", "STOPPED"), true);
+
+    TaskLister tasks =
+        new TaskLister(
+            ecs,
+            ListTasksRequest.builder().cluster(CLUSTER_ARN),
+            DescribeTasksRequest.builder().cluster(CLUSTER_ARN),
+            AsyncPaginator.DEFAULT_PREFETCH_DEPTH,
+            cache);
+
+    List<ClusterSnapshot.Task> describe = tasks.describe().join();
+
+    assertThat(
+        describe.stream().map(ClusterSnapshot.Task::getArn).collect(Collectors.toList()),
+        contains("1", "2", "3", "4", "5", "6"));
+    verify(ecs, never()).describeTasks(argThat(r -> r.tasks().contains("1")));
+    verify(ecs).describeTasks(argThat(r -> r.tasks().equals(Arrays.asList("2"))));
+    verify(ecs).describeTasks(argThat(r -> r.tasks().equals(Arrays.asList("3", "4"))));
+    assertThat(cache.size(), is(6));
+  }
+
+  private static ClusterSnapshot.Task task(String arn, String status) {
+    return ClusterSnapshot.Task.builder().arn(arn).status(status).build();
+  }
+
   public abstract class FakeECSAsyncClient implements ECSAsyncClient {
     @Override
     public CompletableFuture<DescribeTasksResponse> describeTasks(DescribeTasksRequest request) {
@@ -75,7 +116,13 @@ public class TaskListerTest {
                   request
                       .tasks()
                       .stream()
-                      .map(arn -> Task.builder().taskArn(arn).build())
+                      .map(
+                          arn ->
+                              Task.builder()
+                                  .taskArn(arn)
+                                  .desiredStatus("RUNNING")
+                                  .lastStatus("RUNNING")
+                                  .build())
                       .collect(Collectors.toList()))
               .build());
     }
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.scheduling.state.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.amazonaws.blox.scheduling.state.ClusterSnapshot;
+import com.amazonaws.blox.scheduling.state.repository.model.ClusterResourceDDBRecord;
+import com.amazonaws.blox.scheduling.test.rules.LocalDynamoDb;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughput;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class ClusterStateRepositoryDDBTest {
+  private static final String CLUSTER_NAME = "cluster1";
+  private static final Instant NOW = Instant.parse("2017-11-01T00:00:00Z");
+
+  @Rule public LocalDynamoDb localDynamoDb = new LocalDynamoDb();
+
+  private DynamoDBMapper mapper;
+  private ClusterStateRepository repository;
+
+  @Before
+  public void setUp() {
+    AmazonDynamoDB dynamoDB = localDynamoDb.client();
+    mapper = new DynamoDBMapper(dynamoDB);
+    dynamoDB.createTable(
+        mapper
+            .generateCreateTableRequest(ClusterResourceDDBRecord.class)
+            .withProvisionedThroughput(new ProvisionedThroughput(1000L, 1000L)));
+
+    repository = new ClusterStateRepositoryDDB(mapper, Clock.fixed(NOW, ZoneOffset.UTC));
+  }
+
+  @Test
+  public void readsTasksAndInstancesOfCluster() {
+    repository.putTask(CLUSTER_NAME, task("task-1", 1L));
+    repository.putContainerInstance(CLUSTER_NAME, instance("instance-1", 1L));
+    repository.putTask("other-cluster", task("task-2", 1L));
+
+    ClusterSnapshot state = repository.getClusterState(CLUSTER_NAME);
+
+    assertThat(state.getTasks()).containsExactly(task("task-1", 1L));
+    assertThat(state.getInstances()).containsExactly(instance("instance-1", 1L));
+  }
+
+  @Test
+  public void dropsUpdatesOlderThanStoredState() {
+    assertThat(repository.putTask(CLUSTER_NAME, task("task-1", 3L))).isTrue();
+    assertThat(repository.putTask(CLUSTER_NAME, task("task-1", 2L))).isFalse();
+    assertThat(repository.putTask(CLUSTER_NAME, task("task-1", 3L))).isFalse();
+
+    assertThat(repository.getClusterState(CLUSTER_NAME).getTasks())
+        .containsExactly(task("task-1", 3L));
+  }
+
+  @Test
+  public void keepsRemovedResourcesFromBeingAddedBackByOlderUpdates() {
+    repository.putTask(CLUSTER_NAME, task("task-1", 1L));
+    repository.removeTask(CLUSTER_NAME, "task-1", 3L);
+
+    assertThat(repository.putTask(CLUSTER_NAME, task("task-1", 2L))).isFalse();
+    assertThat(repository.getClusterState(CLUSTER_NAME).getTasks()).isEmpty();
+
+    ClusterResourceDDBRecord tombstone =
+        mapper.load(
+            ClusterResourceDDBRecord.class,
+            CLUSTER_NAME,
+            ClusterResourceDDBRecord.taskId("task-1"));
+    assertThat(tombstone.getExpiresAt())
+        .isEqualTo(NOW.plus(ClusterStateRepositoryDDB.TOMBSTONE_RETENTION).getEpochSecond());
+  }
+
+  @Test
+  public void reconcilesStoredStateWithListedState() {
+    repository.putTask(CLUSTER_NAME, task("stopped-task", 1L));
+    repository.putTask(CLUSTER_NAME, task("changed-task", 1L));
+    repository.putContainerInstance(CLUSTER_NAME, instance("instance-1", 1L));
+
+    repository.reconcile(
+        new ClusterSnapshot(
+            CLUSTER_NAME,
+            Arrays.asList(task("changed-task", 2L), task("new-task", 1L)),
+            Arrays.asList(instance("instance-1", 1L))));
+
+    ClusterSnapshot state = repository.getClusterState(CLUSTER_NAME);
+    assertThat(state.getTasks())
+        .containsExactlyInAnyOrder(task("changed-task", 2L), task("new-task", 1L));
+    assertThat(state.getInstances()).containsExactly(instance("instance-1", 1L));
+  }
+
+  @Test
+  public void keepsUpdatesThatAreNewerThanListedState() {
+    repository.putTask(CLUSTER_NAME, task("task-1", 5L));
+
+    repository.reconcile(
+        new ClusterSnapshot(
+            CLUSTER_NAME, Arrays.asList(task("task-1", 4L)), Collections.emptyList()));
+
+    assertThat(repository.getClusterState(CLUSTER_NAME).getTasks())
+        .containsExactly(task("task-1", 5L));
+  }
+
+  private static ClusterSnapshot.Task task(String arn, Long version) {
+    return ClusterSnapshot.Task.builder()
+        .arn(arn)
+        .containerInstanceArn("instance-1")
+        .taskDefinitionArn("arn:aws:ecs:us-west-2:123456789012:task-definition/web:1")
+        .status("RUNNING")
+        .group("environment1")
+        .startedBy("blox")
+        .version(version)
+        .build();
+  }
+
+  private static ClusterSnapshot.ContainerInstance instance(String arn, Long version) {
+    return ClusterSnapshot.ContainerInstance.builder()
+        .arn(arn)
+        .version(version)
+        .status("ACTIVE")
+        .attribute("stack", "prod")
+        .remainingCpu(1024)
+        .remainingMemory(2048)
+        .build();
+  }
+}
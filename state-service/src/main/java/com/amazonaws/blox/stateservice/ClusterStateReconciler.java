@@ -0,0 +1,177 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.stateservice;
+
+import com.amazonaws.blox.dataservicemodel.v1.client.DataService;
+import com.amazonaws.blox.dataservicemodel.v1.exception.InternalServiceException;
+import com.amazonaws.blox.dataservicemodel.v1.exception.InvalidParameterException;
+import com.amazonaws.blox.dataservicemodel.v1.model.Cluster;
+import com.amazonaws.blox.dataservicemodel.v1.model.wrappers.ListClustersRequest;
+import com.amazonaws.blox.dataservicemodel.v1.model.wrappers.ListClustersResponse;
+import com.amazonaws.blox.jsonrpc.Deadline;
+import com.amazonaws.blox.lambda.LambdaDeadlines;
+import com.amazonaws.blox.scheduling.reconciler.CloudWatchEvent;
+import com.amazonaws.blox.scheduling.state.ECSState;
+import com.amazonaws.blox.scheduling.state.repository.ClusterStateRepository;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Periodically lists the state of every cluster from ECS, and corrects the stored state of the
+ * cluster for any state change events that were missed.
+ *
+ * <p>Clusters are listed from the DataService in disjoint segments, a page at a time, and the
+ * segments are reconciled in parallel. Once the invocation runs low on time, no more pages are
+ * listed; the clusters that weren't reached are reconciled by the next invocation.
+ */
+@Slf4j
+public class ClusterStateReconciler implements RequestHandler<CloudWatchEvent<Map>, Void> {
+  public static final int DEFAULT_SEGMENTS = 4;
+  public static final int DEFAULT_PAGE_SIZE = 100;
+  public static final long DEFAULT_RESERVED_MILLIS = 15_000;
+
+  private final DataService dataService;
+  private final ECSState ecs;
+  private final ClusterStateRepository repository;
+  private final int totalSegments;
+  private final int pageSize;
+  private final long reservedMillis;
+
+  private final ExecutorService segments;
+
+  public ClusterStateReconciler(
+      DataService dataService,
+      ECSState ecs,
+      ClusterStateRepository repository,
+      int totalSegments,
+      int pageSize) {
+    this(dataService, ecs, repository, totalSegments, pageSize, DEFAULT_RESERVED_MILLIS);
+  }
+
+  public ClusterStateReconciler(
+      DataService dataService,
+      ECSState ecs,
+      ClusterStateRepository repository,
+      int totalSegments,
+      int pageSize,
+      long reservedMillis) {
+    if (totalSegments < 1) {
+      throw new IllegalArgumentException("totalSegments must be positive: " + totalSegments);
+    }
+    if (pageSize < 1) {
+      throw new IllegalArgumentException("pageSize must be positive: " + pageSize);
+    }
+
+    this.dataService = dataService;
+    this.ecs = ecs;
+    this.repository = repository;
+    this.totalSegments = totalSegments;
+    this.pageSize = pageSize;
+    this.reservedMillis = reservedMillis;
+    this.segments =
+        Executors.newFixedThreadPool(
+            totalSegments,
+            r -> {
+              Thread thread = new Thread(r, "cluster-state-reconciler");
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  @Override
+  public Void handleRequest(CloudWatchEvent<Map> input, Context context) {
+    log.debug("Reconciliation request: {}", input);
+
+    Deadline deadline = LambdaDeadlines.of(context);
+    List<CompletableFuture<Integer>> reconciled =
+        IntStream.range(0, totalSegments)
+            .mapToObj(
+                segment ->
+                    CompletableFuture.supplyAsync(
+                        () -> {
+                          try (Deadline.Scope scope = LambdaDeadlines.enter(deadline)) {
+                            return reconcileSegment(segment, context);
+                          } catch (InvalidParameterException | InternalServiceException e) {
+                            throw new CompletionException(e);
+                          }
+                        },
+                        segments))
+            .collect(Collectors.toList());
+
+    int clusters = 0;
+    for (int segment = 0; segment < totalSegments; segment++) {
+      // A segment that couldn't be listed is reconciled again by the next invocation:
+      try {
+        clusters += reconciled.get(segment).join();
+      } catch (CompletionException e) {
+        log.error("Could not list segment {}/{}", segment, totalSegments, e.getCause());
+      }
+    }
+
+    log.info("Reconciled state of {} clusters", clusters);
+    return null;
+  }
+
+  private int reconcileSegment(int segment, Context context)
+      throws InvalidParameterException, InternalServiceException {
+    String nextToken = null;
+    int clusters = 0;
+
+    do {
+      ListClustersResponse page =
+          dataService.listClusters(
+              ListClustersRequest.builder()
+                  .segment(segment)
+                  .totalSegments(totalSegments)
+                  .nextToken(nextToken)
+                  .maxResults(pageSize)
+                  .build());
+
+      for (Cluster cluster : page.getClusters()) {
+        // Reconcile the other clusters even if one of them fails, it'll be retried next time:
+        try {
+          repository.reconcile(ecs.snapshotState(cluster.getClusterName()));
+          clusters++;
+        } catch (RuntimeException e) {
+          log.error("Could not reconcile state of cluster {}", cluster.getClusterName(), e);
+        }
+      }
+
+      nextToken = page.getNextToken();
+    } while (nextToken != null && hasTimeLeft(context));
+
+    if (nextToken != null) {
+      log.warn(
+          "Ran out of time to reconcile segment {}/{} after {} clusters",
+          segment,
+          totalSegments,
+          clusters);
+    }
+    return clusters;
+  }
+
+  private boolean hasTimeLeft(Context context) {
+    return context == null || context.getRemainingTimeInMillis() > reservedMillis;
+  }
+}
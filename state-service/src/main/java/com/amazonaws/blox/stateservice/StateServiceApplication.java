@@ -0,0 +1,89 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.stateservice;
+
+import com.amazonaws.blox.dataservicemodel.v1.client.DataService;
+import com.amazonaws.blox.lambda.JacksonRequestStreamHandler;
+import com.amazonaws.blox.scheduling.SchedulingApplication;
+import com.amazonaws.blox.scheduling.state.ECSEventStreamHandler;
+import com.amazonaws.blox.scheduling.state.ECSStateClient;
+import com.amazonaws.blox.scheduling.state.StateService;
+import com.amazonaws.blox.scheduling.state.StateServiceConfiguration;
+import com.amazonaws.blox.scheduling.state.repository.ClusterStateRepository;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
+import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import software.amazon.awssdk.services.ecs.ECSAsyncClient;
+
+/**
+ * The state service function: applies ECS state change events to the stored cluster state, and
+ * periodically reconciles it with the state listed from ECS.
+ */
+@Configuration
+public class StateServiceApplication extends SchedulingApplication {
+
+  // Wired in through environment variable in CloudFormation template
+  @Value("${cluster_state_table_name:ClusterState}")
+  String clusterStateTableName;
+
+  @Value("${state_reconciler_segments:" + ClusterStateReconciler.DEFAULT_SEGMENTS + "}")
+  int reconcilerSegments;
+
+  @Value("${state_reconciler_page_size:" + ClusterStateReconciler.DEFAULT_PAGE_SIZE + "}")
+  int reconcilerPageSize;
+
+  @Bean
+  @Profile("!test")
+  public AmazonDynamoDB dynamoDBClient() {
+    return AmazonDynamoDBClientBuilder.defaultClient();
+  }
+
+  @Bean
+  public ClusterStateRepository clusterStateRepository(AmazonDynamoDB dynamoDB) {
+    return StateServiceConfiguration.clusterStateRepository(dynamoDB, clusterStateTableName);
+  }
+
+  @Bean
+  public StateService stateService(ClusterStateRepository repository, ECSStateClient ecs) {
+    return new StateService(repository, ecs);
+  }
+
+  @Bean
+  @Profile("!test")
+  public ECSStateClient ecsStateClient(
+      ECSAsyncClient ecs, @Value("${ecs_list_prefetch_depth:4}") int prefetchDepth) {
+    return new ECSStateClient(ecs, prefetchDepth);
+  }
+
+  @Bean
+  public ClusterStateReconciler reconciler(
+      DataService dataService, ECSStateClient ecs, ClusterStateRepository repository) {
+    return new ClusterStateReconciler(
+        dataService, ecs, repository, reconcilerSegments, reconcilerPageSize);
+  }
+
+  @Bean
+  @Primary
+  public RequestStreamHandler stateServiceStreamHandler(
+      ClusterStateReconciler reconciler, StateService state) {
+    return new ECSEventStreamHandler(
+        mapper(), new JacksonRequestStreamHandler<>(mapper(), reconciler), state);
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2017 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may
+ * not use this file except in compliance with the License. A copy of the
+ * License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.blox.stateservice;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.blox.dataservicemodel.v1.client.DataService;
+import com.amazonaws.blox.dataservicemodel.v1.exception.InternalServiceException;
+import com.amazonaws.blox.dataservicemodel.v1.model.Cluster;
+import com.amazonaws.blox.dataservicemodel.v1.model.wrappers.ListClustersRequest;
+import com.amazonaws.blox.dataservicemodel.v1.model.wrappers.ListClustersResponse;
+import com.amazonaws.blox.scheduling.reconciler.CloudWatchEvent;
+import com.amazonaws.blox.scheduling.state.ClusterSnapshot;
+import com.amazonaws.blox.scheduling.state.ECSState;
+import com.amazonaws.blox.scheduling.state.repository.ClusterStateRepository;
+import com.amazonaws.services.lambda.runtime.Context;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ClusterStateReconcilerTest {
+  @Mock private DataService data;
+  @Mock private ECSState ecs;
+  @Mock private ClusterStateRepository repository;
+  @Mock private Context context;
+
+  private final ArgumentCaptor<ClusterSnapshot> reconciled =
+      ArgumentCaptor.forClass(ClusterSnapshot.class);
+
+  /** The pages of each segment, by segment and nextToken. */
+  private final Map<String, ListClustersResponse> pages = new HashMap<>();
+
+  @Test
+  public void reconcilesEveryPageOfEverySegment() throws Exception {
+    pages.put("0/null", page("page-2", "cluster1"));
+    pages.put("0/page-2", page(null, "cluster2"));
+    pages.put("1/null", page(null, "cluster3"));
+    listsPages();
+    snapshotsClusters();
+    when(context.getRemainingTimeInMillis()).thenReturn(50_000);
+
+    new ClusterStateReconciler(data, ecs, repository, 2, 10)
+        .handleRequest(new CloudWatchEvent<>(), context);
+
+    verify(repository, times(3)).reconcile(reconciled.capture());
+    assertThat(reconciled.getAllValues())
+        .extracting("clusterName")
+        .containsExactlyInAnyOrder("cluster1", "cluster2", "cluster3");
+  }
+
+  @Test
+  public void stopsListingPagesWhenRunningOutOfTime() throws Exception {
+    pages.put("0/null", page("page-2", "cluster1"));
+    listsPages();
+    snapshotsClusters();
+    when(context.getRemainingTimeInMillis()).thenReturn(1_000);
+
+    new ClusterStateReconciler(data, ecs, repository, 1, 10, 5_000)
+        .handleRequest(new CloudWatchEvent<>(), context);
+
+    verify(repository).reconcile(reconciled.capture());
+    assertThat(reconciled.getValue().getClusterName()).isEqualTo("cluster1");
+  }
+
+  @Test
+  public void reconcilesOtherClustersWhenOneFails() throws Exception {
+    pages.put("0/null", page(null, "cluster1", "cluster2"));
+    listsPages();
+    when(ecs.snapshotState("cluster1")).thenThrow(new IllegalStateException("Rate exceeded"));
+    when(ecs.snapshotState("cluster2")).thenReturn(snapshot("cluster2"));
+
+    new ClusterStateReconciler(data, ecs, repository, 1, 10)
+        .handleRequest(new CloudWatchEvent<>(), null);
+
+    verify(repository).reconcile(reconciled.capture());
+    assertThat(reconciled.getValue().getClusterName()).isEqualTo("cluster2");
+  }
+
+  @Test
+  public void reconcilesOtherSegmentsWhenOneCannotBeListed() throws Exception {
+    when(data.listClusters(any()))
+        .thenAnswer(
+            invocation -> {
+              ListClustersRequest request = invocation.getArgument(0);
+              if (request.getSegment() == 0) {
+                throw new InternalServiceException("Unavailable");
+              }
+              return page(null, "cluster2");
+            });
+    snapshotsClusters();
+
+    new ClusterStateReconciler(data, ecs, repository, 2, 10)
+        .handleRequest(new CloudWatchEvent<>(), null);
+
+    verify(repository).reconcile(reconciled.capture());
+    assertThat(reconciled.getValue().getClusterName()).isEqualTo("cluster2");
+  }
+
+  private void listsPages() throws Exception {
+    when(data.listClusters(any()))
+        .thenAnswer(
+            invocation -> {
+              ListClustersRequest request = invocation.getArgument(0);
+              assertThat(request.getMaxResults()).isEqualTo(10);
+              return pages.getOrDefault(
+                  request.getSegment() + "/" + request.getNextToken(), page(null));
+            });
+  }
+
+  private void snapshotsClusters() {
+    when(ecs.snapshotState(anyString()))
+        .thenAnswer(invocation -> snapshot(invocation.getArgument(0)));
+  }
+
+  private static ClusterSnapshot snapshot(String clusterName) {
+    return new ClusterSnapshot(clusterName, Collections.emptyList(), Collections.emptyList());
+  }
+
+  private static ListClustersResponse page(String nextToken, String... clusterNames) {
+    return ListClustersResponse.builder()
+        .clusters(
+            Arrays.stream(clusterNames)
+                .map(n -> Cluster.builder().accountId("123456789012").clusterName(n).build())
+                .collect(Collectors.toList()))
+        .nextToken(nextToken)
+        .build();
+  }
+}